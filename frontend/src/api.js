@@ -49,7 +49,10 @@ async function request(url, options = {}) {
   const data = await response.json();
 
   if (!response.ok) {
-    throw new Error(data.error || 'Something went wrong');
+    const error = new Error(data.error || 'Something went wrong');
+    error.status = response.status;
+    error.data = data;
+    throw error;
   }
 
   return data;
@@ -81,17 +84,32 @@ export async function getAllLinks() {
   return request('/links/all');
 }
 
-export async function createLink(keyword, url, description) {
-  return request('/links', {
+// All links plus the positions of the current user's links among them,
+// in one response: { links: [...], mine: [0, 4, 7] }
+export async function getDashboard() {
+  return request('/dashboard');
+}
+
+// Links to the same URL (host case, default port, trailing slash and utm_* ignored)
+export async function findLinksByUrl(url) {
+  return request(`/links/by-url?url=${encodeURIComponent(url)}`);
+}
+
+// With checkDuplicates, fails with status 409 and error.data.duplicates
+// if links to the same URL already exist (nothing is created)
+export async function createLink(keyword, url, description, expiresAt, destinations,
+                                 redirectStatus, cacheMaxAge, checkDuplicates = false) {
+  return request(checkDuplicates ? '/links?checkDuplicates=true' : '/links', {
     method: 'POST',
-    body: JSON.stringify({ keyword, url, description }),
+    body: JSON.stringify({ keyword, url, description, expiresAt, destinations, redirectStatus, cacheMaxAge }),
   });
 }
 
-export async function updateLink(keyword, url, description) {
+export async function updateLink(keyword, url, description, expiresAt, destinations,
+                                 redirectStatus, cacheMaxAge) {
   return request(`/links/${keyword}`, {
     method: 'PUT',
-    body: JSON.stringify({ keyword, url, description }),
+    body: JSON.stringify({ keyword, url, description, expiresAt, destinations, redirectStatus, cacheMaxAge }),
   });
 }
 
@@ -114,12 +132,30 @@ export async function updateUserRole(username, role) {
   });
 }
 
-export async function deleteUser(username) {
-  return request(`/admin/users/${username}`, {
+// Without newOwner the user's links are deleted; with it they're reassigned.
+// Either way the server answers with a background job to follow.
+export async function deleteUser(username, newOwner) {
+  const query = newOwner
+    ? `?links=reassign&to=${encodeURIComponent(newOwner)}`
+    : '?links=delete';
+  return request(`/admin/users/${username}${query}`, {
     method: 'DELETE',
   });
 }
 
+export async function getJob(id) {
+  return request(`/admin/jobs/${id}`);
+}
+
+// Rewrite the URLs of all links matching a host, prefix or regex.
+// With dryRun the job only reports (in its message) what would change.
+export async function rewriteUrls(match, from, to, dryRun) {
+  return request('/admin/jobs/url-rewrite', {
+    method: 'POST',
+    body: JSON.stringify({ match, from, to, dryRun: String(dryRun) }),
+  });
+}
+
 export async function adminGetAllLinks() {
   return request('/admin/links');
 }
@@ -1,5 +1,5 @@
 import { useState, useEffect } from 'react';
-import { getUsers, updateUserRole, deleteUser, adminGetAllLinks, adminDeleteLink } from '../api';
+import { getUsers, updateUserRole, deleteUser, getJob, rewriteUrls, adminGetAllLinks, adminDeleteLink } from '../api';
 import { useAuth } from '../AuthContext';
 
 /**
@@ -14,6 +14,8 @@ export default function Admin() {
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState('');
   const [success, setSuccess] = useState('');
+  const [rewrite, setRewrite] = useState({ match: 'host', from: '', to: '' });
+  const [rewriteJob, setRewriteJob] = useState(null);
 
   useEffect(() => {
     loadData();
@@ -48,16 +50,69 @@ export default function Admin() {
       return;
     }
     if (!window.confirm(`Delete user "${username}"? This cannot be undone.`)) return;
+    const newOwner = window.prompt(
+      `Give ${username}'s links to another user? Enter their username, or leave empty to delete the links.`,
+      ''
+    );
+    if (newOwner === null) return;
+
+    try {
+      const { job } = await deleteUser(username, newOwner.trim());
+      setSuccess(`Deleted user "${username}" — cleaning up their links in the background`);
+      await loadData();
+      followJob(job.id);
+    } catch (err) {
+      setError(err.message);
+    }
+  }
 
+  // Poll a background job until it finishes, then refresh the link list
+  async function followJob(id) {
     try {
-      await deleteUser(username);
-      setSuccess(`Deleted user "${username}"`);
+      const job = await getJob(id);
+      if (job.status === 'RUNNING') {
+        setTimeout(() => followJob(id), 2000);
+        return;
+      }
+      if (job.status === 'SUCCEEDED') {
+        setSuccess(`Link cleanup finished: ${job.processed} links ${job.parameters.action === 'reassign' ? 'reassigned' : 'deleted'}`);
+      } else {
+        setError(`Link cleanup ${job.status.toLowerCase()}: ${job.message || ''}`);
+      }
       await loadData();
     } catch (err) {
       setError(err.message);
     }
   }
 
+  async function handleRewrite(dryRun) {
+    if (!dryRun && !window.confirm(`Rewrite every link matching ${rewrite.from} to ${rewrite.to}?`)) return;
+    try {
+      const job = await rewriteUrls(rewrite.match, rewrite.from, rewrite.to, dryRun);
+      setRewriteJob(job);
+      followRewrite(job.id);
+    } catch (err) {
+      setError(err.message);
+    }
+  }
+
+  // Poll the rewrite job, showing its progress, then refresh the link list
+  async function followRewrite(id) {
+    try {
+      const job = await getJob(id);
+      setRewriteJob(job);
+      if (job.status === 'RUNNING') {
+        setTimeout(() => followRewrite(id), 1000);
+        return;
+      }
+      if (job.parameters.dryRun !== 'true') {
+        await loadData();
+      }
+    } catch (err) {
+      setError(err.message);
+    }
+  }
+
   async function handleDeleteLink(keyword) {
     if (!window.confirm(`Delete go/${keyword}? This cannot be undone.`)) return;
 
@@ -173,6 +228,50 @@ export default function Admin() {
       )}
 
       {/* Links Tab */}
+      {activeTab === 'links' && (
+        <div className="card mb-3">
+          <div className="card-body">
+            <h6 className="card-title">Rewrite URLs</h6>
+            <div className="row g-2 align-items-center">
+              <div className="col-auto">
+                <select className="form-select form-select-sm" value={rewrite.match}
+                        onChange={(e) => setRewrite({ ...rewrite, match: e.target.value })}>
+                  <option value="host">Host</option>
+                  <option value="prefix">Prefix</option>
+                  <option value="regex">Regex</option>
+                </select>
+              </div>
+              <div className="col">
+                <input className="form-control form-control-sm" placeholder="from, e.g. wiki.old.corp"
+                       value={rewrite.from} onChange={(e) => setRewrite({ ...rewrite, from: e.target.value })} />
+              </div>
+              <div className="col">
+                <input className="form-control form-control-sm" placeholder="to, e.g. wiki.new.corp"
+                       value={rewrite.to} onChange={(e) => setRewrite({ ...rewrite, to: e.target.value })} />
+              </div>
+              <div className="col-auto">
+                <button className="btn btn-sm btn-outline-secondary me-1" disabled={!rewrite.from}
+                        onClick={() => handleRewrite(true)}>
+                  Dry run
+                </button>
+                <button className="btn btn-sm btn-primary" disabled={!rewrite.from}
+                        onClick={() => handleRewrite(false)}>
+                  Rewrite
+                </button>
+              </div>
+            </div>
+            {rewriteJob && (
+              <div className="small text-muted mt-2">
+                {rewriteJob.parameters.dryRun === 'true' ? 'Dry run' : 'Rewrite'} {rewriteJob.status.toLowerCase()}:
+                {' '}{rewriteJob.processed} of {rewriteJob.total} links
+                {rewriteJob.skipped > 0 && `, ${rewriteJob.skipped} edited meanwhile`}
+                {rewriteJob.failed > 0 && `, ${rewriteJob.failed} failed`}
+                {rewriteJob.message && <div>{rewriteJob.message}</div>}
+              </div>
+            )}
+          </div>
+        </div>
+      )}
       {activeTab === 'links' && (
         <div className="table-responsive">
           <table className="table table-hover align-middle">
@@ -1,6 +1,50 @@
 import { useState, useEffect } from 'react';
 import { useAuth } from '../AuthContext';
-import { getMyLinks, getAllLinks, createLink, updateLink, deleteLink } from '../api';
+import { getDashboard, createLink, updateLink, deleteLink } from '../api';
+
+/**
+ * Convert between the API's ISO-8601 instants and the local time shown by a
+ * <input type="datetime-local"> ("2025-03-01T09:30").
+ */
+function toLocalInput(iso) {
+  if (!iso) return '';
+  const date = new Date(iso);
+  const offsetMs = date.getTimezoneOffset() * 60000;
+  return new Date(date.getTime() - offsetMs).toISOString().slice(0, 16);
+}
+
+function fromLocalInput(value) {
+  return value ? new Date(value).toISOString() : null;
+}
+
+/**
+ * Weighted destinations are edited as text, one per line: "<weight> <url>".
+ */
+function destinationsToText(destinations) {
+  return (destinations || []).map((d) => `${d.weight} ${d.url}`).join('\n');
+}
+
+function textToDestinations(text) {
+  const lines = text.split('\n').map((line) => line.trim()).filter(Boolean);
+  if (lines.length === 0) return null;
+  return lines.map((line) => {
+    const [weight, ...url] = line.split(/\s+/);
+    return { weight: Number(weight), url: url.join(' ') };
+  });
+}
+
+/**
+ * How long browsers may cache a link's redirect (seconds). 0 = every click comes
+ * back to the server (except a 308, which the server then caches for a year).
+ */
+const CACHE_DURATIONS = [
+  [0, "Don't cache"],
+  [3600, '1 hour'],
+  [86400, '1 day'],
+  [604800, '1 week'],
+  [2592000, '30 days'],
+  [31536000, '1 year'],
+];
 
 /**
  * Dashboard — the main page for managing go links.
@@ -31,6 +75,10 @@ export default function Dashboard() {
   const [formKeyword, setFormKeyword] = useState('');
   const [formUrl, setFormUrl] = useState('');
   const [formDescription, setFormDescription] = useState('');
+  const [formExpiresAt, setFormExpiresAt] = useState('');
+  const [formDestinations, setFormDestinations] = useState('');
+  const [formRedirectStatus, setFormRedirectStatus] = useState(302);
+  const [formCacheMaxAge, setFormCacheMaxAge] = useState(0);
   const [formLoading, setFormLoading] = useState(false);
 
   // Fetch links on component mount
@@ -41,9 +89,10 @@ export default function Dashboard() {
   async function loadLinks() {
     try {
       setLoading(true);
-      const [mine, all] = await Promise.all([getMyLinks(), getAllLinks()]);
-      setMyLinks(mine);
-      setAllLinks(all);
+      // One request for both views; "mine" holds positions in "links"
+      const { links, mine } = await getDashboard();
+      setMyLinks(mine.map((i) => links[i]));
+      setAllLinks(links);
     } catch (err) {
       setError(err.message);
     } finally {
@@ -56,6 +105,10 @@ export default function Dashboard() {
     setFormKeyword('');
     setFormUrl('');
     setFormDescription('');
+    setFormExpiresAt('');
+    setFormDestinations('');
+    setFormRedirectStatus(302);
+    setFormCacheMaxAge(0);
     setShowForm(true);
     setError('');
   }
@@ -65,6 +118,10 @@ export default function Dashboard() {
     setFormKeyword(link.keyword);
     setFormUrl(link.url);
     setFormDescription(link.description || '');
+    setFormExpiresAt(toLocalInput(link.expiresAt));
+    setFormDestinations(destinationsToText(link.destinations));
+    setFormRedirectStatus(link.redirectStatus || 302);
+    setFormCacheMaxAge(link.cacheMaxAge || 0);
     setShowForm(true);
     setError('');
   }
@@ -75,11 +132,26 @@ export default function Dashboard() {
     setError('');
 
     try {
+      const expiresAt = fromLocalInput(formExpiresAt);
+      const destinations = textToDestinations(formDestinations);
       if (editingKeyword) {
-        await updateLink(editingKeyword, formUrl, formDescription);
+        await updateLink(editingKeyword, formUrl, formDescription, expiresAt, destinations,
+          formRedirectStatus, formCacheMaxAge);
         setSuccess(`Updated go/${editingKeyword}`);
       } else {
-        await createLink(formKeyword, formUrl, formDescription);
+        const create = (checkDuplicates) => createLink(formKeyword, formUrl, formDescription,
+          expiresAt, destinations, formRedirectStatus, formCacheMaxAge, checkDuplicates);
+        try {
+          await create(true);
+        } catch (err) {
+          if (err.status !== 409) throw err;
+          // Links to this URL exist already: ask before adding another
+          const existing = err.data.duplicates.map((link) => `go/${link.keyword}`).join(', ');
+          if (!window.confirm(`${existing} already point${err.data.duplicates.length === 1 ? 's' : ''} to this URL. Create go/${formKeyword} anyway?`)) {
+            return;
+          }
+          await create(false);
+        }
         setSuccess(`Created go/${formKeyword}`);
       }
       setShowForm(false);
@@ -185,9 +257,14 @@ export default function Dashboard() {
                     className="form-control"
                     value={formUrl}
                     onChange={(e) => setFormUrl(e.target.value)}
-                    required
+                    required={!formDestinations.trim()}
+                    disabled={!!formDestinations.trim()}
                     placeholder="https://www.google.com"
                   />
+                  <div className="form-text">
+                    Use <code>{'{1}'}</code> or <code>{'{*}'}</code> to fill in extra path segments
+                    (e.g. go/{formKeyword || 'jira'}/PROJ-123).
+                  </div>
                 </div>
                 <div className="col-md-4">
                   <label className="form-label">Description (optional)</label>
@@ -199,6 +276,59 @@ export default function Dashboard() {
                     placeholder="Google search engine"
                   />
                 </div>
+                <div className="col-md-3">
+                  <label className="form-label">Expires (optional)</label>
+                  <input
+                    type="datetime-local"
+                    className="form-control"
+                    value={formExpiresAt}
+                    onChange={(e) => setFormExpiresAt(e.target.value)}
+                  />
+                  <div className="form-text">For temporary links: incidents, events, launches.</div>
+                </div>
+                <div className="col-md-9">
+                  <label className="form-label">Weighted destinations (optional)</label>
+                  <textarea
+                    className="form-control font-monospace"
+                    rows={2}
+                    value={formDestinations}
+                    onChange={(e) => setFormDestinations(e.target.value)}
+                    placeholder={'90 https://dashboard.example.com\n10 https://new-dashboard.example.com'}
+                  />
+                  <div className="form-text">
+                    One per line: weight, then URL. Each redirect picks one by weight (replaces the URL above).
+                  </div>
+                </div>
+                <div className="col-md-3">
+                  <label className="form-label">Redirect</label>
+                  <select
+                    className="form-select"
+                    value={formRedirectStatus}
+                    onChange={(e) => setFormRedirectStatus(Number(e.target.value))}
+                  >
+                    <option value={302}>302 Found (temporary)</option>
+                    <option value={307}>307 Temporary Redirect</option>
+                    <option value={308}>308 Permanent Redirect</option>
+                  </select>
+                </div>
+                <div className="col-md-3">
+                  <label className="form-label">Browser cache</label>
+                  <select
+                    className="form-select"
+                    value={formCacheMaxAge}
+                    onChange={(e) => setFormCacheMaxAge(Number(e.target.value))}
+                  >
+                    {CACHE_DURATIONS.map(([seconds, label]) => (
+                      <option key={seconds} value={seconds}>{label}</option>
+                    ))}
+                  </select>
+                </div>
+                <div className="col-md-6">
+                  <div className="form-text mt-md-4">
+                    Cached redirects skip the server entirely, so a URL change reaches those browsers
+                    only once their copy expires. Not available with weighted destinations.
+                  </div>
+                </div>
               </div>
               <div className="mt-3">
                 <button type="submit" className="btn btn-primary me-2" disabled={formLoading}>
@@ -243,15 +373,44 @@ export default function Dashboard() {
                 <tr key={link.keyword}>
                   <td>
                     <code className="fs-6">go/{link.keyword}</code>
+                    {(link.cacheMaxAge || link.redirectStatus === 308) && (
+                      <span className="badge bg-light text-dark border ms-2" title="Browsers cache this redirect">
+                        {link.redirectStatus || 302}
+                      </span>
+                    )}
+                    {link.expiresAt && (
+                      <span className="badge bg-warning text-dark ms-2" title={`Expires ${new Date(link.expiresAt).toLocaleString()}`}>
+                        <i className="bi bi-clock"></i>
+                      </span>
+                    )}
                   </td>
                   <td>
                     <a href={link.url} target="_blank" rel="noopener noreferrer" className="text-truncate d-inline-block" style={{ maxWidth: '300px' }}>
                       {link.url}
                     </a>
+                    {link.destinations && (
+                      <div className="small text-muted">
+                        {link.destinations.map((d) => (
+                          <div key={d.url} className="text-truncate" style={{ maxWidth: '300px' }}>
+                            {d.weight}× {d.url} ({d.clickCount || 0} clicks)
+                          </div>
+                        ))}
+                      </div>
+                    )}
                   </td>
                   <td className="text-muted">{link.description || '—'}</td>
                   {showAll && <td><span className="badge bg-secondary">{link.ownerUsername}</span></td>}
-                  <td><span className="badge bg-info">{link.clickCount || 0}</span></td>
+                  <td>
+                    <span className="badge bg-info">{link.clickCount || 0}</span>
+                    {link.estimatedCachedClicks > 0 && (
+                      <div className="small text-muted" title="Estimated clicks served from browser caches (not in the count above)">
+                        <i className="bi bi-lightning"></i> +{link.estimatedCachedClicks}
+                      </div>
+                    )}
+                    <div className="small text-muted" title="Estimated unique visitors">
+                      <i className="bi bi-people"></i> {link.uniqueVisitors || 0}
+                    </div>
+                  </td>
                   <td>
                     {(link.ownerUsername === user.username || user.role === 'ADMIN') && (
                       <>
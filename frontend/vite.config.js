@@ -1,14 +1,49 @@
 import { defineConfig } from 'vite';
 import react from '@vitejs/plugin-react';
+import { readFileSync, writeFileSync } from 'node:fs';
+import { join } from 'node:path';
+import { brotliCompressSync, gzipSync, constants } from 'node:zlib';
+
+// Text files worth compressing; images and fonts are compressed already
+const COMPRESSIBLE = /\.(js|mjs|css|html|svg|json|txt|map)$/;
+
+/**
+ * Write a .br and a .gz next to every compressible build output, at maximum
+ * compression. The server picks the best one the browser accepts (see
+ * StaticAssets.java), so nothing is compressed per request.
+ */
+function precompress() {
+  return {
+    name: 'linkylink-precompress',
+    apply: 'build',
+    writeBundle(options, bundle) {
+      for (const fileName of Object.keys(bundle)) {
+        if (!COMPRESSIBLE.test(fileName)) continue;
+        const path = join(options.dir, fileName);
+        const content = readFileSync(path);
+        if (content.length < 1024) continue; // too small to gain anything
+        writeFileSync(path + '.gz', gzipSync(content, { level: 9 }));
+        writeFileSync(path + '.br', brotliCompressSync(content, {
+          params: {
+            [constants.BROTLI_PARAM_QUALITY]: constants.BROTLI_MAX_QUALITY,
+            [constants.BROTLI_PARAM_SIZE_HINT]: content.length,
+          },
+        }));
+      }
+    },
+  };
+}
 
 // https://vitejs.dev/config/
 export default defineConfig({
-  plugins: [react()],
+  plugins: [react(), precompress()],
 
   // Base path: React app is served from /app/ in production
   base: '/app/',
 
-  // Build output goes into Spring Boot's static resources folder
+  // Build output goes into Spring Boot's static resources folder.
+  // Bundles land in assets/ with a content hash in their names, so the server
+  // lets browsers cache them forever (Cache-Control: immutable).
   build: {
     outDir: '../src/main/resources/static/app',
     emptyOutDir: true,
@@ -1,15 +1,22 @@
 package com.linkylink.config;
 
+import com.linkylink.repository.CapacityAccounting;
+import com.linkylink.repository.ConsumedCapacityInterceptor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 
 import java.net.URI;
+import java.time.Duration;
 
 /**
  * Configures the AWS DynamoDB clients used throughout the application.
@@ -22,6 +29,21 @@ import java.net.URI;
  *   - On EC2: Uses an IAM Role attached to the instance (no keys needed in code!)
  *   - Locally: Uses credentials from `aws configure` (~/.aws/credentials)
  *   DefaultCredentialsProvider automatically picks the right method.
+ *
+ * HTTP client:
+ *   The SDK defaults are tuned for batch jobs, not for a redirect server where a
+ *   user is waiting on every call. We configure the client explicitly:
+ *   - A pooled Apache HTTP client with TCP keep-alive, so requests reuse warm
+ *     TLS connections instead of paying a handshake on the hot path
+ *   - Per-attempt and per-call timeouts, so one slow attempt is abandoned and
+ *     retried instead of holding the request for the SDK's default 30+ seconds
+ *   - ADAPTIVE retry mode, which backs off client-side when DynamoDB throttles
+ *
+ * Every call also goes through ConsumedCapacityInterceptor, which asks DynamoDB
+ * for the capacity it consumed and charges it to the route and user that caused
+ * it (see CapacityAccounting).
+ *
+ * With the "local" profile, LocalDynamoDbConfig provides an in-memory client instead.
  */
 @Configuration
 public class DynamoDbConfig {
@@ -32,16 +54,53 @@ public class DynamoDbConfig {
     @Value("${aws.dynamodb.endpoint:}")
     private String endpoint;
 
+    @Value("${aws.dynamodb.http.max-connections:64}")
+    private int maxConnections;
+
+    @Value("${aws.dynamodb.http.connection-timeout-ms:1000}")
+    private long connectionTimeoutMs;
+
+    @Value("${aws.dynamodb.http.socket-timeout-ms:2000}")
+    private long socketTimeoutMs;
+
+    @Value("${aws.dynamodb.http.connection-max-idle-ms:60000}")
+    private long connectionMaxIdleMs;
+
+    @Value("${aws.dynamodb.api-call-timeout-ms:3000}")
+    private long apiCallTimeoutMs;
+
+    @Value("${aws.dynamodb.api-call-attempt-timeout-ms:800}")
+    private long apiCallAttemptTimeoutMs;
+
+    @Bean
+    public ConsumedCapacityInterceptor consumedCapacityInterceptor(CapacityAccounting capacityAccounting) {
+        return new ConsumedCapacityInterceptor(capacityAccounting);
+    }
+
     /**
      * Low-level DynamoDB client.
      * Used for operations that the Enhanced Client doesn't support,
      * like atomic counter increments.
      */
     @Bean
-    public DynamoDbClient dynamoDbClient() {
+    @Profile("!local")
+    public DynamoDbClient dynamoDbClient(ConsumedCapacityInterceptor consumedCapacity) {
         DynamoDbClientBuilder builder = DynamoDbClient.builder()
                 .region(Region.of(region))
-                .credentialsProvider(DefaultCredentialsProvider.create());
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionTimeout(Duration.ofMillis(connectionTimeoutMs))
+                        .socketTimeout(Duration.ofMillis(socketTimeoutMs))
+                        .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMs))
+                        .tcpKeepAlive(true)
+                        .useIdleConnectionReaper(true))
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .apiCallTimeout(Duration.ofMillis(apiCallTimeoutMs))
+                        .apiCallAttemptTimeout(Duration.ofMillis(apiCallAttemptTimeoutMs))
+                        .retryPolicy(RetryMode.ADAPTIVE)
+                        .addExecutionInterceptor(consumedCapacity)
+                        .build());
 
         // If an endpoint is configured (e.g., DynamoDB Local), override the default AWS endpoint
         if (endpoint != null && !endpoint.isEmpty()) {
@@ -1,15 +1,25 @@
 package com.linkylink.config;
 
+import com.linkylink.model.Link;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
+import software.amazon.awssdk.services.dynamodb.waiters.DynamoDbWaiter;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Automatically creates DynamoDB tables on application startup if they don't exist.
@@ -24,19 +34,56 @@ public class DynamoDbInitializer {
 
     private static final Logger log = LoggerFactory.getLogger(DynamoDbInitializer.class);
 
+    // How often to look again while a GSI is being built (DynamoDB builds one at a time)
+    private static final long INDEX_CHECK_SECONDS = 60;
+
+    /**
+     * A global secondary index: String partition key, optional String sort key,
+     * all attributes projected.
+     */
+    private record IndexSpec(String name, String partitionKey, String sortKey) {
+    }
+
+    private static final List<IndexSpec> LINK_INDEXES = List.of(
+            new IndexSpec(Link.OWNER_INDEX, "ownerUsername", null),
+            new IndexSpec(Link.URL_INDEX, "urlHash", null),
+            new IndexSpec(Link.CREATED_INDEX, "createdDay", "createdAt"));
+
+    private enum IndexStep { DONE, CREATED, WAITING }
+
+    private final ScheduledExecutorService indexScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "dynamodb-index-creator");
+        t.setDaemon(true);
+        return t;
+    });
+
     @Value("${aws.dynamodb.table.users}")
     private String usersTableName;
 
     @Value("${aws.dynamodb.table.links}")
     private String linksTableName;
 
+    @Value("${aws.dynamodb.table.jobs}")
+    private String jobsTableName;
+
+    @Value("${aws.dynamodb.table.visitors}")
+    private String visitorsTableName;
+
+    @Value("${aws.dynamodb.table.counters}")
+    private String countersTableName;
+
     @Bean
     CommandLineRunner initDynamoDbTables(DynamoDbClient dynamoDbClient) {
         return args -> {
             List<String> existingTables = dynamoDbClient.listTables().tableNames();
 
             createTableIfNotExists(dynamoDbClient, existingTables, usersTableName, "username");
-            createTableIfNotExists(dynamoDbClient, existingTables, linksTableName, "keyword");
+            createTableIfNotExists(dynamoDbClient, existingTables, linksTableName, "keyword", LINK_INDEXES);
+            createTableIfNotExists(dynamoDbClient, existingTables, jobsTableName, "id");
+            createTableIfNotExists(dynamoDbClient, existingTables, visitorsTableName, "keyword");
+            createTableIfNotExists(dynamoDbClient, existingTables, countersTableName, "id");
+            enableTimeToLive(dynamoDbClient, linksTableName, "ttl");
+            createMissingIndexes(dynamoDbClient, linksTableName, LINK_INDEXES);
 
             log.info("DynamoDB tables ready!");
         };
@@ -52,6 +99,15 @@ public class DynamoDbInitializer {
      */
     private void createTableIfNotExists(DynamoDbClient client, List<String> existingTables,
                                         String tableName, String partitionKeyName) {
+        createTableIfNotExists(client, existingTables, tableName, partitionKeyName, List.of());
+    }
+
+    /**
+     * As above, with global secondary indexes. Declared in CreateTable, they are
+     * built with the (empty) table, all at once and with no backfill.
+     */
+    private void createTableIfNotExists(DynamoDbClient client, List<String> existingTables,
+                                        String tableName, String partitionKeyName, List<IndexSpec> indexes) {
         if (existingTables.contains(tableName)) {
             log.info("Table '{}' already exists — skipping creation.", tableName);
             return;
@@ -59,23 +115,168 @@ public class DynamoDbInitializer {
 
         log.info("Creating DynamoDB table '{}'...", tableName);
 
+        List<AttributeDefinition> attributes = new ArrayList<>();
+        attributes.add(AttributeDefinition.builder()
+                .attributeName(partitionKeyName)
+                .attributeType(ScalarAttributeType.S) // S = String
+                .build());
+        List<GlobalSecondaryIndex> globalIndexes = new ArrayList<>();
+        for (IndexSpec index : indexes) {
+            for (AttributeDefinition attribute : indexAttributes(index)) {
+                if (attributes.stream().noneMatch(a -> a.attributeName().equals(attribute.attributeName()))) {
+                    attributes.add(attribute);
+                }
+            }
+            globalIndexes.add(GlobalSecondaryIndex.builder()
+                    .indexName(index.name())
+                    .keySchema(indexKeySchema(index))
+                    .projection(p -> p.projectionType(ProjectionType.ALL))
+                    .build());
+        }
+
         CreateTableRequest request = CreateTableRequest.builder()
                 .tableName(tableName)
                 .keySchema(KeySchemaElement.builder()
                         .attributeName(partitionKeyName)
                         .keyType(KeyType.HASH) // HASH = Partition Key
                         .build())
-                .attributeDefinitions(AttributeDefinition.builder()
-                        .attributeName(partitionKeyName)
-                        .attributeType(ScalarAttributeType.S) // S = String
-                        .build())
+                .attributeDefinitions(attributes)
+                .globalSecondaryIndexes(globalIndexes.isEmpty() ? null : globalIndexes)
                 .billingMode(BillingMode.PAY_PER_REQUEST) // On-demand pricing
                 .build();
 
         client.createTable(request);
 
-        // Wait for the table to become ACTIVE before proceeding
-        client.waiter().waitUntilTableExists(b -> b.tableName(tableName));
+        // Wait for the table to become ACTIVE before proceeding. The waiter is built
+        // explicitly (client.waiter() only exists on the SDK's generated client).
+        try (DynamoDbWaiter waiter = DynamoDbWaiter.builder().client(client).build()) {
+            waiter.waitUntilTableExists(b -> b.tableName(tableName));
+        }
         log.info("Table '{}' created successfully!", tableName);
     }
+
+    /**
+     * Turns on DynamoDB TTL for a table: items whose {@code attributeName} (epoch
+     * seconds) is in the past get deleted by DynamoDB in the background, for free.
+     * Deletion is lazy (it can take a day or two), so the app still checks expiry itself.
+     */
+    private void enableTimeToLive(DynamoDbClient client, String tableName, String attributeName) {
+        try {
+            TimeToLiveStatus status = client.describeTimeToLive(b -> b.tableName(tableName))
+                    .timeToLiveDescription().timeToLiveStatus();
+            if (status == TimeToLiveStatus.ENABLED || status == TimeToLiveStatus.ENABLING) {
+                return;
+            }
+            client.updateTimeToLive(b -> b.tableName(tableName)
+                    .timeToLiveSpecification(spec -> spec.attributeName(attributeName).enabled(true)));
+            log.info("Enabled TTL on '{}' (attribute '{}')", tableName, attributeName);
+        } catch (DynamoDbException e) {
+            // Not fatal: expired links are filtered by the app either way
+            log.warn("Could not enable TTL on '{}': {}", tableName, e.getMessage());
+        }
+    }
+
+    /**
+     * Adds the global secondary indexes a table created before them is missing.
+     *
+     * A GSI is a second copy of the table, kept up to date by DynamoDB and keyed by
+     * another attribute — so "all links owned by bob" is a Query, not a Scan.
+     * Adding one to a table that already has data starts a backfill that can take
+     * minutes to hours; until it's ACTIVE, queries on the index fail and the
+     * repository falls back to scanning.
+     *
+     * DynamoDB builds one index at a time per table (another UpdateTable meanwhile
+     * fails), so indexes are added one by one: as many as can be right now, then the
+     * rest from a background check every INDEX_CHECK_SECONDS, each once the one
+     * before it is ACTIVE. Startup doesn't wait for any backfill.
+     */
+    private void createMissingIndexes(DynamoDbClient client, String tableName, List<IndexSpec> indexes) {
+        IndexStep step = addNextIndex(client, tableName, indexes);
+        while (step == IndexStep.CREATED) {
+            step = addNextIndex(client, tableName, indexes);
+        }
+        if (step != IndexStep.DONE) {
+            scheduleIndexCheck(client, tableName, indexes);
+        }
+    }
+
+    private void scheduleIndexCheck(DynamoDbClient client, String tableName, List<IndexSpec> indexes) {
+        indexScheduler.schedule(() -> {
+            if (addNextIndex(client, tableName, indexes) != IndexStep.DONE) {
+                scheduleIndexCheck(client, tableName, indexes);
+            }
+        }, INDEX_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Add the first missing index, if the table isn't busy building another one.
+     */
+    private IndexStep addNextIndex(DynamoDbClient client, String tableName, List<IndexSpec> indexes) {
+        try {
+            TableDescription table = client.describeTable(b -> b.tableName(tableName)).table();
+            Set<String> existing = table.globalSecondaryIndexes().stream()
+                    .map(GlobalSecondaryIndexDescription::indexName)
+                    .collect(Collectors.toSet());
+            List<IndexSpec> missing = indexes.stream().filter(i -> !existing.contains(i.name())).toList();
+            if (missing.isEmpty()) {
+                return IndexStep.DONE;
+            }
+            boolean busy = table.tableStatus() != TableStatus.ACTIVE || table.globalSecondaryIndexes().stream()
+                    .anyMatch(i -> i.indexStatus() != IndexStatus.ACTIVE);
+            if (busy) {
+                log.info("Waiting for '{}' to finish building an index before adding '{}'",
+                        tableName, missing.get(0).name());
+                return IndexStep.WAITING;
+            }
+            IndexSpec index = missing.get(0);
+            client.updateTable(b -> b.tableName(tableName)
+                    .attributeDefinitions(indexAttributes(index))
+                    .globalSecondaryIndexUpdates(GlobalSecondaryIndexUpdate.builder()
+                            .create(c -> c.indexName(index.name())
+                                    .keySchema(indexKeySchema(index))
+                                    .projection(p -> p.projectionType(ProjectionType.ALL)))
+                            .build()));
+            log.info("Creating index '{}' on '{}' (backfills in the background)", index.name(), tableName);
+            return IndexStep.CREATED;
+        } catch (SdkException e) {
+            // e.g. LimitExceededException while another index is still being built
+            log.warn("Could not add an index to '{}', will retry: {}", tableName, e.getMessage());
+            return IndexStep.WAITING;
+        }
+    }
+
+    private static List<AttributeDefinition> indexAttributes(IndexSpec index) {
+        List<AttributeDefinition> attributes = new ArrayList<>();
+        attributes.add(AttributeDefinition.builder()
+                .attributeName(index.partitionKey())
+                .attributeType(ScalarAttributeType.S)
+                .build());
+        if (index.sortKey() != null) {
+            attributes.add(AttributeDefinition.builder()
+                    .attributeName(index.sortKey())
+                    .attributeType(ScalarAttributeType.S)
+                    .build());
+        }
+        return attributes;
+    }
+
+    private static List<KeySchemaElement> indexKeySchema(IndexSpec index) {
+        List<KeySchemaElement> keySchema = new ArrayList<>();
+        keySchema.add(KeySchemaElement.builder()
+                .attributeName(index.partitionKey())
+                .keyType(KeyType.HASH)
+                .build());
+        if (index.sortKey() != null) {
+            keySchema.add(KeySchemaElement.builder()
+                    .attributeName(index.sortKey())
+                    .keyType(KeyType.RANGE) // RANGE = Sort Key: items of a partition are kept in its order
+                    .build());
+        }
+        return keySchema;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        indexScheduler.shutdownNow();
+    }
 }
@@ -0,0 +1,59 @@
+package com.linkylink.config;
+
+import com.linkylink.localdb.FaultInjector;
+import com.linkylink.localdb.InMemoryDynamoDbClient;
+import com.linkylink.repository.ConsumedCapacityInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.List;
+
+/**
+ * Runs the app against an in-process DynamoDB (see InMemoryDynamoDbClient) instead
+ * of AWS: start with --spring.profiles.active=local.
+ *
+ * No AWS account, credentials or Docker needed, and the data is gone on restart.
+ * Useful for development, demos and load tests — with the FaultInjector settings in
+ * application-local.properties, the app can be run against a slow, throttling or
+ * failing "DynamoDB" to see how caches, hedged reads, retries and background jobs
+ * cope.
+ *
+ * Replaces the dynamoDbClient bean from DynamoDbConfig (which is @Profile("!local"));
+ * the enhanced client and everything else is wired to this one unchanged.
+ */
+@Configuration
+@Profile("local")
+public class LocalDynamoDbConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalDynamoDbConfig.class);
+
+    @Bean
+    public FaultInjector faultInjector(
+            @Value("${linkylink.local-dynamodb.read-latency.median-ms:0}") double readMedianMs,
+            @Value("${linkylink.local-dynamodb.read-latency.p99-ms:0}") double readP99Ms,
+            @Value("${linkylink.local-dynamodb.write-latency.median-ms:0}") double writeMedianMs,
+            @Value("${linkylink.local-dynamodb.write-latency.p99-ms:0}") double writeP99Ms,
+            @Value("${linkylink.local-dynamodb.read-capacity-units:0}") long readCapacityUnits,
+            @Value("${linkylink.local-dynamodb.write-capacity-units:0}") long writeCapacityUnits,
+            @Value("${linkylink.local-dynamodb.throttle-rate:0}") double throttleRate,
+            @Value("${linkylink.local-dynamodb.error-rate:0}") double errorRate,
+            @Value("${linkylink.local-dynamodb.seed:0}") long seed) {
+        FaultInjector.Settings settings = new FaultInjector.Settings(
+                readMedianMs, Math.max(readP99Ms, readMedianMs),
+                writeMedianMs, Math.max(writeP99Ms, writeMedianMs),
+                readCapacityUnits, writeCapacityUnits, throttleRate, errorRate, seed);
+        log.info("Using the in-memory DynamoDB ({})", settings);
+        return new FaultInjector(settings);
+    }
+
+    @Bean
+    public DynamoDbClient dynamoDbClient(FaultInjector faultInjector,
+                                         ConsumedCapacityInterceptor consumedCapacity) {
+        return new InMemoryDynamoDbClient(faultInjector, List.of(consumedCapacity));
+    }
+}
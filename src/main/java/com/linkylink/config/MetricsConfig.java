@@ -0,0 +1,126 @@
+package com.linkylink.config;
+
+import com.linkylink.localdb.FaultInjector;
+import com.linkylink.logging.RedirectAccessLog;
+import com.linkylink.repository.HedgedReadExecutor;
+import com.linkylink.repository.LinkRepository;
+import com.linkylink.service.ClickCounters;
+import com.linkylink.service.JobService;
+import com.linkylink.service.LinkCache;
+import com.linkylink.service.LinkExpiry;
+import com.linkylink.service.LinkService;
+import com.linkylink.service.OffHeapLinkStore;
+import com.linkylink.service.UniqueVisitors;
+import com.linkylink.util.CircuitBreaker;
+import com.linkylink.web.LoadSheddingFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Publishes the app's internal counters as Micrometer metrics (GET /actuator/metrics).
+ *
+ * The components themselves only keep cheap LongAdders / getters; this class is the
+ * one place that knows metric names, so they stay consistent and easy to find.
+ */
+@Configuration
+public class MetricsConfig {
+
+    public MetricsConfig(MeterRegistry registry,
+                         HedgedReadExecutor hedgedReads,
+                         RedirectAccessLog accessLog,
+                         LinkCache linkCache,
+                         LinkExpiry linkExpiry,
+                         OffHeapLinkStore offHeapStore,
+                         JobService jobService,
+                         UniqueVisitors uniqueVisitors,
+                         LoadSheddingFilter loadShedding,
+                         LinkRepository linkRepository,
+                         LinkService linkService,
+                         ClickCounters clickCounters,
+                         ObjectProvider<FaultInjector> localDynamoDbFaults) {
+        FunctionCounter.builder("linkylink.hedge.sent", hedgedReads, HedgedReadExecutor::getHedgesSent)
+                .description("Hedged (duplicate) DynamoDB reads sent").register(registry);
+        FunctionCounter.builder("linkylink.hedge.won", hedgedReads, HedgedReadExecutor::getHedgesWon)
+                .description("Hedged reads that answered before the original").register(registry);
+        FunctionCounter.builder("linkylink.hedge.denied", hedgedReads, HedgedReadExecutor::getHedgesDenied)
+                .description("Hedges skipped because the budget or pool was exhausted").register(registry);
+
+        FunctionCounter.builder("linkylink.accesslog.written", accessLog, RedirectAccessLog::getWritten)
+                .description("Redirect access log records written").register(registry);
+        FunctionCounter.builder("linkylink.accesslog.dropped", accessLog, RedirectAccessLog::getDropped)
+                .description("Redirect access log records dropped because the buffer was full").register(registry);
+
+        Gauge.builder("linkylink.cache.size", linkCache, LinkCache::size)
+                .description("Links held in the on-heap redirect cache").register(registry);
+
+        Gauge.builder("linkylink.offheap.entries", offHeapStore, OffHeapLinkStore::getEntries)
+                .description("Links held in the off-heap second-tier store").register(registry);
+        Gauge.builder("linkylink.offheap.memory", offHeapStore, OffHeapLinkStore::getOffHeapBytes)
+                .baseUnit("bytes").description("Direct memory reserved by the off-heap store").register(registry);
+        FunctionCounter.builder("linkylink.offheap.hits", offHeapStore, OffHeapLinkStore::getHits)
+                .description("Redirect lookups answered by the off-heap store").register(registry);
+        FunctionCounter.builder("linkylink.offheap.misses", offHeapStore, OffHeapLinkStore::getMisses)
+                .description("Off-heap store misses that went to DynamoDB").register(registry);
+        FunctionCounter.builder("linkylink.offheap.rejected", offHeapStore, OffHeapLinkStore::getRejected)
+                .description("Links not stored off-heap because the data region was full").register(registry);
+
+        Gauge.builder("linkylink.expiry.pending", linkExpiry, LinkExpiry::getPending)
+                .description("Link expirations scheduled in the timing wheel").register(registry);
+        FunctionCounter.builder("linkylink.expiry.expired", linkExpiry, LinkExpiry::getExpired)
+                .description("Links dropped from local caches and indexes on expiry").register(registry);
+
+        Gauge.builder("linkylink.visitors.pending", uniqueVisitors, UniqueVisitors::getPending)
+                .description("Links with unique visits not yet merged into storage").register(registry);
+        FunctionCounter.builder("linkylink.visitors.flushed", uniqueVisitors, UniqueVisitors::getFlushed)
+                .description("Visitor sketches merged into storage").register(registry);
+        FunctionCounter.builder("linkylink.visitors.dropped", uniqueVisitors, UniqueVisitors::getDropped)
+                .description("Visits not counted because too many links had pending visits").register(registry);
+
+        Gauge.builder("linkylink.jobs.running", jobService, JobService::getRunning)
+                .description("Background jobs running on this instance").register(registry);
+        Gauge.builder("linkylink.jobs.write-rate", jobService, JobService::getWriteRate)
+                .description("Current write budget shared by background jobs (write units/s)").register(registry);
+
+        Gauge.builder("linkylink.limiter.limit", loadShedding, LoadSheddingFilter::getLimit)
+                .description("Adaptive limit on concurrent redirect/API requests").register(registry);
+        Gauge.builder("linkylink.limiter.inflight", loadShedding, LoadSheddingFilter::getInFlight)
+                .description("Redirect/API requests currently in flight").register(registry);
+        for (LoadSheddingFilter.Priority priority : LoadSheddingFilter.Priority.values()) {
+            FunctionCounter.builder("linkylink.limiter.shed", loadShedding, f -> f.getShed(priority))
+                    .tag("priority", priority.name().toLowerCase())
+                    .description("Requests rejected with 503 because the server was at its limit").register(registry);
+        }
+
+        CircuitBreaker breaker = linkRepository.getBreaker();
+        Gauge.builder("linkylink.breaker.state", breaker, b -> b.getState().ordinal())
+                .description("DynamoDB circuit breaker: 0 closed, 1 open, 2 half-open").register(registry);
+        FunctionCounter.builder("linkylink.breaker.opened", breaker, CircuitBreaker::getTimesOpened)
+                .description("Times the DynamoDB circuit breaker has opened").register(registry);
+        FunctionCounter.builder("linkylink.breaker.rejected", breaker, CircuitBreaker::getRejected)
+                .description("DynamoDB calls refused because the breaker was open").register(registry);
+        FunctionCounter.builder("linkylink.redirect.stale", linkService, LinkService::getStaleServed)
+                .description("Redirects served from a stale cached link while DynamoDB was down").register(registry);
+        FunctionCounter.builder("linkylink.redirect.clicks-dropped", linkService, LinkService::getClicksDropped)
+                .description("Clicks not counted because DynamoDB was down").register(registry);
+
+        Gauge.builder("linkylink.counters.hot", clickCounters, ClickCounters::getHotLinks)
+                .description("Links whose clicks are currently spread over counter shards").register(registry);
+        FunctionCounter.builder("linkylink.counters.sharded-writes", clickCounters, ClickCounters::getShardedWrites)
+                .description("Clicks counted in a shard instead of the link item").register(registry);
+        FunctionCounter.builder("linkylink.counters.folds", clickCounters, ClickCounters::getFolds)
+                .description("Counter shards folded back into their link").register(registry);
+        FunctionCounter.builder("linkylink.counters.fold-conflicts", clickCounters, ClickCounters::getFoldConflicts)
+                .description("Folds retried because the link changed concurrently").register(registry);
+
+        // Only with the "local" profile (in-memory DynamoDB)
+        localDynamoDbFaults.ifAvailable(faults -> {
+            FunctionCounter.builder("linkylink.local-dynamodb.throttled", faults, FaultInjector::getThrottled)
+                    .description("In-memory DynamoDB requests throttled (capacity or injected)").register(registry);
+            FunctionCounter.builder("linkylink.local-dynamodb.errors", faults, FaultInjector::getErrors)
+                    .description("In-memory DynamoDB requests failed by injected errors").register(registry);
+        });
+    }
+}
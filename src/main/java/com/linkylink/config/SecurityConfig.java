@@ -60,6 +60,10 @@ public class SecurityConfig {
                 // Admin only: requires ADMIN role
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
 
+                // Health probes are public (load balancers call them); other actuator endpoints are admin-only
+                .requestMatchers("/actuator/health/**").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
+
                 // Authenticated: any logged-in user can access /api/** endpoints
                 .requestMatchers("/api/**").authenticated()
 
@@ -0,0 +1,26 @@
+package com.linkylink.config;
+
+import com.linkylink.web.CapacityAttribution;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC configuration: handler interceptors.
+ *
+ *   CapacityAttribution — charges each request's DynamoDB capacity to its route and user
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final CapacityAttribution capacityAttribution;
+
+    public WebConfig(CapacityAttribution capacityAttribution) {
+        this.capacityAttribution = capacityAttribution;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(capacityAttribution);
+    }
+}
@@ -1,10 +1,15 @@
 package com.linkylink.controller;
 
+import com.linkylink.model.Job;
 import com.linkylink.model.Link;
 import com.linkylink.model.User;
+import com.linkylink.repository.CapacityAccounting;
+import com.linkylink.service.JobService;
 import com.linkylink.service.LinkService;
 import com.linkylink.service.UserService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -19,9 +24,14 @@ import java.util.Map;
  * Endpoints:
  *   GET    /api/admin/users               — List all users
  *   PUT    /api/admin/users/{username}/role — Change a user's role
- *   DELETE /api/admin/users/{username}     — Delete a user
+ *   DELETE /api/admin/users/{username}     — Delete a user, and delete or reassign their links
  *   GET    /api/admin/links               — List ALL go links
  *   DELETE /api/admin/links/{keyword}     — Delete any go link
+ *   GET    /api/admin/jobs                — List background jobs
+ *   POST   /api/admin/jobs/{type}         — Start a job, e.g. "url-index" or "url-rewrite" (body: its parameters)
+ *   GET    /api/admin/jobs/{id}           — A job's status and progress
+ *   POST   /api/admin/jobs/{id}/cancel    — Stop a running job
+ *   GET    /api/admin/capacity            — DynamoDB capacity consumed, by route and by user
  */
 @RestController
 @RequestMapping("/api/admin")
@@ -29,10 +39,15 @@ public class AdminController {
 
     private final UserService userService;
     private final LinkService linkService;
+    private final JobService jobService;
+    private final CapacityAccounting capacityAccounting;
 
-    public AdminController(UserService userService, LinkService linkService) {
+    public AdminController(UserService userService, LinkService linkService, JobService jobService,
+                           CapacityAccounting capacityAccounting) {
         this.userService = userService;
         this.linkService = linkService;
+        this.jobService = jobService;
+        this.capacityAccounting = capacityAccounting;
     }
 
     // ==================== User Management ====================
@@ -68,10 +83,26 @@ public class AdminController {
         }
     }
 
+    /**
+     * Delete a user. Their links are cleaned up by a background job:
+     *   ?links=delete (default)       — delete them
+     *   ?links=reassign&to=alice      — give them to alice
+     * Returns 202 Accepted with the job; follow it at /api/admin/jobs/{id}.
+     */
     @DeleteMapping("/users/{username}")
-    public ResponseEntity<?> deleteUser(@PathVariable String username) {
-        userService.delete(username);
-        return ResponseEntity.ok(Map.of("message", "Deleted user '" + username + "'"));
+    public ResponseEntity<?> deleteUser(@PathVariable String username,
+                                        @RequestParam(defaultValue = "delete") String links,
+                                        @RequestParam(required = false) String to,
+                                        Authentication auth) {
+        try {
+            Job job = userService.delete(username, links, to, auth.getName());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                    "message", "Deleted user '" + username + "'",
+                    "job", job
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     // ==================== Link Management ====================
@@ -91,4 +122,57 @@ public class AdminController {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
+
+    // ==================== Background Jobs ====================
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<Job>> listJobs() {
+        return ResponseEntity.ok(jobService.findAll());
+    }
+
+    /**
+     * Start a maintenance job by type, with its parameters as the JSON body
+     * (a flat string map, may be omitted). Returns 202 Accepted with the job.
+     */
+    @PostMapping("/jobs/{type}")
+    public ResponseEntity<?> startJob(@PathVariable String type,
+                                      @RequestBody(required = false) Map<String, String> parameters,
+                                      Authentication auth) {
+        try {
+            Job job = jobService.start(type, parameters == null ? Map.of() : parameters, auth.getName());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> getJob(@PathVariable String id) {
+        Job job = jobService.get(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    @PostMapping("/jobs/{id}/cancel")
+    public ResponseEntity<?> cancelJob(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(jobService.cancel(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // ==================== DynamoDB Capacity ====================
+
+    /**
+     * Read and write units consumed since startup on this instance: the most
+     * expensive route + repository operation + DynamoDB request combinations, and
+     * the most expensive users.
+     */
+    @GetMapping("/capacity")
+    public ResponseEntity<CapacityAccounting.Report> capacity(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(capacityAccounting.report(Math.max(1, limit)));
+    }
 }
@@ -0,0 +1,36 @@
+package com.linkylink.controller;
+
+import com.linkylink.repository.BackendUnavailableException;
+import com.linkylink.web.LoadSheddingFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Turns BackendUnavailableException into a 503 for every API endpoint.
+ *
+ * It's thrown when DynamoDB's circuit breaker is open (see LinkRepository), so
+ * creating, editing or deleting a link fails at once with a clear message instead
+ * of hanging until a timeout and then failing with a 500. Retry-After says when
+ * the breaker will next try DynamoDB.
+ *
+ * The request is marked LoadSheddingFilter.FAILED_FAST, so these 503s don't shrink
+ * the concurrency limit. (Redirects handle it themselves: see RedirectController.)
+ */
+@RestControllerAdvice
+public class BackendUnavailableHandler {
+
+    @ExceptionHandler(BackendUnavailableException.class)
+    public ResponseEntity<Map<String, String>> backendUnavailable(BackendUnavailableException e,
+                                                                  HttpServletRequest request) {
+        request.setAttribute(LoadSheddingFilter.FAILED_FAST, Boolean.TRUE);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+}
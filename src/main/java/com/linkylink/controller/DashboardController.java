@@ -0,0 +1,66 @@
+package com.linkylink.controller;
+
+import com.linkylink.service.LinkDirectory;
+import com.linkylink.web.EntityTags;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Everything the dashboard page needs, in one request:
+ *
+ *   GET /api/dashboard → {"links": [every link], "mine": [positions of my links in "links"]}
+ *
+ * The page used to fetch GET /api/links and GET /api/links/all side by side: two
+ * requests, and the user's own links sent twice. Here both views come from the same
+ * LinkDirectory snapshot, so they always agree, and no DynamoDB read happens at all.
+ *
+ * Like /api/links/all, the response carries a strong ETag (per snapshot and user)
+ * and is answered with 304 when the browser already has it.
+ */
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    private final LinkDirectory linkDirectory;
+
+    public DashboardController(LinkDirectory linkDirectory) {
+        this.linkDirectory = linkDirectory;
+    }
+
+    @GetMapping
+    public ResponseEntity<byte[]> getDashboard(
+            Authentication auth,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        LinkDirectory.Dashboard dashboard = linkDirectory.dashboard(auth.getName());
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        // Each content-coding gets its own strong ETag
+        String etag = gzip ? dashboard.etag().replaceFirst("\"$", "-gz\"") : dashboard.etag();
+
+        if (EntityTags.noneMatchHits(ifNoneMatch, dashboard.etag(), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? dashboard.gzip() : dashboard.json());
+    }
+}
@@ -1,9 +1,19 @@
 package com.linkylink.controller;
 
 import com.linkylink.dto.LinkRequest;
+import com.linkylink.model.Destination;
 import com.linkylink.model.Link;
+import com.linkylink.service.ClickCounters;
+import com.linkylink.service.LinkDirectory;
+import com.linkylink.service.LinkSearchIndex;
 import com.linkylink.service.LinkService;
+import com.linkylink.service.UniqueVisitors;
+import com.linkylink.web.EntityTags;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -17,9 +27,13 @@ import java.util.Map;
  * Endpoints (all require authentication):
  *   GET    /api/links        — List the current user's go links
  *   GET    /api/links/all    — List ALL go links (public directory)
- *   POST   /api/links        — Create a new go link
+ *   GET    /api/links/search?q= — Search go links (keyword, description, URL)
+ *   GET    /api/links/by-url?url= — Go links to the same (normalized) URL
+ *   GET    /api/links/recent?since=&before=&limit= — Newly created go links, newest first
+ *   POST   /api/links        — Create a new go link (?checkDuplicates=true: 409 if the URL has one)
  *   PUT    /api/links/{keyword} — Update a go link
  *   DELETE /api/links/{keyword} — Delete a go link
+ *   GET    /api/links/{keyword}/visitors?days=7 — Unique-visitor estimates
  *
  * The 'Authentication' parameter is automatically injected by Spring Security.
  * It contains the current user's info (extracted from the JWT token by our filter).
@@ -29,9 +43,16 @@ import java.util.Map;
 public class LinkController {
 
     private final LinkService linkService;
+    private final LinkDirectory linkDirectory;
+    private final LinkSearchIndex searchIndex;
+    private final ClickCounters clickCounters;
 
-    public LinkController(LinkService linkService) {
+    public LinkController(LinkService linkService, LinkDirectory linkDirectory,
+                          LinkSearchIndex searchIndex, ClickCounters clickCounters) {
         this.linkService = linkService;
+        this.linkDirectory = linkDirectory;
+        this.searchIndex = searchIndex;
+        this.clickCounters = clickCounters;
     }
 
     /**
@@ -45,22 +66,112 @@ public class LinkController {
 
     /**
      * List ALL go links (public directory).
+     *
+     * Served straight from LinkDirectory's pre-serialized snapshot: no scan, no JSON
+     * encoding, and gzip is already done. The ETag lets the browser revalidate with
+     * If-None-Match, in which case we answer 304 and send no body at all.
      */
     @GetMapping("/all")
-    public ResponseEntity<List<Link>> getAllLinks() {
-        return ResponseEntity.ok(linkService.findAll());
+    public ResponseEntity<byte[]> getAllLinks(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        LinkDirectory.Snapshot snapshot = linkDirectory.current();
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        // Each content-coding gets its own strong ETag
+        String etag = gzip ? snapshot.etag().replace("\"", "-gz\"") : snapshot.etag();
+
+        if (EntityTags.noneMatchHits(ifNoneMatch, snapshot.etag(), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        // "private, no-cache": the browser may keep a copy but must revalidate every time
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? snapshot.gzip() : snapshot.json());
+    }
+
+    /**
+     * Search go links, best matches first. Served from an in-memory index,
+     * so it's cheap enough to call on every keystroke.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Link>> searchLinks(@RequestParam("q") String query,
+                                                  @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(clickCounters.apply(searchIndex.search(query, Math.min(limit, 100))));
+    }
+
+    /**
+     * Go links whose URL is the same as {@code url}, ignoring differences that
+     * don't change the destination (case of the host, default port, trailing
+     * slash, utm_* and other tracking parameters). Served from the reverse URL
+     * index (UrlIndex), never a scan.
+     */
+    @GetMapping("/by-url")
+    public ResponseEntity<?> findLinksByUrl(@RequestParam("url") String url) {
+        try {
+            return ResponseEntity.ok(linkService.findByUrl(url));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Go links created after {@code since} (default: the last max-days), newest
+     * first, served from the createdDay index (a Query per day, never a scan).
+     *
+     * Usable as a change feed: keep the answer's "latest" and send it as since on
+     * the next poll to get only links created in between. A non-null "next" means
+     * there are more: ask again with before=next (same since) until it's null.
+     */
+    @GetMapping("/recent")
+    public ResponseEntity<?> recentLinks(@RequestParam(value = "since", required = false) String since,
+                                         @RequestParam(value = "before", required = false) String before,
+                                         @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(linkService.recent(since, before, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
      * Create a new go link.
+     *
+     * With checkDuplicates=true, nothing is created if go links to the same URL
+     * already exist: the answer is 409 with those links in "duplicates", and the
+     * client can ask the user and send the request again without the check.
      */
     @PostMapping
     public ResponseEntity<?> createLink(@Valid @RequestBody LinkRequest request,
+                                        @RequestParam(value = "checkDuplicates", defaultValue = "false")
+                                        boolean checkDuplicates,
                                         Authentication auth) {
         try {
             String username = auth.getName();
+            List<Destination> destinations = toDestinations(request);
+            if (checkDuplicates) {
+                String url = destinations != null && !destinations.isEmpty()
+                        ? destinations.get(0).getUrl() : request.url();
+                List<Link> duplicates = linkService.findByUrl(url);
+                if (!duplicates.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                            "error", "Go links to this URL already exist",
+                            "duplicates", duplicates));
+                }
+            }
             Link link = linkService.create(
-                    request.keyword(), request.url(), request.description(), username);
+                    request.keyword(), request.url(), request.description(), request.expiresAt(),
+                    destinations, request.redirectStatus(), request.cacheMaxAge(), username);
             return ResponseEntity.ok(link);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -80,7 +191,8 @@ public class LinkController {
                     .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
 
             Link link = linkService.update(keyword, request.url(), request.description(),
-                    username, isAdmin);
+                    request.expiresAt(), toDestinations(request), request.redirectStatus(),
+                    request.cacheMaxAge(), username, isAdmin);
             return ResponseEntity.ok(link);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -108,4 +220,33 @@ public class LinkController {
             return ResponseEntity.status(403).body(Map.of("error", e.getMessage()));
         }
     }
+
+    /**
+     * Estimated unique visitors of a link: all time, and over the last {@code days} days.
+     * Merged on the fly from per-day HyperLogLog sketches.
+     */
+    @GetMapping("/{keyword}/visitors")
+    public ResponseEntity<?> getVisitors(@PathVariable String keyword,
+                                         @RequestParam(value = "days", defaultValue = "7") int days) {
+        try {
+            UniqueVisitors.Estimate estimate = linkService.visitors(keyword, days);
+            return ResponseEntity.ok(Map.of(
+                    "keyword", keyword,
+                    "uniqueVisitors", estimate.allTime(),
+                    "days", estimate.days(),
+                    "recentUniqueVisitors", estimate.recent()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static List<Destination> toDestinations(LinkRequest request) {
+        if (request.destinations() == null) {
+            return null;
+        }
+        return request.destinations().stream()
+                .map(d -> new Destination(d.url(), d.weight()))
+                .toList();
+    }
 }
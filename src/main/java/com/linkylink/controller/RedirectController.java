@@ -1,16 +1,26 @@
 package com.linkylink.controller;
 
+import com.linkylink.jfr.RedirectEvent;
+import com.linkylink.logging.RedirectAccessLog;
 import com.linkylink.model.Link;
+import com.linkylink.repository.BackendUnavailableException;
 import com.linkylink.service.LinkService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.linkylink.web.LoadSheddingFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 
 import java.net.URI;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The HEART of the Go Links app — handles keyword redirects.
@@ -22,18 +32,46 @@ import java.net.URI;
  *   4. Returns a 302 redirect to https://www.google.com
  *   5. The browser follows the redirect → user lands on Google
  *
+ * Parameterized links: extra path segments fill the link's URL template.
+ *   GET /jira/PROJ-123 → keyword "jira", rest "PROJ-123" → https://jira.../browse/PROJ-123
+ *
+ * Weighted links: a link with several destinations picks one per redirect
+ * (Link.pickDestination(), O(1)), and the click is counted on that destination too.
+ *
+ * Browser caching: by default the redirect is a 302 with "Cache-Control: no-store",
+ * so every click comes back here. A link can instead be sent as a cacheable 302/307
+ * or a permanent 308 (Link.redirectStatus/cacheMaxAge), with "Cache-Control: private,
+ * max-age=..." so shared proxies don't cache per-visitor redirects. Visitors in the
+ * control group (LinkService.isCacheControlVisitor) always get no-store, which is
+ * what lets LinkService estimate the clicks that browser caches absorb.
+ *
+ * Each redirect also counts towards the link's unique visitors, keyed by a client
+ * fingerprint (see fingerprint()); only a hash of it ever leaves this class.
+ *
+ * If DynamoDB is down, links resolved recently are still served from their last known
+ * value (see LinkService.resolve); for any other link the answer is a 503 with
+ * Retry-After, not a "not found".
+ *
+ * Every redirect is recorded in the RedirectAccessLog (asynchronous, off the request
+ * thread) rather than through SLF4J, which would format and write on the hot path.
+ * Slow ones are also recorded as a JFR RedirectEvent, for correlating with GC and
+ * DynamoDB calls (RepositoryEvent) in a flight recording.
+ *
  * Note: This uses @Controller (not @RestController) because we're returning
  * HTTP redirects, not JSON responses.
  */
 @Controller
 public class RedirectController {
 
-    private static final Logger log = LoggerFactory.getLogger(RedirectController.class);
+    // A keyword segment that isn't one of the app's own top-level paths
+    private static final String NOT_RESERVED = "(?!(?:api|app|static|actuator)$)[\\w-]+";
 
     private final LinkService linkService;
+    private final RedirectAccessLog accessLog;
 
-    public RedirectController(LinkService linkService) {
+    public RedirectController(LinkService linkService, RedirectAccessLog accessLog) {
         this.linkService = linkService;
+        this.accessLog = accessLog;
     }
 
     /**
@@ -54,23 +92,81 @@ public class RedirectController {
      *
      * 302 Found: A temporary redirect. The browser will always come back
      * to ask the go link server, so we can track clicks and update URLs.
-     * (301 would be cached by the browser, which we don't want.)
+     * (301 would be cached by the browser, which we don't want by default.)
+     * Links that opt in are sent with their own status and max-age instead.
+     *
+     * The multi-segment mapping excludes the app's own top-level paths
+     * (app, api, static, ...) so /app/assets/*.js still reaches the static resources.
      */
-    @GetMapping("/{keyword}")
-    public ResponseEntity<Void> redirect(@PathVariable String keyword) {
-        Link link = linkService.resolve(keyword);
+    @GetMapping({"/{keyword}", "/{keyword:" + NOT_RESERVED + "}/**"})
+    public ResponseEntity<?> redirect(@PathVariable String keyword, HttpServletRequest request) {
+        long start = System.nanoTime();
+        RedirectEvent event = new RedirectEvent();
+        event.begin();
+        int status = 500;
+        try {
+            Link link = linkService.resolve(keyword, false);
 
-        if (link != null) {
-            log.info("Redirecting go/{} → {}", keyword, link.getUrl());
+            if (link != null) {
+                int destination = link.pickDestination();
+                URI target = URI.create(link.targetUrl(destination, extraPath(request)));
+                String fingerprint = fingerprint(request);
+                long maxAge = link.browserMaxAge(System.currentTimeMillis());
+                boolean control = maxAge > 0 && linkService.isCacheControlVisitor(fingerprint);
+                linkService.recordClick(link, destination, control);
+                linkService.recordVisitor(link, fingerprint);
+                status = link.getRedirectStatusOrDefault();
+                return ResponseEntity.status(status)
+                        .location(target)
+                        .cacheControl(maxAge > 0 && !control
+                                ? CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePrivate()
+                                : CacheControl.noStore())
+                        .build();
+            }
+
+            // Keyword not found — redirect to the app with the keyword as a search hint
+            status = 404;
             return ResponseEntity.status(HttpStatus.FOUND)
-                    .location(URI.create(link.getUrl()))
+                    .location(URI.create("/app/?notfound=" + keyword))
                     .build();
+        } catch (BackendUnavailableException e) {
+            status = 503;
+            request.setAttribute(LoadSheddingFilter.FAILED_FAST, Boolean.TRUE);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body("go/" + keyword + " can't be looked up right now, please retry shortly");
+        } finally {
+            accessLog.record(keyword, status, System.nanoTime() - start, request.getRemoteAddr());
+            event.end();
+            if (event.shouldCommit()) {
+                event.keyword = keyword;
+                event.status = status;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Who is visiting, as well as we can tell without cookies: the username if the
+     * request carried a valid token, otherwise client IP + User-Agent (so people
+     * behind one NAT still count separately if their browsers differ).
+     */
+    private static String fingerprint(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            return "user:" + auth.getName();
         }
+        String userAgent = request.getHeader("User-Agent");
+        return "client:" + request.getRemoteAddr() + "|" + (userAgent == null ? "" : userAgent);
+    }
 
-        // Keyword not found — redirect to the app with the keyword as a search hint
-        log.debug("Go link '{}' not found, redirecting to app", keyword);
-        return ResponseEntity.status(HttpStatus.FOUND)
-                .location(URI.create("/app/?notfound=" + keyword))
-                .build();
+    /**
+     * Everything after "/keyword/" in the raw (still percent-encoded) request path.
+     */
+    private static String extraPath(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int slash = uri.indexOf('/', 1);
+        return slash < 0 ? "" : uri.substring(slash + 1);
     }
 }
@@ -1,24 +1,39 @@
 package com.linkylink.controller;
 
+import com.linkylink.web.StaticAssets;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 
+import java.io.IOException;
+
 /**
- * SPA (Single Page Application) Forwarding Controller.
+ * SPA (Single Page Application) Controller.
  *
  * React is a SPA — it handles routing on the client side.
  * When a user navigates to /app/dashboard, the browser requests that path from the server.
  * But there's no server-side route for /app/dashboard — it's a React route!
  *
- * This controller catches all /app/** requests and forwards them to index.html,
- * where React Router takes over and renders the correct page.
+ * So every React route answers with index.html (the URL in the browser stays
+ * unchanged), and React Router takes over and renders the correct page.
  *
- * Note: Static files (JS, CSS, images) in /app/assets/ are served directly by
- * Spring Boot's built-in static resource handling, not this controller.
+ * Both index.html and the JS/CSS bundles in /app/assets/ come from StaticAssets:
+ * held in memory or sent with sendfile, pre-compressed, and cached by the browser
+ * (bundles for good, index.html revalidated by ETag). Other files in /app/ (icons)
+ * are left to Spring Boot's built-in static resource handling.
  */
 @Controller
 public class SpaController {
 
+    private static final String ASSETS = "/app/assets/";
+
+    private final StaticAssets staticAssets;
+
+    public SpaController(StaticAssets staticAssets) {
+        this.staticAssets = staticAssets;
+    }
+
     @GetMapping(value = {
             "/app",
             "/app/",
@@ -27,9 +42,17 @@ public class SpaController {
             "/app/dashboard",
             "/app/admin"
     })
-    public String forwardToReact() {
-        // "forward:" keeps the URL in the browser unchanged
-        // (unlike "redirect:" which changes the URL)
-        return "forward:/app/index.html";
+    public void index(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!staticAssets.serveIndex(request, response)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Frontend not built");
+        }
+    }
+
+    @GetMapping(ASSETS + "**")
+    public void asset(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String name = request.getRequestURI().substring(ASSETS.length());
+        if (!staticAssets.serveAsset(name, request, response)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
     }
 }
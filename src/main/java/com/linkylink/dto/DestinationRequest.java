@@ -0,0 +1,20 @@
+package com.linkylink.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * One weighted destination in a LinkRequest.
+ */
+public record DestinationRequest(
+        @NotBlank(message = "Destination URL is required")
+        String url,
+
+        @NotNull(message = "Destination weight is required")
+        @Min(value = 1, message = "Destination weight must be at least 1")
+        @Max(value = 10000, message = "Destination weight must be at most 10000")
+        Integer weight
+) {
+}
@@ -1,20 +1,46 @@
 package com.linkylink.dto;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
+import java.util.List;
+
 /**
  * DTO for creating or updating a go link.
+ *
+ * For a multi-destination link, send the weighted 'destinations' instead of 'url'
+ * (the link's url is then set to the first destination).
+ *
+ * redirectStatus and cacheMaxAge let browsers cache the redirect (see Link).
  */
 public record LinkRequest(
         @NotBlank(message = "Keyword is required")
         @Size(min = 1, max = 50, message = "Keyword must be 1-50 characters")
         String keyword,
 
-        @NotBlank(message = "URL is required")
+        // Required unless 'destinations' is given (checked in LinkService)
         String url,
 
         @Size(max = 200, message = "Description must be under 200 characters")
-        String description
+        String description,
+
+        // Optional ISO-8601 instant (e.g. "2025-03-01T00:00:00Z"); null = never expires
+        String expiresAt,
+
+        // Optional weighted destinations; null/empty = redirect to 'url'
+        @Valid
+        @Size(max = 20, message = "At most 20 destinations")
+        List<DestinationRequest> destinations,
+
+        // Optional 302 (default), 307 or 308 (checked in LinkService)
+        Integer redirectStatus,
+
+        // Optional seconds browsers may cache the redirect; null/0 = never (308: a year)
+        @Min(value = 0, message = "Cache max-age can't be negative")
+        @Max(value = 31536000, message = "Cache max-age can be at most a year (31536000 seconds)")
+        Long cacheMaxAge
 ) {
 }
@@ -0,0 +1,27 @@
+package com.linkylink.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A password login (UserService.authenticate): the user lookup plus the BCrypt
+ * check, which is deliberately slow (tens of milliseconds). Logins are rare, so
+ * every one is recorded (no threshold).
+ */
+@Name("com.linkylink.Authentication")
+@Label("Authentication")
+@Category({"LinkyLink", "Security"})
+@Description("A username/password login")
+@StackTrace(false)
+public class AuthenticationEvent extends jdk.jfr.Event {
+
+    @Label("Username")
+    public String username;
+
+    @Label("Outcome")
+    @Description("ok, unknown-user or wrong-password")
+    public String outcome;
+}
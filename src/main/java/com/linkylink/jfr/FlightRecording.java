@@ -0,0 +1,95 @@
+package com.linkylink.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * A continuous JDK Flight Recorder recording, started with the app.
+ *
+ * JFR keeps a rolling window of events (the last max-age-hours, at most max-size-mb
+ * on disk) at very low overhead, using the bundled jfr/linkylink.jfc profile: GC,
+ * safepoints, lock contention, CPU and socket I/O, plus the app's own events
+ * (RedirectEvent, RepositoryEvent, TokenVerificationEvent, AuthenticationEvent).
+ * When a latency spike is reported, dump the window and open it in JDK Mission
+ * Control, e.g.:
+ *
+ *   jcmd <pid> JFR.dump name=linkylink filename=spike.jfr
+ *
+ * and see whether slow redirects line up with a GC pause, a slow DynamoDB call or a
+ * contended lock.
+ *
+ * Off by default: the app's events cost next to nothing while no recording enables
+ * them, so the same build can run with or without it (or with a recording started
+ * from the command line instead, see linkylink.jfc).
+ */
+@Component
+public class FlightRecording {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecording.class);
+
+    public static final String NAME = "linkylink";
+    private static final String SETTINGS = "/jfr/linkylink.jfc";
+
+    private final Recording recording;
+
+    public FlightRecording(@Value("${linkylink.jfr.enabled:false}") boolean enabled,
+                           @Value("${linkylink.jfr.max-age-hours:6}") long maxAgeHours,
+                           @Value("${linkylink.jfr.max-size-mb:250}") long maxSizeMb,
+                           @Value("${linkylink.jfr.destination:}") String destination) throws IOException {
+        if (!enabled) {
+            this.recording = null;
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            log.warn("linkylink.jfr.enabled is set, but Flight Recorder isn't available in this JVM");
+            this.recording = null;
+            return;
+        }
+        this.recording = new Recording(settings());
+        recording.setName(NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(Duration.ofHours(maxAgeHours));
+        recording.setMaxSize(maxSizeMb * 1024 * 1024);
+        if (!destination.isBlank()) {
+            recording.setDestination(Path.of(destination)); // written when the app stops
+        }
+        recording.start();
+        log.info("Flight recording '{}' started (last {} h, at most {} MB)", NAME, maxAgeHours, maxSizeMb);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.stop(); // writes to the destination, if one is set
+            recording.close();
+        }
+    }
+
+    private static Configuration settings() throws IOException {
+        try (InputStream in = FlightRecording.class.getResourceAsStream(SETTINGS)) {
+            if (in == null) {
+                throw new IOException(SETTINGS + " is missing from the classpath");
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return Configuration.create(reader);
+            } catch (ParseException e) {
+                throw new IOException("Invalid " + SETTINGS + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
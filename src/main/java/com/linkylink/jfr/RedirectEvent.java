@@ -0,0 +1,31 @@
+package com.linkylink.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One go-link redirect (RedirectController.redirect), from lookup to response.
+ *
+ * Recorded only when it took at least the threshold, so a recording shows the slow
+ * redirects next to what the JVM was doing at the time (GC pauses, lock contention,
+ * socket reads). Nested RepositoryEvents on the same thread show where the time went.
+ */
+@Name("com.linkylink.Redirect")
+@Label("Redirect")
+@Category({"LinkyLink", "HTTP"})
+@Description("A go-link redirect that took longer than the threshold")
+@Threshold("10 ms")
+@StackTrace(false)
+public class RedirectEvent extends jdk.jfr.Event {
+
+    @Label("Keyword")
+    public String keyword;
+
+    @Label("Status")
+    @Description("HTTP status sent (404 = keyword not found, 503 = database unavailable)")
+    public int status;
+}
@@ -0,0 +1,76 @@
+package com.linkylink.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.util.function.Supplier;
+
+/**
+ * One repository call (LinkRepository, UserRepository): which operation, on which
+ * key, how long, and how it ended.
+ *
+ * The duration covers everything the call waited for: circuit breaker, hedged
+ * reads, SDK retries. For the streaming scans (forEach...), it also includes the
+ * time the caller's sink took.
+ */
+@Name("com.linkylink.Repository")
+@Label("Repository Call")
+@Category({"LinkyLink", "DynamoDB"})
+@Description("A DynamoDB repository call that took longer than the threshold")
+@Threshold("10 ms")
+@StackTrace(false)
+public class RepositoryEvent extends jdk.jfr.Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Key")
+    @Description("Keyword, username or other key the call was about, if any")
+    public String key;
+
+    @Label("Outcome")
+    @Description("ok, or the simple name of the exception thrown")
+    public String outcome;
+
+    /**
+     * Run {@code call}, recording it if it took at least the threshold.
+     *
+     * When no recording has the event enabled, begin/shouldCommit cost a few
+     * nanoseconds and the event object is optimized away by the JIT; the fields are
+     * only filled in for events that will be committed.
+     */
+    public static <T> T timed(String repository, String operation, String key, Supplier<T> call) {
+        RepositoryEvent event = new RepositoryEvent();
+        event.begin();
+        String outcome = "ok";
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.repository = repository;
+                event.operation = operation;
+                event.key = key;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    public static void timed(String repository, String operation, String key, Runnable call) {
+        timed(repository, operation, key, () -> {
+            call.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package com.linkylink.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Verifying the JWT of one request (JwtAuthenticationFilter): signature, expiry and
+ * claims. Runs on every authenticated API request, so only slow ones are recorded.
+ */
+@Name("com.linkylink.TokenVerification")
+@Label("Token Verification")
+@Category({"LinkyLink", "Security"})
+@Description("Verifying a request's JWT took longer than the threshold")
+@Threshold("5 ms")
+@StackTrace(false)
+public class TokenVerificationEvent extends jdk.jfr.Event {
+
+    @Label("Username")
+    @Description("The token's subject, if it was valid")
+    public String username;
+
+    @Label("Valid")
+    public boolean valid;
+}
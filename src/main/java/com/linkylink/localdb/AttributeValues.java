@@ -0,0 +1,301 @@
+package com.linkylink.localdb;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DynamoDB value semantics for the in-memory client: typing, ordering, equality,
+ * item size, and reading/writing document paths (a.b[2].c).
+ */
+final class AttributeValues {
+
+    private AttributeValues() {
+    }
+
+    /**
+     * The value's DynamoDB type: S, N, B, BOOL, NULL, L, M, SS, NS or BS.
+     */
+    static String type(AttributeValue value) {
+        if (value.s() != null) {
+            return "S";
+        }
+        if (value.n() != null) {
+            return "N";
+        }
+        if (value.b() != null) {
+            return "B";
+        }
+        if (value.bool() != null) {
+            return "BOOL";
+        }
+        if (Boolean.TRUE.equals(value.nul())) {
+            return "NULL";
+        }
+        if (value.hasL()) {
+            return "L";
+        }
+        if (value.hasM()) {
+            return "M";
+        }
+        if (value.hasSs()) {
+            return "SS";
+        }
+        if (value.hasNs()) {
+            return "NS";
+        }
+        if (value.hasBs()) {
+            return "BS";
+        }
+        throw DynamoDbErrors.validation("Supplied AttributeValue is empty, must contain exactly one of the supported datatypes");
+    }
+
+    static AttributeValue number(BigDecimal number) {
+        return AttributeValue.builder().n(number.stripTrailingZeros().toPlainString()).build();
+    }
+
+    /**
+     * Order two scalar values of the same type (S, N or B), as DynamoDB does for keys
+     * and comparisons.
+     *
+     * @return null if they aren't comparable (different or non-scalar types)
+     */
+    static Integer compare(AttributeValue a, AttributeValue b) {
+        String type = type(a);
+        if (!type.equals(type(b))) {
+            return null;
+        }
+        return switch (type) {
+            case "S" -> compareBytes(a.s().getBytes(StandardCharsets.UTF_8), b.s().getBytes(StandardCharsets.UTF_8));
+            case "N" -> new BigDecimal(a.n()).compareTo(new BigDecimal(b.n()));
+            case "B" -> compareBytes(a.b().asByteArrayUnsafe(), b.b().asByteArrayUnsafe());
+            default -> null;
+        };
+    }
+
+    /**
+     * Value equality (numbers by value, sets regardless of order).
+     */
+    static boolean equal(AttributeValue a, AttributeValue b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        String type = type(a);
+        if (!type.equals(type(b))) {
+            return false;
+        }
+        return switch (type) {
+            case "N", "S", "B" -> compare(a, b) == 0;
+            case "NS" -> numberSet(a.ns()).equals(numberSet(b.ns()));
+            case "SS" -> new HashSet<>(a.ss()).equals(new HashSet<>(b.ss()));
+            case "BS" -> new HashSet<>(a.bs()).equals(new HashSet<>(b.bs()));
+            case "L" -> {
+                if (a.l().size() != b.l().size()) {
+                    yield false;
+                }
+                for (int i = 0; i < a.l().size(); i++) {
+                    if (!equal(a.l().get(i), b.l().get(i))) {
+                        yield false;
+                    }
+                }
+                yield true;
+            }
+            case "M" -> {
+                if (!a.m().keySet().equals(b.m().keySet())) {
+                    yield false;
+                }
+                for (Map.Entry<String, AttributeValue> entry : a.m().entrySet()) {
+                    if (!equal(entry.getValue(), b.m().get(entry.getKey()))) {
+                        yield false;
+                    }
+                }
+                yield true;
+            }
+            default -> a.equals(b);
+        };
+    }
+
+    /**
+     * Item size as DynamoDB bills it: attribute names plus values (approximately, for
+     * numbers). Capacity units and the 400 KB item limit are based on this.
+     */
+    static int itemSize(Map<String, AttributeValue> item) {
+        int size = 0;
+        for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            size += utf8Length(entry.getKey()) + valueSize(entry.getValue());
+        }
+        return size;
+    }
+
+    private static int valueSize(AttributeValue value) {
+        return switch (type(value)) {
+            case "S" -> utf8Length(value.s());
+            case "N" -> value.n().length() / 2 + 1;
+            case "B" -> value.b().asByteArrayUnsafe().length;
+            case "BOOL", "NULL" -> 1;
+            case "SS" -> value.ss().stream().mapToInt(AttributeValues::utf8Length).sum();
+            case "NS" -> value.ns().stream().mapToInt(n -> n.length() / 2 + 1).sum();
+            case "BS" -> value.bs().stream().mapToInt(b -> b.asByteArrayUnsafe().length).sum();
+            case "L" -> 3 + value.l().stream().mapToInt(v -> 1 + valueSize(v)).sum();
+            case "M" -> 3 + value.m().entrySet().stream()
+                    .mapToInt(e -> 1 + utf8Length(e.getKey()) + valueSize(e.getValue())).sum();
+            default -> 0;
+        };
+    }
+
+    // ==================== Document paths ====================
+
+    /**
+     * Read the value at a path, or null if any step is missing.
+     */
+    static AttributeValue get(Map<String, AttributeValue> item, List<Object> path) {
+        AttributeValue current = item.get((String) path.get(0));
+        for (int i = 1; i < path.size() && current != null; i++) {
+            Object step = path.get(i);
+            if (step instanceof Integer index) {
+                current = current.hasL() && index < current.l().size() ? current.l().get(index) : null;
+            } else {
+                current = current.hasM() ? current.m().get((String) step) : null;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Write a value at a path (the parent must exist). Setting a list index past the
+     * end appends, as in DynamoDB.
+     */
+    static void set(Map<String, AttributeValue> item, List<Object> path, AttributeValue value) {
+        String top = (String) path.get(0);
+        if (path.size() == 1) {
+            item.put(top, value);
+            return;
+        }
+        AttributeValue parent = item.get(top);
+        if (parent == null) {
+            throw DynamoDbErrors.validation("The document path provided in the update expression is invalid for update");
+        }
+        item.put(top, with(parent, path, 1, value));
+    }
+
+    /**
+     * Remove the value at a path, if present.
+     */
+    static void remove(Map<String, AttributeValue> item, List<Object> path) {
+        String top = (String) path.get(0);
+        if (path.size() == 1) {
+            item.remove(top);
+            return;
+        }
+        AttributeValue parent = item.get(top);
+        if (parent != null) {
+            item.put(top, with(parent, path, 1, null));
+        }
+    }
+
+    /**
+     * Copy of {@code container} with the value at path[i..] replaced (null = removed).
+     */
+    private static AttributeValue with(AttributeValue container, List<Object> path, int i, AttributeValue value) {
+        Object step = path.get(i);
+        boolean last = i == path.size() - 1;
+        if (step instanceof Integer index) {
+            if (!container.hasL()) {
+                throw DynamoDbErrors.validation("The document path provided in the update expression is invalid for update");
+            }
+            List<AttributeValue> list = new ArrayList<>(container.l());
+            if (last) {
+                if (value == null) {
+                    if (index < list.size()) {
+                        list.remove((int) index);
+                    }
+                } else if (index < list.size()) {
+                    list.set(index, value);
+                } else {
+                    list.add(value);
+                }
+            } else {
+                if (index >= list.size()) {
+                    throw DynamoDbErrors.validation("The document path provided in the update expression is invalid for update");
+                }
+                list.set(index, with(list.get(index), path, i + 1, value));
+            }
+            return AttributeValue.builder().l(list).build();
+        }
+        if (!container.hasM()) {
+            throw DynamoDbErrors.validation("The document path provided in the update expression is invalid for update");
+        }
+        Map<String, AttributeValue> map = new LinkedHashMap<>(container.m());
+        String key = (String) step;
+        if (last) {
+            if (value == null) {
+                map.remove(key);
+            } else {
+                map.put(key, value);
+            }
+        } else {
+            AttributeValue child = map.get(key);
+            if (child == null) {
+                throw DynamoDbErrors.validation("The document path provided in the update expression is invalid for update");
+            }
+            map.put(key, with(child, path, i + 1, value));
+        }
+        return AttributeValue.builder().m(map).build();
+    }
+
+    // ==================== Sets (ADD / DELETE) ====================
+
+    /**
+     * Union (add = true) or difference of two sets of the same type.
+     *
+     * @return null if the difference is empty
+     */
+    static AttributeValue combineSets(AttributeValue current, AttributeValue change, boolean add) {
+        String type = type(current);
+        if (!type.equals(type(change))) {
+            throw DynamoDbErrors.validation("An operand in the update expression has an incorrect data type");
+        }
+        AttributeValue combined = switch (type) {
+            case "SS" -> AttributeValue.builder().ss(combine(current.ss(), change.ss(), add)).build();
+            case "NS" -> AttributeValue.builder().ns(combine(current.ns(), change.ns(), add)).build();
+            case "BS" -> AttributeValue.builder().bs(combine(current.bs(), change.bs(), add)).build();
+            default -> throw DynamoDbErrors.validation("An operand in the update expression has an incorrect data type");
+        };
+        boolean empty = (combined.hasSs() && combined.ss().isEmpty()) || (combined.hasNs() && combined.ns().isEmpty())
+                || (combined.hasBs() && combined.bs().isEmpty());
+        return empty ? null : combined;
+    }
+
+    private static <T> List<T> combine(List<T> current, List<T> change, boolean add) {
+        Set<T> result = new LinkedHashSet<>(current);
+        if (add) {
+            result.addAll(change);
+        } else {
+            change.forEach(result::remove);
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static Set<BigDecimal> numberSet(List<String> numbers) {
+        Set<BigDecimal> set = new HashSet<>();
+        numbers.forEach(n -> set.add(new BigDecimal(n).stripTrailingZeros()));
+        return set;
+    }
+
+    static int utf8Length(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    static int compareBytes(byte[] a, byte[] b) {
+        return Arrays.compareUnsigned(a, b);
+    }
+}
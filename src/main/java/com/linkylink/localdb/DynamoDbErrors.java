@@ -0,0 +1,96 @@
+package com.linkylink.localdb;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.InternalServerErrorException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.util.List;
+
+/**
+ * The exceptions the real DynamoDB client throws, built the same way (status code,
+ * error code), so callers' error handling — including the SDK's own
+ * isThrottlingException() — behaves identically against the in-memory client.
+ */
+final class DynamoDbErrors {
+
+    private DynamoDbErrors() {
+    }
+
+    static DynamoDbException validation(String message) {
+        return (DynamoDbException) DynamoDbException.builder()
+                .message(message)
+                .statusCode(400)
+                .awsErrorDetails(details("ValidationException", message))
+                .build();
+    }
+
+    static ResourceNotFoundException tableNotFound(String table) {
+        String message = "Requested resource not found: Table: " + table + " not found";
+        return ResourceNotFoundException.builder()
+                .message(message)
+                .statusCode(400)
+                .awsErrorDetails(details("ResourceNotFoundException", message))
+                .build();
+    }
+
+    static ResourceInUseException tableExists(String table) {
+        String message = "Table already exists: " + table;
+        return ResourceInUseException.builder()
+                .message(message)
+                .statusCode(400)
+                .awsErrorDetails(details("ResourceInUseException", message))
+                .build();
+    }
+
+    static ConditionalCheckFailedException conditionFailed() {
+        String message = "The conditional request failed";
+        return ConditionalCheckFailedException.builder()
+                .message(message)
+                .statusCode(400)
+                .awsErrorDetails(details("ConditionalCheckFailedException", message))
+                .build();
+    }
+
+    static ProvisionedThroughputExceededException throttled() {
+        String message = "The level of configured provisioned throughput for the table was exceeded";
+        return ProvisionedThroughputExceededException.builder()
+                .message(message)
+                .statusCode(400)
+                .awsErrorDetails(details("ProvisionedThroughputExceededException", message))
+                .build();
+    }
+
+    static InternalServerErrorException internalError() {
+        String message = "Internal server error (injected)";
+        return InternalServerErrorException.builder()
+                .message(message)
+                .statusCode(500)
+                .awsErrorDetails(details("InternalServerError", message))
+                .build();
+    }
+
+    static TransactionCanceledException transactionCanceled(List<CancellationReason> reasons) {
+        String message = "Transaction cancelled, please refer cancellation reasons for specific reasons "
+                + reasons.stream().map(CancellationReason::code).toList();
+        return TransactionCanceledException.builder()
+                .message(message)
+                .statusCode(400)
+                .cancellationReasons(reasons)
+                .awsErrorDetails(details("TransactionCanceledException", message))
+                .build();
+    }
+
+    private static AwsErrorDetails details(String code, String message) {
+        return AwsErrorDetails.builder()
+                .errorCode(code)
+                .errorMessage(message)
+                .serviceName("DynamoDb")
+                .build();
+    }
+}
@@ -0,0 +1,778 @@
+package com.linkylink.localdb;
+
+import software.amazon.awssdk.core.util.SdkAutoConstructMap;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parser and evaluator for DynamoDB's expression language, as used by the
+ * in-memory client:
+ *
+ *   condition / filter / key condition:
+ *     a = :v AND (b < :w OR NOT attribute_exists(#c)) AND d BETWEEN :lo AND :hi
+ *     e IN (:x, :y) AND begins_with(f, :p) AND contains(g, :q) AND size(h) > :n
+ *
+ *   update:
+ *     SET a = :v, b = if_not_exists(b, :zero) + :one, c = list_append(c, :l)
+ *     REMOVE d, e[2]   ADD f :n   DELETE g :s
+ *
+ *   projection:
+ *     keyword, #url, destinations[0].weight
+ *
+ * Names may be #placeholders (expressionAttributeNames) and values are always
+ * :placeholders (expressionAttributeValues), exactly as in the real API — which
+ * also rejects placeholders none of a request's expressions use (requireAllUsed).
+ * Paths can go into maps (a.b) and lists (a[0]). A recursive-descent parser turns
+ * each expression into a small tree of lambdas, evaluated against one item at a time.
+ *
+ * Updates follow DynamoDB's rules: every action sees the item as it was before the
+ * update (so REMOVE a[1], a[2] removes the elements that were at 1 and 2), no two
+ * actions may touch overlapping paths, and a DELETE that empties a set removes the
+ * attribute.
+ */
+final class Expressions {
+
+    /**
+     * A parsed condition, tested against an item.
+     */
+    interface Condition {
+        boolean test(Map<String, AttributeValue> item);
+    }
+
+    /**
+     * A parsed update expression, applied to a mutable copy of an item.
+     */
+    interface Update {
+        void apply(Map<String, AttributeValue> item);
+    }
+
+    /**
+     * Something that evaluates to a value (or null, if it refers to a missing path).
+     */
+    private interface Operand {
+        AttributeValue eval(Map<String, AttributeValue> item);
+    }
+
+    /**
+     * A resolved document path: attribute names (String) and list indexes (Integer).
+     */
+    record Path(List<Object> steps) {
+        AttributeValue get(Map<String, AttributeValue> item) {
+            return AttributeValues.get(item, steps);
+        }
+
+        String top() {
+            return (String) steps.get(0);
+        }
+    }
+
+    private Expressions() {
+    }
+
+    /**
+     * Parse a condition (ConditionExpression, FilterExpression, KeyConditionExpression).
+     * Returns an always-true condition for a null or empty expression.
+     */
+    static Condition condition(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+        if (expression == null || expression.isBlank()) {
+            return item -> true;
+        }
+        Parser parser = new Parser(expression, names, values);
+        Condition condition = parser.parseOr();
+        parser.expectEnd();
+        return condition;
+    }
+
+    /**
+     * Parse an update expression (SET / REMOVE / ADD / DELETE clauses).
+     */
+    static Update update(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+        Parser parser = new Parser(expression, names, values);
+        Update update = parser.parseUpdate();
+        parser.expectEnd();
+        return update;
+    }
+
+    /**
+     * Parse a projection expression into paths.
+     */
+    static List<Path> projection(String expression, Map<String, String> names) {
+        Parser parser = new Parser(expression, names, Map.of());
+        List<Path> paths = new ArrayList<>();
+        do {
+            paths.add(parser.parsePath());
+        } while (parser.accept(","));
+        parser.expectEnd();
+        return paths;
+    }
+
+    /**
+     * Reject expression attribute names or values that none of the request's
+     * expressions refer to, as DynamoDB does. Null expressions are skipped.
+     */
+    static void requireAllUsed(Map<String, String> names, Map<String, AttributeValue> values,
+                               String... expressions) {
+        Set<String> used = new HashSet<>();
+        for (String expression : expressions) {
+            if (expression != null) {
+                new Tokenizer(expression).tokens.forEach(token -> used.add(token.text()));
+            }
+        }
+        unused("ExpressionAttributeNames", names, used);
+        unused("ExpressionAttributeValues", values, used);
+    }
+
+    private static void unused(String parameter, Map<String, ?> placeholders, Set<String> used) {
+        if (placeholders == null || placeholders instanceof SdkAutoConstructMap) {
+            return; // not sent
+        }
+        if (placeholders.isEmpty()) {
+            throw DynamoDbErrors.validation(parameter + " must not be empty");
+        }
+        List<String> unused = placeholders.keySet().stream().filter(key -> !used.contains(key)).sorted().toList();
+        if (!unused.isEmpty()) {
+            throw DynamoDbErrors.validation("Value provided in " + parameter + " unused in expressions: keys: {"
+                    + String.join(", ", unused) + "}");
+        }
+    }
+
+    /**
+     * Split a key condition into the partition-key equality and the (optional)
+     * sort-key condition, which is what Query needs to pick a partition.
+     *
+     * @return {partition key value, sort key condition or null}
+     */
+    static KeyCondition keyCondition(String expression, Map<String, String> names,
+                                     Map<String, AttributeValue> values, String hashKey) {
+        if (expression == null || expression.isBlank()) {
+            throw DynamoDbErrors.validation("Either the KeyConditions or KeyConditionExpression parameter must be specified");
+        }
+        // Key conditions are "<hash> = :v" optionally "AND <range condition>"; split on the top-level AND
+        List<String> parts = splitTopLevelAnd(expression);
+        AttributeValue hashValue = null;
+        Condition rangeCondition = null;
+        for (String part : parts) {
+            Parser parser = new Parser(part, names, values);
+            int mark = parser.position;
+            Path path = parser.tryPath();
+            if (path != null && path.steps().size() == 1 && path.top().equals(hashKey) && parser.accept("=")) {
+                hashValue = parser.parseOperand().eval(Map.of());
+                parser.expectEnd();
+                continue;
+            }
+            parser.position = mark;
+            Condition condition = parser.parseOr();
+            parser.expectEnd();
+            if (rangeCondition != null) {
+                throw DynamoDbErrors.validation("Invalid KeyConditionExpression: too many conditions");
+            }
+            rangeCondition = condition;
+        }
+        if (hashValue == null) {
+            throw DynamoDbErrors.validation("Query condition missed key schema element: " + hashKey);
+        }
+        return new KeyCondition(hashValue, rangeCondition);
+    }
+
+    record KeyCondition(AttributeValue hashValue, Condition rangeCondition) {
+    }
+
+    private static List<String> splitTopLevelAnd(String expression) {
+        Tokenizer tokens = new Tokenizer(expression);
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        boolean inBetween = false;
+        for (Token token : tokens.tokens) {
+            if (token.text.equals("(")) {
+                depth++;
+            } else if (token.text.equals(")")) {
+                depth--;
+            } else if (depth == 0 && token.isKeyword("BETWEEN")) {
+                inBetween = true;
+            } else if (depth == 0 && token.isKeyword("AND")) {
+                if (inBetween) {
+                    inBetween = false; // the AND of "BETWEEN :a AND :b"
+                } else {
+                    parts.add(expression.substring(start, token.start));
+                    start = token.start + token.text.length();
+                }
+            }
+        }
+        parts.add(expression.substring(start));
+        return parts;
+    }
+
+    // ==================== Tokenizer ====================
+
+    private record Token(String text, int start, boolean word) {
+        boolean isKeyword(String keyword) {
+            return word && text.equalsIgnoreCase(keyword);
+        }
+    }
+
+    private static final class Tokenizer {
+        final List<Token> tokens = new ArrayList<>();
+
+        Tokenizer(String expression) {
+            int i = 0;
+            int n = expression.length();
+            while (i < n) {
+                char c = expression.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '#' || c == ':' || Character.isLetterOrDigit(c) || c == '_') {
+                    int start = i++;
+                    while (i < n && (Character.isLetterOrDigit(expression.charAt(i))
+                            || expression.charAt(i) == '_')) {
+                        i++;
+                    }
+                    tokens.add(new Token(expression.substring(start, i), start, true));
+                } else if ((c == '<' || c == '>') && i + 1 < n
+                        && (expression.charAt(i + 1) == '=' || (c == '<' && expression.charAt(i + 1) == '>'))) {
+                    tokens.add(new Token(expression.substring(i, i + 2), i, false));
+                    i += 2;
+                } else if ("()[],.=<>+-".indexOf(c) >= 0) {
+                    tokens.add(new Token(String.valueOf(c), i, false));
+                    i++;
+                } else {
+                    throw DynamoDbErrors.validation("Invalid expression: unexpected character '" + c
+                            + "' in: " + expression);
+                }
+            }
+        }
+    }
+
+    // ==================== Parser ====================
+
+    private static final class Parser {
+        private final String expression;
+        private final List<Token> tokens;
+        private final Map<String, String> names;
+        private final Map<String, AttributeValue> values;
+        int position;
+
+        Parser(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+            this.expression = expression;
+            this.tokens = new Tokenizer(expression).tokens;
+            this.names = names == null ? Map.of() : names;
+            this.values = values == null ? Map.of() : values;
+        }
+
+        // --- conditions ---
+
+        Condition parseOr() {
+            Condition left = parseAnd();
+            while (acceptKeyword("OR")) {
+                Condition a = left;
+                Condition b = parseAnd();
+                left = item -> a.test(item) || b.test(item);
+            }
+            return left;
+        }
+
+        Condition parseAnd() {
+            Condition left = parseNot();
+            while (acceptKeyword("AND")) {
+                Condition a = left;
+                Condition b = parseNot();
+                left = item -> a.test(item) && b.test(item);
+            }
+            return left;
+        }
+
+        Condition parseNot() {
+            if (acceptKeyword("NOT")) {
+                Condition inner = parseNot();
+                return item -> !inner.test(item);
+            }
+            return parsePrimary();
+        }
+
+        Condition parsePrimary() {
+            if (accept("(")) {
+                Condition inner = parseOr();
+                expect(")");
+                return inner;
+            }
+            Token token = peek();
+            if (token != null && token.word() && isFunction(token) && !token.text().equalsIgnoreCase("size")) {
+                return parseFunction();
+            }
+            Operand left = parseOperand();
+            if (acceptKeyword("BETWEEN")) {
+                Operand low = parseOperand();
+                expectKeyword("AND");
+                Operand high = parseOperand();
+                return item -> {
+                    AttributeValue value = left.eval(item);
+                    AttributeValue lo = low.eval(item);
+                    AttributeValue hi = high.eval(item);
+                    if (value == null || lo == null || hi == null) {
+                        return false;
+                    }
+                    Integer above = AttributeValues.compare(value, lo);
+                    Integer below = AttributeValues.compare(value, hi);
+                    return above != null && below != null && above >= 0 && below <= 0;
+                };
+            }
+            if (acceptKeyword("IN")) {
+                expect("(");
+                List<Operand> options = new ArrayList<>();
+                do {
+                    options.add(parseOperand());
+                } while (accept(","));
+                expect(")");
+                return item -> {
+                    AttributeValue value = left.eval(item);
+                    return value != null && options.stream().anyMatch(o -> AttributeValues.equal(value, o.eval(item)));
+                };
+            }
+            String comparator = next().text();
+            Operand right = parseOperand();
+            return switch (comparator) {
+                case "=" -> item -> {
+                    AttributeValue a = left.eval(item);
+                    return a != null && AttributeValues.equal(a, right.eval(item));
+                };
+                case "<>" -> item -> {
+                    AttributeValue a = left.eval(item);
+                    AttributeValue b = right.eval(item);
+                    return a != null && b != null && !AttributeValues.equal(a, b);
+                };
+                case "<", "<=", ">", ">=" -> item -> {
+                    AttributeValue a = left.eval(item);
+                    AttributeValue b = right.eval(item);
+                    if (a == null || b == null) {
+                        return false;
+                    }
+                    Integer order = AttributeValues.compare(a, b);
+                    if (order == null) {
+                        return false;
+                    }
+                    return switch (comparator) {
+                        case "<" -> order < 0;
+                        case "<=" -> order <= 0;
+                        case ">" -> order > 0;
+                        default -> order >= 0;
+                    };
+                };
+                default -> throw error("Syntax error; token: \"" + comparator + "\"");
+            };
+        }
+
+        private Condition parseFunction() {
+            String function = next().text().toLowerCase(Locale.ROOT);
+            expect("(");
+            Condition condition = switch (function) {
+                case "attribute_exists" -> {
+                    Path path = parsePath();
+                    yield item -> path.get(item) != null;
+                }
+                case "attribute_not_exists" -> {
+                    Path path = parsePath();
+                    yield item -> path.get(item) == null;
+                }
+                case "attribute_type" -> {
+                    Path path = parsePath();
+                    expect(",");
+                    Operand type = parseOperand();
+                    yield item -> {
+                        AttributeValue value = path.get(item);
+                        AttributeValue expected = type.eval(item);
+                        return value != null && expected != null && AttributeValues.type(value).equals(expected.s());
+                    };
+                }
+                case "begins_with" -> {
+                    Operand target = parseOperand();
+                    expect(",");
+                    Operand prefix = parseOperand();
+                    yield item -> {
+                        AttributeValue value = target.eval(item);
+                        AttributeValue start = prefix.eval(item);
+                        if (value == null || start == null) {
+                            return false;
+                        }
+                        if (value.s() != null && start.s() != null) {
+                            return value.s().startsWith(start.s());
+                        }
+                        if (value.b() != null && start.b() != null) {
+                            byte[] bytes = value.b().asByteArrayUnsafe();
+                            byte[] head = start.b().asByteArrayUnsafe();
+                            return bytes.length >= head.length
+                                    && AttributeValues.compareBytes(java.util.Arrays.copyOf(bytes, head.length), head) == 0;
+                        }
+                        return false;
+                    };
+                }
+                case "contains" -> {
+                    Operand target = parseOperand();
+                    expect(",");
+                    Operand operand = parseOperand();
+                    yield item -> contains(target.eval(item), operand.eval(item));
+                }
+                default -> throw error("Invalid function name; function: " + function);
+            };
+            expect(")");
+            return condition;
+        }
+
+        private static boolean contains(AttributeValue value, AttributeValue operand) {
+            if (value == null || operand == null) {
+                return false;
+            }
+            if (value.s() != null) {
+                return operand.s() != null && value.s().contains(operand.s());
+            }
+            if (value.hasSs()) {
+                return operand.s() != null && value.ss().contains(operand.s());
+            }
+            if (value.hasNs()) {
+                return operand.n() != null && value.ns().stream()
+                        .anyMatch(n -> new BigDecimal(n).compareTo(new BigDecimal(operand.n())) == 0);
+            }
+            if (value.hasBs()) {
+                return operand.b() != null && value.bs().contains(operand.b());
+            }
+            if (value.hasL()) {
+                return value.l().stream().anyMatch(v -> AttributeValues.equal(v, operand));
+            }
+            return false;
+        }
+
+        // --- operands ---
+
+        Operand parseOperand() {
+            Token token = peek();
+            if (token == null) {
+                throw error("Syntax error; unexpected end of expression");
+            }
+            if (token.text().startsWith(":")) {
+                next();
+                AttributeValue value = values.get(token.text());
+                if (value == null) {
+                    throw error("An expression attribute value used in expression is not defined; attribute value: "
+                            + token.text());
+                }
+                return item -> value;
+            }
+            if (token.word() && token.text().equalsIgnoreCase("size")) {
+                next();
+                expect("(");
+                Path path = parsePath();
+                expect(")");
+                return item -> {
+                    AttributeValue value = path.get(item);
+                    return value == null ? null : AttributeValues.number(BigDecimal.valueOf(size(value)));
+                };
+            }
+            Path path = parsePath();
+            return path::get;
+        }
+
+        private static long size(AttributeValue value) {
+            return switch (AttributeValues.type(value)) {
+                case "S" -> AttributeValues.utf8Length(value.s());
+                case "B" -> value.b().asByteArrayUnsafe().length;
+                case "L" -> value.l().size();
+                case "M" -> value.m().size();
+                case "SS" -> value.ss().size();
+                case "NS" -> value.ns().size();
+                case "BS" -> value.bs().size();
+                default -> 0;
+            };
+        }
+
+        Path parsePath() {
+            Path path = tryPath();
+            if (path == null) {
+                throw error("Syntax error; expected an attribute name");
+            }
+            return path;
+        }
+
+        Path tryPath() {
+            Token token = peek();
+            if (token == null || !token.word() || token.text().startsWith(":")) {
+                return null;
+            }
+            next();
+            List<Object> steps = new ArrayList<>();
+            steps.add(name(token.text()));
+            while (true) {
+                if (accept(".")) {
+                    steps.add(name(next().text()));
+                } else if (accept("[")) {
+                    steps.add(Integer.parseInt(next().text()));
+                    expect("]");
+                } else {
+                    return new Path(steps);
+                }
+            }
+        }
+
+        private String name(String token) {
+            if (token.startsWith("#")) {
+                String name = names.get(token);
+                if (name == null) {
+                    throw error("An expression attribute name used in the document path is not defined; attribute name: "
+                            + token);
+                }
+                return name;
+            }
+            return token;
+        }
+
+        // --- updates ---
+
+        Update parseUpdate() {
+            List<Update> actions = new ArrayList<>();
+            List<SetAction> sets = new ArrayList<>();
+            List<Path> removes = new ArrayList<>();
+            List<Path> paths = new ArrayList<>();
+            while (peek() != null) {
+                Token clause = next();
+                if (clause.isKeyword("SET")) {
+                    do {
+                        Path path = parsePath();
+                        expect("=");
+                        sets.add(new SetAction(path, parseValue()));
+                        paths.add(path);
+                    } while (accept(",") && !atClause());
+                } else if (clause.isKeyword("REMOVE")) {
+                    do {
+                        Path path = parsePath();
+                        removes.add(path);
+                        paths.add(path);
+                    } while (accept(",") && !atClause());
+                } else if (clause.isKeyword("ADD") || clause.isKeyword("DELETE")) {
+                    boolean add = clause.isKeyword("ADD");
+                    do {
+                        Path path = parsePath();
+                        Operand operand = parseOperand();
+                        actions.add(item -> addOrDelete(item, path, operand.eval(item), add));
+                        paths.add(path);
+                    } while (accept(",") && !atClause());
+                } else {
+                    throw error("Syntax error; token: \"" + clause.text() + "\"");
+                }
+            }
+            if (paths.isEmpty()) {
+                throw error("Invalid UpdateExpression: the expression is empty");
+            }
+            requireNoOverlap(paths);
+            // Indexes refer to the list as it was: removing from the back keeps the rest in place
+            removes.sort(Parser::laterIndexFirst);
+            for (Path path : removes) {
+                actions.add(item -> AttributeValues.remove(item, path.steps()));
+            }
+            return item -> {
+                // Every SET right-hand side sees the item as it was before the update
+                Map<String, AttributeValue> before = new HashMap<>(item);
+                List<AttributeValue> results = new ArrayList<>(sets.size());
+                for (SetAction set : sets) {
+                    results.add(set.value().eval(before));
+                }
+                for (int i = 0; i < sets.size(); i++) {
+                    if (results.get(i) == null) {
+                        throw DynamoDbErrors.validation(
+                                "The provided expression refers to an attribute that does not exist in the item");
+                    }
+                    AttributeValues.set(item, sets.get(i).path().steps(), results.get(i));
+                }
+                actions.forEach(action -> action.apply(item));
+            };
+        }
+
+        private record SetAction(Path path, Operand value) {
+        }
+
+        /**
+         * "Two document paths overlap": no path may equal or contain another.
+         */
+        private void requireNoOverlap(List<Path> paths) {
+            for (int i = 0; i < paths.size(); i++) {
+                for (int j = i + 1; j < paths.size(); j++) {
+                    List<Object> a = paths.get(i).steps();
+                    List<Object> b = paths.get(j).steps();
+                    int common = Math.min(a.size(), b.size());
+                    if (a.subList(0, common).equals(b.subList(0, common))) {
+                        throw DynamoDbErrors.validation("Invalid UpdateExpression: Two document paths overlap with "
+                                + "each other; must remove or rewrite one of these paths; path one: " + a
+                                + ", path two: " + b);
+                    }
+                }
+            }
+        }
+
+        private static int laterIndexFirst(Path a, Path b) {
+            for (int i = 0; i < Math.min(a.steps().size(), b.steps().size()); i++) {
+                Object x = a.steps().get(i);
+                Object y = b.steps().get(i);
+                if (x.equals(y)) {
+                    continue;
+                }
+                if (x instanceof Integer m && y instanceof Integer n) {
+                    return Integer.compare(n, m);
+                }
+                return x.toString().compareTo(y.toString());
+            }
+            return 0;
+        }
+
+        private boolean atClause() {
+            Token token = peek();
+            return token != null && (token.isKeyword("SET") || token.isKeyword("REMOVE")
+                    || token.isKeyword("ADD") || token.isKeyword("DELETE"));
+        }
+
+        private Operand parseValue() {
+            Operand left = parseTerm();
+            if (accept("+")) {
+                Operand right = parseTerm();
+                return item -> arithmetic(left.eval(item), right.eval(item), true);
+            }
+            if (accept("-")) {
+                Operand right = parseTerm();
+                return item -> arithmetic(left.eval(item), right.eval(item), false);
+            }
+            return left;
+        }
+
+        private Operand parseTerm() {
+            Token token = peek();
+            if (token != null && token.isKeyword("if_not_exists")) {
+                next();
+                expect("(");
+                Path path = parsePath();
+                expect(",");
+                Operand fallback = parseValue();
+                expect(")");
+                return item -> {
+                    AttributeValue value = path.get(item);
+                    return value != null ? value : fallback.eval(item);
+                };
+            }
+            if (token != null && token.isKeyword("list_append")) {
+                next();
+                expect("(");
+                Operand first = parseValue();
+                expect(",");
+                Operand second = parseValue();
+                expect(")");
+                return item -> {
+                    AttributeValue a = first.eval(item);
+                    AttributeValue b = second.eval(item);
+                    if (a == null || b == null || !a.hasL() || !b.hasL()) {
+                        throw DynamoDbErrors.validation("An operand in the update expression has an incorrect data type");
+                    }
+                    List<AttributeValue> list = new ArrayList<>(a.l());
+                    list.addAll(b.l());
+                    return AttributeValue.builder().l(list).build();
+                };
+            }
+            return parseOperand();
+        }
+
+        private static AttributeValue arithmetic(AttributeValue a, AttributeValue b, boolean plus) {
+            if (a == null || b == null) {
+                throw DynamoDbErrors.validation(
+                        "The provided expression refers to an attribute that does not exist in the item");
+            }
+            if (a.n() == null || b.n() == null) {
+                throw DynamoDbErrors.validation("An operand in the update expression has an incorrect data type");
+            }
+            BigDecimal x = new BigDecimal(a.n());
+            BigDecimal y = new BigDecimal(b.n());
+            return AttributeValues.number(plus ? x.add(y) : x.subtract(y));
+        }
+
+        private static void addOrDelete(Map<String, AttributeValue> item, Path path, AttributeValue operand, boolean add) {
+            AttributeValue current = path.get(item);
+            if (current == null) {
+                if (add) {
+                    AttributeValues.set(item, path.steps(), operand);
+                }
+                return;
+            }
+            if (add && current.n() != null && operand.n() != null) {
+                AttributeValues.set(item, path.steps(),
+                        AttributeValues.number(new BigDecimal(current.n()).add(new BigDecimal(operand.n()))));
+                return;
+            }
+            AttributeValue combined = AttributeValues.combineSets(current, operand, add);
+            if (combined == null) {
+                AttributeValues.remove(item, path.steps()); // sets can't be empty
+            } else {
+                AttributeValues.set(item, path.steps(), combined);
+            }
+        }
+
+        // --- token helpers ---
+
+        private boolean isFunction(Token token) {
+            Token after = position + 1 < tokens.size() ? tokens.get(position + 1) : null;
+            return after != null && after.text().equals("(")
+                    && !token.text().startsWith("#") && !token.text().startsWith(":");
+        }
+
+        Token peek() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+
+        Token next() {
+            if (position >= tokens.size()) {
+                throw error("Syntax error; unexpected end of expression");
+            }
+            return tokens.get(position++);
+        }
+
+        boolean accept(String text) {
+            Token token = peek();
+            if (token != null && !token.word() && token.text().equals(text)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean acceptKeyword(String keyword) {
+            Token token = peek();
+            if (token != null && token.isKeyword(keyword)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(String text) {
+            if (!accept(text)) {
+                throw error("Syntax error; expected \"" + text + "\"");
+            }
+        }
+
+        void expectKeyword(String keyword) {
+            if (!acceptKeyword(keyword)) {
+                throw error("Syntax error; expected " + keyword);
+            }
+        }
+
+        void expectEnd() {
+            if (peek() != null) {
+                throw error("Syntax error; token: \"" + peek().text() + "\"");
+            }
+        }
+
+        private RuntimeException error(String message) {
+            return DynamoDbErrors.validation("Invalid expression: " + message + " (in: " + expression + ")");
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.linkylink.localdb;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Makes the in-memory client behave like a remote, shared, rate-limited service:
+ *
+ *   - Latency: every request sleeps for a sample from a lognormal distribution,
+ *     set by its median and p99 (separately for reads and writes). Lognormal is
+ *     the usual shape of service latency: most calls near the median, a long tail.
+ *   - Capacity: per-table read and write capacity units, as token buckets refilled
+ *     every second. A request arriving at an empty bucket is throttled, exactly like
+ *     provisioned-mode DynamoDB (0 = on-demand, never throttled).
+ *   - Injected faults: a fraction of requests fail with a throttling error or an
+ *     internal server error, regardless of load.
+ *
+ * Latency is slept before the request takes any lock, so a slow "network" doesn't
+ * serialize requests that wouldn't contend on the real service.
+ */
+public class FaultInjector {
+
+    /**
+     * Units a table may save up while idle, in seconds of capacity. DynamoDB keeps up
+     * to 300 s of burst; a few seconds keeps throttling visible in short tests.
+     */
+    private static final double BURST_SECONDS = 5;
+
+    // Standard normal quantile of 0.99: ln(p99) = ln(median) + 2.326 * sigma
+    private static final double Z_99 = 2.326;
+
+    /**
+     * Settings. Latencies in milliseconds (median 0 = no added latency), capacity in
+     * units per second (0 = on-demand), rates as probabilities per request, seed 0 =
+     * unseeded.
+     */
+    public record Settings(double readMedianMs, double readP99Ms,
+                           double writeMedianMs, double writeP99Ms,
+                           long readCapacityUnits, long writeCapacityUnits,
+                           double throttleRate, double errorRate, long seed) {
+
+        public static final Settings NONE = new Settings(0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+        public Settings {
+            if (readP99Ms < readMedianMs || writeP99Ms < writeMedianMs) {
+                throw new IllegalArgumentException("p99 latency must be at least the median");
+            }
+            if (throttleRate < 0 || throttleRate > 1 || errorRate < 0 || errorRate > 1) {
+                throw new IllegalArgumentException("throttle-rate and error-rate must be between 0 and 1");
+            }
+        }
+    }
+
+    /**
+     * Whether a request reads or writes (latency and capacity are separate for each).
+     */
+    enum Kind { READ, WRITE }
+
+    private final Settings settings;
+    private final Random seeded;
+    private final Map<String, Bucket> readBuckets = new ConcurrentHashMap<>();
+    private final Map<String, Bucket> writeBuckets = new ConcurrentHashMap<>();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public FaultInjector(Settings settings) {
+        this.settings = settings;
+        this.seeded = settings.seed() != 0 ? new Random(settings.seed()) : null;
+    }
+
+    /**
+     * Delay a request, then maybe fail it. Called once per API call, before any work.
+     */
+    void beforeRequest(Kind kind) {
+        sleep(kind);
+        if (settings.errorRate() > 0 && random() < settings.errorRate()) {
+            errors.increment();
+            throw DynamoDbErrors.internalError();
+        }
+    }
+
+    /**
+     * Whether a single-item request (or one item of a batch) may go ahead, given the
+     * table's capacity and the injected throttle rate. Throttled requests consume
+     * nothing.
+     */
+    boolean admit(Kind kind, String table, long provisionedUnits) {
+        boolean admitted = !(settings.throttleRate() > 0 && random() < settings.throttleRate());
+        if (admitted) {
+            Bucket bucket = bucket(kind, table, provisionedUnits);
+            admitted = bucket == null || bucket.hasTokens();
+        }
+        if (!admitted) {
+            throttled.increment();
+        }
+        return admitted;
+    }
+
+    /**
+     * {@link #admit}, throwing the throttling error DynamoDB returns.
+     */
+    void require(Kind kind, String table, long provisionedUnits) {
+        if (!admit(kind, table, provisionedUnits)) {
+            throw DynamoDbErrors.throttled();
+        }
+    }
+
+    /**
+     * Charge a finished request to the table's bucket. Like DynamoDB, the cost is
+     * only known afterwards, so a bucket can go into debt; the next request waits
+     * for it to refill.
+     */
+    void consume(Kind kind, String table, long provisionedUnits, double units) {
+        Bucket bucket = bucket(kind, table, provisionedUnits);
+        if (bucket != null) {
+            bucket.take(units);
+        }
+    }
+
+    void forget(String table) {
+        readBuckets.remove(table);
+        writeBuckets.remove(table);
+    }
+
+    /**
+     * Requests (or batch items) throttled so far, by capacity or by injection.
+     */
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    /**
+     * Internal server errors injected so far.
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * @param provisionedUnits the table's own provisioned capacity, or 0 to use the
+     *                         configured default
+     */
+    private Bucket bucket(Kind kind, String table, long provisionedUnits) {
+        long units = provisionedUnits > 0 ? provisionedUnits
+                : kind == Kind.READ ? settings.readCapacityUnits() : settings.writeCapacityUnits();
+        if (units <= 0) {
+            return null;
+        }
+        Map<String, Bucket> buckets = kind == Kind.READ ? readBuckets : writeBuckets;
+        return buckets.computeIfAbsent(table, t -> new Bucket(units));
+    }
+
+    private void sleep(Kind kind) {
+        double median = kind == Kind.READ ? settings.readMedianMs() : settings.writeMedianMs();
+        double p99 = kind == Kind.READ ? settings.readP99Ms() : settings.writeP99Ms();
+        if (median <= 0) {
+            return;
+        }
+        double sigma = Math.log(p99 / median) / Z_99;
+        double millis = median * Math.exp(sigma * gaussian());
+        LockSupport.parkNanos((long) (millis * TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+
+    private double random() {
+        return seeded != null ? seeded.nextDouble() : ThreadLocalRandom.current().nextDouble();
+    }
+
+    private double gaussian() {
+        return seeded != null ? seeded.nextGaussian() : ThreadLocalRandom.current().nextGaussian();
+    }
+
+    /**
+     * A token bucket of capacity units, refilled continuously at the table's rate.
+     */
+    private static final class Bucket {
+        private final double perSecond;
+        private final double max;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        Bucket(long perSecond) {
+            this.perSecond = perSecond;
+            this.max = perSecond * BURST_SECONDS;
+            this.tokens = perSecond; // a new table starts with one second's worth
+        }
+
+        synchronized boolean hasTokens() {
+            refill();
+            return tokens > 0;
+        }
+
+        synchronized void take(double units) {
+            refill();
+            tokens -= units;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(max, tokens + (now - refilledAt) / 1e9 * perSecond);
+            refilledAt = now;
+        }
+    }
+}
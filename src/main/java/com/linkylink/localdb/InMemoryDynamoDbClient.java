@@ -0,0 +1,1027 @@
+package com.linkylink.localdb;
+
+import com.linkylink.localdb.Expressions.Condition;
+import com.linkylink.localdb.Expressions.KeyCondition;
+import com.linkylink.localdb.Expressions.Path;
+import com.linkylink.localdb.FaultInjector.Kind;
+import com.linkylink.localdb.LocalTable.Index;
+import com.linkylink.localdb.LocalTable.Key;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.InterceptorContext;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * An in-process stand-in for DynamoDB, implementing the operations LinkyLink uses
+ * on the regular DynamoDbClient interface — so the enhanced client, the repositories
+ * and the SDK paginators run against it unchanged.
+ *
+ * Supported:
+ *   - GetItem, PutItem, UpdateItem, DeleteItem, with condition expressions and
+ *     ReturnValues
+ *   - Query and Scan, on tables and global secondary indexes: filters, projections,
+ *     Limit, pagination (ExclusiveStartKey / LastEvaluatedKey, 1 MB pages), parallel
+ *     scan segments, Select COUNT
+ *   - BatchGetItem, BatchWriteItem (with UnprocessedKeys / UnprocessedItems when
+ *     throttled) and TransactWriteItems
+ *   - CreateTable, DescribeTable, UpdateTable (adding/removing GSIs), DeleteTable,
+ *     ListTables, DescribeTimeToLive, UpdateTimeToLive
+ *   - ReturnConsumedCapacity, computed with DynamoDB's rules (reads per 4 KB, halved
+ *     for eventually consistent reads; writes per 1 KB, plus index writes; doubled
+ *     in transactions)
+ *   - SDK ExecutionInterceptors (modifyRequest, afterExecution) around data-plane
+ *     calls, so e.g. ConsumedCapacityInterceptor sees what it would on a real client
+ *
+ * Errors are the SDK's own exception types with the real error codes (see
+ * DynamoDbErrors), so retry logic and error handling see what they would in
+ * production. Latency, capacity limits and injected failures come from the
+ * FaultInjector; control-plane calls (table management) are never delayed or failed.
+ *
+ * Not simulated: TTL deletion (the setting is stored, expired items stay, which
+ * DynamoDB allows for up to a couple of days anyway), GSI propagation delay, the
+ * legacy non-expression parameters (AttributesToGet, KeyConditions, Expected...)
+ * and the SDK's own retries — the client is called directly, not over HTTP, so
+ * retry policies and timeouts configured on a real client don't apply here.
+ */
+public class InMemoryDynamoDbClient implements DynamoDbClient {
+
+    private static final int MAX_ITEM_BYTES = 400 * 1024;
+    private static final int MAX_PAGE_BYTES = 1024 * 1024;
+    private static final int MAX_BATCH_GET = 100;
+    private static final int MAX_BATCH_WRITE = 25;
+    private static final int MAX_TRANSACTION = 100;
+    // Power of two; every conditional or transactional write locks its item's stripe
+    private static final int LOCK_STRIPES = 1024;
+
+    private final Map<String, LocalTable> tables = new ConcurrentHashMap<>();
+    private final FaultInjector faults;
+    private final List<ExecutionInterceptor> interceptors;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    /**
+     * A client with no added latency, capacity limits or faults.
+     */
+    public InMemoryDynamoDbClient() {
+        this(new FaultInjector(FaultInjector.Settings.NONE));
+    }
+
+    public InMemoryDynamoDbClient(FaultInjector faults) {
+        this(faults, List.of());
+    }
+
+    /**
+     * @param interceptors SDK interceptors to run around every data-plane call, as a
+     *                     real client would (modifyRequest and afterExecution only)
+     */
+    public InMemoryDynamoDbClient(FaultInjector faults, List<ExecutionInterceptor> interceptors) {
+        this.faults = faults;
+        this.interceptors = List.copyOf(interceptors);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public FaultInjector getFaults() {
+        return faults;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release: the data lives as long as this object
+    }
+
+    /**
+     * Run a call through the interceptors: modifyRequest before, afterExecution after
+     * it succeeded. There is no HTTP exchange, so the contexts carry only the request
+     * and response.
+     */
+    @SuppressWarnings("unchecked")
+    private <Q extends DynamoDbRequest, R extends DynamoDbResponse> R intercepted(Q request, Function<Q, R> call) {
+        if (interceptors.isEmpty()) {
+            return call.apply(request);
+        }
+        ExecutionAttributes attributes = new ExecutionAttributes();
+        SdkRequest modified = request;
+        for (ExecutionInterceptor interceptor : interceptors) {
+            modified = interceptor.modifyRequest(InterceptorContext.builder().request(modified).build(), attributes);
+        }
+        R response = call.apply((Q) modified);
+        InterceptorContext after = InterceptorContext.builder().request(modified).response(response).build();
+        for (ExecutionInterceptor interceptor : interceptors) {
+            interceptor.afterExecution(after, attributes);
+        }
+        return response;
+    }
+
+    // ==================== Items ====================
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        return intercepted(request, this::execute);
+    }
+
+    private GetItemResponse execute(GetItemRequest request) {
+        unsupported(request.hasAttributesToGet(), "AttributesToGet");
+        Expressions.requireAllUsed(request.expressionAttributeNames(), null, request.projectionExpression());
+        faults.beforeRequest(Kind.READ);
+        LocalTable table = table(request.tableName());
+        faults.require(Kind.READ, table.name, table.readCapacityUnits);
+
+        Map<String, AttributeValue> item = table.items.get(table.keyOf(request.key()));
+        double units = readUnits(item == null ? 0 : AttributeValues.itemSize(item),
+                Boolean.TRUE.equals(request.consistentRead()));
+        faults.consume(Kind.READ, table.name, table.readCapacityUnits, units);
+
+        GetItemResponse.Builder response = GetItemResponse.builder()
+                .consumedCapacity(capacity(request.returnConsumedCapacity(), table.name, units, Map.of()));
+        if (item != null) {
+            response.item(project(item, request.projectionExpression(), request.expressionAttributeNames()));
+        }
+        return response.build();
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+        return intercepted(request, this::execute);
+    }
+
+    private PutItemResponse execute(PutItemRequest request) {
+        unsupported(request.hasExpected(), "Expected");
+        returnValues(request.returnValues(), ReturnValue.NONE, ReturnValue.ALL_OLD);
+        Expressions.requireAllUsed(request.expressionAttributeNames(), request.expressionAttributeValues(),
+                request.conditionExpression());
+        faults.beforeRequest(Kind.WRITE);
+        LocalTable table = table(request.tableName());
+        faults.require(Kind.WRITE, table.name, table.writeCapacityUnits);
+
+        Map<String, AttributeValue> item = request.item();
+        Key key = table.keyOfItem(item);
+        Condition condition = Expressions.condition(request.conditionExpression(),
+                request.expressionAttributeNames(), request.expressionAttributeValues());
+        Written written = write(table, key, condition, current -> item);
+
+        PutItemResponse.Builder response = PutItemResponse.builder()
+                .consumedCapacity(capacity(request.returnConsumedCapacity(), table.name, written.units(),
+                        written.indexUnits()));
+        if (request.returnValues() == ReturnValue.ALL_OLD && written.previous() != null) {
+            response.attributes(written.previous());
+        }
+        return response.build();
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        return intercepted(request, this::execute);
+    }
+
+    private UpdateItemResponse execute(UpdateItemRequest request) {
+        unsupported(request.hasAttributeUpdates(), "AttributeUpdates");
+        unsupported(request.hasExpected(), "Expected");
+        Expressions.requireAllUsed(request.expressionAttributeNames(), request.expressionAttributeValues(),
+                request.updateExpression(), request.conditionExpression());
+        faults.beforeRequest(Kind.WRITE);
+        LocalTable table = table(request.tableName());
+        faults.require(Kind.WRITE, table.name, table.writeCapacityUnits);
+
+        Key key = table.keyOf(request.key());
+        Condition condition = Expressions.condition(request.conditionExpression(),
+                request.expressionAttributeNames(), request.expressionAttributeValues());
+        UnaryOperator<Map<String, AttributeValue>> mutation = updater(table, request.key(),
+                request.updateExpression(), request.expressionAttributeNames(), request.expressionAttributeValues());
+        Written written = write(table, key, condition, mutation);
+
+        return UpdateItemResponse.builder()
+                .attributes(returned(request.returnValues(), written.previous(), written.current()))
+                .consumedCapacity(capacity(request.returnConsumedCapacity(), table.name, written.units(),
+                        written.indexUnits()))
+                .build();
+    }
+
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+        return intercepted(request, this::execute);
+    }
+
+    private DeleteItemResponse execute(DeleteItemRequest request) {
+        unsupported(request.hasExpected(), "Expected");
+        returnValues(request.returnValues(), ReturnValue.NONE, ReturnValue.ALL_OLD);
+        Expressions.requireAllUsed(request.expressionAttributeNames(), request.expressionAttributeValues(),
+                request.conditionExpression());
+        faults.beforeRequest(Kind.WRITE);
+        LocalTable table = table(request.tableName());
+        faults.require(Kind.WRITE, table.name, table.writeCapacityUnits);
+
+        Key key = table.keyOf(request.key());
+        Condition condition = Expressions.condition(request.conditionExpression(),
+                request.expressionAttributeNames(), request.expressionAttributeValues());
+        Written written = write(table, key, condition, current -> null);
+
+        DeleteItemResponse.Builder response = DeleteItemResponse.builder()
+                .consumedCapacity(capacity(request.returnConsumedCapacity(), table.name, written.units(),
+                        written.indexUnits()));
+        if (request.returnValues() == ReturnValue.ALL_OLD && written.previous() != null) {
+            response.attributes(written.previous());
+        }
+        return response.build();
+    }
+
+    // ==================== Scan & Query ====================
+
+    @Override
+    public ScanResponse scan(ScanRequest request) {
+        return intercepted(request, this::execute);
+    }
+
+    private ScanResponse execute(ScanRequest request) {
+        unsupported(request.hasScanFilter(), "ScanFilter");
+        unsupported(request.hasAttributesToGet(), "AttributesToGet");
+        Expressions.requireAllUsed(request.expressionAttributeNames(), request.expressionAttributeValues(),
+                request.filterExpression(), request.projectionExpression());
+        faults.beforeRequest(Kind.READ);
+        LocalTable table = table(request.tableName());
+        faults.require(Kind.READ, table.name, table.readCapacityUnits);
+
+        Index index = request.indexName() == null ? null : table.index(request.indexName());
+        boolean consistent = consistentRead(request.consistentRead(), index);
+        NavigableMap<Key, Map<String, AttributeValue>> source = index == null ? table.items : index.entries;
+        if (request.segment() != null || request.totalSegments() != null) {
+            int segment = request.segment() == null ? -1 : request.segment();
+            int total = request.totalSegments() == null ? -1 : request.totalSegments();
+            if (segment < 0 || total < 1 || segment >= total || total > 1_000_000) {
+                throw DynamoDbErrors.validation("The Segment parameter must be less than TotalSegments, "
+                        + "and both must be specified together");
+            }
+            source = table.segment(source, segment, total);
+        }
+        if (request.hasExclusiveStartKey()) {
+            source = source.tailMap(table.startKey(request.exclusiveStartKey(), index), false);
+        }
+
+        Page page = page(source, table, index, null, request.limit(),
+                Expressions.condition(request.filterExpression(), request.expressionAttributeNames(),
+                        request.expressionAttributeValues()),
+                request.projectionExpression(), request.expressionAttributeNames(),
+                request.select() == Select.COUNT, consistent);
+        faults.consume(Kind.READ, table.name, table.readCapacityUnits, page.units());
+
+        ScanResponse.Builder response = ScanResponse.builder()
+                .count(page.count())
+                .scannedCount(page.scanned())
+                .consumedCapacity(capacity(request.returnConsumedCapacity(), table.name, page.units(), Map.of()));
+        if (request.select() != Select.COUNT) {
+            response.items(page.items());
+        }
+        if (page.lastKey() != null) {
+            response.lastEvaluatedKey(page.lastKey());
+        }
+        return response.build();
+    }
+
+    @Override
+    public QueryResponse query(QueryRequest request) {
+        return intercepted(request, this::execute);
+    }
+
+    private QueryResponse execute(QueryRequest request) {
+        unsupported(request.hasKeyConditions(), "KeyConditions");
+        unsupported(request.hasQueryFilter(), "QueryFilter");
+        unsupported(request.hasAttributesToGet(), "AttributesToGet");
+        Expressions.requireAllUsed(request.expressionAttributeNames(), request.expressionAttributeValues(),
+                request.keyConditionExpression(), request.filterExpression(), request.projectionExpression());
+        faults.beforeRequest(Kind.READ);
+        LocalTable table = table(request.tableName());
+        faults.require(Kind.READ, table.name, table.readCapacityUnits);
+
+        Index index = request.indexName() == null ? null : table.index(request.indexName());
+        boolean consistent = consistentRead(request.consistentRead(), index);
+        String hashKey = index == null ? table.table.hashKey() : index.schema.hashKey();
+        KeyCondition keyCondition = Expressions.keyCondition(request.keyConditionExpression(),
+                request.expressionAttributeNames(), request.expressionAttributeValues(), hashKey);
+
+        NavigableMap<Key, Map<String, AttributeValue>> source = index == null
+                ? table.partition(keyCondition.hashValue())
+                : index.partition(keyCondition.hashValue());
+        boolean forward = !Boolean.FALSE.equals(request.scanIndexForward());
+        if (request.hasExclusiveStartKey()) {
+            Key start = table.startKey(request.exclusiveStartKey(), index);
+            source = forward ? source.tailMap(start, false) : source.headMap(start, false);
+        }
+        if (!forward) {
+            source = source.descendingMap();
+        }
+
+        Page page = page(source, table, index, keyCondition.rangeCondition(), request.limit(),
+                Expressions.condition(request.filterExpression(), request.expressionAttributeNames(),
+                        request.expressionAttributeValues()),
+                request.projectionExpression(), request.expressionAttributeNames(),
+                request.select() == Select.COUNT, consistent);
+        faults.consume(Kind.READ, table.name, table.readCapacityUnits, page.units());
+
+        QueryResponse.Builder response = QueryResponse.builder()
+                .count(page.count())
+                .scannedCount(page.scanned())
+                .consumedCapacity(capacity(request.returnConsumedCapacity(), table.name, page.units(), Map.of()));
+        if (request.select() != Select.COUNT) {
+            response.items(page.items());
+        }
+        if (page.lastKey() != null) {
+            response.lastEvaluatedKey(page.lastKey());
+        }
+        return response.build();
+    }
+
+    /**
+     * One page of a Scan or Query.
+     */
+    private record Page(List<Map<String, AttributeValue>> items, int count, int scanned,
+                        Map<String, AttributeValue> lastKey, double units) {
+    }
+
+    /**
+     * Read a page: evaluate items in order until Limit items or 1 MB have been read,
+     * apply the filter (after the limit, as DynamoDB does — a filtered page can come
+     * back short or empty with a LastEvaluatedKey) and the projection.
+     *
+     * @param keyCondition a Query's sort-key condition: items failing it are not read
+     */
+    private Page page(NavigableMap<Key, Map<String, AttributeValue>> source, LocalTable table, Index index,
+                      Condition keyCondition, Integer limit, Condition filter, String projection,
+                      Map<String, String> names, boolean countOnly, boolean consistent) {
+        if (limit != null && limit < 1) {
+            throw DynamoDbErrors.validation("Limit must be greater than or equal to 1");
+        }
+        List<Path> paths = projection == null ? null : Expressions.projection(projection, names);
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        int count = 0;
+        int scanned = 0;
+        long bytes = 0;
+        Map<String, AttributeValue> last = null;
+        Iterator<Map<String, AttributeValue>> iterator = source.values().iterator();
+        while (iterator.hasNext()) {
+            Map<String, AttributeValue> item = iterator.next();
+            if (keyCondition != null && !keyCondition.test(item)) {
+                continue;
+            }
+            scanned++;
+            bytes += AttributeValues.itemSize(item);
+            last = item;
+            if (filter.test(item)) {
+                count++;
+                if (!countOnly) {
+                    items.add(paths == null ? item : project(item, paths));
+                }
+            }
+            if ((limit != null && scanned >= limit) || bytes >= MAX_PAGE_BYTES) {
+                break;
+            }
+        }
+        Map<String, AttributeValue> lastKey = last != null && iterator.hasNext() ? table.keyAttributes(last, index) : null;
+        return new Page(items, count, scanned, lastKey, readUnits(bytes, consistent));
+    }
+
+    // ==================== Batches & transactions ====================
+
+    @Override
+    public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+        return intercepted(request, this::execute);
+    }
+
+    private BatchGetItemResponse execute(BatchGetItemRequest request) {
+        int keys = request.requestItems().values().stream().mapToInt(k -> k.keys().size()).sum();
+        if (keys > MAX_BATCH_GET) {
+            throw DynamoDbErrors.validation("Too many items requested for the BatchGetItem call");
+        }
+        faults.beforeRequest(Kind.READ);
+
+        Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+        Map<String, KeysAndAttributes> unprocessed = new HashMap<>();
+        List<ConsumedCapacity> consumed = new ArrayList<>();
+        for (Map.Entry<String, KeysAndAttributes> entry : request.requestItems().entrySet()) {
+            LocalTable table = table(entry.getKey());
+            KeysAndAttributes requested = entry.getValue();
+            unsupported(requested.hasAttributesToGet(), "AttributesToGet");
+            Expressions.requireAllUsed(requested.expressionAttributeNames(), null, requested.projectionExpression());
+            boolean consistent = Boolean.TRUE.equals(requested.consistentRead());
+            List<Path> paths = requested.projectionExpression() == null ? null
+                    : Expressions.projection(requested.projectionExpression(), requested.expressionAttributeNames());
+            List<Map<String, AttributeValue>> found = new ArrayList<>();
+            List<Map<String, AttributeValue>> skipped = new ArrayList<>();
+            double units = 0;
+            for (Map<String, AttributeValue> key : requested.keys()) {
+                if (!faults.admit(Kind.READ, table.name, table.readCapacityUnits)) {
+                    skipped.add(key);
+                    continue;
+                }
+                Map<String, AttributeValue> item = table.items.get(table.keyOf(key));
+                units += readUnits(item == null ? 0 : AttributeValues.itemSize(item), consistent);
+                if (item != null) {
+                    found.add(paths == null ? item : project(item, paths));
+                }
+            }
+            faults.consume(Kind.READ, table.name, table.readCapacityUnits, units);
+            responses.put(table.name, found);
+            if (!skipped.isEmpty()) {
+                unprocessed.put(table.name, requested.toBuilder().keys(skipped).build());
+            }
+            ConsumedCapacity capacity = capacity(request.returnConsumedCapacity(), table.name, units, Map.of());
+            if (capacity != null) {
+                consumed.add(capacity);
+            }
+        }
+        if (keys > 0 && unprocessed.values().stream().mapToInt(k -> k.keys().size()).sum() == keys) {
+            throw DynamoDbErrors.throttled(); // like DynamoDB: an error only if nothing at all was read
+        }
+        return BatchGetItemResponse.builder()
+                .responses(responses)
+                .unprocessedKeys(unprocessed)
+                .consumedCapacity(consumed.isEmpty() ? null : consumed)
+                .build();
+    }
+
+    @Override
+    public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+        return intercepted(request, this::execute);
+    }
+
+    private BatchWriteItemResponse execute(BatchWriteItemRequest request) {
+        int requests = request.requestItems().values().stream().mapToInt(List::size).sum();
+        if (requests > MAX_BATCH_WRITE) {
+            throw DynamoDbErrors.validation("Too many items requested for the BatchWriteItem call");
+        }
+        // Resolve (and validate) everything before writing anything
+        Map<LocalTable, List<WriteRequest>> byTable = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (Map.Entry<String, List<WriteRequest>> entry : request.requestItems().entrySet()) {
+            LocalTable table = table(entry.getKey());
+            for (WriteRequest write : entry.getValue()) {
+                Key key = write.putRequest() != null ? table.keyOfItem(write.putRequest().item())
+                        : table.keyOf(write.deleteRequest().key());
+                if (!seen.add(identity(table, key))) {
+                    throw DynamoDbErrors.validation("Provided list of item keys contains duplicates");
+                }
+            }
+            byTable.put(table, entry.getValue());
+        }
+        faults.beforeRequest(Kind.WRITE);
+
+        Map<String, List<WriteRequest>> unprocessed = new HashMap<>();
+        List<ConsumedCapacity> consumed = new ArrayList<>();
+        int skipped = 0;
+        for (Map.Entry<LocalTable, List<WriteRequest>> entry : byTable.entrySet()) {
+            LocalTable table = entry.getKey();
+            double units = 0;
+            Map<String, Double> indexUnits = new HashMap<>();
+            for (WriteRequest write : entry.getValue()) {
+                if (!faults.admit(Kind.WRITE, table.name, table.writeCapacityUnits)) {
+                    unprocessed.computeIfAbsent(table.name, t -> new ArrayList<>()).add(write);
+                    skipped++;
+                    continue;
+                }
+                Written written = write.putRequest() != null
+                        ? write(table, table.keyOfItem(write.putRequest().item()), null, current -> write.putRequest().item())
+                        : write(table, table.keyOf(write.deleteRequest().key()), null, current -> null);
+                units += written.units();
+                written.indexUnits().forEach((index, u) -> indexUnits.merge(index, u, Double::sum));
+            }
+            ConsumedCapacity capacity = capacity(request.returnConsumedCapacity(), table.name, units, indexUnits);
+            if (capacity != null) {
+                consumed.add(capacity);
+            }
+        }
+        if (requests > 0 && skipped == requests) {
+            throw DynamoDbErrors.throttled();
+        }
+        return BatchWriteItemResponse.builder()
+                .unprocessedItems(unprocessed)
+                .consumedCapacity(consumed.isEmpty() ? null : consumed)
+                .build();
+    }
+
+    /**
+     * One resolved action of a transaction.
+     *
+     * @param mutation null for a ConditionCheck
+     */
+    private record Action(LocalTable table, Key key, Condition condition,
+                          UnaryOperator<Map<String, AttributeValue>> mutation) {
+    }
+
+    @Override
+    public TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest request) {
+        return intercepted(request, this::execute);
+    }
+
+    private TransactWriteItemsResponse execute(TransactWriteItemsRequest request) {
+        if (request.transactItems().size() > MAX_TRANSACTION) {
+            throw DynamoDbErrors.validation("Member must have length less than or equal to " + MAX_TRANSACTION);
+        }
+        List<Action> actions = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (TransactWriteItem item : request.transactItems()) {
+            Action action = action(item);
+            if (!seen.add(identity(action.table(), action.key()))) {
+                throw DynamoDbErrors.validation("Transaction request cannot include multiple operations on one item");
+            }
+            actions.add(action);
+        }
+        faults.beforeRequest(Kind.WRITE);
+        for (Action action : actions) {
+            faults.require(Kind.WRITE, action.table().name, action.table().writeCapacityUnits);
+        }
+
+        // Lock every item's stripe, in a global order so concurrent transactions can't deadlock
+        TreeSet<Integer> stripes = new TreeSet<>();
+        actions.forEach(a -> stripes.add(stripe(a.table(), a.key())));
+        stripes.forEach(s -> locks[s].lock());
+        try {
+            List<Map<String, AttributeValue>> currents = new ArrayList<>();
+            List<CancellationReason> reasons = new ArrayList<>();
+            boolean failed = false;
+            for (Action action : actions) {
+                Map<String, AttributeValue> current = action.table().items.get(action.key());
+                currents.add(current);
+                boolean ok = action.condition().test(current == null ? Map.of() : current);
+                failed |= !ok;
+                reasons.add(ok ? CancellationReason.builder().code("None").build()
+                        : CancellationReason.builder().code("ConditionalCheckFailed")
+                        .message("The conditional request failed").build());
+            }
+            if (failed) {
+                throw DynamoDbErrors.transactionCanceled(reasons);
+            }
+
+            // Compute and validate every new item before applying any of them
+            List<Map<String, AttributeValue>> results = new ArrayList<>();
+            for (int i = 0; i < actions.size(); i++) {
+                Action action = actions.get(i);
+                Map<String, AttributeValue> result = action.mutation() == null ? null
+                        : action.mutation().apply(currents.get(i));
+                if (result != null) {
+                    validateItem(action.table(), result);
+                }
+                results.add(result);
+            }
+
+            Map<String, double[]> units = new LinkedHashMap<>();
+            Map<String, Map<String, Double>> indexUnits = new HashMap<>();
+            for (int i = 0; i < actions.size(); i++) {
+                Action action = actions.get(i);
+                LocalTable table = action.table();
+                double tableUnits = 2 * Math.max(LocalTable.writeUnits(currents.get(i)),
+                        LocalTable.writeUnits(results.get(i)));
+                if (action.mutation() != null) {
+                    table.write(action.key(), currents.get(i), results.get(i))
+                            .forEach((index, u) -> indexUnits.computeIfAbsent(table.name, t -> new HashMap<>())
+                                    .merge(index, 2 * u, Double::sum));
+                }
+                units.computeIfAbsent(table.name, t -> new double[1])[0] += tableUnits;
+            }
+
+            List<ConsumedCapacity> consumed = new ArrayList<>();
+            units.forEach((table, u) -> {
+                LocalTable localTable = tables.get(table);
+                Map<String, Double> gsi = indexUnits.getOrDefault(table, Map.of());
+                double total = u[0] + gsi.values().stream().mapToDouble(Double::doubleValue).sum();
+                if (localTable != null) {
+                    faults.consume(Kind.WRITE, table, localTable.writeCapacityUnits, total);
+                }
+                ConsumedCapacity capacity = capacity(request.returnConsumedCapacity(), table, u[0], gsi);
+                if (capacity != null) {
+                    consumed.add(capacity);
+                }
+            });
+            return TransactWriteItemsResponse.builder()
+                    .consumedCapacity(consumed.isEmpty() ? null : consumed)
+                    .build();
+        } finally {
+            stripes.descendingSet().forEach(s -> locks[s].unlock());
+        }
+    }
+
+    private Action action(TransactWriteItem item) {
+        if (item.put() != null) {
+            Put put = item.put();
+            Expressions.requireAllUsed(put.expressionAttributeNames(), put.expressionAttributeValues(),
+                    put.conditionExpression());
+            LocalTable table = table(put.tableName());
+            return new Action(table, table.keyOfItem(put.item()),
+                    Expressions.condition(put.conditionExpression(), put.expressionAttributeNames(),
+                            put.expressionAttributeValues()),
+                    current -> put.item());
+        }
+        if (item.update() != null) {
+            Update update = item.update();
+            Expressions.requireAllUsed(update.expressionAttributeNames(), update.expressionAttributeValues(),
+                    update.updateExpression(), update.conditionExpression());
+            LocalTable table = table(update.tableName());
+            return new Action(table, table.keyOf(update.key()),
+                    Expressions.condition(update.conditionExpression(), update.expressionAttributeNames(),
+                            update.expressionAttributeValues()),
+                    updater(table, update.key(), update.updateExpression(), update.expressionAttributeNames(),
+                            update.expressionAttributeValues()));
+        }
+        if (item.delete() != null) {
+            Delete delete = item.delete();
+            Expressions.requireAllUsed(delete.expressionAttributeNames(), delete.expressionAttributeValues(),
+                    delete.conditionExpression());
+            LocalTable table = table(delete.tableName());
+            return new Action(table, table.keyOf(delete.key()),
+                    Expressions.condition(delete.conditionExpression(), delete.expressionAttributeNames(),
+                            delete.expressionAttributeValues()),
+                    current -> null);
+        }
+        if (item.conditionCheck() != null) {
+            ConditionCheck check = item.conditionCheck();
+            LocalTable table = table(check.tableName());
+            if (check.conditionExpression() == null) {
+                throw DynamoDbErrors.validation("ConditionCheck requires a ConditionExpression");
+            }
+            Expressions.requireAllUsed(check.expressionAttributeNames(), check.expressionAttributeValues(),
+                    check.conditionExpression());
+            return new Action(table, table.keyOf(check.key()),
+                    Expressions.condition(check.conditionExpression(), check.expressionAttributeNames(),
+                            check.expressionAttributeValues()),
+                    null);
+        }
+        throw DynamoDbErrors.validation("TransactItems can only contain one of Check, Put, Update or Delete");
+    }
+
+    // ==================== Tables ====================
+
+    @Override
+    public ListTablesResponse listTables(ListTablesRequest request) {
+        List<String> names = new ArrayList<>(new TreeSet<>(tables.keySet()));
+        if (request.exclusiveStartTableName() != null) {
+            names.removeIf(name -> name.compareTo(request.exclusiveStartTableName()) <= 0);
+        }
+        int limit = request.limit() == null ? 100 : request.limit();
+        ListTablesResponse.Builder response = ListTablesResponse.builder()
+                .tableNames(names.subList(0, Math.min(limit, names.size())));
+        if (names.size() > limit) {
+            response.lastEvaluatedTableName(names.get(limit - 1));
+        }
+        return response.build();
+    }
+
+    @Override
+    public ListTablesResponse listTables() {
+        return listTables(ListTablesRequest.builder().build());
+    }
+
+    @Override
+    public CreateTableResponse createTable(CreateTableRequest request) {
+        LocalTable.Schema schema = LocalTable.Schema.of(request.keySchema());
+        boolean provisioned = request.billingMode() != BillingMode.PAY_PER_REQUEST
+                && request.provisionedThroughput() != null;
+        LocalTable table = new LocalTable(request.tableName(), schema, request.attributeDefinitions(),
+                provisioned ? request.provisionedThroughput().readCapacityUnits() : 0,
+                provisioned ? request.provisionedThroughput().writeCapacityUnits() : 0);
+        for (GlobalSecondaryIndex index : request.globalSecondaryIndexes()) {
+            table.addIndex(index.indexName(), LocalTable.Schema.of(index.keySchema()), index.projection());
+        }
+        if (tables.putIfAbsent(request.tableName(), table) != null) {
+            throw DynamoDbErrors.tableExists(request.tableName());
+        }
+        return CreateTableResponse.builder().tableDescription(describe(table)).build();
+    }
+
+    @Override
+    public DescribeTableResponse describeTable(DescribeTableRequest request) {
+        return DescribeTableResponse.builder().table(describe(table(request.tableName()))).build();
+    }
+
+    @Override
+    public UpdateTableResponse updateTable(UpdateTableRequest request) {
+        LocalTable table = table(request.tableName());
+        table.define(request.attributeDefinitions());
+        for (GlobalSecondaryIndexUpdate update : request.globalSecondaryIndexUpdates()) {
+            if (update.create() != null) {
+                CreateGlobalSecondaryIndexAction create = update.create();
+                table.addIndex(create.indexName(), LocalTable.Schema.of(create.keySchema()), create.projection());
+            } else if (update.delete() != null) {
+                if (table.indexes.remove(update.delete().indexName()) == null) {
+                    throw DynamoDbErrors.tableNotFound(request.tableName() + "/index/" + update.delete().indexName());
+                }
+            }
+        }
+        return UpdateTableResponse.builder().tableDescription(describe(table)).build();
+    }
+
+    @Override
+    public DeleteTableResponse deleteTable(DeleteTableRequest request) {
+        LocalTable table = tables.remove(request.tableName());
+        if (table == null) {
+            throw DynamoDbErrors.tableNotFound(request.tableName());
+        }
+        faults.forget(table.name);
+        return DeleteTableResponse.builder()
+                .tableDescription(describe(table).toBuilder().tableStatus(TableStatus.DELETING).build())
+                .build();
+    }
+
+    @Override
+    public DescribeTimeToLiveResponse describeTimeToLive(DescribeTimeToLiveRequest request) {
+        String attribute = table(request.tableName()).ttlAttribute;
+        return DescribeTimeToLiveResponse.builder()
+                .timeToLiveDescription(d -> d
+                        .timeToLiveStatus(attribute == null ? TimeToLiveStatus.DISABLED : TimeToLiveStatus.ENABLED)
+                        .attributeName(attribute))
+                .build();
+    }
+
+    @Override
+    public UpdateTimeToLiveResponse updateTimeToLive(UpdateTimeToLiveRequest request) {
+        LocalTable table = table(request.tableName());
+        TimeToLiveSpecification spec = request.timeToLiveSpecification();
+        boolean enabled = Boolean.TRUE.equals(spec.enabled());
+        if (enabled == (table.ttlAttribute != null)) {
+            throw DynamoDbErrors.validation("TimeToLive is already " + (enabled ? "enabled" : "disabled"));
+        }
+        table.ttlAttribute = enabled ? spec.attributeName() : null;
+        return UpdateTimeToLiveResponse.builder().timeToLiveSpecification(spec).build();
+    }
+
+    private TableDescription describe(LocalTable table) {
+        List<AttributeDefinition> definitions = new ArrayList<>();
+        table.attributeTypes.forEach((name, type) ->
+                definitions.add(AttributeDefinition.builder().attributeName(name).attributeType(type).build()));
+        List<GlobalSecondaryIndexDescription> indexes = new ArrayList<>();
+        for (Index index : table.indexes.values()) {
+            indexes.add(GlobalSecondaryIndexDescription.builder()
+                    .indexName(index.name)
+                    .keySchema(index.schema.elements())
+                    .projection(index.projection)
+                    .indexStatus(IndexStatus.ACTIVE)
+                    .itemCount((long) index.entries.size())
+                    .build());
+        }
+        boolean provisioned = table.readCapacityUnits > 0 || table.writeCapacityUnits > 0;
+        return TableDescription.builder()
+                .tableName(table.name)
+                .tableArn("arn:aws:dynamodb:local:000000000000:table/" + table.name)
+                .tableStatus(TableStatus.ACTIVE)
+                .keySchema(table.table.elements())
+                .attributeDefinitions(definitions)
+                .globalSecondaryIndexes(indexes.isEmpty() ? null : indexes)
+                .itemCount(table.itemCount())
+                .tableSizeBytes(table.sizeBytes())
+                .creationDateTime(table.createdAt)
+                .billingModeSummary(b -> b.billingMode(provisioned ? BillingMode.PROVISIONED : BillingMode.PAY_PER_REQUEST))
+                .provisionedThroughput(p -> p
+                        .readCapacityUnits(table.readCapacityUnits)
+                        .writeCapacityUnits(table.writeCapacityUnits)
+                        .numberOfDecreasesToday(0L)
+                        .lastIncreaseDateTime(Instant.EPOCH))
+                .build();
+    }
+
+    // ==================== Writes ====================
+
+    /**
+     * Outcome of one item write.
+     */
+    private record Written(Map<String, AttributeValue> previous, Map<String, AttributeValue> current,
+                           double units, Map<String, Double> indexUnits) {
+    }
+
+    /**
+     * Write one item atomically: under its lock, check the condition against the
+     * current item, compute the new one (null = delete) and store it.
+     *
+     * @param condition null for unconditional writes
+     */
+    private Written write(LocalTable table, Key key, Condition condition,
+                          UnaryOperator<Map<String, AttributeValue>> mutation) {
+        ReentrantLock lock = locks[stripe(table, key)];
+        Written written;
+        lock.lock();
+        try {
+            Map<String, AttributeValue> current = table.items.get(key);
+            if (condition != null && !condition.test(current == null ? Map.of() : current)) {
+                // A failed condition still costs the write
+                faults.consume(Kind.WRITE, table.name, table.writeCapacityUnits, LocalTable.writeUnits(current));
+                throw DynamoDbErrors.conditionFailed();
+            }
+            Map<String, AttributeValue> result = mutation.apply(current);
+            if (result != null) {
+                validateItem(table, result);
+            }
+            Map<String, Double> indexUnits = table.write(key, current, result);
+            written = new Written(current, result,
+                    Math.max(LocalTable.writeUnits(current), LocalTable.writeUnits(result)), indexUnits);
+        } finally {
+            lock.unlock();
+        }
+        double total = written.units() + written.indexUnits().values().stream().mapToDouble(Double::doubleValue).sum();
+        faults.consume(Kind.WRITE, table.name, table.writeCapacityUnits, total);
+        return written;
+    }
+
+    /**
+     * The mutation of an UpdateItem: copy the item (or start from the key, if there
+     * is none — UpdateItem is an upsert), apply the update expression, and refuse
+     * changes to key attributes.
+     */
+    private UnaryOperator<Map<String, AttributeValue>> updater(LocalTable table, Map<String, AttributeValue> key,
+                                                               String expression, Map<String, String> names,
+                                                               Map<String, AttributeValue> values) {
+        Expressions.Update update = expression == null ? null : Expressions.update(expression, names, values);
+        return current -> {
+            Map<String, AttributeValue> item = new HashMap<>(current == null ? key : current);
+            if (update != null) {
+                update.apply(item);
+            }
+            for (String attribute : key.keySet()) {
+                if (!AttributeValues.equal(item.get(attribute), key.get(attribute))) {
+                    throw DynamoDbErrors.validation("One or more parameter values were invalid: Cannot update attribute "
+                            + attribute + ". This attribute is part of the key");
+                }
+            }
+            return item;
+        };
+    }
+
+    private static void validateItem(LocalTable table, Map<String, AttributeValue> item) {
+        for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            AttributeValue value = entry.getValue();
+            String type = AttributeValues.type(value); // rejects empty values
+            if ((type.equals("SS") && value.ss().isEmpty()) || (type.equals("NS") && value.ns().isEmpty())
+                    || (type.equals("BS") && value.bs().isEmpty())) {
+                throw DynamoDbErrors.validation("One or more parameter values were invalid: "
+                        + "An AttributeValue may not contain an empty set");
+            }
+        }
+        if (AttributeValues.itemSize(item) > MAX_ITEM_BYTES) {
+            throw DynamoDbErrors.validation("Item size has exceeded the maximum allowed size");
+        }
+        table.checkIndexKeyTypes(item);
+    }
+
+    private int stripe(LocalTable table, Key key) {
+        int h = table.name.hashCode() * 31 + key.hashCode();
+        h ^= h >>> 16;
+        return h & (LOCK_STRIPES - 1);
+    }
+
+    /**
+     * A string identifying an item across tables (for duplicate checks in batches).
+     */
+    private static String identity(LocalTable table, Key key) {
+        StringBuilder identity = new StringBuilder(table.name);
+        for (AttributeValue part : key.parts) {
+            identity.append('\u0000').append(part.toString());
+        }
+        return identity.toString();
+    }
+
+    // ==================== Helpers ====================
+
+    private LocalTable table(String name) {
+        LocalTable table = name == null ? null : tables.get(name);
+        if (table == null) {
+            throw DynamoDbErrors.tableNotFound(name);
+        }
+        return table;
+    }
+
+    private static boolean consistentRead(Boolean consistentRead, Index index) {
+        boolean consistent = Boolean.TRUE.equals(consistentRead);
+        if (consistent && index != null) {
+            throw DynamoDbErrors.validation("Consistent reads are not supported on global secondary indexes");
+        }
+        return consistent;
+    }
+
+    /**
+     * Read capacity units: one per started 4 KB (at least one), halved for eventually
+     * consistent reads.
+     */
+    private static double readUnits(long bytes, boolean consistent) {
+        double units = Math.max(1, Math.ceil(bytes / 4096.0));
+        return consistent ? units : units / 2;
+    }
+
+    private static ConsumedCapacity capacity(ReturnConsumedCapacity mode, String table, double tableUnits,
+                                             Map<String, Double> indexUnits) {
+        if (mode == null || mode == ReturnConsumedCapacity.NONE) {
+            return null;
+        }
+        double total = tableUnits + indexUnits.values().stream().mapToDouble(Double::doubleValue).sum();
+        ConsumedCapacity.Builder capacity = ConsumedCapacity.builder().tableName(table).capacityUnits(total);
+        if (mode == ReturnConsumedCapacity.INDEXES) {
+            capacity.table(c -> c.capacityUnits(tableUnits));
+            if (!indexUnits.isEmpty()) {
+                Map<String, Capacity> indexes = new HashMap<>();
+                indexUnits.forEach((index, units) -> indexes.put(index, Capacity.builder().capacityUnits(units).build()));
+                capacity.globalSecondaryIndexes(indexes);
+            }
+        }
+        return capacity.build();
+    }
+
+    /**
+     * The attributes UpdateItem returns for each ReturnValues setting.
+     */
+    private static Map<String, AttributeValue> returned(ReturnValue returnValue,
+                                                        Map<String, AttributeValue> previous,
+                                                        Map<String, AttributeValue> current) {
+        if (returnValue == null || returnValue == ReturnValue.NONE) {
+            return null;
+        }
+        return switch (returnValue) {
+            case ALL_OLD -> previous;
+            case ALL_NEW -> current;
+            case UPDATED_OLD -> changed(previous, current);
+            case UPDATED_NEW -> changed(current, previous);
+            default -> throw DynamoDbErrors.validation("Unsupported ReturnValues: " + returnValue);
+        };
+    }
+
+    /**
+     * The attributes of {@code from} whose values differ in {@code other}.
+     */
+    private static Map<String, AttributeValue> changed(Map<String, AttributeValue> from,
+                                                       Map<String, AttributeValue> other) {
+        if (from == null) {
+            return null;
+        }
+        Map<String, AttributeValue> changed = new HashMap<>();
+        from.forEach((name, value) -> {
+            if (other == null || !AttributeValues.equal(value, other.get(name))) {
+                changed.put(name, value);
+            }
+        });
+        return changed;
+    }
+
+    private static void returnValues(ReturnValue value, ReturnValue... allowed) {
+        if (value != null && !List.of(allowed).contains(value)) {
+            throw DynamoDbErrors.validation("ReturnValues can only be " + List.of(allowed) + " for this operation");
+        }
+    }
+
+    private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, String expression,
+                                                       Map<String, String> names) {
+        return expression == null ? item : project(item, Expressions.projection(expression, names));
+    }
+
+    /**
+     * Copy the projected paths of an item. Nested paths keep their structure (a.b
+     * gives {a: {b: ...}}); list elements are returned in path order.
+     */
+    private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, List<Path> paths) {
+        Map<String, AttributeValue> projected = new HashMap<>();
+        for (Path path : paths) {
+            AttributeValue value = path.get(item);
+            if (value != null) {
+                projected.put(path.top(), nest(projected.get(path.top()), path.steps(), 1, value));
+            }
+        }
+        return projected;
+    }
+
+    private static AttributeValue nest(AttributeValue existing, List<Object> steps, int i, AttributeValue value) {
+        if (i == steps.size()) {
+            return value;
+        }
+        Object step = steps.get(i);
+        if (step instanceof Integer) {
+            List<AttributeValue> list = existing != null && existing.hasL() ? new ArrayList<>(existing.l()) : new ArrayList<>();
+            list.add(nest(null, steps, i + 1, value));
+            return AttributeValue.builder().l(list).build();
+        }
+        Map<String, AttributeValue> map = existing != null && existing.hasM() ? new HashMap<>(existing.m()) : new HashMap<>();
+        map.put((String) step, nest(map.get(step), steps, i + 1, value));
+        return AttributeValue.builder().m(map).build();
+    }
+
+    private static void unsupported(boolean present, String parameter) {
+        if (present) {
+            throw DynamoDbErrors.validation(parameter + " is a legacy parameter and isn't supported by the "
+                    + "in-memory client; use expressions instead");
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package com.linkylink.localdb;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One table of the in-memory client: its items, its global secondary indexes, and
+ * the schema needed to key them.
+ *
+ * Items live in a ConcurrentSkipListMap ordered the way DynamoDB lays data out:
+ *
+ *   (hash of partition key, partition key, sort key)
+ *
+ * so a Query is one contiguous range (all items of a partition, in sort-key order),
+ * a Scan walks partitions in hash order — never in key order, just like the real
+ * thing — and a parallel scan's segments are contiguous ranges of the hash space.
+ *
+ * Each GSI is another skip list keyed by (hash, index partition key, index sort key,
+ * table keys), holding the projected attributes. Indexes are updated in the same
+ * write as the table, so unlike DynamoDB's they are never stale.
+ *
+ * Reads are lock-free. Writes are serialized per item by the client's striped
+ * locks (InMemoryDynamoDbClient), which also makes conditional writes atomic.
+ */
+final class LocalTable {
+
+    /**
+     * Ordering sentinels: below / above every real key value at their position.
+     * Only their identity matters.
+     */
+    static final AttributeValue LOW = AttributeValue.builder().nul(true).build();
+    static final AttributeValue HIGH = AttributeValue.builder().nul(true).build();
+    // Stands in for the sort key of tables and indexes that don't have one
+    private static final AttributeValue NONE = AttributeValue.builder().nul(true).build();
+
+    /**
+     * A position in a skip list. Values are compared by DynamoDB ordering, the
+     * sentinels by identity.
+     */
+    static final class Key implements Comparable<Key> {
+        final long bucket;
+        final AttributeValue[] parts;
+
+        Key(long bucket, AttributeValue... parts) {
+            this.bucket = bucket;
+            this.parts = parts;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int order = Long.compare(bucket, other.bucket);
+            if (order != 0) {
+                return order;
+            }
+            int n = Math.min(parts.length, other.parts.length);
+            for (int i = 0; i < n; i++) {
+                order = comparePart(parts[i], other.parts[i]);
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return Integer.compare(parts.length, other.parts.length);
+        }
+
+        private static int comparePart(AttributeValue a, AttributeValue b) {
+            if (a == b) {
+                return 0;
+            }
+            if (a == LOW || b == HIGH) {
+                return -1;
+            }
+            if (a == HIGH || b == LOW) {
+                return 1;
+            }
+            Integer order = AttributeValues.compare(a, b);
+            return order == null ? 0 : order;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && compareTo(other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(bucket);
+        }
+    }
+
+    /**
+     * A key schema: partition key and optional sort key attribute names.
+     */
+    record Schema(String hashKey, String rangeKey) {
+        static Schema of(List<KeySchemaElement> elements) {
+            String hash = null;
+            String range = null;
+            for (KeySchemaElement element : elements) {
+                if (element.keyType() == KeyType.HASH) {
+                    hash = element.attributeName();
+                } else {
+                    range = element.attributeName();
+                }
+            }
+            if (hash == null) {
+                throw DynamoDbErrors.validation("Key schema must contain a HASH key");
+            }
+            return new Schema(hash, range);
+        }
+
+        List<KeySchemaElement> elements() {
+            KeySchemaElement hash = KeySchemaElement.builder().attributeName(hashKey).keyType(KeyType.HASH).build();
+            if (rangeKey == null) {
+                return List.of(hash);
+            }
+            return List.of(hash, KeySchemaElement.builder().attributeName(rangeKey).keyType(KeyType.RANGE).build());
+        }
+
+        boolean isKey(String attribute) {
+            return attribute.equals(hashKey) || attribute.equals(rangeKey);
+        }
+    }
+
+    /**
+     * A global secondary index: its schema, projection and entries.
+     */
+    final class Index {
+        final String name;
+        final Schema schema;
+        final Projection projection;
+        final ConcurrentSkipListMap<Key, Map<String, AttributeValue>> entries = new ConcurrentSkipListMap<>();
+
+        Index(String name, Schema schema, Projection projection) {
+            this.name = name;
+            this.schema = schema;
+            this.projection = projection;
+        }
+
+        /**
+         * Index key of an item, or null if the item isn't in this index (sparse index:
+         * items without the index key attributes are skipped).
+         */
+        Key keyOf(Map<String, AttributeValue> item) {
+            AttributeValue hash = item.get(schema.hashKey());
+            AttributeValue range = schema.rangeKey() == null ? NONE : item.get(schema.rangeKey());
+            if (hash == null || range == null) {
+                return null;
+            }
+            AttributeValue tableRange = table.rangeKey() == null ? NONE : item.get(table.rangeKey());
+            return new Key(bucket(hash), hash, range, item.get(table.hashKey()), tableRange);
+        }
+
+        /**
+         * The attributes of an item that this index stores.
+         */
+        Map<String, AttributeValue> project(Map<String, AttributeValue> item) {
+            ProjectionType type = projection == null ? ProjectionType.ALL : projection.projectionType();
+            if (type == null || type == ProjectionType.ALL) {
+                return item;
+            }
+            Set<String> keep = new HashSet<>();
+            keep.add(table.hashKey());
+            keep.add(schema.hashKey());
+            if (table.rangeKey() != null) {
+                keep.add(table.rangeKey());
+            }
+            if (schema.rangeKey() != null) {
+                keep.add(schema.rangeKey());
+            }
+            if (type == ProjectionType.INCLUDE && projection.hasNonKeyAttributes()) {
+                keep.addAll(projection.nonKeyAttributes());
+            }
+            Map<String, AttributeValue> projected = new HashMap<>();
+            item.forEach((name, value) -> {
+                if (keep.contains(name)) {
+                    projected.put(name, value);
+                }
+            });
+            return Map.copyOf(projected);
+        }
+
+        /**
+         * The range of entries for one index partition.
+         */
+        NavigableMap<Key, Map<String, AttributeValue>> partition(AttributeValue hash) {
+            long bucket = bucket(hash);
+            return entries.subMap(new Key(bucket, hash, LOW), true, new Key(bucket, hash, HIGH), true);
+        }
+    }
+
+    final String name;
+    final Schema table;
+    final Instant createdAt = Instant.now();
+    final Map<String, ScalarAttributeType> attributeTypes = new ConcurrentHashMap<>();
+    final Map<String, Index> indexes = new ConcurrentHashMap<>();
+    final ConcurrentSkipListMap<Key, Map<String, AttributeValue>> items = new ConcurrentSkipListMap<>();
+    final long readCapacityUnits;
+    final long writeCapacityUnits;
+
+    private final AtomicLong itemCount = new AtomicLong();
+    private final AtomicLong sizeBytes = new AtomicLong();
+    volatile String ttlAttribute;
+
+    LocalTable(String name, Schema table, List<AttributeDefinition> definitions,
+               long readCapacityUnits, long writeCapacityUnits) {
+        this.name = name;
+        this.table = table;
+        this.readCapacityUnits = readCapacityUnits;
+        this.writeCapacityUnits = writeCapacityUnits;
+        define(definitions);
+        requireDefined(table);
+    }
+
+    void define(List<AttributeDefinition> definitions) {
+        for (AttributeDefinition definition : definitions) {
+            attributeTypes.put(definition.attributeName(), definition.attributeType());
+        }
+    }
+
+    void requireDefined(Schema schema) {
+        for (String attribute : new String[]{schema.hashKey(), schema.rangeKey()}) {
+            if (attribute != null && !attributeTypes.containsKey(attribute)) {
+                throw DynamoDbErrors.validation("One or more parameter values were invalid: "
+                        + "Some index key attributes are not defined in AttributeDefinitions. Keys: [" + attribute + "]");
+            }
+        }
+    }
+
+    /**
+     * Add an index and backfill it from the current items. (DynamoDB backfills in
+     * the background while the index is CREATING; here the index is ACTIVE as soon
+     * as this returns.)
+     */
+    Index addIndex(String indexName, Schema schema, Projection projection) {
+        requireDefined(schema);
+        Index index = new Index(indexName, schema, projection);
+        if (indexes.putIfAbsent(indexName, index) != null) {
+            throw DynamoDbErrors.validation("Attempting to create an index which already exists: " + indexName);
+        }
+        for (Map<String, AttributeValue> item : items.values()) {
+            Key key = index.keyOf(item);
+            if (key != null) {
+                index.entries.put(key, index.project(item));
+            }
+        }
+        return index;
+    }
+
+    Index index(String indexName) {
+        Index index = indexes.get(indexName);
+        if (index == null) {
+            throw DynamoDbErrors.validation("The table does not have the specified index: " + indexName);
+        }
+        return index;
+    }
+
+    // ==================== Keys ====================
+
+    /**
+     * The table key of a full item (PutItem), validating key attribute types.
+     */
+    Key keyOfItem(Map<String, AttributeValue> item) {
+        AttributeValue hash = item.get(table.hashKey());
+        AttributeValue range = table.rangeKey() == null ? NONE : item.get(table.rangeKey());
+        if (hash == null || range == null) {
+            throw DynamoDbErrors.validation("One or more parameter values were invalid: Missing the key "
+                    + (hash == null ? table.hashKey() : table.rangeKey()) + " in the item");
+        }
+        checkType(table.hashKey(), hash);
+        if (table.rangeKey() != null) {
+            checkType(table.rangeKey(), range);
+        }
+        return new Key(bucket(hash), hash, range);
+    }
+
+    /**
+     * The table key given as a Key parameter (GetItem, DeleteItem, UpdateItem), which
+     * must contain exactly the key attributes.
+     */
+    Key keyOf(Map<String, AttributeValue> key) {
+        int expected = table.rangeKey() == null ? 1 : 2;
+        if (key == null || key.size() != expected || !key.containsKey(table.hashKey())
+                || (table.rangeKey() != null && !key.containsKey(table.rangeKey()))) {
+            throw DynamoDbErrors.validation("The provided key element does not match the schema");
+        }
+        return keyOfItem(key);
+    }
+
+    /**
+     * The item's key attributes alone (what LastEvaluatedKey and UnprocessedKeys hold).
+     */
+    Map<String, AttributeValue> keyAttributes(Map<String, AttributeValue> item, Index index) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(table.hashKey(), item.get(table.hashKey()));
+        if (table.rangeKey() != null) {
+            key.put(table.rangeKey(), item.get(table.rangeKey()));
+        }
+        if (index != null) {
+            key.put(index.schema.hashKey(), item.get(index.schema.hashKey()));
+            if (index.schema.rangeKey() != null) {
+                key.put(index.schema.rangeKey(), item.get(index.schema.rangeKey()));
+            }
+        }
+        return key;
+    }
+
+    /**
+     * The position of an ExclusiveStartKey, in the table or in an index.
+     */
+    Key startKey(Map<String, AttributeValue> key, Index index) {
+        if (index == null) {
+            return keyOf(key);
+        }
+        Key position = index.keyOf(key);
+        if (position == null || key.get(table.hashKey()) == null) {
+            throw DynamoDbErrors.validation("The provided starting key is invalid");
+        }
+        return position;
+    }
+
+    private void checkType(String attribute, AttributeValue value) {
+        ScalarAttributeType type = attributeTypes.get(attribute);
+        if (type != null && !type.toString().equals(AttributeValues.type(value))) {
+            throw DynamoDbErrors.validation("One or more parameter values were invalid: Type mismatch for key "
+                    + attribute + " expected: " + type + " actual: " + AttributeValues.type(value));
+        }
+    }
+
+    /**
+     * Check an item's index key attributes have the types the indexes were defined
+     * with (DynamoDB rejects the write otherwise).
+     */
+    void checkIndexKeyTypes(Map<String, AttributeValue> item) {
+        for (Index index : indexes.values()) {
+            for (String attribute : new String[]{index.schema.hashKey(), index.schema.rangeKey()}) {
+                if (attribute != null && item.containsKey(attribute)) {
+                    checkType(attribute, item.get(attribute));
+                }
+            }
+        }
+    }
+
+    /**
+     * Partition-key hash, which orders partitions (and splits scan segments).
+     * It's a 32-bit value widened to a long, so the segment boundaries can be
+     * expressed as half-open ranges up to 2^31.
+     */
+    static long bucket(AttributeValue value) {
+        int h = switch (AttributeValues.type(value)) {
+            case "S" -> Arrays.hashCode(value.s().getBytes(StandardCharsets.UTF_8));
+            case "N" -> new BigDecimal(value.n()).stripTrailingZeros().hashCode();
+            case "B" -> Arrays.hashCode(value.b().asByteArrayUnsafe());
+            default -> value.hashCode();
+        };
+        // murmur3 fmix32, so similar keys land far apart
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * The items of one scan segment: the segment-th of totalSegments equal slices of
+     * the hash space.
+     */
+    NavigableMap<Key, Map<String, AttributeValue>> segment(NavigableMap<Key, Map<String, AttributeValue>> map,
+                                                             int segment, int totalSegments) {
+        long from = segmentStart(segment, totalSegments);
+        long to = segmentStart(segment + 1, totalSegments);
+        return map.subMap(new Key(from, LOW), true, new Key(to, LOW), false);
+    }
+
+    private static long segmentStart(int segment, int totalSegments) {
+        long span = 1L << 32;
+        return Integer.MIN_VALUE + (segment * span + totalSegments - 1) / totalSegments;
+    }
+
+    /**
+     * The range of items in one table partition.
+     */
+    NavigableMap<Key, Map<String, AttributeValue>> partition(AttributeValue hash) {
+        long bucket = bucket(hash);
+        return items.subMap(new Key(bucket, hash, LOW), true, new Key(bucket, hash, HIGH), true);
+    }
+
+    // ==================== Writes ====================
+
+    /**
+     * Replace (or, with a null item, delete) the item at {@code key} and update the
+     * indexes. Must be called under the item's lock.
+     *
+     * @return write capacity units consumed by each index that changed
+     */
+    Map<String, Double> write(Key key, Map<String, AttributeValue> previous, Map<String, AttributeValue> item) {
+        if (item == null) {
+            if (items.remove(key) != null) {
+                itemCount.decrementAndGet();
+                sizeBytes.addAndGet(-AttributeValues.itemSize(previous));
+            }
+        } else {
+            Map<String, AttributeValue> stored = Map.copyOf(item);
+            if (items.put(key, stored) == null) {
+                itemCount.incrementAndGet();
+            } else {
+                sizeBytes.addAndGet(-AttributeValues.itemSize(previous));
+            }
+            sizeBytes.addAndGet(AttributeValues.itemSize(stored));
+        }
+        Map<String, Double> units = new HashMap<>();
+        for (Index index : indexes.values()) {
+            double indexUnits = updateIndex(index, previous, item);
+            if (indexUnits > 0) {
+                units.put(index.name, indexUnits);
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Move an item's entry in one index. Billing follows DynamoDB: a new or removed
+     * entry is one write, a changed index key is two (delete + put), an entry whose
+     * projected attributes didn't change is free.
+     */
+    private double updateIndex(Index index, Map<String, AttributeValue> previous, Map<String, AttributeValue> item) {
+        Key oldKey = previous == null ? null : index.keyOf(previous);
+        Key newKey = item == null ? null : index.keyOf(item);
+        Map<String, AttributeValue> oldEntry = oldKey == null ? null : index.project(previous);
+        Map<String, AttributeValue> newEntry = newKey == null ? null : index.project(item);
+        if (oldKey != null && newKey != null && oldKey.equals(newKey)) {
+            if (oldEntry.equals(newEntry)) {
+                return 0;
+            }
+            index.entries.put(newKey, Map.copyOf(newEntry));
+            return writeUnits(newEntry);
+        }
+        double units = 0;
+        if (oldKey != null) {
+            index.entries.remove(oldKey);
+            units += writeUnits(oldEntry);
+        }
+        if (newKey != null) {
+            index.entries.put(newKey, Map.copyOf(newEntry));
+            units += writeUnits(newEntry);
+        }
+        return units;
+    }
+
+    /**
+     * Write capacity units for an item: one per started KB (at least one, also for a
+     * missing item).
+     */
+    static double writeUnits(Map<String, AttributeValue> item) {
+        if (item == null) {
+            return 1;
+        }
+        return Math.max(1, Math.ceil(AttributeValues.itemSize(item) / 1024.0));
+    }
+
+    long itemCount() {
+        return itemCount.get();
+    }
+
+    long sizeBytes() {
+        return sizeBytes.get();
+    }
+}
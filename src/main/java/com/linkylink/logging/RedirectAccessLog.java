@@ -0,0 +1,311 @@
+package com.linkylink.logging;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous, batched access log for redirects.
+ *
+ * Logging every redirect through SLF4J means string formatting, appender locks and
+ * a file write on the request thread. Instead, request threads drop a small record
+ * into a pre-allocated ring buffer and return immediately; one background thread
+ * drains the buffer in batches and writes them to disk.
+ *
+ * How the ring buffer works (multi-producer, single-consumer):
+ *   1. A producer claims the next sequence number with a CAS on 'claimed'.
+ *      If the buffer is full (claimed - consumed == capacity) it gives up and
+ *      increments 'dropped' instead of blocking — redirects never wait on the disk.
+ *   2. It writes its fields into slot (sequence % capacity) — plain arrays,
+ *      allocated once at startup.
+ *   3. It publishes the slot by storing the sequence number in 'published'.
+ *   4. The writer thread reads slots in order while published[slot] == expected
+ *      sequence, formats a whole batch, writes it with one syscall, then advances
+ *      'consumed' so producers can reuse those slots.
+ *
+ * Output: one tab-separated line per redirect, rotated by size:
+ *   epochMillis  keyword  status  latencyMicros  client
+ * Status is 302 for a hit, 404 for an unknown keyword (which is redirected to the app),
+ * 500 if resolving failed. Keyword and client come from the request, so control
+ * characters and backslashes in them are escaped (\t, \n, \\, \x1b...): a keyword
+ * can't break a line in two or forge one.
+ */
+@Component
+public class RedirectAccessLog {
+
+    private static final Logger log = LoggerFactory.getLogger(RedirectAccessLog.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long DROP_REPORT_INTERVAL_MS = 60_000;
+
+    private final boolean enabled;
+    private final Path path;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final int batchSize;
+
+    // === Ring buffer: one array per field, indexed by (sequence & mask) ===
+    private final int capacity;
+    private final int mask;
+    private final long[] timestamps;
+    private final String[] keywords;
+    private final int[] statuses;
+    private final long[] latencies;
+    private final String[] clients;
+    private final AtomicLongArray published;
+
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    private final StringBuilder batch = new StringBuilder();
+    private Thread writer;
+    private volatile boolean running;
+    private FileChannel channel;
+    private long fileSize;
+
+    public RedirectAccessLog(@Value("${linkylink.access-log.enabled:true}") boolean enabled,
+                             @Value("${linkylink.access-log.path:logs/redirect-access.log}") String path,
+                             @Value("${linkylink.access-log.max-file-size-mb:64}") long maxFileSizeMb,
+                             @Value("${linkylink.access-log.max-files:5}") int maxFiles,
+                             @Value("${linkylink.access-log.buffer-size:16384}") int bufferSize,
+                             @Value("${linkylink.access-log.batch-size:512}") int batchSize) {
+        this.enabled = enabled;
+        this.path = Paths.get(path);
+        this.maxFileSize = maxFileSizeMb * 1024 * 1024;
+        this.maxFiles = Math.max(1, maxFiles);
+        this.batchSize = batchSize;
+
+        // Round up to a power of two so "sequence % capacity" is a cheap bit mask
+        this.capacity = Integer.highestOneBit(Math.max(2, bufferSize) - 1) << 1;
+        this.mask = capacity - 1;
+        this.timestamps = new long[capacity];
+        this.keywords = new String[capacity];
+        this.statuses = new int[capacity];
+        this.latencies = new long[capacity];
+        this.clients = new String[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        openChannel();
+
+        running = true;
+        writer = new Thread(this::drainLoop, "redirect-access-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Record one redirect. Never blocks: if the buffer is full the record is dropped.
+     */
+    public void record(String keyword, int status, long latencyNanos, String client) {
+        if (!running) {
+            return;
+        }
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed >= capacity) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+
+        int slot = (int) (seq & mask);
+        timestamps[slot] = System.currentTimeMillis();
+        keywords[slot] = keyword;
+        statuses[slot] = status;
+        latencies[slot] = latencyNanos;
+        clients[slot] = client;
+        published.lazySet(slot, seq); // release: the writer sees all fields above
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void drainLoop() {
+        long lastDropReport = System.currentTimeMillis();
+        long reportedDrops = 0;
+
+        while (running || consumed < claimed.get()) {
+            int drained = drainBatch();
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastDropReport >= DROP_REPORT_INTERVAL_MS) {
+                long drops = dropped.sum();
+                if (drops > reportedDrops) {
+                    log.warn("Redirect access log dropped {} records (buffer full)", drops - reportedDrops);
+                    reportedDrops = drops;
+                }
+                lastDropReport = now;
+            }
+
+            // During shutdown, stop waiting on a slot that will never be published
+            if (!running && drained == 0) {
+                break;
+            }
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close redirect access log: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Format and write up to batchSize published records. Returns how many were drained.
+     */
+    private int drainBatch() {
+        long next = consumed;
+        int count = 0;
+        batch.setLength(0);
+
+        while (count < batchSize) {
+            int slot = (int) (next & mask);
+            if (published.get(slot) != next) {
+                break; // not published yet (or buffer empty)
+            }
+            batch.append(timestamps[slot]).append('\t');
+            appendEscaped(keywords[slot]);
+            batch.append('\t').append(statuses[slot])
+                    .append('\t').append(latencies[slot] / 1000).append('\t');
+            appendEscaped(clients[slot]);
+            batch.append('\n');
+            keywords[slot] = null;
+            clients[slot] = null;
+            next++;
+            count++;
+        }
+
+        if (count > 0) {
+            consumed = next; // frees the slots for producers
+            write(batch.toString().getBytes(StandardCharsets.UTF_8));
+            written.add(count);
+        }
+        return count;
+    }
+
+    /**
+     * Append a field, escaping what would break the tab-separated format.
+     */
+    private void appendEscaped(String value) {
+        if (value == null) {
+            batch.append('-');
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\t' -> batch.append("\\t");
+                case '\n' -> batch.append("\\n");
+                case '\r' -> batch.append("\\r");
+                case '\\' -> batch.append("\\\\");
+                default -> {
+                    if (Character.isISOControl(c)) {
+                        batch.append("\\x").append(Character.forDigit(c >> 4, 16))
+                                .append(Character.forDigit(c & 0xf, 16));
+                    } else {
+                        batch.append(c);
+                    }
+                }
+            }
+        }
+    }
+
+    private void write(byte[] bytes) {
+        try {
+            if (!channel.isOpen()) {
+                openChannel(); // an earlier rotation couldn't reopen the file
+            }
+            if (fileSize + bytes.length > maxFileSize) {
+                rotate();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                fileSize += channel.write(buffer);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write redirect access log: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * access.log → access.log.1 → access.log.2 ... keeping at most maxFiles old files.
+     *
+     * The log is reopened even if a move fails: if access.log couldn't be moved we
+     * keep appending to it (past max-file-size) and try again on the next write.
+     */
+    private void rotate() throws IOException {
+        channel.close();
+        try {
+            Files.deleteIfExists(rotated(maxFiles));
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                if (Files.exists(rotated(i))) {
+                    Files.move(rotated(i), rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(path, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            openChannel();
+        }
+    }
+
+    private Path rotated(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+}
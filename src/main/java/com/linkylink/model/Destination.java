@@ -0,0 +1,67 @@
+package com.linkylink.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbIgnore;
+
+/**
+ * One weighted target of a multi-destination go link, stored inside the Link item
+ * as an element of its "destinations" list:
+ *
+ *   destinations: [ { url: https://dash-old..., weight: 90, clickCount: 8812 },
+ *                   { url: https://dash-new..., weight: 10, clickCount:  975 } ]
+ *
+ * Weights are relative (90/10 and 9/1 behave the same). Each destination counts
+ * its own clicks, so a canary's share of real traffic can be checked.
+ */
+@DynamoDbBean
+public class Destination {
+
+    private String url;
+    private Integer weight;
+    private Long clickCount;
+
+    // Derived from url, not stored in DynamoDB
+    private UrlTemplate urlTemplate = UrlTemplate.parse(null);
+
+    // === No-arg constructor (required by DynamoDB Enhanced Client) ===
+    public Destination() {
+    }
+
+    public Destination(String url, Integer weight) {
+        setUrl(url);
+        this.weight = weight;
+        this.clickCount = 0L;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+        this.urlTemplate = UrlTemplate.parse(url);
+    }
+
+    public Integer getWeight() {
+        return weight;
+    }
+
+    public void setWeight(Integer weight) {
+        this.weight = weight;
+    }
+
+    public Long getClickCount() {
+        return clickCount;
+    }
+
+    public void setClickCount(Long clickCount) {
+        this.clickCount = clickCount;
+    }
+
+    @DynamoDbIgnore
+    @JsonIgnore
+    public UrlTemplate getUrlTemplate() {
+        return urlTemplate;
+    }
+}
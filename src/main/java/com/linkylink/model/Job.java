@@ -0,0 +1,167 @@
+package com.linkylink.model;
+
+import software.amazon.awssdk.enhanced.dynamodb.extensions.annotations.DynamoDbVersionAttribute;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A long-running background job, mapped to the "LinkyLinkJobs" DynamoDB table.
+ *
+ * Jobs are stored (not just kept in memory) so they can report progress to any
+ * instance and survive a crash: a RUNNING job whose heartbeat has gone quiet is
+ * picked up again by the next instance that notices (see JobService).
+ *
+ * Table structure:
+ *   | id (PK)  | type       | status    | parameters                      | total | processed | failed | version |
+ *   |----------|------------|-----------|---------------------------------|------:|----------:|-------:|--------:|
+ *   | 3f2a...  | user-links | RUNNING   | {username: bob, action: delete} |  4210 |      1800 |      0 |      37 |
+ *   | 9c1e...  | user-links | SUCCEEDED | {username: al, action: reassign}|    12 |        12 |      0 |       4 |
+ *
+ * version is an optimistic lock (@DynamoDbVersionAttribute): every save is
+ * conditional on the version it was read at, so two instances can never both
+ * think they own a job, and a cancel from another instance is noticed.
+ */
+@DynamoDbBean
+public class Job {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+    public static final String CANCELLED = "CANCELLED";
+
+    private String id;
+    private String type;
+    private String status;
+    private Map<String, String> parameters = new HashMap<>();
+    private String createdBy;
+    private String createdAt;
+    private String updatedAt;       // also the heartbeat: refreshed while the job runs
+    private String runningOn;       // instance currently executing the job
+    private Long total;             // estimated number of items, 0 if unknown
+    private Long processed;
+    private Long skipped;           // items that no longer needed the change
+    private Long failed;
+    private String message;
+    private Long version;
+
+    // === No-arg constructor (required by DynamoDB Enhanced Client) ===
+    public Job() {
+    }
+
+    @DynamoDbPartitionKey
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(Map<String, String> parameters) {
+        this.parameters = parameters;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(String createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(String updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public String getRunningOn() {
+        return runningOn;
+    }
+
+    public void setRunningOn(String runningOn) {
+        this.runningOn = runningOn;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+
+    public Long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(Long processed) {
+        this.processed = processed;
+    }
+
+    public Long getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(Long skipped) {
+        this.skipped = skipped;
+    }
+
+    public Long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(Long failed) {
+        this.failed = failed;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @DynamoDbVersionAttribute
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -1,7 +1,19 @@
 package com.linkylink.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.linkylink.util.AliasTable;
+import com.linkylink.util.UrlNormalizer;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbIgnore;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondaryPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondarySortKey;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 /**
  * Link entity mapped to the "LinkyLinks" DynamoDB table.
@@ -14,16 +26,89 @@ import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbParti
  *   | google      | https://www.google.com     | alice       | Google search  | 2025-01-15T10:30   |        42 |
  *   | gh          | https://github.com         | bob         | GitHub         | 2025-01-16T14:00   |        17 |
  *   | jira        | https://mycompany.jira.com | alice       | Our Jira board | 2025-01-17T09:15   |       128 |
+ *
+ * URLs may contain placeholders ({1}, {*}) filled from extra path segments —
+ * see UrlTemplate. The template is parsed whenever the URL is set, i.e. once
+ * when the link is saved or loaded from DynamoDB, never per redirect.
+ *
+ * A link may have several weighted destinations instead of one URL (canaries, load
+ * spreading): go/dashboard → 90% old dashboard, 10% new one. The weights are turned
+ * into an AliasTable when the list is set, so each redirect picks in O(1). With
+ * destinations, url holds the first destination (shown in listings and indexed).
+ *
+ * Temporary links carry an optional expiresAt (ISO-8601). It is mirrored into a
+ * "ttl" attribute in epoch seconds — the table's DynamoDB TTL attribute — so
+ * DynamoDB deletes the item some time after it expires. Since that deletion can
+ * lag by hours, readers must also check isExpired() themselves.
+ *
+ * Browser caching: by default a redirect is a 302 the browser must not cache, so
+ * every visit comes back to us. A stable link can instead let browsers cache it:
+ * redirectStatus 302 or 307 with a cacheMaxAge, or 308 (permanent; cached for
+ * cacheMaxAge, or a year if none). Clicks answered from a browser's cache never
+ * reach us, so clickCount only counts the ones that did; estimatedCachedClicks
+ * estimates the rest from a control group of visitors who are never sent a
+ * cacheable redirect (see LinkService.recordClick).
+ *
+ * Clicks on a hot link are counted in shard items of a separate table (see
+ * ClickCounters) and folded back into clickCount later. The stored clickCount is
+ * what's in this item; the clickCount the API shows also includes the shards
+ * (shardedClicks, filled in by ClickCounters before a link is returned).
+ *
+ * uniqueVisitors is an estimate of distinct visitors (see UniqueVisitors), written
+ * periodically from HyperLogLog sketches kept in a separate table.
+ *
+ * Global secondary index "ownerUsername-index" (partition key ownerUsername, all
+ * attributes projected) answers "which links does this user own?" with a Query
+ * instead of a full-table scan.
+ *
+ * Global secondary index "urlHash-index" (partition key urlHash, a hash of the
+ * normalized url, see UrlNormalizer) answers "which links already go to this URL?"
+ * the same way. urlHash is derived from url whenever url is set.
+ *
+ * Global secondary index "createdDay-index" (partition key createdDay, the UTC day
+ * of createdAt; sort key createdAt) answers "which links were created since X?",
+ * newest first, with one Query per day. createdAt strings sort in time order:
+ * new links get a fixed-width timestamp (see timestamp()), since Instant.toString()
+ * drops trailing zero digits and "10:00:00Z" would sort after "10:00:00.5Z".
  */
 @DynamoDbBean
 public class Link {
 
+    public static final String OWNER_INDEX = "ownerUsername-index";
+    public static final String URL_INDEX = "urlHash-index";
+    public static final String CREATED_INDEX = "createdDay-index";
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'").withZone(ZoneOffset.UTC);
+
+    /** Longest a browser may cache a redirect (1 year), and the default for 308. */
+    public static final long MAX_CACHE_AGE = 31_536_000;
+
     private String keyword;
     private String url;
+    private String urlHash;
     private String ownerUsername;
     private String description;
     private String createdAt;
     private Long clickCount;
+    private Long uniqueVisitors;
+    private String expiresAt;
+    private Long ttl;
+    private List<Destination> destinations;
+    private Integer redirectStatus;
+    private Long cacheMaxAge;
+    private Long cacheableClicks;
+    private Long cacheSampleWeight;
+
+    // Clicks still in ClickCounters' shard items, not stored here
+    private volatile long shardedClicks;
+
+    // Derived from url, not stored in DynamoDB
+    private UrlTemplate urlTemplate = UrlTemplate.parse(null);
+    // Derived from destinations' weights; null for single-URL links
+    private AliasTable destinationPicker;
+    // Derived from expiresAt; Long.MAX_VALUE = never expires
+    private long expiresAtMillis = Long.MAX_VALUE;
 
     // === No-arg constructor (required by DynamoDB Enhanced Client) ===
     public Link() {
@@ -32,7 +117,7 @@ public class Link {
     public Link(String keyword, String url, String ownerUsername,
                   String description, String createdAt) {
         this.keyword = keyword;
-        this.url = url;
+        setUrl(url);
         this.ownerUsername = ownerUsername;
         this.description = description;
         this.createdAt = createdAt;
@@ -56,8 +141,27 @@ public class Link {
 
     public void setUrl(String url) {
         this.url = url;
+        this.urlTemplate = UrlTemplate.parse(url);
+        this.urlHash = null; // derived on first use, not on every redirect lookup
     }
 
+    /**
+     * Reverse URL index key. Derived from url (and written, so DynamoDB can index it).
+     */
+    @JsonIgnore
+    @DynamoDbSecondaryPartitionKey(indexNames = URL_INDEX)
+    public String getUrlHash() {
+        if (urlHash == null && url != null) {
+            urlHash = UrlNormalizer.hash(url);
+        }
+        return urlHash;
+    }
+
+    public void setUrlHash(String urlHash) {
+        // Always derived from url: a value stored by an older normalizer is ignored
+    }
+
+    @DynamoDbSecondaryPartitionKey(indexNames = OWNER_INDEX)
     public String getOwnerUsername() {
         return ownerUsername;
     }
@@ -74,6 +178,7 @@ public class Link {
         this.description = description;
     }
 
+    @DynamoDbSecondarySortKey(indexNames = CREATED_INDEX)
     public String getCreatedAt() {
         return createdAt;
     }
@@ -82,6 +187,32 @@ public class Link {
         this.createdAt = createdAt;
     }
 
+    /**
+     * Recent-links index key: the UTC day of createdAt ("2025-01-15"). Derived (and
+     * written, so DynamoDB can index it).
+     */
+    @JsonIgnore
+    @DynamoDbSecondaryPartitionKey(indexNames = CREATED_INDEX)
+    public String getCreatedDay() {
+        return createdAt == null || createdAt.length() < 10 ? null : createdAt.substring(0, 10);
+    }
+
+    public void setCreatedDay(String createdDay) {
+        // Always derived from createdAt
+    }
+
+    /**
+     * An ISO-8601 UTC timestamp with exactly six fractional digits, so timestamps
+     * compare as strings in time order (createdAt, and cursors compared with it).
+     */
+    public static String timestamp(Instant instant) {
+        return TIMESTAMP.format(instant);
+    }
+
+    /**
+     * Clicks counted on this item (what DynamoDB stores), excluding shardedClicks.
+     */
+    @JsonIgnore
     public Long getClickCount() {
         return clickCount;
     }
@@ -89,4 +220,230 @@ public class Link {
     public void setClickCount(Long clickCount) {
         this.clickCount = clickCount;
     }
+
+    /**
+     * Clicks counted in shard items and not yet folded into clickCount.
+     */
+    @DynamoDbIgnore
+    @JsonIgnore
+    public long getShardedClicks() {
+        return shardedClicks;
+    }
+
+    public void setShardedClicks(long shardedClicks) {
+        this.shardedClicks = shardedClicks;
+    }
+
+    /**
+     * All clicks: stored plus sharded. This is the "clickCount" clients see.
+     */
+    @DynamoDbIgnore
+    @JsonProperty("clickCount")
+    public long getTotalClickCount() {
+        return (clickCount == null ? 0 : clickCount) + shardedClicks;
+    }
+
+    public Long getUniqueVisitors() {
+        return uniqueVisitors;
+    }
+
+    public void setUniqueVisitors(Long uniqueVisitors) {
+        this.uniqueVisitors = uniqueVisitors;
+    }
+
+    public String getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Set (or clear, with null) the expiry time. Also sets the TTL attribute.
+     */
+    public void setExpiresAt(String expiresAt) {
+        this.expiresAt = expiresAt;
+        if (expiresAt == null) {
+            this.expiresAtMillis = Long.MAX_VALUE;
+            this.ttl = null;
+        } else {
+            Instant instant = Instant.parse(expiresAt);
+            this.expiresAtMillis = instant.toEpochMilli();
+            this.ttl = instant.getEpochSecond();
+        }
+    }
+
+    public List<Destination> getDestinations() {
+        return destinations;
+    }
+
+    /**
+     * Set (or clear, with null/empty) the weighted destinations and precompute
+     * their alias table.
+     */
+    public void setDestinations(List<Destination> destinations) {
+        if (destinations == null || destinations.isEmpty()) {
+            this.destinations = null;
+            this.destinationPicker = null;
+            return;
+        }
+        double[] weights = new double[destinations.size()];
+        for (int i = 0; i < weights.length; i++) {
+            Integer weight = destinations.get(i).getWeight();
+            weights[i] = weight == null ? 0 : weight;
+        }
+        this.destinations = destinations;
+        this.destinationPicker = AliasTable.of(weights);
+    }
+
+    /**
+     * HTTP status of the redirect: 302 (default, also when null), 307 or 308.
+     */
+    public Integer getRedirectStatus() {
+        return redirectStatus;
+    }
+
+    public void setRedirectStatus(Integer redirectStatus) {
+        this.redirectStatus = redirectStatus;
+    }
+
+    /**
+     * How long browsers may cache the redirect, in seconds; null or 0 = not at all
+     * (except 308, see browserMaxAge()).
+     */
+    public Long getCacheMaxAge() {
+        return cacheMaxAge;
+    }
+
+    public void setCacheMaxAge(Long cacheMaxAge) {
+        this.cacheMaxAge = cacheMaxAge;
+    }
+
+    /**
+     * Clicks that reached us while the link was browser-cacheable.
+     */
+    @JsonIgnore
+    public Long getCacheableClicks() {
+        return cacheableClicks;
+    }
+
+    public void setCacheableClicks(Long cacheableClicks) {
+        this.cacheableClicks = cacheableClicks;
+    }
+
+    /**
+     * Control-group clicks, each weighted by the inverse of the group's share of
+     * visitors: an estimate of all clicks while the link was browser-cacheable.
+     */
+    @JsonIgnore
+    public Long getCacheSampleWeight() {
+        return cacheSampleWeight;
+    }
+
+    public void setCacheSampleWeight(Long cacheSampleWeight) {
+        this.cacheSampleWeight = cacheSampleWeight;
+    }
+
+    /**
+     * Estimated clicks answered from browser caches, which clickCount doesn't include.
+     */
+    @DynamoDbIgnore
+    public long getEstimatedCachedClicks() {
+        long estimated = cacheSampleWeight == null ? 0 : cacheSampleWeight;
+        long observed = cacheableClicks == null ? 0 : cacheableClicks;
+        return Math.max(0, estimated - observed);
+    }
+
+    /**
+     * DynamoDB TTL attribute (epoch seconds). Derived from expiresAt.
+     */
+    @JsonIgnore
+    public Long getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Long ttl) {
+        this.ttl = ttl;
+    }
+
+    // === Derived (not persisted, not serialized) ===
+
+    @DynamoDbIgnore
+    @JsonIgnore
+    public UrlTemplate getUrlTemplate() {
+        return urlTemplate;
+    }
+
+    /**
+     * HTTP status for a redirect: redirectStatus, or 302.
+     */
+    @DynamoDbIgnore
+    @JsonIgnore
+    public int getRedirectStatusOrDefault() {
+        return redirectStatus == null ? 302 : redirectStatus;
+    }
+
+    /**
+     * True if browsers may cache this link's redirects at all.
+     */
+    @DynamoDbIgnore
+    @JsonIgnore
+    public boolean isBrowserCacheable() {
+        return getRedirectStatusOrDefault() == 308 || (cacheMaxAge != null && cacheMaxAge > 0);
+    }
+
+    /**
+     * Seconds a browser may cache a redirect sent at {@code nowMillis}: cacheMaxAge
+     * (a year for a 308 without one), but never past the link's expiry.
+     *
+     * @return 0 if the redirect must not be cached
+     */
+    public long browserMaxAge(long nowMillis) {
+        if (!isBrowserCacheable()) {
+            return 0;
+        }
+        long maxAge = cacheMaxAge != null && cacheMaxAge > 0 ? cacheMaxAge : MAX_CACHE_AGE;
+        if (expiresAtMillis != Long.MAX_VALUE) {
+            maxAge = Math.min(maxAge, Math.max(0, (expiresAtMillis - nowMillis) / 1000));
+        }
+        return maxAge;
+    }
+
+    /**
+     * True if the link has an expiry time at or before {@code nowMillis}.
+     */
+    public boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+
+    /**
+     * Expiry time in epoch millis, or Long.MAX_VALUE if the link never expires.
+     */
+    @DynamoDbIgnore
+    @JsonIgnore
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    /**
+     * Pick a destination for one redirect, by weight.
+     *
+     * @return an index into getDestinations(), or -1 for a single-URL link
+     */
+    public int pickDestination() {
+        AliasTable picker = destinationPicker;
+        return picker == null ? -1 : picker.next();
+    }
+
+    /**
+     * The redirect target for this link, given the extra path after the keyword.
+     * For plain links this is just the URL.
+     */
+    public String targetUrl(String rest) {
+        return urlTemplate.expand(rest);
+    }
+
+    /**
+     * The redirect target for a destination chosen by pickDestination().
+     */
+    public String targetUrl(int destination, String rest) {
+        return destination < 0 ? targetUrl(rest) : destinations.get(destination).getUrlTemplate().expand(rest);
+    }
 }
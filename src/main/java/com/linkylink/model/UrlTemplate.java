@@ -0,0 +1,161 @@
+package com.linkylink.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A go link URL with placeholders, pre-parsed for fast expansion.
+ *
+ * Placeholders:
+ *   {1}, {2}, ... — the 1st, 2nd, ... extra path segment after the keyword
+ *   {*}           — all extra path segments, joined with '/'
+ *
+ * Examples:
+ *   go/jira/PROJ-123   with  https://jira.example.com/browse/{1}  → .../browse/PROJ-123
+ *   go/gh/org/repo     with  https://github.com/{*}                → https://github.com/org/repo
+ *
+ * The URL is parsed once (when a Link is saved or loaded) into alternating arrays of
+ * literal text and placeholder indexes. Expanding is then a single pass that appends
+ * into a pre-sized buffer — no regex, no String.replace per redirect.
+ *
+ * Anything in braces that isn't a valid placeholder (e.g. "{foo}") is kept literally.
+ */
+public final class UrlTemplate {
+
+    private static final int ALL_SEGMENTS = -1;
+    private static final String[] NO_SEGMENTS = new String[0];
+
+    // literals.length == params.length + 1: literal, param, literal, param, ..., literal
+    private final String[] literals;
+    private final int[] params;
+    private final int literalLength;
+    private final boolean usesNumberedParams;
+
+    private UrlTemplate(String[] literals, int[] params) {
+        this.literals = literals;
+        this.params = params;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+        boolean numbered = false;
+        for (int param : params) {
+            numbered |= param != ALL_SEGMENTS;
+        }
+        this.usesNumberedParams = numbered;
+    }
+
+    /**
+     * Parse a URL into a template. Never fails: a URL without placeholders
+     * becomes a template with a single literal.
+     */
+    public static UrlTemplate parse(String url) {
+        if (url == null || url.indexOf('{') < 0) {
+            return new UrlTemplate(new String[]{url == null ? "" : url}, new int[0]);
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<Integer> params = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < url.length()) {
+            char c = url.charAt(i);
+            int close = c == '{' ? url.indexOf('}', i + 1) : -1;
+            int param = close > 0 ? placeholderIndex(url, i + 1, close) : Integer.MIN_VALUE;
+            if (param == Integer.MIN_VALUE) {
+                literal.append(c);
+                i++;
+            } else {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                params.add(param);
+                i = close + 1;
+            }
+        }
+        literals.add(literal.toString());
+
+        return new UrlTemplate(literals.toArray(NO_SEGMENTS),
+                params.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * True if the URL contains at least one placeholder.
+     */
+    public boolean hasPlaceholders() {
+        return params.length > 0;
+    }
+
+    /**
+     * Fill the placeholders from the extra path after the keyword.
+     *
+     * @param rest everything after "/keyword/" in the request path (may be empty),
+     *             still percent-encoded, so it is safe to paste into a URL
+     */
+    public String expand(String rest) {
+        if (params.length == 0) {
+            return literals[0];
+        }
+        String[] segments = usesNumberedParams ? splitSegments(rest) : NO_SEGMENTS;
+
+        StringBuilder out = new StringBuilder(literalLength + rest.length() * params.length);
+        for (int i = 0; i < params.length; i++) {
+            out.append(literals[i]);
+            int param = params[i];
+            if (param == ALL_SEGMENTS) {
+                out.append(rest);
+            } else if (param < segments.length) {
+                out.append(segments[param]);
+            }
+            // missing segment → empty string
+        }
+        out.append(literals[params.length]);
+        return out.toString();
+    }
+
+    /**
+     * Returns the 0-based segment index for "{n}", ALL_SEGMENTS for "{*}",
+     * or Integer.MIN_VALUE if the text between the braces isn't a placeholder.
+     */
+    private static int placeholderIndex(String url, int from, int to) {
+        if (to - from == 1 && url.charAt(from) == '*') {
+            return ALL_SEGMENTS;
+        }
+        if (to == from || to - from > 2) {
+            return Integer.MIN_VALUE;
+        }
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            char d = url.charAt(i);
+            if (d < '0' || d > '9') {
+                return Integer.MIN_VALUE;
+            }
+            n = n * 10 + (d - '0');
+        }
+        return n >= 1 ? n - 1 : Integer.MIN_VALUE;
+    }
+
+    private static String[] splitSegments(String rest) {
+        if (rest.isEmpty()) {
+            return NO_SEGMENTS;
+        }
+        int count = 1;
+        for (int i = 0; i < rest.length(); i++) {
+            if (rest.charAt(i) == '/') {
+                count++;
+            }
+        }
+        String[] segments = new String[count];
+        int start = 0;
+        for (int s = 0; s < count; s++) {
+            int end = rest.indexOf('/', start);
+            if (end < 0) {
+                end = rest.length();
+            }
+            segments[s] = rest.substring(start, end);
+            start = end + 1;
+        }
+        return segments;
+    }
+}
@@ -20,6 +20,11 @@ import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbParti
  *   |---------------|-------------|--------|--------------------|
  *   | alice         | $2a$10$...  | ADMIN  | 2025-01-15T10:30   |
  *   | bob           | $2a$10$...  | USER   | 2025-01-16T14:00   |
+ *
+ * deleting: set while a deleted user's links are being cleaned up (see
+ * UserService.delete). The row stays as a tombstone that keeps the username
+ * reserved, so nobody can register it and have their new links swept up by the
+ * cleanup job; it can't log in either. The job removes the row when it's done.
  */
 @DynamoDbBean
 public class User {
@@ -28,6 +33,7 @@ public class User {
     private String passwordHash;
     private String role;        // "USER" or "ADMIN"
     private String createdAt;   // ISO 8601 timestamp
+    private boolean deleting;
 
     // === No-arg constructor (required by DynamoDB Enhanced Client) ===
     public User() {
@@ -74,4 +80,12 @@ public class User {
     public void setCreatedAt(String createdAt) {
         this.createdAt = createdAt;
     }
+
+    public boolean isDeleting() {
+        return deleting;
+    }
+
+    public void setDeleting(boolean deleting) {
+        this.deleting = deleting;
+    }
 }
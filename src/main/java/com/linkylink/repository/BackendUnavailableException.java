@@ -0,0 +1,23 @@
+package com.linkylink.repository;
+
+/**
+ * Thrown instead of calling DynamoDB while its circuit breaker is open (see
+ * LinkRepository): the call would most likely fail anyway, just more slowly.
+ *
+ * Controllers answer it with 503 and a Retry-After of {@link #getRetryAfterSeconds()}.
+ */
+public class BackendUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public BackendUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
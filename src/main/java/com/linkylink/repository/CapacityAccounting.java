@@ -0,0 +1,267 @@
+package com.linkylink.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Who spends our DynamoDB read and write units?
+ *
+ * Every DynamoDB call reports the capacity it consumed (ConsumedCapacityInterceptor
+ * asks for it). This class charges it to where the call came from, its Origin:
+ *
+ *   route     — the HTTP route being served, e.g. "GET /{keyword}" or
+ *               "GET /api/links"; "job user-links" for a background job; for
+ *               other background work, the thread, e.g. "thread unique-visitors"
+ *   user      — who made the request (or started the job), "anonymous" if nobody
+ *   operation — the repository method, e.g. "LinkRepository.findByOwner"
+ *
+ * plus the DynamoDB request it turned into ("Query", or "Scan" when findByOwner
+ * falls back). So "redirects cost X read units, the dashboard's findByOwner Y" is
+ * one look at GET /api/admin/capacity or the linkylink.dynamodb.capacity metric.
+ *
+ * The origin lives in a ThreadLocal: set by CapacityAttribution (web) for each
+ * HTTP request, and by JobService for jobs; repositories add the operation. Work
+ * handed to another thread (parallel scan segments, hedged reads, job workers) is
+ * wrapped with propagating(), so it's charged to the same origin.
+ *
+ * Counting is lock-free: a ConcurrentHashMap lookup and LongAdder/DoubleAdder
+ * increments per call. Routes and operations are bounded sets; users are not, so
+ * beyond max-users new ones are counted together as "(other)".
+ */
+@Component
+public class CapacityAccounting {
+
+    /**
+     * Where a DynamoDB call came from. operation is null until a repository sets it.
+     */
+    public record Origin(String route, String user, String operation) {
+
+        public Origin withOperation(String operation) {
+            return new Origin(route, user, operation);
+        }
+    }
+
+    /**
+     * Consumed capacity of one route + operation + DynamoDB request, or of one user.
+     */
+    public record Usage(String route, String operation, String request, String user,
+                        double readUnits, double writeUnits, long calls) {
+    }
+
+    /**
+     * Everything counted since {@code since}, most expensive first.
+     */
+    public record Report(Instant since, double readUnits, double writeUnits, long calls,
+                         List<Usage> routes, List<Usage> users) {
+    }
+
+    private record Key(String route, String operation, String request) {
+    }
+
+    private static final class Counters {
+        final DoubleAdder readUnits = new DoubleAdder();
+        final DoubleAdder writeUnits = new DoubleAdder();
+        final LongAdder calls = new LongAdder();
+
+        void add(double units, boolean write) {
+            (write ? writeUnits : readUnits).add(units);
+            calls.increment();
+        }
+    }
+
+    private static final String OTHER = "(other)";
+    private static final Pattern POOL_NUMBER = Pattern.compile("[-#]?\\d+$");
+    private static final ThreadLocal<Origin> ORIGIN = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+    private final int maxUsers;
+    private final int maxRoutes;
+    private final Instant since = Instant.now();
+    private final Map<Key, Counters> byRoute = new ConcurrentHashMap<>();
+    private final Map<String, Counters> byUser = new ConcurrentHashMap<>();
+
+    public CapacityAccounting(MeterRegistry registry,
+                              @Value("${linkylink.capacity.max-users:10000}") int maxUsers,
+                              @Value("${linkylink.capacity.max-routes:1000}") int maxRoutes) {
+        this.registry = registry;
+        this.maxUsers = maxUsers;
+        this.maxRoutes = maxRoutes;
+    }
+
+    // ==================== Attribution ====================
+
+    /**
+     * Charge this thread's DynamoDB calls to a route and user, until clear().
+     */
+    public static void enter(String route, String user) {
+        ORIGIN.set(new Origin(route, user, null));
+    }
+
+    public static void clear() {
+        ORIGIN.remove();
+    }
+
+    public static Origin current() {
+        return ORIGIN.get();
+    }
+
+    /**
+     * Run a repository call, charging its DynamoDB calls to {@code operation}
+     * (nested calls charge to the innermost one). Outside a request or job, the
+     * route is this thread, also for the parts of the call run on other threads.
+     */
+    public static <T> T during(String operation, Supplier<T> call) {
+        Origin previous = ORIGIN.get();
+        ORIGIN.set(previous == null
+                ? new Origin("thread " + threadGroup(), null, operation)
+                : previous.withOperation(operation));
+        try {
+            return call.get();
+        } finally {
+            ORIGIN.set(previous);
+        }
+    }
+
+    /**
+     * Wrap a task so that it runs with the submitting thread's origin.
+     */
+    public static <T> Callable<T> propagating(Callable<T> task) {
+        Origin origin = ORIGIN.get();
+        if (origin == null) {
+            return task;
+        }
+        return () -> {
+            Origin previous = ORIGIN.get();
+            ORIGIN.set(origin);
+            try {
+                return task.call();
+            } finally {
+                ORIGIN.set(previous);
+            }
+        };
+    }
+
+    public static <T> Supplier<T> propagatingSupplier(Supplier<T> task) {
+        Origin origin = ORIGIN.get();
+        if (origin == null) {
+            return task;
+        }
+        return () -> {
+            Origin previous = ORIGIN.get();
+            ORIGIN.set(origin);
+            try {
+                return task.get();
+            } finally {
+                ORIGIN.set(previous);
+            }
+        };
+    }
+
+    // ==================== Counting ====================
+
+    /**
+     * Charge one DynamoDB call to the current thread's origin.
+     *
+     * @param request the DynamoDB operation, e.g. "Query"
+     * @param table   the table it ran on, used as the operation if no repository set one
+     * @param units   capacity units consumed (0 if DynamoDB didn't say)
+     * @param write   write units (else read units)
+     */
+    public void record(String request, String table, double units, boolean write) {
+        Origin origin = ORIGIN.get();
+        String route = origin != null && origin.route() != null ? origin.route() : "thread " + threadGroup();
+        String user = origin != null && origin.user() != null ? origin.user() : "anonymous";
+        String operation = origin != null && origin.operation() != null
+                ? origin.operation()
+                : table != null ? table : "(unknown)";
+
+        routeCounters(new Key(route, operation, request)).add(units, write);
+        userCounters(user).add(units, write);
+    }
+
+    public Report report(int limit) {
+        Comparator<Usage> mostExpensive = Comparator.comparingDouble(u -> -(u.readUnits() + u.writeUnits()));
+        List<Usage> routes = byRoute.entrySet().stream()
+                .map(e -> usage(e.getKey(), null, e.getValue()))
+                .sorted(mostExpensive)
+                .toList();
+        List<Usage> users = byUser.entrySet().stream()
+                .map(e -> usage(null, e.getKey(), e.getValue()))
+                .sorted(mostExpensive)
+                .limit(limit)
+                .toList();
+        return new Report(since,
+                routes.stream().mapToDouble(Usage::readUnits).sum(),
+                routes.stream().mapToDouble(Usage::writeUnits).sum(),
+                routes.stream().mapToLong(Usage::calls).sum(),
+                routes.stream().limit(limit).toList(),
+                users);
+    }
+
+    private Counters routeCounters(Key key) {
+        Counters counters = byRoute.get(key);
+        if (counters != null) {
+            return counters;
+        }
+        if (byRoute.size() >= maxRoutes) {
+            key = new Key(OTHER, OTHER, OTHER);
+        }
+        Counters created = new Counters();
+        counters = byRoute.putIfAbsent(key, created);
+        if (counters == null) {
+            register(key, created);
+            counters = created;
+        }
+        return counters;
+    }
+
+    private Counters userCounters(String user) {
+        Counters counters = byUser.get(user);
+        if (counters != null) {
+            return counters;
+        }
+        return byUser.computeIfAbsent(byUser.size() >= maxUsers ? OTHER : user, u -> new Counters());
+    }
+
+    /**
+     * Metrics for a new route + operation + request. Users aren't tags: there can be
+     * too many of them for a metrics backend; they're in the report only.
+     */
+    private void register(Key key, Counters counters) {
+        FunctionCounter.builder("linkylink.dynamodb.capacity", counters, c -> c.readUnits.sum())
+                .tags("route", key.route(), "operation", key.operation(), "request", key.request(), "type", "read")
+                .description("DynamoDB capacity units consumed").register(registry);
+        FunctionCounter.builder("linkylink.dynamodb.capacity", counters, c -> c.writeUnits.sum())
+                .tags("route", key.route(), "operation", key.operation(), "request", key.request(), "type", "write")
+                .description("DynamoDB capacity units consumed").register(registry);
+        FunctionCounter.builder("linkylink.dynamodb.calls", counters, c -> c.calls.sum())
+                .tags("route", key.route(), "operation", key.operation(), "request", key.request())
+                .description("DynamoDB calls made").register(registry);
+    }
+
+    private static Usage usage(Key key, String user, Counters counters) {
+        return new Usage(key == null ? null : key.route(), key == null ? null : key.operation(),
+                key == null ? null : key.request(), user,
+                counters.readUnits.sum(), counters.writeUnits.sum(), counters.calls.sum());
+    }
+
+    /**
+     * The current thread's name without its pool number: "job-worker-3" → "job-worker".
+     */
+    private static String threadGroup() {
+        return POOL_NUMBER.matcher(Thread.currentThread().getName()).replaceFirst("");
+    }
+}
@@ -0,0 +1,117 @@
+package com.linkylink.repository;
+
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.List;
+
+/**
+ * SDK interceptor (registered on the DynamoDB client in DynamoDbConfig) that makes
+ * every data-plane request ask for its consumed capacity, and hands the answer to
+ * CapacityAccounting.
+ *
+ * modifyRequest runs before the request is sent: requests that don't already ask
+ * get ReturnConsumedCapacity=TOTAL, which costs nothing extra, just a few bytes in
+ * the response. afterExecution runs once per API call, after the SDK's retries
+ * (throttled attempts consume no capacity), on the calling thread, so the thread's
+ * Origin says who to charge.
+ *
+ * Not counted: calls that fail. A write whose condition fails still costs write
+ * units, but the exception doesn't report them.
+ */
+public class ConsumedCapacityInterceptor implements ExecutionInterceptor {
+
+    private final CapacityAccounting accounting;
+
+    public ConsumedCapacityInterceptor(CapacityAccounting accounting) {
+        this.accounting = accounting;
+    }
+
+    @Override
+    public SdkRequest modifyRequest(Context.ModifyRequest context, ExecutionAttributes executionAttributes) {
+        SdkRequest request = context.request();
+        ReturnConsumedCapacity total = ReturnConsumedCapacity.TOTAL;
+        if (request instanceof GetItemRequest r && r.returnConsumedCapacity() == null) {
+            return r.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof PutItemRequest r && r.returnConsumedCapacity() == null) {
+            return r.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof UpdateItemRequest r && r.returnConsumedCapacity() == null) {
+            return r.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof DeleteItemRequest r && r.returnConsumedCapacity() == null) {
+            return r.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof QueryRequest r && r.returnConsumedCapacity() == null) {
+            return r.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof ScanRequest r && r.returnConsumedCapacity() == null) {
+            return r.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof BatchGetItemRequest r && r.returnConsumedCapacity() == null) {
+            return r.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof BatchWriteItemRequest r && r.returnConsumedCapacity() == null) {
+            return r.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof TransactGetItemsRequest r && r.returnConsumedCapacity() == null) {
+            return r.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof TransactWriteItemsRequest r && r.returnConsumedCapacity() == null) {
+            return r.toBuilder().returnConsumedCapacity(total).build();
+        }
+        return request;
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        SdkResponse response = context.response();
+        if (response instanceof GetItemResponse r) {
+            record("GetItem", r.consumedCapacity(), false);
+        } else if (response instanceof QueryResponse r) {
+            record("Query", r.consumedCapacity(), false);
+        } else if (response instanceof ScanResponse r) {
+            record("Scan", r.consumedCapacity(), false);
+        } else if (response instanceof BatchGetItemResponse r) {
+            record("BatchGetItem", r.consumedCapacity(), false);
+        } else if (response instanceof TransactGetItemsResponse r) {
+            record("TransactGetItems", r.consumedCapacity(), false);
+        } else if (response instanceof PutItemResponse r) {
+            record("PutItem", r.consumedCapacity(), true);
+        } else if (response instanceof UpdateItemResponse r) {
+            record("UpdateItem", r.consumedCapacity(), true);
+        } else if (response instanceof DeleteItemResponse r) {
+            record("DeleteItem", r.consumedCapacity(), true);
+        } else if (response instanceof BatchWriteItemResponse r) {
+            record("BatchWriteItem", r.consumedCapacity(), true);
+        } else if (response instanceof TransactWriteItemsResponse r) {
+            record("TransactWriteItems", r.consumedCapacity(), true);
+        }
+    }
+
+    private void record(String request, ConsumedCapacity capacity, boolean write) {
+        accounting.record(request, capacity == null ? null : capacity.tableName(), units(capacity), write);
+    }
+
+    /**
+     * Batch and transaction responses report one ConsumedCapacity per table.
+     */
+    private void record(String request, List<ConsumedCapacity> capacities, boolean write) {
+        double units = 0;
+        String table = null;
+        for (ConsumedCapacity capacity : capacities) {
+            units += units(capacity);
+            table = table == null ? capacity.tableName() : table;
+        }
+        accounting.record(request, table, units, write);
+    }
+
+    private static double units(ConsumedCapacity capacity) {
+        return capacity == null || capacity.capacityUnits() == null ? 0 : capacity.capacityUnits();
+    }
+}
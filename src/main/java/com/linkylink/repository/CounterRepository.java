@@ -0,0 +1,362 @@
+package com.linkylink.repository;
+
+import com.linkylink.model.Destination;
+import com.linkylink.model.Link;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository for sharded click counters (see ClickCounters), in the
+ * "LinkyLinkCounters" table:
+ *
+ *   | id (PK)  | keyword | createdAt     | clickCount | cacheableClicks | cacheSampleWeight | d_1x7kq9 |
+ *   |----------|---------|---------------|-----------:|----------------:|------------------:|---------:|
+ *   | launch#0 | launch  | 2024-05-01T.. |       4113 |                 |                   |          |
+ *   | launch#1 | launch  | 2024-05-01T.. |       4098 |                 |                   |          |
+ *   | canary#3 | canary  | 2024-04-12T.. |        871 |                 |                   |      802 |
+ *
+ * Every UpdateItem on one item goes to one partition, and a partition takes at most
+ * ~1000 writes per second. A hot link's clicks are spread over N items instead
+ * (keyword#0 .. keyword#N-1, picked at random per click), each with the same
+ * counters the link item has. Destination counters of weighted links are keyed by
+ * a hash of the destination URL ("d_..."), since the list position can change.
+ *
+ * fold() moves a shard's counts into the link item in one transaction, so a click
+ * is always counted exactly once: in the shard or in the link, never both.
+ *
+ * A keyword can be deleted and created again. Each shard carries the createdAt of
+ * the link it counts for, and folds only into a link with that createdAt, so the
+ * clicks of an old link never end up in a new one with the same keyword.
+ *
+ * Nothing else lives in this table, so a scan of it is cheap: it only holds the
+ * shards of links that are (or recently were) hot.
+ */
+@Repository
+public class CounterRepository {
+
+    private static final String DESTINATION_PREFIX = "d_";
+
+    /**
+     * One shard's counts. destinationClicks is keyed by destinationAttribute(url).
+     */
+    public record Shard(String id, String keyword, String createdAt, long clicks, long cacheableClicks,
+                        long cacheSampleWeight, Map<String, Long> destinationClicks) {
+    }
+
+    /**
+     * Outcome of fold().
+     */
+    public enum FoldResult {
+        /** Counts moved into the link item. */
+        FOLDED,
+        /** The link (or one of its destinations) changed in the meantime; try again later. */
+        CONFLICT,
+        /** The shard counts for an earlier link with the same keyword: its clicks are void. */
+        OTHER_LINK
+    }
+
+    private final DynamoDbClient client;
+    private final String tableName;
+    private final String linksTableName;
+
+    public CounterRepository(DynamoDbClient client,
+                             @Value("${aws.dynamodb.table.counters}") String tableName,
+                             @Value("${aws.dynamodb.table.links}") String linksTableName) {
+        this.client = client;
+        this.tableName = tableName;
+        this.linksTableName = linksTableName;
+    }
+
+    /**
+     * Count one click in a shard: the same counters incrementClickCount and
+     * incrementCacheableClickCount would have updated on the link item.
+     *
+     * The shard must count for the same link (createdAt). If it holds an older
+     * link's clicks — a click that raced the delete in deleteAll — those are void:
+     * the shard is deleted and the click counted in a new one. If it holds a newer
+     * link's, this click is for a link that no longer exists, and is dropped.
+     *
+     * @param createdAt      the link's createdAt
+     * @param cacheable      the link is browser-cacheable (also count cacheableClicks)
+     * @param sampleWeight   added to cacheSampleWeight (0 unless a control-group visitor)
+     * @param destinationUrl the weighted destination redirected to, or null
+     */
+    public void increment(String keyword, String createdAt, int shard, boolean cacheable, long sampleWeight,
+                          String destinationUrl) {
+        String id = shardId(keyword, shard);
+        try {
+            incrementOnce(id, keyword, createdAt, cacheable, sampleWeight, destinationUrl);
+        } catch (ConditionalCheckFailedException e) {
+            if (deleteIfOlder(id, createdAt)) {
+                try {
+                    incrementOnce(id, keyword, createdAt, cacheable, sampleWeight, destinationUrl);
+                } catch (ConditionalCheckFailedException again) {
+                    // recreated for a newer link in between: as below
+                }
+            }
+        }
+    }
+
+    private void incrementOnce(String id, String keyword, String createdAt, boolean cacheable,
+                               long sampleWeight, String destinationUrl) {
+        StringBuilder expression = new StringBuilder(
+                "SET keyword = :keyword, createdAt = :createdAt, clickCount = if_not_exists(clickCount, :zero) + :one");
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":keyword", AttributeValue.builder().s(keyword).build());
+        values.put(":createdAt", AttributeValue.builder().s(createdAt).build());
+        values.put(":zero", number(0));
+        values.put(":one", number(1));
+        if (cacheable) {
+            expression.append(", cacheableClicks = if_not_exists(cacheableClicks, :zero) + :one")
+                    .append(", cacheSampleWeight = if_not_exists(cacheSampleWeight, :zero) + :weight");
+            values.put(":weight", number(sampleWeight));
+        }
+        if (destinationUrl != null) {
+            expression.append(", #d = if_not_exists(#d, :zero) + :one");
+            names.put("#d", destinationAttribute(destinationUrl));
+        }
+        client.updateItem(b -> b
+                .tableName(tableName)
+                .key(keyOf(id))
+                .updateExpression(expression.toString())
+                // A shard written before shards carried createdAt adopts the current link
+                .conditionExpression("attribute_not_exists(createdAt) OR createdAt = :createdAt")
+                .expressionAttributeNames(names.isEmpty() ? null : names)
+                .expressionAttributeValues(values));
+    }
+
+    /**
+     * Delete a shard that counts for a link created before {@code createdAt}.
+     *
+     * @return false if it counts for this link or a newer one (or is already gone)
+     */
+    private boolean deleteIfOlder(String id, String createdAt) {
+        try {
+            client.deleteItem(b -> b
+                    .tableName(tableName)
+                    .key(keyOf(id))
+                    .conditionExpression("createdAt < :createdAt")
+                    .expressionAttributeValues(Map.of(":createdAt", AttributeValue.builder().s(createdAt).build())));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Every shard in the table.
+     */
+    public List<Shard> findAll() {
+        List<Shard> shards = new ArrayList<>();
+        Map<String, AttributeValue> startKey = null;
+        do {
+            ScanRequest.Builder request = ScanRequest.builder().tableName(tableName);
+            if (startKey != null) {
+                request.exclusiveStartKey(startKey);
+            }
+            ScanResponse response = client.scan(request.build());
+            response.items().forEach(item -> shards.add(toShard(item)));
+            startKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? response.lastEvaluatedKey() : null;
+        } while (startKey != null);
+        return shards;
+    }
+
+    /**
+     * Move a shard's counts (as read by findAll) into its link, in one transaction:
+     *
+     *   shard: SET clickCount = clickCount - :c, ...   IF clickCount >= :c AND ...
+     *   link:  SET clickCount = clickCount + :c, ...   IF the link exists with the
+     *                                                  shard's createdAt, and each
+     *                                                  destination is still at its index
+     *
+     * Clicks that arrived after the read stay in the shard for the next fold.
+     * Destination clicks whose URL is no longer one of the link's destinations are
+     * dropped, as incrementClickCount does when destinations are edited.
+     *
+     * @param link the shard's link as read (createdAt and destinations are used)
+     */
+    public FoldResult fold(Shard shard, Link link) {
+        if (shard.createdAt() != null && !shard.createdAt().equals(link.getCreatedAt())) {
+            return FoldResult.OTHER_LINK;
+        }
+        List<Destination> destinations = link.getDestinations();
+        List<String> subtract = new ArrayList<>();
+        List<String> shardConditions = new ArrayList<>();
+        List<String> add = new ArrayList<>();
+        List<String> linkConditions = new ArrayList<>();
+        linkConditions.add("attribute_exists(keyword)");
+        if (shard.createdAt() != null) {
+            linkConditions.add("createdAt = :createdAt");
+        }
+        Map<String, String> shardNames = new HashMap<>();
+        Map<String, AttributeValue> shardValues = new HashMap<>();
+        Map<String, String> linkNames = new HashMap<>();
+        Map<String, AttributeValue> linkValues = new HashMap<>();
+        linkValues.put(":zero", number(0));
+        if (shard.createdAt() != null) {
+            linkValues.put(":createdAt", AttributeValue.builder().s(shard.createdAt()).build());
+        }
+
+        Map<String, Long> counters = new HashMap<>();
+        counters.put("clickCount", shard.clicks());
+        counters.put("cacheableClicks", shard.cacheableClicks());
+        counters.put("cacheSampleWeight", shard.cacheSampleWeight());
+        int n = 0;
+        for (Map.Entry<String, Long> counter : counters.entrySet()) {
+            if (counter.getValue() == 0) {
+                continue;
+            }
+            String value = ":v" + n++;
+            subtract.add(counter.getKey() + " = " + counter.getKey() + " - " + value);
+            shardConditions.add(counter.getKey() + " >= " + value);
+            shardValues.put(value, number(counter.getValue()));
+            add.add(counter.getKey() + " = if_not_exists(" + counter.getKey() + ", :zero) + " + value);
+            linkValues.put(value, number(counter.getValue()));
+        }
+        for (Map.Entry<String, Long> counter : shard.destinationClicks().entrySet()) {
+            if (counter.getValue() == 0) {
+                continue;
+            }
+            String name = "#d" + n;
+            String value = ":v" + n++;
+            subtract.add(name + " = " + name + " - " + value);
+            shardConditions.add(name + " >= " + value);
+            shardNames.put(name, counter.getKey());
+            shardValues.put(value, number(counter.getValue()));
+            int index = indexOf(destinations, counter.getKey());
+            if (index >= 0) {
+                String path = "destinations[" + index + "]";
+                String url = ":url" + index;
+                add.add(path + ".clickCount = if_not_exists(" + path + ".clickCount, :zero) + " + value);
+                linkConditions.add(path + ".#url = " + url);
+                linkNames.put("#url", "url");
+                linkValues.put(value, number(counter.getValue()));
+                linkValues.put(url, AttributeValue.builder().s(destinations.get(index).getUrl()).build());
+            }
+        }
+        if (subtract.isEmpty()) {
+            return FoldResult.FOLDED;
+        }
+
+        List<TransactWriteItem> items = new ArrayList<>();
+        items.add(TransactWriteItem.builder().update(u -> u
+                .tableName(tableName)
+                .key(keyOf(shard.id()))
+                .updateExpression("SET " + String.join(", ", subtract))
+                .conditionExpression(String.join(" AND ", shardConditions))
+                .expressionAttributeNames(shardNames.isEmpty() ? null : shardNames)
+                .expressionAttributeValues(shardValues)).build());
+        if (!add.isEmpty()) {
+            items.add(TransactWriteItem.builder().update(u -> u
+                    .tableName(linksTableName)
+                    .key(Map.of("keyword", AttributeValue.builder().s(shard.keyword()).build()))
+                    .updateExpression("SET " + String.join(", ", add))
+                    .conditionExpression(String.join(" AND ", linkConditions))
+                    .expressionAttributeNames(linkNames.isEmpty() ? null : linkNames)
+                    .expressionAttributeValues(linkValues)).build());
+        }
+        try {
+            client.transactWriteItems(b -> b.transactItems(items));
+            return FoldResult.FOLDED;
+        } catch (TransactionCanceledException e) {
+            return FoldResult.CONFLICT;
+        }
+    }
+
+    /**
+     * Delete a shard if no click has been counted in it since it was last folded
+     * (every click increments clickCount, so clickCount = 0 means nothing is left).
+     */
+    public void deleteIfEmpty(String id) {
+        try {
+            client.deleteItem(b -> b
+                    .tableName(tableName)
+                    .key(keyOf(id))
+                    .conditionExpression("clickCount = :zero")
+                    .expressionAttributeValues(Map.of(":zero", number(0))));
+        } catch (ConditionalCheckFailedException e) {
+            // clicked again in the meantime; folded next time
+        }
+    }
+
+    /**
+     * Delete a shard outright (its link no longer exists).
+     */
+    public void delete(String id) {
+        client.deleteItem(b -> b.tableName(tableName).key(keyOf(id)));
+    }
+
+    /**
+     * Delete a keyword's shards 0 .. shards-1 (e.g. when the keyword is reused for a
+     * new link, which mustn't inherit the old one's clicks).
+     */
+    public void deleteAll(String keyword, int shards) {
+        for (int shard = 0; shard < shards; shard++) {
+            delete(shardId(keyword, shard));
+        }
+    }
+
+    /**
+     * The shard attribute holding clicks on a destination. Keyed by URL, not list
+     * position, since positions change when destinations are edited.
+     */
+    public static String destinationAttribute(String url) {
+        return DESTINATION_PREFIX + Integer.toUnsignedString(url.hashCode(), 36);
+    }
+
+    private static int indexOf(List<Destination> destinations, String attribute) {
+        if (destinations == null) {
+            return -1;
+        }
+        for (int i = 0; i < destinations.size(); i++) {
+            if (destinationAttribute(destinations.get(i).getUrl()).equals(attribute)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Shard toShard(Map<String, AttributeValue> item) {
+        Map<String, Long> destinationClicks = new HashMap<>();
+        item.forEach((name, value) -> {
+            if (name.startsWith(DESTINATION_PREFIX)) {
+                destinationClicks.put(name, Long.parseLong(value.n()));
+            }
+        });
+        AttributeValue createdAt = item.get("createdAt");
+        return new Shard(item.get("id").s(), item.get("keyword").s(), createdAt == null ? null : createdAt.s(),
+                longOf(item, "clickCount"),
+                longOf(item, "cacheableClicks"), longOf(item, "cacheSampleWeight"), destinationClicks);
+    }
+
+    private static long longOf(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        return value == null || value.n() == null ? 0 : Long.parseLong(value.n());
+    }
+
+    private static String shardId(String keyword, int shard) {
+        return keyword + "#" + shard;
+    }
+
+    private static Map<String, AttributeValue> keyOf(String id) {
+        return Map.of("id", AttributeValue.builder().s(id).build());
+    }
+
+    private static AttributeValue number(long n) {
+        return AttributeValue.builder().n(Long.toString(n)).build();
+    }
+}
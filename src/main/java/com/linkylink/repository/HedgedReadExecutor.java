@@ -0,0 +1,250 @@
+package com.linkylink.repository;
+
+import com.linkylink.util.LatencyTracker;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs idempotent reads as "hedged requests" to cut tail latency.
+ *
+ * The idea (from "The Tail at Scale"):
+ *   1. Send the read as usual.
+ *   2. If it hasn't answered by the time 95% of reads normally have (the observed p95),
+ *      send a second, identical read.
+ *   3. Use whichever answers first and cancel the other.
+ *
+ * Since only the slowest ~5% of reads get a second copy, the extra load is small,
+ * but the occasional 200 ms DynamoDB hiccup no longer reaches the user.
+ *
+ * Safety rails:
+ *   - Budget: a token bucket caps hedges to a fixed fraction of reads
+ *     (default 5%), so a DynamoDB-wide slowdown can't double our traffic.
+ *   - Deadline: the caller never waits longer than {@code deadline-ms} in total.
+ *   - Bounded pool: if all worker threads are busy, the read runs on the caller's
+ *     thread without hedging instead of queueing.
+ *
+ * Only use this for reads — a hedged write could be applied twice.
+ * The supplier is plain Java, so this works against any stand-in that injects latency.
+ */
+@Component
+public class HedgedReadExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(HedgedReadExecutor.class);
+
+    // Budget is tracked in milli-tokens so fractional deposits stay integer math
+    private static final long TOKEN = 1000;
+    private static final long MAX_BUDGET = 10 * TOKEN;
+    private static final long MIN_SAMPLES = 100;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long defaultDelayNanos;
+    private final long deadlineNanos;
+    private final long depositPerCall;
+
+    private final LatencyTracker latency = new LatencyTracker(Duration.ofSeconds(10));
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong budget = new AtomicLong(MAX_BUDGET);
+
+    private final LongAdder hedgesSent = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+    private final LongAdder hedgesDenied = new LongAdder();
+
+    public HedgedReadExecutor(@Value("${linkylink.hedge.enabled:true}") boolean enabled,
+                              @Value("${linkylink.hedge.percentile:0.95}") double percentile,
+                              @Value("${linkylink.hedge.min-delay-ms:5}") long minDelayMs,
+                              @Value("${linkylink.hedge.default-delay-ms:50}") long defaultDelayMs,
+                              @Value("${linkylink.hedge.deadline-ms:1500}") long deadlineMs,
+                              @Value("${linkylink.hedge.budget-ratio:0.05}") double budgetRatio,
+                              @Value("${linkylink.hedge.threads:32}") int threads) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMs);
+        this.defaultDelayNanos = TimeUnit.MILLISECONDS.toNanos(defaultDelayMs);
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        this.depositPerCall = Math.round(budgetRatio * TOKEN);
+
+        // SynchronousQueue = no queueing: either a thread is free right now, or we reject
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "dynamo-hedge-" + threadIds.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Run an idempotent read, hedging it if it is slower than the observed p95.
+     */
+    public <T> T read(Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        depositBudget();
+        long start = System.nanoTime();
+
+        CompletableFuture<T> primary;
+        try {
+            primary = submit(call);
+        } catch (RejectedExecutionException e) {
+            // Pool saturated — just do the read ourselves, no hedge
+            return timed(call);
+        }
+
+        CompletableFuture<T> hedge = null;
+        try {
+            try {
+                return primary.get(hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException slow) {
+                hedge = tryHedge(call);
+            }
+
+            CompletableFuture<T> winner = hedge == null ? primary : firstSuccessful(primary, hedge);
+            long remaining = deadlineNanos - (System.nanoTime() - start);
+            return winner.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw ApiCallTimeoutException.create(TimeUnit.NANOSECONDS.toMillis(deadlineNanos));
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } finally {
+            // No-ops for the attempt that already finished
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    public long getHedgesSent() {
+        return hedgesSent.sum();
+    }
+
+    public long getHedgesWon() {
+        return hedgesWon.sum();
+    }
+
+    public long getHedgesDenied() {
+        return hedgesDenied.sum();
+    }
+
+    /**
+     * Current hedge delay: the observed percentile, or a default until we have enough samples.
+     */
+    public long hedgeDelayNanos() {
+        long observed = latency.percentileNanos(percentile, MIN_SAMPLES);
+        return Math.max(minDelayNanos, observed < 0 ? defaultDelayNanos : observed);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(CapacityAccounting.propagatingSupplier(() -> timed(call)), executor);
+    }
+
+    private <T> T timed(Supplier<T> call) {
+        long t0 = System.nanoTime();
+        T result = call.get();
+        latency.record(System.nanoTime() - t0);
+        return result;
+    }
+
+    private <T> CompletableFuture<T> tryHedge(Supplier<T> call) {
+        if (!withdrawBudget()) {
+            hedgesDenied.increment();
+            return null;
+        }
+        try {
+            CompletableFuture<T> hedge = submit(call);
+            hedgesSent.increment();
+            return hedge;
+        } catch (RejectedExecutionException e) {
+            hedgesDenied.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Complete with the first attempt that succeeds; fail only if both fail.
+     */
+    private <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> primary,
+                                                     CompletableFuture<T> hedge) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        primary.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(error);
+            }
+        });
+        hedge.whenComplete((value, error) -> {
+            if (error == null) {
+                if (result.complete(value)) {
+                    hedgesWon.increment();
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    private void depositBudget() {
+        budget.getAndUpdate(b -> Math.min(MAX_BUDGET, b + depositPerCall));
+    }
+
+    private boolean withdrawBudget() {
+        while (true) {
+            long current = budget.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (budget.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        log.debug("Hedged read failed with checked exception", cause);
+        return new CompletionException(cause);
+    }
+}
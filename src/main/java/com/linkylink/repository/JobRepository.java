@@ -0,0 +1,47 @@
+package com.linkylink.repository;
+
+import com.linkylink.model.Job;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.util.List;
+
+/**
+ * Repository for background jobs (see Job).
+ *
+ * The jobs table stays tiny (one row per admin action), so listing is a plain scan.
+ */
+@Repository
+public class JobRepository {
+
+    private final DynamoDbTable<Job> table;
+
+    public JobRepository(DynamoDbEnhancedClient enhancedClient,
+                         @Value("${aws.dynamodb.table.jobs}") String tableName) {
+        this.table = enhancedClient.table(tableName, TableSchema.fromBean(Job.class));
+    }
+
+    public Job findById(String id) {
+        return table.getItem(Key.builder().partitionValue(id).build());
+    }
+
+    /**
+     * Save a job, conditional on its version (optimistic locking). On success the
+     * job's version is advanced to match the stored item.
+     *
+     * @throws software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException
+     *         if someone else saved the job since it was read
+     */
+    public void save(Job job) {
+        Job stored = table.updateItem(job);
+        job.setVersion(stored.getVersion());
+    }
+
+    public List<Job> findAll() {
+        return table.scan().items().stream().toList();
+    }
+}
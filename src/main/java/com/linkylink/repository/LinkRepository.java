@@ -1,16 +1,39 @@
 package com.linkylink.repository;
 
+import com.linkylink.jfr.RepositoryEvent;
 import com.linkylink.model.Link;
+import com.linkylink.util.CircuitBreaker;
+import com.linkylink.util.UrlNormalizer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
 import software.amazon.awssdk.enhanced.dynamodb.*;
-import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
-import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.*;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Repository for Link CRUD operations against DynamoDB.
@@ -18,70 +41,830 @@ import java.util.Map;
  * Uses two clients:
  *   - Enhanced Client: For standard CRUD (get, put, delete, scan)
  *   - Low-level Client: For the atomic click counter increment
+ *
+ * Redirect lookups go through a HedgedReadExecutor, which re-sends a slow
+ * GetItem so DynamoDB's tail latency doesn't become the user's wait.
+ *
+ * Full-table reads go through a ParallelScanner, which splits the scan into
+ * segments that are read concurrently.
+ *
+ * Expired links (see Link.expiresAt) can linger in the table until DynamoDB's TTL
+ * sweeper deletes them, so listing scans filter them out on the server side.
+ *
+ * "Links to URL X" is a Query on the urlHash-index GSI (see Link, UrlNormalizer).
+ *
+ * "Links owned by X" is a Query on the ownerUsername-index GSI (see Link). Bulk
+ * changes to those links (deleteBatch, reassignBatch) are done 25 items per
+ * transaction, each conditional on the link's owner, and report the write
+ * capacity they consumed so callers can throttle.
+ *
+ * Circuit breaker: the redirect and API paths (and the background scans) go through
+ * a CircuitBreaker. When enough of them fail because DynamoDB is unreachable, timing
+ * out, throttling or erroring, it opens and further calls throw
+ * BackendUnavailableException at once instead of each waiting for the SDK to give up;
+ * LinkService then serves redirects from the last values it saw. A failed condition
+ * or a validation error means DynamoDB answered, so it doesn't count. The batch
+ * methods used by background jobs aren't guarded: JobService already backs off and
+ * retries when they're throttled.
+ *
+ * Every public call is timed as a JFR RepositoryEvent (operation, key, outcome), so
+ * a recording shows which DynamoDB calls were slow, and when.
  */
 @Repository
 public class LinkRepository {
 
+    private static final Logger log = LoggerFactory.getLogger(LinkRepository.class);
+
+    /**
+     * Outcome of a batch write: items DynamoDB didn't get to (throttled — retry them),
+     * items skipped because a condition no longer held, and the write units consumed.
+     */
+    public record BatchResult(List<String> unprocessed, List<String> skipped, double consumedUnits) {
+    }
+
+    /**
+     * Links created in a time range, newest first. next, if not null, is where to
+     * continue (as the next call's {@code before}): the range has more links than
+     * were returned, or has days not looked at yet.
+     */
+    public record CreatedPage(List<Link> links, String next) {
+    }
+
+    /**
+     * A new URL for a link, and for each of its destinations (both lists null for a
+     * link without destinations), next to the values they replace.
+     */
+    public record UrlChange(String oldUrl, String newUrl,
+                            List<String> oldDestinationUrls, List<String> newDestinationUrls) {
+    }
+
+    // Attributes fetched by findAllSummaries() — enough to list or index links
+    private static final String[] SUMMARY_ATTRIBUTES = {"keyword", "url", "ownerUsername"};
+    // What an edit (LinkService.update) writes, besides destinations; urlHash and ttl are derived
+    private static final List<String> EDITED_ATTRIBUTES = List.of(
+            "url", "urlHash", "description", "expiresAt", "ttl", "redirectStatus", "cacheMaxAge");
+
     private final DynamoDbTable<Link> table;
     private final DynamoDbClient lowLevelClient;
     private final String tableName;
+    private final HedgedReadExecutor hedgedReads;
+    private final ParallelScanner scanner;
+    private final CircuitBreaker breaker;
+    private final boolean breakerEnabled;
 
     public LinkRepository(DynamoDbEnhancedClient enhancedClient,
                             DynamoDbClient lowLevelClient,
-                            @Value("${aws.dynamodb.table.links}") String tableName) {
+                            HedgedReadExecutor hedgedReads,
+                            ParallelScanner scanner,
+                            @Value("${aws.dynamodb.table.links}") String tableName,
+                            @Value("${linkylink.breaker.enabled:true}") boolean breakerEnabled,
+                            @Value("${linkylink.breaker.failure-rate:0.5}") double failureRate,
+                            @Value("${linkylink.breaker.min-calls:20}") int minCalls,
+                            @Value("${linkylink.breaker.window-seconds:10}") long windowSeconds,
+                            @Value("${linkylink.breaker.open-seconds:10}") long openSeconds) {
         this.table = enhancedClient.table(tableName, TableSchema.fromBean(Link.class));
         this.lowLevelClient = lowLevelClient;
+        this.hedgedReads = hedgedReads;
+        this.scanner = scanner;
         this.tableName = tableName;
+        this.breakerEnabled = breakerEnabled;
+        this.breaker = new CircuitBreaker(failureRate, minCalls, windowSeconds, openSeconds, TimeUnit.SECONDS);
     }
 
     /**
      * Find a go link by keyword (partition key lookup — very fast).
      */
     public Link findByKeyword(String keyword) {
+        return guarded("findByKeyword", keyword, () -> getItem(keyword));
+    }
+
+    /**
+     * Same lookup as findByKeyword, but hedged: if DynamoDB is slower than usual,
+     * a second GetItem is sent and the first answer wins.
+     * Used on the redirect path, where a user is staring at a blank tab.
+     */
+    public Link findByKeywordHedged(String keyword) {
+        return guarded("findByKeywordHedged", keyword, () -> hedgedReads.read(() -> getItem(keyword)));
+    }
+
+    private Link getItem(String keyword) {
         return table.getItem(Key.builder().partitionValue(keyword).build());
     }
 
     /**
-     * Save a go link (creates new or overwrites existing).
+     * Save a new go link, unless its keyword is taken. A keyword is free if there's
+     * no item, or only an expired one (which DynamoDB's TTL sweep hasn't deleted yet).
+     *
+     * The check is part of the PutItem, so of two concurrent creates of the same
+     * keyword exactly one wins; a check before the write can't promise that.
+     *
+     * @return false if the keyword is taken (nothing was written)
+     */
+    public boolean create(Link link) {
+        Expression free = Expression.builder()
+                .expression("attribute_not_exists(keyword) OR #ttl <= :now")
+                .putExpressionName("#ttl", "ttl")
+                .putExpressionValue(":now", AttributeValue.builder()
+                        .n(Long.toString(Instant.now().getEpochSecond())).build())
+                .build();
+        return guarded("create", link.getKeyword(), () -> {
+            try {
+                table.putItem(PutItemEnhancedRequest.builder(Link.class).item(link).conditionExpression(free).build());
+                return true;
+            } catch (ConditionalCheckFailedException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Write an edited go link: one UpdateItem that SETs the edited attributes that
+     * have a value and REMOVEs those that don't. clickCount and the other counters
+     * aren't part of it, so clicks counted while the edit was in flight survive and
+     * there's nothing to check or retry. Destinations are written only if
+     * {@code destinationsEdited}: their per-destination click counts are carried over
+     * from the read, so an unchanged list is better left alone.
+     *
+     * @return the link as now stored, or null if it was deleted in the meantime
      */
-    public void save(Link link) {
-        table.putItem(link);
+    public Link update(Link link, boolean destinationsEdited) {
+        List<String> attributes = new ArrayList<>(EDITED_ATTRIBUTES);
+        if (destinationsEdited) {
+            attributes.add("destinations");
+        }
+        Map<String, AttributeValue> item = table.tableSchema().itemToMap(link, attributes);
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        List<String> set = new ArrayList<>();
+        List<String> remove = new ArrayList<>();
+        for (int i = 0; i < attributes.size(); i++) {
+            // Placeholders for all: url and ttl are reserved words
+            names.put("#a" + i, attributes.get(i));
+            AttributeValue value = item.get(attributes.get(i));
+            if (value == null || Boolean.TRUE.equals(value.nul())) {
+                remove.add("#a" + i);
+            } else {
+                values.put(":a" + i, value);
+                set.add("#a" + i + " = :a" + i);
+            }
+        }
+        String update = "SET " + String.join(", ", set)
+                + (remove.isEmpty() ? "" : " REMOVE " + String.join(", ", remove));
+        return guarded("update", link.getKeyword(), () -> {
+            try {
+                UpdateItemResponse response = lowLevelClient.updateItem(b -> b
+                        .tableName(tableName)
+                        .key(keyOf(link.getKeyword()))
+                        .updateExpression(update)
+                        .conditionExpression("attribute_exists(keyword)")
+                        .expressionAttributeNames(names)
+                        .expressionAttributeValues(values)
+                        .returnValues(ReturnValue.ALL_NEW));
+                return table.tableSchema().mapToItem(response.attributes());
+            } catch (ConditionalCheckFailedException e) {
+                return null;
+            }
+        });
     }
 
     /**
      * Delete a go link by keyword.
      */
     public void delete(String keyword) {
-        table.deleteItem(Key.builder().partitionValue(keyword).build());
+        guarded("delete", keyword, () -> table.deleteItem(Key.builder().partitionValue(keyword).build()));
     }
 
     /**
-     * Get ALL go links (full table scan).
+     * Get ALL unexpired go links (parallel full table scan).
      */
     public List<Link> findAll() {
-        return table.scan().items().stream().toList();
+        return guarded("findAll", null, () -> scanner.scanAll(table, request -> request.filterExpression(notExpired())));
     }
 
     /**
-     * Find all go links owned by a specific user.
-     *
-     * Uses a scan with a filter expression. This reads every item in the table
-     * and filters on the server side. Fine for small tables (<1000 items).
+     * Get ALL go links, but only the keyword, url and ownerUsername attributes.
+     * Cheaper than findAll() for callers that don't need descriptions or counters.
+     */
+    public List<Link> findAllSummaries() {
+        return guarded("findAllSummaries", null, () -> scanner.scanAll(table, request -> request
+                .filterExpression(notExpired())
+                .attributesToProject(SUMMARY_ATTRIBUTES)));
+    }
+
+    /**
+     * Stream every go link through {@code sink} without holding the whole table in memory.
+     * Only the given attributes are fetched (pass none to fetch full items).
+     */
+    public void forEach(Consumer<Link> sink, String... attributes) {
+        guarded("forEach", null, () -> scanner.forEach(table, request -> {
+            if (attributes.length > 0) {
+                request.attributesToProject(attributes);
+            }
+        }, sink));
+    }
+
+    /**
+     * Stream every go link that has an expiry time (expired or not), fetching only
+     * keyword and expiresAt.
+     */
+    public void forEachExpiring(Consumer<Link> sink) {
+        Expression hasTtl = Expression.builder()
+                .expression("attribute_exists(#ttl)")
+                .putExpressionName("#ttl", "ttl")
+                .build();
+        guarded("forEachExpiring", null, () -> scanner.forEach(table, request -> request
+                .filterExpression(hasTtl)
+                .attributesToProject("keyword", "expiresAt"), sink));
+    }
+
+    /**
+     * Find all unexpired go links owned by a specific user.
      *
-     * For better performance at scale, you'd add a Global Secondary Index (GSI)
-     * on ownerUsername — but for a personal project, scan is perfectly fine.
+     * A Query on the ownerUsername GSI reads only that user's items. While the index
+     * is still being built (it's added to existing tables in the background, and
+     * backfilling a big table takes a while), DynamoDB rejects queries on it, so we
+     * fall back to a filtered scan of the whole table.
      */
     public List<Link> findByOwner(String username) {
+        return guarded("findByOwner", username, () -> findByOwnerUnguarded(username));
+    }
+
+    private List<Link> findByOwnerUnguarded(String username) {
+        try {
+            List<Link> links = new ArrayList<>();
+            queryByOwner(username, 0, notExpired()).forEach(page -> links.addAll(page.items()));
+            return links;
+        } catch (DynamoDbException e) {
+            if (!isIndexUnavailable(e)) {
+                throw e;
+            }
+            log.debug("Owner index unavailable ({}), scanning instead", e.getMessage());
+        }
+
         Expression filterExpression = Expression.builder()
                 .expression("ownerUsername = :owner")
                 .putExpressionValue(":owner", AttributeValue.builder().s(username).build())
                 .build();
 
-        ScanEnhancedRequest request = ScanEnhancedRequest.builder()
-                .filterExpression(filterExpression)
+        return scanner.scanAll(table, request -> request
+                .filterExpression(Expression.join(filterExpression, notExpired(), " AND ")));
+    }
+
+    /**
+     * Find all unexpired go links whose normalized URL hashes to {@code urlHash}
+     * (see UrlNormalizer.hash), with a Query on the urlHash GSI. Like findByOwner,
+     * falls back to a filtered scan while the index is still being built.
+     */
+    public List<Link> findByUrlHash(String urlHash) {
+        return guarded("findByUrlHash", urlHash, () -> {
+            try {
+                List<Link> links = new ArrayList<>();
+                table.index(Link.URL_INDEX)
+                        .query(QueryEnhancedRequest.builder()
+                                .queryConditional(QueryConditional.keyEqualTo(k -> k.partitionValue(urlHash)))
+                                .filterExpression(notExpired())
+                                .build())
+                        .forEach(page -> links.addAll(page.items()));
+                return links;
+            } catch (DynamoDbException e) {
+                if (!isIndexUnavailable(e)) {
+                    throw e;
+                }
+                log.debug("URL index unavailable ({}), scanning instead", e.getMessage());
+            }
+            Expression filterExpression = Expression.builder()
+                    .expression("urlHash = :hash")
+                    .putExpressionValue(":hash", AttributeValue.builder().s(urlHash).build())
+                    .build();
+            return scanner.scanAll(table, request -> request
+                    .filterExpression(Expression.join(filterExpression, notExpired(), " AND ")));
+        });
+    }
+
+    /**
+     * Unexpired links created after {@code since} and before {@code before} (both
+     * exclusive, Link.timestamp() strings; before may be null for "now"), newest
+     * first, at most {@code limit} of them.
+     *
+     * Reads the createdDay GSI one day at a time, from the newest day back: a Query
+     * per day, in descending createdAt order, stopping as soon as enough links are
+     * found. A long range with few links would mean many empty days, so at most
+     * {@code maxDays} days are read per call; the page's next cursor says where to
+     * go on. Like findByOwner, falls back to a filtered scan while the index is
+     * still being built.
+     */
+    public CreatedPage findCreatedBetween(String since, String before, int limit, int maxDays) {
+        return guarded("findCreatedBetween", since, () -> {
+            try {
+                return queryCreatedBetween(since, before, limit, maxDays);
+            } catch (DynamoDbException e) {
+                if (!isIndexUnavailable(e)) {
+                    throw e;
+                }
+                log.debug("Created index unavailable ({}), scanning instead", e.getMessage());
+            }
+            Expression range = Expression.builder()
+                    .expression("createdAt > :since AND createdAt < :before")
+                    .putExpressionValue(":since", AttributeValue.builder().s(since).build())
+                    .putExpressionValue(":before", AttributeValue.builder()
+                            .s(before != null ? before : Link.timestamp(Instant.now().plus(1, ChronoUnit.DAYS)))
+                            .build())
+                    .build();
+            List<Link> links = new ArrayList<>(scanner.scanAll(table, request -> request
+                    .filterExpression(Expression.join(range, notExpired(), " AND "))));
+            links.sort(Comparator.comparing(Link::getCreatedAt).reversed());
+            if (links.size() < limit) {
+                return new CreatedPage(links, null);
+            }
+            return new CreatedPage(List.copyOf(links.subList(0, limit)), links.get(limit - 1).getCreatedAt());
+        });
+    }
+
+    private CreatedPage queryCreatedBetween(String since, String before, int limit, int maxDays) {
+        // A before of exactly midnight starts on the day before it
+        LocalDate day = before == null
+                ? LocalDate.now(ZoneOffset.UTC)
+                : LocalDate.ofInstant(Instant.parse(before).minus(1, ChronoUnit.MICROS), ZoneOffset.UTC);
+        LocalDate firstDay = LocalDate.ofInstant(Instant.parse(since), ZoneOffset.UTC);
+        List<Link> links = new ArrayList<>();
+        for (int days = 0; days < maxDays && !day.isBefore(firstDay); days++, day = day.minusDays(1)) {
+            String createdDay = day.toString();
+            QueryConditional condition;
+            if (before != null && before.startsWith(createdDay)) {
+                condition = QueryConditional.sortLessThan(k -> k.partitionValue(createdDay).sortValue(before));
+            } else if (since.startsWith(createdDay)) {
+                condition = QueryConditional.sortGreaterThan(k -> k.partitionValue(createdDay).sortValue(since));
+            } else {
+                condition = QueryConditional.keyEqualTo(k -> k.partitionValue(createdDay));
+            }
+            Iterator<Link> items = table.index(Link.CREATED_INDEX)
+                    .query(QueryEnhancedRequest.builder()
+                            .queryConditional(condition)
+                            .scanIndexForward(false)
+                            .filterExpression(notExpired())
+                            .limit(limit - links.size())
+                            .build())
+                    .stream()
+                    .flatMap(page -> page.items().stream())
+                    .iterator();
+            while (items.hasNext()) {
+                Link link = items.next();
+                if (link.getCreatedAt().compareTo(since) <= 0) {
+                    return new CreatedPage(links, null);
+                }
+                links.add(link);
+                if (links.size() == limit) {
+                    return new CreatedPage(links, link.getCreatedAt());
+                }
+            }
+        }
+        if (day.isBefore(firstDay)) {
+            return new CreatedPage(links, null);
+        }
+        // Out of days to read: continue before the start of the last day read
+        return new CreatedPage(links, Link.timestamp(day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant()));
+    }
+
+    /**
+     * Stream every go link that was saved without a urlHash (before the URL index
+     * existed), fetching only keyword and url.
+     */
+    public void forEachWithoutUrlHash(Consumer<Link> sink) {
+        Expression noHash = Expression.builder()
+                .expression("attribute_not_exists(urlHash) AND attribute_exists(#url)")
+                .putExpressionName("#url", "url")
                 .build();
+        traced("forEachWithoutUrlHash", null, () -> scanner.forEach(table, request -> request
+                .filterExpression(noHash)
+                .attributesToProject("keyword", "url"), sink));
+    }
 
-        return table.scan(request).items().stream().toList();
+    /**
+     * Write the urlHash of up to 25 links, one UpdateItem each, each conditional on
+     * the link still having the URL it was hashed from. Links whose URL changed are
+     * skipped (their save wrote the new hash); on throttling, the rest are returned
+     * as unprocessed.
+     *
+     * @param urls each keyword's URL, as read
+     */
+    public BatchResult setUrlHashes(List<String> keywords, Map<String, String> urls) {
+        return traced("setUrlHashes", null,
+                () -> writeDerived(keywords, "urlHash", "url", urls, UrlNormalizer::hash));
+    }
+
+    /**
+     * Stream every go link that was saved without a createdDay (before the recent
+     * links index existed), fetching only keyword and createdAt.
+     */
+    public void forEachWithoutCreatedDay(Consumer<Link> sink) {
+        Expression noDay = Expression.builder()
+                .expression("attribute_not_exists(createdDay) AND attribute_exists(createdAt)")
+                .build();
+        traced("forEachWithoutCreatedDay", null, () -> scanner.forEach(table, request -> request
+                .filterExpression(noDay)
+                .attributesToProject("keyword", "createdAt"), sink));
+    }
+
+    /**
+     * Write the createdDay of up to 25 links, like setUrlHashes: each update is
+     * conditional on the link still having the createdAt it was derived from (a
+     * keyword deleted and created again meanwhile is skipped).
+     *
+     * @param createdAts each keyword's createdAt, as read
+     */
+    public BatchResult setCreatedDays(List<String> keywords, Map<String, String> createdAts) {
+        return traced("setCreatedDays", null,
+                () -> writeDerived(keywords, "createdDay", "createdAt", createdAts, createdAt -> createdAt.substring(0, 10)));
+    }
+
+    /**
+     * Set {@code attribute} to {@code derive(source value)} on each link, one
+     * UpdateItem each, conditional on the source attribute still having the value
+     * it was derived from. Links where it changed are skipped; on throttling, the
+     * rest are returned as unprocessed.
+     */
+    private BatchResult writeDerived(List<String> keywords, String attribute, String sourceAttribute,
+                                     Map<String, String> sources, Function<String, String> derive) {
+        List<String> skipped = new ArrayList<>();
+        double units = 0;
+        for (int i = 0; i < keywords.size(); i++) {
+            String keyword = keywords.get(i);
+            String source = sources.get(keyword);
+            try {
+                UpdateItemResponse response = lowLevelClient.updateItem(b -> b
+                        .tableName(tableName)
+                        .key(keyOf(keyword))
+                        .updateExpression("SET #attr = :derived")
+                        .conditionExpression("#source = :source")
+                        .expressionAttributeNames(Map.of("#attr", attribute, "#source", sourceAttribute))
+                        .expressionAttributeValues(Map.of(
+                                ":derived", AttributeValue.builder().s(derive.apply(source)).build(),
+                                ":source", AttributeValue.builder().s(source).build()))
+                        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+                if (response.consumedCapacity() != null) {
+                    units += consumedUnits(List.of(response.consumedCapacity()));
+                }
+            } catch (ConditionalCheckFailedException e) {
+                skipped.add(keyword);
+            } catch (DynamoDbException e) {
+                if (!e.isThrottlingException()) {
+                    throw e;
+                }
+                return new BatchResult(keywords.subList(i, keywords.size()), skipped, units);
+            }
+        }
+        return new BatchResult(List.of(), skipped, units);
+    }
+
+    /**
+     * Stream every go link (expired or not) that may have a URL starting with
+     * {@code urlPrefix}, fetching only keyword, url and destinations. Links with
+     * destinations are always included, since their other destinations can't be
+     * filtered on. A null prefix streams every link.
+     */
+    public void forEachUrl(String urlPrefix, Consumer<Link> sink) {
+        Expression filter = urlPrefix == null ? null : Expression.builder()
+                .expression("begins_with(#url, :prefix) OR attribute_exists(destinations)")
+                .putExpressionName("#url", "url")
+                .putExpressionValue(":prefix", AttributeValue.builder().s(urlPrefix).build())
+                .build();
+        traced("forEachUrl", urlPrefix, () -> scanner.forEach(table, request -> request
+                .filterExpression(filter)
+                .attributesToProject("keyword", "url", "destinations"), sink));
+    }
+
+    /**
+     * Change the URLs of up to 25 links, one UpdateItem each. Only url, urlHash and
+     * the destinations' url fields are written, so click counts, weights and
+     * everything else edited concurrently survive. Each update is conditional on the
+     * link still having all the URLs it was read with; links edited in the meantime
+     * are skipped. On throttling, the rest are returned as unprocessed.
+     *
+     * @param saved called with each updated link as now stored (on the calling thread)
+     */
+    public BatchResult rewriteUrls(List<String> keywords, Map<String, UrlChange> changes, Consumer<Link> saved) {
+        return traced("rewriteUrls", null, () -> writeUrls(keywords, changes, saved));
+    }
+
+    private BatchResult writeUrls(List<String> keywords, Map<String, UrlChange> changes, Consumer<Link> saved) {
+        List<String> skipped = new ArrayList<>();
+        double units = 0;
+        for (int i = 0; i < keywords.size(); i++) {
+            String keyword = keywords.get(i);
+            UrlChange change = changes.get(keyword);
+            Map<String, String> names = new HashMap<>(Map.of("#url", "url"));
+            Map<String, AttributeValue> values = new HashMap<>();
+            values.put(":url", AttributeValue.builder().s(change.newUrl()).build());
+            values.put(":hash", AttributeValue.builder().s(UrlNormalizer.hash(change.newUrl())).build());
+            values.put(":oldUrl", AttributeValue.builder().s(change.oldUrl()).build());
+            StringBuilder update = new StringBuilder("SET #url = :url, urlHash = :hash");
+            StringBuilder condition = new StringBuilder("#url = :oldUrl");
+
+            List<String> oldDestinations = change.oldDestinationUrls();
+            if (oldDestinations == null) {
+                condition.append(" AND attribute_not_exists(destinations)");
+            } else {
+                values.put(":n", AttributeValue.builder().n(Integer.toString(oldDestinations.size())).build());
+                condition.append(" AND size(destinations) = :n");
+                for (int d = 0; d < oldDestinations.size(); d++) {
+                    String path = "destinations[" + d + "].#url";
+                    values.put(":old" + d, AttributeValue.builder().s(oldDestinations.get(d)).build());
+                    condition.append(" AND ").append(path).append(" = :old").append(d);
+                    String newUrl = change.newDestinationUrls().get(d);
+                    if (!newUrl.equals(oldDestinations.get(d))) {
+                        values.put(":new" + d, AttributeValue.builder().s(newUrl).build());
+                        update.append(", ").append(path).append(" = :new").append(d);
+                    }
+                }
+            }
+
+            try {
+                UpdateItemResponse response = lowLevelClient.updateItem(b -> b
+                        .tableName(tableName)
+                        .key(keyOf(keyword))
+                        .updateExpression(update.toString())
+                        .conditionExpression(condition.toString())
+                        .expressionAttributeNames(names)
+                        .expressionAttributeValues(values)
+                        .returnValues(ReturnValue.ALL_NEW)
+                        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+                if (response.consumedCapacity() != null) {
+                    units += consumedUnits(List.of(response.consumedCapacity()));
+                }
+                saved.accept(table.tableSchema().mapToItem(response.attributes()));
+            } catch (ConditionalCheckFailedException e) {
+                skipped.add(keyword);
+            } catch (DynamoDbException e) {
+                if (!e.isThrottlingException()) {
+                    throw e;
+                }
+                return new BatchResult(keywords.subList(i, keywords.size()), skipped, units);
+            }
+        }
+        return new BatchResult(List.of(), skipped, units);
+    }
+
+    /**
+     * Every link owned by a user (expired or not), one page of up to {@code pageSize}
+     * links at a time; pages are fetched lazily as the caller iterates. GSI reads are
+     * eventually consistent: a link changed a moment ago may still show up under its
+     * old owner.
+     */
+    public Iterable<List<Link>> pagesByOwner(String username, int pageSize) {
+        return () -> new Iterator<>() {
+            private final Iterator<Page<Link>> pages = queryByOwner(username, pageSize, null).iterator();
+            private List<Link> next;
+
+            @Override
+            public boolean hasNext() {
+                // Fetching the next page happens in the SDK iterator's hasNext()
+                while (next == null && traced("pagesByOwner", username, pages::hasNext)) {
+                    List<Link> items = pages.next().items();
+                    next = items.isEmpty() ? null : items;
+                }
+                return next != null;
+            }
+
+            @Override
+            public List<Link> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<Link> page = next;
+                next = null;
+                return page;
+            }
+        };
+    }
+
+    /**
+     * Count the links owned by a user (expired or not). Reads the user's index
+     * entries without returning them.
+     */
+    public long countByOwner(String username) {
+        return traced("countByOwner", username, () -> count(username));
+    }
+
+    private long count(String username) {
+        QueryRequest request = QueryRequest.builder()
+                .tableName(tableName)
+                .indexName(Link.OWNER_INDEX)
+                .keyConditionExpression("ownerUsername = :owner")
+                .expressionAttributeValues(Map.of(":owner", AttributeValue.builder().s(username).build()))
+                .select(Select.COUNT)
+                .build();
+        long count = 0;
+        for (QueryResponse page : lowLevelClient.queryPaginator(request)) {
+            count += page.count();
+        }
+        return count;
+    }
+
+    private SdkIterable<Page<Link>> queryByOwner(String username, int pageSize, Expression filter) {
+        QueryEnhancedRequest.Builder request = QueryEnhancedRequest.builder()
+                .queryConditional(QueryConditional.keyEqualTo(k -> k.partitionValue(username)))
+                .filterExpression(filter);
+        if (pageSize > 0) {
+            request.limit(pageSize);
+        }
+        return table.index(Link.OWNER_INDEX).query(request.build());
+    }
+
+    /**
+     * Delete up to 25 links of one owner in a single TransactWriteItems.
+     *
+     * The keywords come from the eventually consistent ownerUsername index, which
+     * also still lists expired links, so by now a keyword may name a new link of
+     * someone else. BatchWriteItem deletes are unconditional; a transaction of
+     * DeleteItems can require each link to still belong to {@code owner}. Links that
+     * don't are reported as skipped and the rest retried as a smaller transaction.
+     */
+    public BatchResult deleteBatch(List<String> keywords, String owner) {
+        return traced("deleteBatch", owner, () -> transactOwned(keywords, keyword -> TransactWriteItem.builder()
+                .delete(d -> d
+                        .tableName(tableName)
+                        .key(keyOf(keyword))
+                        .conditionExpression("ownerUsername = :from")
+                        .expressionAttributeValues(Map.of(":from", AttributeValue.builder().s(owner).build())))
+                .build()));
+    }
+
+    /**
+     * Move up to 25 links from one owner to another in a single TransactWriteItems.
+     *
+     * BatchWriteItem can only put whole items, which would overwrite click counts
+     * incremented in the meantime; a transaction of UpdateItems changes just
+     * ownerUsername, and each is conditional on the link still belonging to
+     * {@code from}. Links that no longer do are reported as skipped and the rest
+     * retried as a smaller transaction.
+     */
+    public BatchResult reassignBatch(List<String> keywords, String from, String to) {
+        return traced("reassignBatch", from, () -> transactOwned(keywords, keyword -> TransactWriteItem.builder()
+                .update(u -> u
+                        .tableName(tableName)
+                        .key(keyOf(keyword))
+                        .updateExpression("SET ownerUsername = :to")
+                        .conditionExpression("ownerUsername = :from")
+                        .expressionAttributeValues(Map.of(
+                                ":from", AttributeValue.builder().s(from).build(),
+                                ":to", AttributeValue.builder().s(to).build())))
+                .build()));
+    }
+
+    /**
+     * Write one transaction of per-keyword items that are each conditional on the
+     * link's owner. Keywords whose condition failed are skipped and the transaction
+     * retried without them; a transaction canceled for any other reason (throttling,
+     * a conflict) applied nothing, so all its keywords are returned as unprocessed.
+     */
+    private BatchResult transactOwned(List<String> keywords, Function<String, TransactWriteItem> itemFor) {
+        List<TransactWriteItem> items = keywords.stream().map(itemFor).toList();
+        try {
+            TransactWriteItemsResponse response = lowLevelClient.transactWriteItems(b -> b
+                    .transactItems(items)
+                    .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+            return new BatchResult(List.of(), List.of(), consumedUnits(response.consumedCapacity()));
+        } catch (TransactionCanceledException e) {
+            // Reasons line up with the items: "ConditionalCheckFailed" on the culprits, "None" elsewhere
+            List<CancellationReason> reasons = e.cancellationReasons();
+            List<String> skipped = new ArrayList<>();
+            List<String> remaining = new ArrayList<>();
+            for (int i = 0; i < keywords.size(); i++) {
+                String code = i < reasons.size() ? reasons.get(i).code() : null;
+                if ("ConditionalCheckFailed".equals(code)) {
+                    skipped.add(keywords.get(i));
+                } else {
+                    remaining.add(keywords.get(i));
+                }
+            }
+            if (skipped.isEmpty()) {
+                // Throttled or conflicting with another transaction: nothing applied, retry later
+                return new BatchResult(keywords, List.of(), 0);
+            }
+            if (remaining.isEmpty()) {
+                return new BatchResult(List.of(), skipped, 0);
+            }
+            BatchResult rest = transactOwned(remaining, itemFor);
+            List<String> allSkipped = new ArrayList<>(skipped);
+            allSkipped.addAll(rest.skipped());
+            return new BatchResult(rest.unprocessed(), allSkipped, rest.consumedUnits());
+        }
+    }
+
+    /**
+     * Run a DynamoDB call through the circuit breaker, recorded as a RepositoryEvent
+     * if it was slow (a call the open breaker rejected is recorded too, with outcome
+     * BackendUnavailableException).
+     *
+     * @throws BackendUnavailableException if the breaker is open
+     */
+    private <T> T guarded(String operation, String key, Supplier<T> call) {
+        return traced(operation, key, () -> throughBreaker(call));
+    }
+
+    private void guarded(String operation, String key, Runnable call) {
+        guarded(operation, key, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a DynamoDB call without the breaker, recorded as a RepositoryEvent if it was
+     * slow. Its consumed capacity is charged to this operation (see CapacityAccounting).
+     */
+    private static <T> T traced(String operation, String key, Supplier<T> call) {
+        return CapacityAccounting.during("LinkRepository." + operation,
+                () -> RepositoryEvent.timed("LinkRepository", operation, key, call));
+    }
+
+    private static void traced(String operation, String key, Runnable call) {
+        traced(operation, key, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private <T> T throughBreaker(Supplier<T> call) {
+        if (!breakerEnabled) {
+            return call.get();
+        }
+        if (!breaker.tryAcquire()) {
+            throw new BackendUnavailableException(
+                    "The link database is unavailable right now; please retry shortly",
+                    breaker.getRetryAfterSeconds());
+        }
+        try {
+            T result = call.get();
+            breaker.onSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            if (isOutage(e)) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Did this call fail because DynamoDB is unwell, rather than because of the request?
+     * Network errors and timeouts (client side), throttling and 5xx (service side).
+     */
+    private static boolean isOutage(RuntimeException e) {
+        if (e instanceof SdkClientException) {
+            return true;
+        }
+        return e instanceof AwsServiceException service
+                && (service.isThrottlingException() || service.statusCode() >= 500);
+    }
+
+    /**
+     * Did this query fail because its GSI can't be read yet — not created, or still
+     * backfilling? Only then is a scan a fair substitute. Throttling, timeouts and the
+     * rest are rethrown: a full-table scan would only add to them.
+     */
+    private static boolean isIndexUnavailable(DynamoDbException e) {
+        if (e instanceof ResourceNotFoundException) {
+            return true;
+        }
+        String code = e.awsErrorDetails() == null ? null : e.awsErrorDetails().errorCode();
+        String message = e.getMessage() == null ? "" : e.getMessage();
+        return "ValidationException".equals(code)
+                && (message.contains("specified index") || message.contains("backfilling"));
+    }
+
+    /**
+     * The breaker guarding this repository's calls (for health and metrics).
+     */
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    private static Map<String, AttributeValue> keyOf(String keyword) {
+        return Map.of("keyword", AttributeValue.builder().s(keyword).build());
+    }
+
+    private static double consumedUnits(List<ConsumedCapacity> capacities) {
+        double units = 0;
+        for (ConsumedCapacity capacity : capacities) {
+            units += capacity.capacityUnits() != null ? capacity.capacityUnits() : 0;
+        }
+        return units;
+    }
+
+    /**
+     * Scan filter: no TTL, or a TTL still in the future.
+     * ("ttl" is a DynamoDB reserved word, hence the #ttl placeholder.)
+     */
+    private static Expression notExpired() {
+        return Expression.builder()
+                .expression("attribute_not_exists(#ttl) OR #ttl > :now")
+                .putExpressionName("#ttl", "ttl")
+                .putExpressionValue(":now", AttributeValue.builder()
+                        .n(Long.toString(Instant.now().getEpochSecond())).build())
+                .build();
     }
 
     /**
@@ -95,17 +878,114 @@ public class LinkRepository {
      *
      * This is atomic — even if two people click at the exact same time,
      * both clicks are counted correctly (no race condition).
+     *
+     * An UpdateItem on a missing key creates the item, so it's conditional on the
+     * link existing: a click resolved just before the link was deleted must not
+     * bring it back as a bare item (which would also keep its keyword taken).
+     * Such a click is not counted; there's nothing left to count it on.
      */
     public void incrementClickCount(String keyword) {
+        guarded("incrementClickCount", keyword, () -> increment(keyword));
+    }
+
+    private void increment(String keyword) {
         UpdateItemRequest request = UpdateItemRequest.builder()
                 .tableName(tableName)
                 .key(Map.of("keyword", AttributeValue.builder().s(keyword).build()))
                 .updateExpression("SET clickCount = if_not_exists(clickCount, :zero) + :one")
+                .conditionExpression("attribute_exists(keyword)")
                 .expressionAttributeValues(Map.of(
                         ":zero", AttributeValue.builder().n("0").build(),
                         ":one", AttributeValue.builder().n("1").build()))
                 .build();
 
-        lowLevelClient.updateItem(request);
+        try {
+            lowLevelClient.updateItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            // deleted in the meantime
+        }
+    }
+
+    /**
+     * Count a click on a browser-cacheable link: clickCount and cacheableClicks go up
+     * by one and cacheSampleWeight by {@code sampleWeight} (0 unless the visitor is in
+     * the control group, see LinkService.recordClick), in one UpdateItem.
+     * Conditional on the link existing, as incrementClickCount.
+     */
+    public void incrementCacheableClickCount(String keyword, long sampleWeight) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(keyOf(keyword))
+                .updateExpression("SET clickCount = if_not_exists(clickCount, :zero) + :one, "
+                        + "cacheableClicks = if_not_exists(cacheableClicks, :zero) + :one, "
+                        + "cacheSampleWeight = if_not_exists(cacheSampleWeight, :zero) + :weight")
+                .conditionExpression("attribute_exists(keyword)")
+                .expressionAttributeValues(Map.of(
+                        ":zero", AttributeValue.builder().n("0").build(),
+                        ":one", AttributeValue.builder().n("1").build(),
+                        ":weight", AttributeValue.builder().n(Long.toString(sampleWeight)).build()))
+                .build();
+
+        guarded("incrementCacheableClickCount", keyword, () -> {
+            try {
+                lowLevelClient.updateItem(request);
+            } catch (ConditionalCheckFailedException e) {
+                // deleted in the meantime
+            }
+        });
+    }
+
+    /**
+     * Store a link's unique-visitor estimate. Conditional on the link existing, so
+     * a late flush can't resurrect a deleted link as a bare item.
+     */
+    public void setUniqueVisitors(String keyword, long estimate) {
+        guarded("setUniqueVisitors", keyword, () -> {
+            try {
+                lowLevelClient.updateItem(b -> b
+                        .tableName(tableName)
+                        .key(keyOf(keyword))
+                        .updateExpression("SET uniqueVisitors = :estimate")
+                        .conditionExpression("attribute_exists(keyword)")
+                        .expressionAttributeValues(Map.of(":estimate",
+                                AttributeValue.builder().n(Long.toString(estimate)).build())));
+            } catch (ConditionalCheckFailedException e) {
+                // deleted in the meantime
+            }
+        });
+    }
+
+    /**
+     * Atomically increment both the link's click counter and one destination's,
+     * in the same UpdateItem:
+     *
+     *   SET clickCount = ... + 1, destinations[2].clickCount = ... + 1
+     *
+     * Destinations are stored by list position, so the update is conditional on that
+     * position still holding the URL we redirected to. If the destinations were edited
+     * in the meantime, only the link's own counter is incremented.
+     */
+    public void incrementClickCount(String keyword, int destination, String destinationUrl) {
+        String path = "destinations[" + destination + "]";
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of("keyword", AttributeValue.builder().s(keyword).build()))
+                .updateExpression("SET clickCount = if_not_exists(clickCount, :zero) + :one, "
+                        + path + ".clickCount = if_not_exists(" + path + ".clickCount, :zero) + :one")
+                .conditionExpression(path + ".#url = :url")
+                .expressionAttributeNames(Map.of("#url", "url"))
+                .expressionAttributeValues(Map.of(
+                        ":zero", AttributeValue.builder().n("0").build(),
+                        ":one", AttributeValue.builder().n("1").build(),
+                        ":url", AttributeValue.builder().s(destinationUrl).build()))
+                .build();
+
+        guarded("incrementDestinationClickCount", keyword, () -> {
+            try {
+                lowLevelClient.updateItem(request);
+            } catch (ConditionalCheckFailedException e) {
+                increment(keyword);
+            }
+        });
     }
 }
@@ -0,0 +1,187 @@
+package com.linkylink.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Parallel segmented scans for full-table operations.
+ *
+ * A normal Scan reads the table one page at a time on one connection, so it takes
+ * time proportional to table size. DynamoDB lets you split a scan into N independent
+ * "segments" (Segment = 0..N-1, TotalSegments = N) that can be read concurrently.
+ *
+ * Two ways to consume the results:
+ *   - scanAll():  each segment collects its own list, the lists are merged at the end
+ *   - forEach():  items are streamed through a bounded queue to the caller's thread.
+ *                 When the caller is slower than DynamoDB, the queue fills up and the
+ *                 segment workers block — that's backpressure, so memory stays bounded
+ *                 no matter how big the table is.
+ *
+ * Callers customize each segment's request (filter expression, projection) through a
+ * Consumer&lt;ScanEnhancedRequest.Builder&gt;. Projecting only the attributes you need
+ * (e.g. keyword/url/ownerUsername) cuts both network transfer and deserialization.
+ *
+ * Concurrency is bounded: all scans share one fixed-size worker pool, so a burst of
+ * admin listings can't open an unbounded number of connections.
+ */
+@Component
+public class ParallelScanner {
+
+    // Marks "this segment is finished" in the streaming queue
+    private static final Object SEGMENT_DONE = new Object();
+
+    private final int segments;
+    private final int bufferSize;
+    private final ExecutorService executor;
+
+    public ParallelScanner(@Value("${aws.dynamodb.scan.segments:4}") int segments,
+                           @Value("${aws.dynamodb.scan.threads:8}") int threads,
+                           @Value("${aws.dynamodb.scan.buffer:1000}") int bufferSize) {
+        this.segments = segments;
+        this.bufferSize = bufferSize;
+
+        AtomicInteger threadIds = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "dynamo-scan-" + threadIds.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * Scan the whole table in parallel and return every matching item.
+     *
+     * @param customizer adds filter expressions, projections, etc. to each segment's request
+     */
+    public <T> List<T> scanAll(DynamoDbTable<T> table, Consumer<ScanEnhancedRequest.Builder> customizer) {
+        List<Future<List<T>>> futures = new ArrayList<>(segments);
+        for (int segment = 0; segment < segments; segment++) {
+            ScanEnhancedRequest request = segmentRequest(segment, customizer);
+            futures.add(executor.submit(CapacityAccounting.propagating(
+                    () -> table.scan(request).items().stream().toList())));
+        }
+
+        List<T> merged = new ArrayList<>();
+        try {
+            for (Future<List<T>> future : futures) {
+                merged.addAll(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+        return merged;
+    }
+
+    /**
+     * Scan the whole table in parallel, streaming each item to {@code sink} on the
+     * caller's thread. Memory use is bounded by the queue size, not the table size.
+     */
+    public <T> void forEach(DynamoDbTable<T> table,
+                            Consumer<ScanEnhancedRequest.Builder> customizer,
+                            Consumer<? super T> sink) {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(bufferSize);
+        List<Future<?>> futures = new ArrayList<>(segments);
+
+        for (int segment = 0; segment < segments; segment++) {
+            ScanEnhancedRequest request = segmentRequest(segment, customizer);
+            futures.add(executor.submit(CapacityAccounting.propagating(() -> {
+                try {
+                    for (T item : table.scan(request).items()) {
+                        queue.put(item); // blocks when the consumer falls behind
+                    }
+                } finally {
+                    queue.put(SEGMENT_DONE);
+                }
+                return null;
+            })));
+        }
+
+        try {
+            int finished = 0;
+            while (finished < segments) {
+                Object next = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (next == null) {
+                    failFast(futures);
+                } else if (next == SEGMENT_DONE) {
+                    finished++;
+                } else {
+                    @SuppressWarnings("unchecked")
+                    T item = (T) next;
+                    sink.accept(item);
+                }
+            }
+            failFast(futures);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } finally {
+            // If the sink threw, stop the remaining segments (they may be blocked on put)
+            futures.forEach(f -> f.cancel(true));
+        }
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private ScanEnhancedRequest segmentRequest(int segment, Consumer<ScanEnhancedRequest.Builder> customizer) {
+        ScanEnhancedRequest.Builder builder = ScanEnhancedRequest.builder();
+        customizer.accept(builder);
+        return builder.segment(segment).totalSegments(segments).build();
+    }
+
+    /**
+     * Rethrow the first segment failure, if any segment has failed.
+     */
+    private static void failFast(List<Future<?>> futures) throws InterruptedException {
+        for (Future<?> future : futures) {
+            if (future.isDone() && !future.isCancelled()) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw propagate(e.getCause());
+                }
+            }
+        }
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(cause);
+    }
+}
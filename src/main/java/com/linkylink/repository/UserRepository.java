@@ -1,14 +1,19 @@
 package com.linkylink.repository;
 
+import com.linkylink.jfr.RepositoryEvent;
 import com.linkylink.model.User;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Key;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Repository for User CRUD operations against DynamoDB.
@@ -21,16 +26,24 @@ import java.util.List;
  *   - putItem:  Insert or replace an item
  *   - deleteItem: Remove an item by its primary key
  *   - scan:     Read ALL items in the table (slow for large tables, fine for small ones)
+ *
+ * Every call is timed as a JFR RepositoryEvent (see com.linkylink.jfr), and its
+ * consumed capacity charged to the method (see CapacityAccounting).
  */
 @Repository
 public class UserRepository {
 
+    private static final String NAME = "UserRepository";
+
     private final DynamoDbTable<User> table;
+    private final ParallelScanner scanner;
 
     public UserRepository(DynamoDbEnhancedClient enhancedClient,
+                          ParallelScanner scanner,
                           @Value("${aws.dynamodb.table.users}") String tableName) {
         // Create a table reference: maps the User class to the DynamoDB table
         this.table = enhancedClient.table(tableName, TableSchema.fromBean(User.class));
+        this.scanner = scanner;
     }
 
     /**
@@ -38,29 +51,65 @@ public class UserRepository {
      * Returns null if not found.
      */
     public User findByUsername(String username) {
-        return table.getItem(Key.builder().partitionValue(username).build());
+        return timed("findByUsername", username,
+                () -> table.getItem(Key.builder().partitionValue(username).build()));
     }
 
     /**
      * Save a user (creates new or overwrites existing).
      */
     public void save(User user) {
-        table.putItem(user);
+        timed("save", user.getUsername(), () -> {
+            table.putItem(user);
+            return null;
+        });
     }
 
     /**
      * Delete a user by username.
      */
     public void delete(String username) {
-        table.deleteItem(Key.builder().partitionValue(username).build());
+        timed("delete", username, () -> table.deleteItem(Key.builder().partitionValue(username).build()));
+    }
+
+    /**
+     * Mark a user as being deleted (see User.deleting), leaving the rest of the row
+     * as it is. An UpdateItem creates the row if it doesn't exist, so this also
+     * reserves the name of a user that's already gone.
+     */
+    public void markDeleting(String username) {
+        User tombstone = new User();
+        tombstone.setUsername(username);
+        tombstone.setDeleting(true);
+        // ignoreNulls: only SET the non-null attributes (username, deleting)
+        timed("markDeleting", username, () -> table.updateItem(r -> r.item(tombstone).ignoreNulls(true)));
     }
 
     /**
-     * Get all users (full table scan).
-     * Fine for small tables (<1000 items). For large tables, use pagination.
+     * Remove a user's row, but only if it's still marked as being deleted.
+     *
+     * @return false if the row is gone or isn't a tombstone (any more)
+     */
+    public boolean deleteIfDeleting(String username) {
+        Expression stillDeleting = Expression.builder()
+                .expression("deleting = :true")
+                .putExpressionValue(":true", AttributeValue.builder().bool(true).build())
+                .build();
+        try {
+            timed("deleteIfDeleting", username, () -> table.deleteItem(r -> r
+                    .key(Key.builder().partitionValue(username).build())
+                    .conditionExpression(stillDeleting)));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get all users (parallel full table scan — see ParallelScanner).
      */
     public List<User> findAll() {
-        return table.scan().items().stream().toList();
+        return timed("findAll", null, () -> scanner.scanAll(table, request -> { }));
     }
 
     /**
@@ -69,6 +118,12 @@ public class UserRepository {
      */
     public boolean isEmpty() {
         // Scan with a limit of 1 — we just need to know if there's at least one item
-        return table.scan(b -> b.limit(1)).items().stream().findFirst().isEmpty();
+        return timed("isEmpty", null,
+                () -> table.scan(b -> b.limit(1)).items().stream().findFirst().isEmpty());
+    }
+
+    private static <T> T timed(String operation, String key, Supplier<T> call) {
+        return CapacityAccounting.during(NAME + "." + operation,
+                () -> RepositoryEvent.timed(NAME, operation, key, call));
     }
 }
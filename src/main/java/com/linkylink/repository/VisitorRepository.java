@@ -0,0 +1,114 @@
+package com.linkylink.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Repository for per-link unique-visitor sketches (see HyperLogLog, UniqueVisitors),
+ * in the "LinkyLinkVisitors" table:
+ *
+ *   | keyword (PK) | allTime (B)  | days (M)                                  | version |
+ *   |--------------|--------------|-------------------------------------------|--------:|
+ *   | jira         | 3073 bytes   | {2025-03-01: 3073 bytes, 2025-03-02: ...} |     912 |
+ *   | standup      | 33 bytes     | {2025-03-02: 21 bytes}                    |       4 |
+ *
+ * The sketches live next to the link rather than inside it: a dense sketch is
+ * 3 KB, and every redirect cache miss reads the whole link item, billed per 4 KB.
+ * Only the resulting estimate is copied onto the link (Link.uniqueVisitors).
+ *
+ * Writes are compare-and-set on version, so instances merging into the same
+ * sketch concurrently never lose each other's visitors.
+ */
+@Repository
+public class VisitorRepository {
+
+    /**
+     * Stored sketches for one link. version is 0 if nothing is stored yet.
+     */
+    public record Sketches(byte[] allTime, Map<String, byte[]> days, long version) {
+    }
+
+    private final DynamoDbClient client;
+    private final String tableName;
+
+    public VisitorRepository(DynamoDbClient client,
+                             @Value("${aws.dynamodb.table.visitors}") String tableName) {
+        this.client = client;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Read a link's sketches (strongly consistent, since the result is merged and
+     * written back).
+     */
+    public Sketches load(String keyword) {
+        Map<String, AttributeValue> item = client.getItem(b -> b
+                .tableName(tableName)
+                .key(keyOf(keyword))
+                .consistentRead(true)).item();
+        if (item == null || item.isEmpty()) {
+            return new Sketches(null, Map.of(), 0);
+        }
+        Map<String, byte[]> days = new HashMap<>();
+        AttributeValue daysValue = item.get("days");
+        if (daysValue != null && daysValue.hasM()) {
+            daysValue.m().forEach((day, sketch) -> days.put(day, sketch.b().asByteArray()));
+        }
+        AttributeValue allTime = item.get("allTime");
+        return new Sketches(allTime == null ? null : allTime.b().asByteArray(), days,
+                Long.parseLong(item.get("version").n()));
+    }
+
+    /**
+     * Replace a link's sketches if they are still at {@code expectedVersion}.
+     *
+     * @return false if someone else wrote them first (reload, merge, retry)
+     */
+    public boolean save(String keyword, Sketches sketches, long expectedVersion) {
+        Map<String, AttributeValue> days = new HashMap<>();
+        sketches.days().forEach((day, sketch) -> days.put(day, binary(sketch)));
+
+        Map<String, AttributeValue> item = new HashMap<>(keyOf(keyword));
+        item.put("allTime", binary(sketches.allTime()));
+        item.put("days", AttributeValue.builder().m(days).build());
+        item.put("version", AttributeValue.builder().n(Long.toString(sketches.version())).build());
+
+        PutItemRequest.Builder request = PutItemRequest.builder().tableName(tableName).item(item);
+        if (expectedVersion == 0) {
+            request.conditionExpression("attribute_not_exists(keyword)");
+        } else {
+            request.conditionExpression("version = :expected")
+                    .expressionAttributeValues(Map.of(":expected",
+                            AttributeValue.builder().n(Long.toString(expectedVersion)).build()));
+        }
+        try {
+            client.putItem(request.build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Forget a link's visitors (e.g. when its keyword is reused for a new link).
+     */
+    public void delete(String keyword) {
+        client.deleteItem(b -> b.tableName(tableName).key(keyOf(keyword)));
+    }
+
+    private static Map<String, AttributeValue> keyOf(String keyword) {
+        return Map.of("keyword", AttributeValue.builder().s(keyword).build());
+    }
+
+    private static AttributeValue binary(byte[] bytes) {
+        return AttributeValue.builder().b(SdkBytes.fromByteArray(bytes)).build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.linkylink.security;
 
+import com.linkylink.jfr.TokenVerificationEvent;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -23,6 +24,9 @@ import java.util.List;
  *   4. If no token or invalid token, do nothing (request continues as anonymous)
  *
  * OncePerRequestFilter: Guarantees this filter runs exactly once per request.
+ *
+ * Slow verifications (step 2 and reading the claims) are recorded as a JFR
+ * TokenVerificationEvent.
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -46,9 +50,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String token = authHeader.substring(7); // Remove "Bearer " prefix
 
             // Step 3: Validate the token
-            if (jwtUtil.isTokenValid(token)) {
-                String username = jwtUtil.extractUsername(token);
-                String role = jwtUtil.extractRole(token);
+            TokenVerificationEvent event = new TokenVerificationEvent();
+            event.begin();
+            boolean valid = jwtUtil.isTokenValid(token);
+            String username = valid ? jwtUtil.extractUsername(token) : null;
+            String role = valid ? jwtUtil.extractRole(token) : null;
+            event.end();
+            if (event.shouldCommit()) {
+                event.username = username;
+                event.valid = valid;
+                event.commit();
+            }
+
+            if (valid) {
 
                 // Step 4: Create an Authentication object for Spring Security
                 // "ROLE_" prefix is a Spring Security convention
@@ -0,0 +1,271 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Link;
+import com.linkylink.repository.CounterRepository;
+import com.linkylink.repository.CounterRepository.FoldResult;
+import com.linkylink.repository.CounterRepository.Shard;
+import com.linkylink.repository.LinkRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spreads the click counter of hot links over several items (see CounterRepository).
+ *
+ * A link's clicks normally all go to one DynamoDB item, and an item takes at most
+ * ~1000 writes per second, however many instances send them. A link that goes
+ * viral gets throttled — not just its click counts, but everything else in its
+ * partition too.
+ *
+ * Detection: every click is counted per keyword for the current second (a map
+ * lookup and a LongAdder increment). A link is hot once it gets hot-clicks-per-second
+ * on this instance, or its shards took that many clicks per second across all
+ * instances (seen in the shard scan below). It cools down after cool-seconds below
+ * half that rate.
+ *
+ * Writes: a hot link's clicks go to a random one of its {@code shards} shard items
+ * instead of the link item.
+ *
+ * Every fold-seconds, the shard table is scanned. The per-keyword sums become
+ * Link.shardedClicks, which the API adds to the stored clickCount, so clients see
+ * the same total as before (lagging by up to fold-seconds). Shards of links that
+ * have cooled down are folded back into the link item and deleted. (Right after
+ * another instance folds, this one can count those clicks twice until its own
+ * next scan.)
+ */
+@Service
+public class ClickCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickCounters.class);
+
+    private final CounterRepository counterRepository;
+    private final LinkRepository linkRepository;
+    private final boolean enabled;
+    private final int shards;
+    private final long hotClicksPerSecond;
+    private final long coolMillis;
+    private final long foldSeconds;
+    private final int maxTracked;
+    private final ScheduledExecutorService scheduler;
+
+    // Clicks per keyword in the current second, on this instance
+    private volatile Map<String, LongAdder> window = new ConcurrentHashMap<>();
+    // Hot keywords → last time (millis) their rate was above the cool-down line
+    private final Map<String, Long> hot = new ConcurrentHashMap<>();
+    // Per-keyword shard sums from the last scan
+    private volatile Map<String, Long> shardedClicks = Map.of();
+
+    private final LongAdder shardedWrites = new LongAdder();
+    private final LongAdder folds = new LongAdder();
+    private final LongAdder foldConflicts = new LongAdder();
+
+    public ClickCounters(CounterRepository counterRepository,
+                         LinkRepository linkRepository,
+                         @Value("${linkylink.counters.enabled:true}") boolean enabled,
+                         @Value("${linkylink.counters.shards:10}") int shards,
+                         @Value("${linkylink.counters.hot-clicks-per-second:200}") long hotClicksPerSecond,
+                         @Value("${linkylink.counters.cool-seconds:60}") long coolSeconds,
+                         @Value("${linkylink.counters.fold-seconds:10}") long foldSeconds,
+                         @Value("${linkylink.counters.max-tracked:100000}") int maxTracked) {
+        if (shards < 1 || hotClicksPerSecond < 1) {
+            throw new IllegalArgumentException("linkylink.counters.shards and hot-clicks-per-second must be at least 1");
+        }
+        this.counterRepository = counterRepository;
+        this.linkRepository = linkRepository;
+        this.enabled = enabled;
+        this.shards = shards;
+        this.hotClicksPerSecond = hotClicksPerSecond;
+        this.coolMillis = TimeUnit.SECONDS.toMillis(coolSeconds);
+        this.foldSeconds = foldSeconds;
+        this.maxTracked = maxTracked;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "click-counters");
+            t.setDaemon(true);
+            return t;
+        });
+        if (enabled) {
+            scheduler.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+            scheduler.scheduleWithFixedDelay(this::scanQuietly, foldSeconds, foldSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Count a click towards the keyword's rate.
+     *
+     * @return true if the link is hot: count the click with incrementSharded()
+     */
+    public boolean track(String keyword) {
+        if (!enabled) {
+            return false;
+        }
+        Map<String, LongAdder> current = window;
+        LongAdder clicks = current.get(keyword);
+        if (clicks == null && current.size() < maxTracked) {
+            clicks = current.computeIfAbsent(keyword, k -> new LongAdder());
+        }
+        if (clicks != null) {
+            clicks.increment();
+        }
+        return hot.containsKey(keyword);
+    }
+
+    /**
+     * Count a click on a hot link in one of its shards, picked at random.
+     *
+     * @param link        needs its createdAt: a shard only counts for one link
+     * @param destination the chosen weighted destination, or -1
+     * @param sampleWeight see LinkService.recordClick (cacheable links only)
+     */
+    public void incrementSharded(Link link, int destination, long sampleWeight) {
+        counterRepository.increment(link.getKeyword(), link.getCreatedAt(),
+                ThreadLocalRandom.current().nextInt(shards), link.isBrowserCacheable(), sampleWeight,
+                destination < 0 ? null : link.getDestinations().get(destination).getUrl());
+        shardedWrites.increment();
+    }
+
+    /**
+     * Set the link's shardedClicks (clicks in shards, as of the last scan).
+     */
+    public Link apply(Link link) {
+        if (link != null) {
+            link.setShardedClicks(shardedClicks.getOrDefault(link.getKeyword(), 0L));
+        }
+        return link;
+    }
+
+    public List<Link> apply(List<Link> links) {
+        Map<String, Long> sums = shardedClicks;
+        links.forEach(link -> link.setShardedClicks(sums.getOrDefault(link.getKeyword(), 0L)));
+        return links;
+    }
+
+    /**
+     * Forget a keyword's shards. Called when a keyword is (re)created, so a new link
+     * doesn't inherit the clicks of an old one with the same keyword. Always all of
+     * them: another instance may have written shards this one's last scan didn't see.
+     * (A shard written after this still can't fold into the new link: see fold().)
+     */
+    public void reset(String keyword) {
+        counterRepository.deleteAll(keyword, shards);
+    }
+
+    public long getHotLinks() {
+        return hot.size();
+    }
+
+    public long getShardedWrites() {
+        return shardedWrites.sum();
+    }
+
+    public long getFolds() {
+        return folds.sum();
+    }
+
+    public long getFoldConflicts() {
+        return foldConflicts.sum();
+    }
+
+    /**
+     * Once a second: rates over the last second → hot set.
+     */
+    private void tick() {
+        Map<String, LongAdder> last = window;
+        window = new ConcurrentHashMap<>();
+        long now = System.currentTimeMillis();
+        last.forEach((keyword, clicks) -> observe(keyword, clicks.sum(), now));
+        hot.entrySet().removeIf(entry -> {
+            boolean cooled = now - entry.getValue() > coolMillis;
+            if (cooled) {
+                log.info("go/{} has cooled down; its shards will be folded back", entry.getKey());
+            }
+            return cooled;
+        });
+    }
+
+    /**
+     * A keyword got {@code perSecond} clicks per second: mark it hot, or keep it hot.
+     */
+    private void observe(String keyword, long perSecond, long now) {
+        if (perSecond >= hotClicksPerSecond) {
+            if (hot.put(keyword, now) == null) {
+                log.info("go/{} is hot ({} clicks/s): spreading its clicks over {} shards",
+                        keyword, perSecond, shards);
+            }
+        } else if (perSecond * 2 >= hotClicksPerSecond) {
+            hot.computeIfPresent(keyword, (k, since) -> now);
+        }
+    }
+
+    private void scanQuietly() {
+        try {
+            scan();
+        } catch (RuntimeException e) {
+            log.warn("Click counter scan failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Read all shards: publish their sums, learn which links are hot on other
+     * instances, and fold the shards of links that aren't hot anywhere any more.
+     */
+    void scan() {
+        List<Shard> all = counterRepository.findAll();
+        Map<String, Long> sums = new HashMap<>();
+        for (Shard shard : all) {
+            sums.merge(shard.keyword(), shard.clicks(), Long::sum);
+        }
+
+        // Cluster-wide rate of each sharded link since the last scan
+        Map<String, Long> previous = shardedClicks;
+        long now = System.currentTimeMillis();
+        sums.forEach((keyword, clicks) -> {
+            long delta = clicks - previous.getOrDefault(keyword, clicks);
+            if (delta > 0) {
+                observe(keyword, delta / Math.max(1, foldSeconds), now);
+            }
+        });
+
+        Map<String, Link> links = new HashMap<>();
+        for (Shard shard : all) {
+            if (hot.containsKey(shard.keyword())) {
+                continue;
+            }
+            Link link = links.computeIfAbsent(shard.keyword(), linkRepository::findByKeyword);
+            if (link == null) {
+                counterRepository.delete(shard.id()); // the link is gone, and its clicks with it
+                continue;
+            }
+            FoldResult result = counterRepository.fold(shard, link);
+            if (result == FoldResult.FOLDED) {
+                counterRepository.deleteIfEmpty(shard.id());
+                sums.merge(shard.keyword(), -shard.clicks(), Long::sum); // now in the link's clickCount
+                folds.increment();
+            } else if (result == FoldResult.OTHER_LINK) {
+                counterRepository.delete(shard.id()); // an earlier link's clicks: void
+                sums.merge(shard.keyword(), -shard.clicks(), Long::sum);
+            } else {
+                foldConflicts.increment();
+                links.remove(shard.keyword()); // re-read next time
+            }
+        }
+        sums.values().removeIf(clicks -> clicks == 0);
+        shardedClicks = sums;
+    }
+}
@@ -0,0 +1,51 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Link;
+import com.linkylink.repository.LinkRepository;
+import com.linkylink.repository.LinkRepository.BatchResult;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Adds the createdDay attribute to links saved before the recent-links index
+ * existed (see LinkService.recent), so the createdDay GSI finds them too. See
+ * DerivedAttributeBackfillJob; a keyword deleted and created again meanwhile has a
+ * different createdAt, and is skipped.
+ *
+ * No parameters. Start it with POST /api/admin/jobs/created-index.
+ */
+@Component
+public class CreatedIndexBackfillJob extends DerivedAttributeBackfillJob {
+
+    public static final String TYPE = "created-index";
+
+    private final LinkRepository linkRepository;
+
+    public CreatedIndexBackfillJob(LinkRepository linkRepository) {
+        super("createdDay");
+        this.linkRepository = linkRepository;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    protected void forEachMissing(Consumer<Link> sink) {
+        linkRepository.forEachWithoutCreatedDay(sink);
+    }
+
+    @Override
+    protected String source(Link link) {
+        return link.getCreatedAt();
+    }
+
+    @Override
+    protected BatchResult write(List<String> keywords, Map<String, String> createdAts) {
+        return linkRepository.setCreatedDays(keywords, createdAts);
+    }
+}
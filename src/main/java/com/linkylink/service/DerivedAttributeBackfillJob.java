@@ -0,0 +1,107 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Job;
+import com.linkylink.model.Link;
+import com.linkylink.repository.LinkRepository.BatchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Adds a derived attribute (one a GSI is keyed on) to links saved before it
+ * existed, so the index finds them too. Links saved since get it on every write;
+ * subclasses are one-offs for older ones: UrlIndexBackfillJob (urlHash, from url)
+ * and CreatedIndexBackfillJob (createdDay, from createdAt).
+ *
+ * How:
+ *   1. Scan for links without the attribute (filtered, projecting only keyword and
+ *      the attribute it is derived from)
+ *   2. Every 25 of them, write it under the shared write budget. Each update is
+ *      conditional on the source value read by the scan: a link saved in the
+ *      meantime got its own derived value, and is skipped
+ *
+ * Restartable by construction: the scan only returns links still without it.
+ */
+abstract class DerivedAttributeBackfillJob implements JobHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(DerivedAttributeBackfillJob.class);
+
+    private static final int CHUNK_SIZE = 25;
+
+    private final String attribute;
+
+    /**
+     * @param attribute the derived attribute's name, for the log
+     */
+    DerivedAttributeBackfillJob(String attribute) {
+        this.attribute = attribute;
+    }
+
+    /**
+     * Stream the links without the attribute (on the calling thread).
+     */
+    protected abstract void forEachMissing(Consumer<Link> sink);
+
+    /**
+     * The value the attribute is derived from, as read by the scan.
+     */
+    protected abstract String source(Link link);
+
+    /**
+     * Write the attribute for up to 25 links, each conditional on its source value.
+     */
+    protected abstract BatchResult write(List<String> keywords, Map<String, String> sources);
+
+    @Override
+    public void run(Job job, Control control) throws InterruptedException {
+        List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+        Map<String, String> sources = new HashMap<>();
+        try {
+            // The sink runs on this thread, so the chunk needs no locking
+            forEachMissing(link -> {
+                chunk.add(link.getKeyword());
+                sources.put(link.getKeyword(), source(link));
+                if (chunk.size() == CHUNK_SIZE) {
+                    applyChunk(chunk, sources, control);
+                }
+            });
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof InterruptedException interrupted) {
+                throw interrupted;
+            }
+            throw e;
+        }
+        if (!chunk.isEmpty()) {
+            applyChunk(chunk, sources, control);
+        }
+        log.info("Backfilled {}: {} links indexed, {} changed meanwhile, {} left unwritten",
+                attribute, job.getProcessed(), job.getSkipped(), job.getFailed());
+    }
+
+    /**
+     * Write one chunk and empty it. Links DynamoDB still refused after the retries
+     * count as failed; running the job again picks them up.
+     */
+    private void applyChunk(List<String> chunk, Map<String, String> sources, Control control) {
+        control.checkpoint();
+        List<String> keywords = List.copyOf(chunk);
+        Map<String, String> chunkSources = Map.copyOf(sources);
+        chunk.clear();
+        sources.clear();
+        try {
+            BatchResult result = control.throttledWrite(keywords, 1, k -> write(k, chunkSources));
+            int skipped = result.skipped().size();
+            int failed = result.unprocessed().size();
+            control.progress(keywords.size() - skipped - failed, skipped, failed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+}
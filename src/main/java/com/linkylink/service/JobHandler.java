@@ -0,0 +1,81 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Job;
+import com.linkylink.repository.LinkRepository.BatchResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/**
+ * One kind of background job (see JobService), e.g. "user-links".
+ *
+ * Handlers must be safe to run again from the start: after a crash the job is
+ * resumed by calling run() again, with the progress counters as they were last
+ * saved. The simplest way is to work from a query whose results shrink as the job
+ * makes progress (e.g. "links still owned by bob").
+ */
+public interface JobHandler {
+
+    /**
+     * The job type this handler runs, as stored in Job.type.
+     */
+    String type();
+
+    /**
+     * Check parameters before the job is created.
+     *
+     * @throws IllegalArgumentException if they are invalid
+     */
+    default void validate(Map<String, String> parameters) {
+    }
+
+    /**
+     * Do the work. Returning normally marks the job SUCCEEDED; throwing marks it FAILED.
+     */
+    void run(Job job, Control control) throws InterruptedException;
+
+    /**
+     * What JobService offers a running handler.
+     */
+    interface Control {
+
+        /**
+         * Stop here if the job was cancelled.
+         *
+         * @throws java.util.concurrent.CancellationException if it was
+         */
+        void checkpoint();
+
+        void setTotal(long total);
+
+        /**
+         * Tell the admin something about the job (shown while it runs, and kept if it
+         * succeeds), e.g. what a dry run found.
+         */
+        void setMessage(String message);
+
+        /**
+         * Add to the job's counters. Saved to the jobs table at most once a second.
+         */
+        void progress(long processed, long skipped, long failed);
+
+        /**
+         * Run tasks on the shared job worker pool and wait for all of them.
+         */
+        void inParallel(List<? extends Callable<?>> tasks) throws InterruptedException;
+
+        /**
+         * Apply one batch write under the shared write-capacity budget, retrying the
+         * items DynamoDB left unprocessed with exponential backoff.
+         *
+         * @param unitsPerItem estimated write units per item (charged before the write,
+         *                     corrected with the consumed capacity DynamoDB reports)
+         * @return the combined result; unprocessed items are those still not written
+         *         after the last retry
+         */
+        BatchResult throttledWrite(List<String> keys, double unitsPerItem,
+                                   Function<List<String>, BatchResult> writer) throws InterruptedException;
+    }
+}
@@ -0,0 +1,424 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Job;
+import com.linkylink.repository.CapacityAccounting;
+import com.linkylink.repository.JobRepository;
+import com.linkylink.repository.LinkRepository.BatchResult;
+import com.linkylink.util.RateLimiter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs background jobs (bulk changes too big for one request) and keeps their
+ * state in the jobs table, so that:
+ *
+ *   - progress is visible from any instance (GET /api/admin/jobs/{id})
+ *   - a job survives the instance running it: every running job is saved at least
+ *     every heartbeat-seconds; a RUNNING job not saved for stale-seconds is adopted
+ *     by whichever instance notices first (the version check on Job makes the
+ *     claim race-free) and its handler is simply run again — handlers are written
+ *     to be restartable (see JobHandler)
+ *   - jobs can be cancelled, locally or from another instance
+ *
+ * All jobs share one worker pool for their parallel chunks and one write-capacity
+ * budget (a RateLimiter in write units per second). The budget halves whenever
+ * DynamoDB throttles a batch and creeps back up while writes succeed, so cleanup
+ * jobs back off on their own instead of starving redirects and edits.
+ */
+@Service
+public class JobService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobService.class);
+
+    private static final int MAX_WRITE_ATTEMPTS = 8;
+    private static final long MAX_BACKOFF_MS = 5000;
+
+    private final JobRepository jobRepository;
+    private final Map<String, JobHandler> handlers;
+    private final RateLimiter writeLimiter;
+    private final Duration heartbeat;
+    private final Duration staleAfter;
+    private final String instanceId;
+
+    private final ExecutorService jobThreads;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Run> running = new ConcurrentHashMap<>();
+
+    public JobService(JobRepository jobRepository,
+                      List<JobHandler> handlers,
+                      @Value("${linkylink.jobs.threads:4}") int threads,
+                      @Value("${linkylink.jobs.write-units-per-second:200}") double writeUnitsPerSecond,
+                      @Value("${linkylink.jobs.heartbeat-seconds:10}") long heartbeatSeconds,
+                      @Value("${linkylink.jobs.stale-seconds:60}") long staleSeconds) {
+        this.jobRepository = jobRepository;
+        this.handlers = handlers.stream().collect(Collectors.toMap(JobHandler::type, h -> h));
+        this.writeLimiter = new RateLimiter(writeUnitsPerSecond);
+        this.heartbeat = Duration.ofSeconds(heartbeatSeconds);
+        this.staleAfter = Duration.ofSeconds(staleSeconds);
+        this.instanceId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+        AtomicInteger jobIds = new AtomicInteger();
+        this.jobThreads = Executors.newCachedThreadPool(r -> daemon(r, "job-" + jobIds.incrementAndGet()));
+        AtomicInteger workerIds = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> daemon(r, "job-worker-" + workerIds.incrementAndGet()));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "job-heartbeat"));
+    }
+
+    /**
+     * Create a job and start it on this instance.
+     *
+     * @throws IllegalArgumentException for an unknown type or invalid parameters
+     */
+    public Job start(String type, Map<String, String> parameters, String createdBy) {
+        JobHandler handler = handlers.get(type);
+        if (handler == null) {
+            throw new IllegalArgumentException("Unknown job type '" + type + "'");
+        }
+        handler.validate(parameters);
+
+        Job job = new Job();
+        job.setId(UUID.randomUUID().toString());
+        job.setType(type);
+        job.setStatus(Job.RUNNING);
+        job.setParameters(new HashMap<>(parameters));
+        job.setCreatedBy(createdBy);
+        job.setCreatedAt(Instant.now().toString());
+        job.setUpdatedAt(job.getCreatedAt());
+        job.setRunningOn(instanceId);
+        job.setTotal(0L);
+        job.setProcessed(0L);
+        job.setSkipped(0L);
+        job.setFailed(0L);
+        jobRepository.save(job);
+        launch(handler, job);
+        log.info("Started {} job {} {}", type, job.getId(), parameters);
+        return job;
+    }
+
+    /**
+     * A job's state: live if it runs here, otherwise as last saved.
+     */
+    public Job get(String id) {
+        Run run = running.get(id);
+        return run != null ? run.snapshot() : jobRepository.findById(id);
+    }
+
+    /**
+     * All jobs, newest first.
+     */
+    public List<Job> findAll() {
+        List<Job> jobs = new ArrayList<>(jobRepository.findAll());
+        jobs.replaceAll(job -> running.containsKey(job.getId()) ? get(job.getId()) : job);
+        jobs.sort(Comparator.comparing(Job::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder())));
+        return jobs;
+    }
+
+    /**
+     * Ask a job to stop. A job running on another instance notices at its next save.
+     *
+     * @throws IllegalArgumentException if there is no such job, or it has already finished
+     */
+    public Job cancel(String id) {
+        Run run = running.get(id);
+        if (run != null) {
+            run.cancelled = true;
+            return run.snapshot();
+        }
+        Job job = jobRepository.findById(id);
+        if (job == null) {
+            throw new IllegalArgumentException("Job '" + id + "' not found");
+        }
+        if (!Job.RUNNING.equals(job.getStatus())) {
+            throw new IllegalArgumentException("Job '" + id + "' has already finished");
+        }
+        job.setStatus(Job.CANCELLED);
+        job.setUpdatedAt(Instant.now().toString());
+        job.setMessage("Cancelled");
+        jobRepository.save(job);
+        return job;
+    }
+
+    /**
+     * Jobs currently running on this instance.
+     */
+    public int getRunning() {
+        return running.size();
+    }
+
+    /**
+     * The current shared write budget, in write units per second.
+     */
+    public double getWriteRate() {
+        return writeLimiter.getRate();
+    }
+
+    /**
+     * Start the heartbeat, which also adopts jobs left behind by a crashed instance
+     * (including this one, before a restart).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startHeartbeat() {
+        scheduler.scheduleWithFixedDelay(this::tick, 0, heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Running jobs stay RUNNING in the table and are adopted after stale-seconds
+        scheduler.shutdownNow();
+        jobThreads.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void tick() {
+        try {
+            running.values().forEach(Run::save);
+            Instant staleBefore = Instant.now().minus(staleAfter);
+            for (Job job : jobRepository.findAll()) {
+                if (Job.RUNNING.equals(job.getStatus()) && !running.containsKey(job.getId())
+                        && Instant.parse(job.getUpdatedAt()).isBefore(staleBefore)) {
+                    adopt(job);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Job heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private void adopt(Job job) {
+        JobHandler handler = handlers.get(job.getType());
+        if (handler == null) {
+            return;
+        }
+        String previous = job.getRunningOn();
+        job.setRunningOn(instanceId);
+        job.setUpdatedAt(Instant.now().toString());
+        job.setMessage("Resumed after " + previous + " stopped");
+        try {
+            jobRepository.save(job);
+        } catch (ConditionalCheckFailedException e) {
+            return; // another instance got there first
+        }
+        log.info("Resuming {} job {} (was running on {})", job.getType(), job.getId(), previous);
+        launch(handler, job);
+    }
+
+    private void launch(JobHandler handler, Job job) {
+        Run run = new Run(job);
+        running.put(job.getId(), run);
+        jobThreads.submit(() -> {
+            // The job's DynamoDB capacity is charged to "job <type>" and whoever started it
+            CapacityAccounting.enter("job " + job.getType(), job.getCreatedBy());
+            try {
+                handler.run(job, run);
+                run.finish(Job.SUCCEEDED, run.summary);
+            } catch (CancellationException e) {
+                run.finish(Job.CANCELLED, "Cancelled");
+            } catch (InterruptedException e) {
+                // Shutting down: leave it RUNNING so it's resumed
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.warn("{} job {} failed", job.getType(), job.getId(), e);
+                run.finish(Job.FAILED, e.getMessage());
+            } finally {
+                running.remove(job.getId());
+                CapacityAccounting.clear();
+            }
+        });
+    }
+
+    /**
+     * One job running on this instance; the handler's view of JobService.
+     */
+    private final class Run implements JobHandler.Control {
+
+        private final Job job;
+        private volatile boolean cancelled;
+        private volatile String summary; // the handler's last setMessage()
+        private boolean lostOwnership;
+        private long lastSaved = System.nanoTime();
+
+        Run(Job job) {
+            this.job = job;
+        }
+
+        @Override
+        public void checkpoint() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+        }
+
+        @Override
+        public synchronized void setTotal(long total) {
+            job.setTotal(total);
+        }
+
+        @Override
+        public synchronized void setMessage(String message) {
+            summary = message;
+            job.setMessage(message);
+        }
+
+        @Override
+        public synchronized void progress(long processed, long skipped, long failed) {
+            job.setProcessed(job.getProcessed() + processed);
+            job.setSkipped(job.getSkipped() + skipped);
+            job.setFailed(job.getFailed() + failed);
+            if (System.nanoTime() - lastSaved > TimeUnit.SECONDS.toNanos(1)) {
+                save();
+            }
+        }
+
+        @Override
+        public void inParallel(List<? extends Callable<?>> tasks) throws InterruptedException {
+            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            tasks.forEach(task -> futures.add(workers.submit(CapacityAccounting.propagating(task))));
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                futures.forEach(f -> f.cancel(true));
+            }
+        }
+
+        @Override
+        public BatchResult throttledWrite(List<String> keys, double unitsPerItem,
+                                          Function<List<String>, BatchResult> writer) throws InterruptedException {
+            List<String> pending = keys;
+            List<String> skipped = new ArrayList<>();
+            double consumed = 0;
+            for (int attempt = 0; attempt < MAX_WRITE_ATTEMPTS && !pending.isEmpty(); attempt++) {
+                checkpoint();
+                double estimate = pending.size() * unitsPerItem;
+                writeLimiter.acquire(estimate);
+                BatchResult result;
+                try {
+                    result = writer.apply(pending);
+                } catch (DynamoDbException e) {
+                    if (!e.isThrottlingException()) {
+                        throw e;
+                    }
+                    result = new BatchResult(pending, List.of(), estimate);
+                }
+                writeLimiter.adjust(result.consumedUnits() - estimate);
+                consumed += result.consumedUnits();
+                skipped.addAll(result.skipped());
+                if (result.unprocessed().isEmpty()) {
+                    writeLimiter.recover();
+                    pending = List.of();
+                } else {
+                    // DynamoDB is throttling us: slow everyone down, wait, retry what's left
+                    writeLimiter.backOff();
+                    pending = result.unprocessed();
+                    long backoff = Math.min(MAX_BACKOFF_MS, 50L << attempt);
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+                }
+            }
+            return new BatchResult(pending, skipped, consumed);
+        }
+
+        synchronized Job snapshot() {
+            Job copy = new Job();
+            copy.setId(job.getId());
+            copy.setType(job.getType());
+            copy.setStatus(cancelled ? Job.CANCELLED : job.getStatus());
+            copy.setParameters(job.getParameters());
+            copy.setCreatedBy(job.getCreatedBy());
+            copy.setCreatedAt(job.getCreatedAt());
+            copy.setUpdatedAt(job.getUpdatedAt());
+            copy.setRunningOn(job.getRunningOn());
+            copy.setTotal(job.getTotal());
+            copy.setProcessed(job.getProcessed());
+            copy.setSkipped(job.getSkipped());
+            copy.setFailed(job.getFailed());
+            copy.setMessage(job.getMessage());
+            copy.setVersion(job.getVersion());
+            return copy;
+        }
+
+        /**
+         * Save progress. If the save conflicts, someone else changed the job: it was
+         * cancelled, or adopted by another instance that thought we were dead. Either
+         * way this run stops without writing again.
+         */
+        synchronized void save() {
+            if (lostOwnership) {
+                return;
+            }
+            job.setUpdatedAt(Instant.now().toString());
+            try {
+                jobRepository.save(job);
+                lastSaved = System.nanoTime();
+            } catch (ConditionalCheckFailedException e) {
+                lostOwnership = true;
+                cancelled = true;
+                log.info("Job {} was changed elsewhere; stopping here", job.getId());
+            } catch (RuntimeException e) {
+                log.warn("Could not save progress of job {}: {}", job.getId(), e.getMessage());
+            }
+        }
+
+        synchronized void finish(String status, String message) {
+            if (lostOwnership) {
+                return;
+            }
+            job.setStatus(status);
+            job.setMessage(message);
+            save();
+            log.info("{} job {} {}: {} processed, {} skipped, {} failed", job.getType(), job.getId(),
+                    status, job.getProcessed(), job.getSkipped(), job.getFailed());
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
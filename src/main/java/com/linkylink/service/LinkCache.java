@@ -0,0 +1,163 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Link;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-heap cache of recently resolved go links, consulted before DynamoDB on redirects.
+ *
+ * - Entries are "fresh" for ttl-seconds. After that get() misses and the caller
+ *   reloads from DynamoDB, so edits made on other app instances show up within the TTL.
+ * - Entries past the TTL aren't removed, though: for stale-hours they are still the
+ *   last known value of the link, which getStale() returns when DynamoDB can't be
+ *   reached (see LinkService.resolve). Only eviction or a delete removes them.
+ * - Edits made on THIS instance are applied immediately (LinkChangeListener).
+ * - A read that raced with such an edit must not put back what it read: a redirect
+ *   that looked the link up just before an update (or delete) could otherwise cache
+ *   the old value after the listener cached the new one, and serve it for the whole
+ *   TTL. Readers take a stamp() before reading and putIfUnchanged() after; the put is
+ *   dropped if any edit was applied in between.
+ * - Size is bounded: when full, a sample of 8 entries is checked and the one loaded
+ *   longest ago is evicted. Samples are taken in turn around the whole table (a
+ *   cursor that carries on where the last eviction stopped, like a clock hand), so
+ *   every entry gets sampled. Reads don't refresh an entry, so this approximates
+ *   "oldest first", not LRU; hot links are simply reloaded after their TTL anyway.
+ */
+@Component
+public class LinkCache implements LinkChangeListener {
+
+    private static final int EVICTION_SAMPLE = 8;
+
+    private record Entry(Link link, long loadedAt) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long staleNanos;
+    // Edits applied so far (onLinkSaved/onLinkDeleted), for stamp()
+    private final AtomicLong edits = new AtomicLong();
+    // Where the next eviction sample starts; guarded by evictionLock
+    private Iterator<Map.Entry<String, Entry>> evictionCursor;
+    private final Object evictionLock = new Object();
+
+    public LinkCache(@Value("${linkylink.cache.max-entries:100000}") int maxEntries,
+                     @Value("${linkylink.cache.ttl-seconds:30}") long ttlSeconds,
+                     @Value("${linkylink.cache.stale-hours:24}") long staleHours) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.staleNanos = TimeUnit.HOURS.toNanos(staleHours);
+    }
+
+    /**
+     * The cached link, or null if absent or older than the TTL.
+     */
+    public Link get(String keyword) {
+        Entry entry = entries.get(keyword);
+        if (entry == null || System.nanoTime() - entry.loadedAt() > ttlNanos) {
+            return null;
+        }
+        return entry.link();
+    }
+
+    /**
+     * The cached link even if it's past the TTL (but loaded within stale-hours),
+     * or null. For when the fresh value can't be had.
+     */
+    public Link getStale(String keyword) {
+        Entry entry = entries.get(keyword);
+        if (entry == null || System.nanoTime() - entry.loadedAt() > staleNanos) {
+            return null;
+        }
+        return entry.link();
+    }
+
+    /**
+     * Take before reading a link from elsewhere (off-heap store, DynamoDB) to cache
+     * it with putIfUnchanged().
+     */
+    public long stamp() {
+        return edits.get();
+    }
+
+    /**
+     * Cache a link read since {@code stamp}, unless an edit was applied meanwhile (it
+     * may be of this link, and newer than what was read). The check and the put are
+     * atomic with respect to edits of this keyword, which also update the entry in
+     * compute(). Edits of other keywords cost the occasional needless miss.
+     *
+     * @return false if the link wasn't cached
+     */
+    public boolean putIfUnchanged(Link link, long stamp) {
+        makeRoomFor(link.getKeyword());
+        long now = System.nanoTime();
+        boolean[] cached = new boolean[1];
+        entries.compute(link.getKeyword(), (k, entry) -> {
+            cached[0] = edits.get() == stamp;
+            return cached[0] ? new Entry(link, now) : entry;
+        });
+        return cached[0];
+    }
+
+    public void invalidate(String keyword) {
+        entries.remove(keyword);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void onLinkSaved(Link link) {
+        makeRoomFor(link.getKeyword());
+        long now = System.nanoTime();
+        entries.compute(link.getKeyword(), (k, entry) -> {
+            edits.incrementAndGet();
+            return new Entry(link, now);
+        });
+    }
+
+    @Override
+    public void onLinkDeleted(String keyword) {
+        entries.compute(keyword, (k, entry) -> {
+            edits.incrementAndGet();
+            return null;
+        });
+    }
+
+    private void makeRoomFor(String keyword) {
+        if (entries.size() >= maxEntries && !entries.containsKey(keyword)) {
+            evictOne();
+        }
+    }
+
+    private void evictOne() {
+        String oldestKey = null;
+        long oldest = Long.MAX_VALUE;
+        synchronized (evictionLock) {
+            for (int i = 0; i < EVICTION_SAMPLE; i++) {
+                if (evictionCursor == null || !evictionCursor.hasNext()) {
+                    evictionCursor = entries.entrySet().iterator(); // wrap around
+                    if (!evictionCursor.hasNext()) {
+                        break;
+                    }
+                }
+                Map.Entry<String, Entry> candidate = evictionCursor.next();
+                if (candidate.getValue().loadedAt() < oldest) {
+                    oldest = candidate.getValue().loadedAt();
+                    oldestKey = candidate.getKey();
+                }
+            }
+        }
+        if (oldestKey != null) {
+            entries.remove(oldestKey);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Link;
+
+/**
+ * Callback for components that keep local state derived from go links
+ * (snapshots, indexes, caches) and need to hear about changes.
+ *
+ * LinkService calls every registered listener (any Spring bean implementing this
+ * interface) right after a write to DynamoDB succeeds. Listeners run on the
+ * request thread, so they should only update in-memory state and hand any heavy
+ * lifting to a background thread.
+ */
+public interface LinkChangeListener {
+
+    /**
+     * A link was created or updated. {@code link} is the saved state.
+     */
+    void onLinkSaved(Link link);
+
+    /**
+     * A link was deleted.
+     */
+    void onLinkDeleted(String keyword);
+}
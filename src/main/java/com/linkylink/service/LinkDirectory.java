@@ -0,0 +1,356 @@
+package com.linkylink.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.linkylink.model.Link;
+import com.linkylink.repository.LinkRepository;
+import com.linkylink.util.GzipPrefix;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The public link directory (GET /api/links/all), kept as a ready-to-send snapshot.
+ *
+ * Instead of "scan the table + serialize every Link" on every request, we keep:
+ *   - an in-memory copy of all links, sorted by keyword
+ *   - the JSON bytes of that list, plus a gzipped copy
+ *   - a strong ETag derived from the JSON bytes
+ *
+ * Serving a request is then just "write these bytes", and a client that already has
+ * the current version (If-None-Match) gets a 304 with no body at all.
+ *
+ * The dashboard (GET /api/dashboard) is served from the same snapshot: all links
+ * plus, for the current user, the positions of their own links in that list
+ * ({"links":[...],"mine":[0,4,7]}). Each snapshot indexes the positions by owner and
+ * keeps the gzipped bytes up to "mine" (see GzipPrefix), so a dashboard response
+ * only compresses its last few bytes.
+ *
+ * Keeping it fresh:
+ *   - LinkService notifies us on create/update/delete (LinkChangeListener). We patch
+ *     the in-memory map right away and re-serialize on a background thread. Bursts of
+ *     changes are coalesced into a single rebuild.
+ *   - A periodic full reload picks up changes made by other app instances and click
+ *     counts (which change on every redirect and are not worth a rebuild each).
+ */
+@Service
+public class LinkDirectory implements LinkChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkDirectory.class);
+
+    // Wait this long after a change before rebuilding, so bursts cost one rebuild
+    private static final long REBUILD_DEBOUNCE_MS = 200;
+
+    private static final byte[] DASHBOARD_HEAD = "{\"links\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DASHBOARD_MINE = ",\"mine\":".getBytes(StandardCharsets.US_ASCII);
+    private static final int[] NONE = new int[0];
+
+    /**
+     * One immutable, pre-serialized version of the directory.
+     *
+     * @param byOwner       positions in {@code links} of each user's links, ascending
+     * @param dashboardGzip gzip of the dashboard response up to the user's positions
+     */
+    public record Snapshot(long version, String etag, byte[] json, byte[] gzip, List<Link> links,
+                           Map<String, int[]> byOwner, GzipPrefix dashboardGzip) {
+
+        /**
+         * Positions in {@link #links()} of the links owned by {@code username}.
+         */
+        public int[] ownedBy(String username) {
+            return byOwner.getOrDefault(username, NONE);
+        }
+    }
+
+    /**
+     * One user's dashboard, from one snapshot: {"links":[...],"mine":[...]}.
+     *
+     * @param mine the serialized tail, e.g. [0,4,7]}
+     * @param etag strong ETag covering both the snapshot and the user's positions
+     */
+    public record Dashboard(Snapshot snapshot, byte[] mine, String etag) {
+
+        public byte[] json() {
+            byte[] json = snapshot.json();
+            byte[] body = new byte[DASHBOARD_HEAD.length + json.length + DASHBOARD_MINE.length + mine.length];
+            int at = 0;
+            for (byte[] part : List.of(DASHBOARD_HEAD, json, DASHBOARD_MINE, mine)) {
+                System.arraycopy(part, 0, body, at, part.length);
+                at += part.length;
+            }
+            return body;
+        }
+
+        public byte[] gzip() {
+            return snapshot.dashboardGzip().finish(mine);
+        }
+    }
+
+    private final LinkRepository linkRepository;
+    private final ClickCounters clickCounters;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduler;
+
+    // Guards 'links' and 'pendingDuringReload'
+    private final Object lock = new Object();
+    private TreeMap<String, Link> links;
+    private Map<String, Link> pendingDuringReload;
+
+    // Serializes rebuilds; separate from 'this' so a reader never waits for a reload's scan
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    // A change was applied that the snapshot doesn't include yet
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+    private long version; // guarded by rebuildLock
+
+    public LinkDirectory(LinkRepository linkRepository,
+                         ClickCounters clickCounters,
+                         ObjectMapper objectMapper,
+                         @Value("${linkylink.directory.refresh-seconds:60}") long refreshSeconds) {
+        this.linkRepository = linkRepository;
+        this.clickCounters = clickCounters;
+        this.objectMapper = objectMapper;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "link-directory");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::reloadQuietly, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * The current snapshot. The very first call loads it synchronously;
+     * after that this never touches DynamoDB.
+     *
+     * If a change made on this instance is still waiting for its debounced rebuild,
+     * the snapshot is rebuilt now, so a user who just saved a link sees it on the
+     * next page load.
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        } else if (dirty.get()) {
+            rebuild();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * The dashboard for {@code username}: every link, plus the positions of the
+     * user's own links among them. Each link is sent once, however many views it
+     * appears in. The body is only assembled when asked for (json() / gzip()), so a
+     * revalidation that ends in 304 costs a map lookup and a CRC of a few bytes.
+     */
+    public Dashboard dashboard(String username) {
+        Snapshot current = current();
+        byte[] tail = mineJson(current.ownedBy(username));
+        CRC32 crc = new CRC32();
+        crc.update(tail);
+        String etag = current.etag().substring(0, current.etag().length() - 1)
+                + "-" + Long.toHexString(crc.getValue()) + "\"";
+        return new Dashboard(current, tail, etag);
+    }
+
+    private static byte[] mineJson(int[] positions) {
+        StringBuilder out = new StringBuilder(positions.length * 6 + 2).append('[');
+        for (int i = 0; i < positions.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(positions[i]);
+        }
+        return out.append("]}").toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void onLinkSaved(Link link) {
+        apply(link.getKeyword(), link);
+    }
+
+    @Override
+    public void onLinkDeleted(String keyword) {
+        apply(keyword, null);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Re-read every link from DynamoDB and rebuild the snapshot.
+     * Changes that arrive while the scan is running are re-applied on top of it.
+     *
+     * If the scan fails (DynamoDB down, or its breaker open), the map read so far is
+     * thrown away and the current one kept: it already has those changes (apply()
+     * patches it as well), so the directory keeps serving every link it knew.
+     */
+    synchronized void reload() {
+        synchronized (lock) {
+            pendingDuringReload = new HashMap<>();
+        }
+
+        TreeMap<String, Link> fresh = new TreeMap<>();
+        boolean complete = false;
+        try {
+            for (Link link : linkRepository.findAll()) {
+                fresh.put(link.getKeyword(), link);
+            }
+            complete = true;
+        } finally {
+            synchronized (lock) {
+                Map<String, Link> pending = pendingDuringReload;
+                pendingDuringReload = null;
+                if (complete) {
+                    pending.forEach((keyword, link) -> {
+                        if (link == null) {
+                            fresh.remove(keyword);
+                        } else {
+                            fresh.put(keyword, link);
+                        }
+                    });
+                    links = fresh;
+                }
+            }
+        }
+        rebuild();
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // Keep serving the last good snapshot; try again next period
+            log.warn("Link directory reload failed: {}", e.getMessage());
+        }
+    }
+
+    private void apply(String keyword, Link link) {
+        synchronized (lock) {
+            if (pendingDuringReload != null) {
+                pendingDuringReload.put(keyword, link);
+            }
+            if (links == null) {
+                return; // not loaded yet — the first load will include this change
+            }
+            if (link == null) {
+                links.remove(keyword);
+            } else {
+                links.put(keyword, link);
+            }
+            dirty.set(true);
+        }
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> {
+                rebuildScheduled.set(false);
+                rebuild();
+            }, REBUILD_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Serialize the current map into a new immutable Snapshot.
+     */
+    private void rebuild() {
+        synchronized (rebuildLock) {
+            rebuildLocked();
+        }
+    }
+
+    private void rebuildLocked() {
+        List<Link> ordered;
+        synchronized (lock) {
+            dirty.set(false);
+            ordered = List.copyOf(links.values());
+        }
+        clickCounters.apply(ordered); // click counts include hot links' shards
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(ordered);
+            Snapshot previous = snapshot;
+            String etag = etagOf(json);
+            if (previous != null && previous.etag().equals(etag)) {
+                return; // same bytes — keep the old snapshot (and clients' caches) valid
+            }
+            snapshot = new Snapshot(++version, etag, json, gzip(json), ordered,
+                    indexByOwner(ordered), dashboardGzip(json));
+            log.debug("Link directory snapshot v{} built: {} links, {} bytes ({} gzipped)",
+                    version, ordered.size(), json.length, snapshot.gzip().length);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Positions of each owner's links in {@code links}.
+     */
+    private static Map<String, int[]> indexByOwner(List<Link> links) {
+        Map<String, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < links.size(); i++) {
+            positions.computeIfAbsent(links.get(i).getOwnerUsername(), owner -> new ArrayList<>()).add(i);
+        }
+        Map<String, int[]> byOwner = new HashMap<>(positions.size() * 2);
+        positions.forEach((owner, list) -> byOwner.put(owner, list.stream().mapToInt(Integer::intValue).toArray()));
+        return byOwner;
+    }
+
+    private static GzipPrefix dashboardGzip(byte[] json) {
+        byte[] head = new byte[DASHBOARD_HEAD.length + json.length + DASHBOARD_MINE.length];
+        System.arraycopy(DASHBOARD_HEAD, 0, head, 0, DASHBOARD_HEAD.length);
+        System.arraycopy(json, 0, head, DASHBOARD_HEAD.length, json.length);
+        System.arraycopy(DASHBOARD_MINE, 0, head, DASHBOARD_HEAD.length + json.length, DASHBOARD_MINE.length);
+        return new GzipPrefix(head);
+    }
+
+    /**
+     * Strong ETag: a hash of the exact bytes, so every instance serving identical
+     * data hands out the same ETag.
+     */
+    private static String etagOf(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
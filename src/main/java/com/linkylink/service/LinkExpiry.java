@@ -0,0 +1,189 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Link;
+import com.linkylink.repository.LinkRepository;
+import com.linkylink.util.HashedTimingWheel;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Removes expiring links from this instance's in-memory views the moment they expire.
+ *
+ * Redirects check Link.isExpired() on every lookup, so an expired link stops
+ * resolving immediately no matter what. This class handles the rest: the cache,
+ * the directory snapshot and the search index should drop the link too, without
+ * scanning for expired entries or keeping one scheduled task per link.
+ *
+ * Every link with an expiresAt gets one entry in a HashedTimingWheel (O(1) to
+ * schedule, reschedule or cancel, however many are pending). When it fires we tell
+ * the other LinkChangeListeners the link is gone, exactly as if it had been deleted.
+ * DynamoDB's own TTL deletes the item later.
+ *
+ * Sources of expiry times:
+ *   - links created/updated on this instance (LinkChangeListener)
+ *   - at startup, every link in the table with an expiresAt, except links changed
+ *     on this instance while that scan runs (the scan may have read them before the
+ *     change, and must not schedule their old expiry over the new one)
+ * Links created on other instances are dropped by the next directory/search reload,
+ * whose scan filters out expired items.
+ */
+@Component
+public class LinkExpiry implements LinkChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkExpiry.class);
+
+    /**
+     * What the wheel holds: which link, and the expiry it was scheduled for.
+     */
+    private record Expiration(String keyword, long expiresAtMillis) {
+    }
+
+    private final LinkRepository linkRepository;
+    private final ObjectProvider<LinkChangeListener> listeners;
+    private final HashedTimingWheel<Expiration> wheel;
+    // The live timeout per keyword; replaced (and the old one cancelled) on update
+    private final Map<String, HashedTimingWheel.Timeout<Expiration>> scheduled = new ConcurrentHashMap<>();
+    private final LongAdder expired = new LongAdder();
+    // Keywords saved or deleted while loadExpirations() scans; null when not scanning
+    private Set<String> changedDuringLoad;
+
+    public LinkExpiry(LinkRepository linkRepository,
+                      ObjectProvider<LinkChangeListener> listeners,
+                      @Value("${linkylink.expiry.tick-ms:100}") long tickMs,
+                      @Value("${linkylink.expiry.wheel-size:4096}") int wheelSize) {
+        this.linkRepository = linkRepository;
+        this.listeners = listeners;
+        this.wheel = new HashedTimingWheel<>(tickMs, TimeUnit.MILLISECONDS, wheelSize,
+                "link-expiry", this::onExpired);
+    }
+
+    /**
+     * Schedule every expiring link already in the table. Runs in the background;
+     * until it finishes, redirects still refuse expired links on their own.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadExpirations() {
+        Thread thread = new Thread(() -> {
+            synchronized (this) {
+                changedDuringLoad = new HashSet<>();
+            }
+            try {
+                long[] count = {0};
+                linkRepository.forEachExpiring(link -> {
+                    if (scheduleLoaded(link)) {
+                        count[0]++;
+                    }
+                });
+                log.info("Scheduled {} link expirations", count[0]);
+            } catch (RuntimeException e) {
+                log.warn("Failed to load link expirations: {}", e.getMessage());
+            } finally {
+                synchronized (this) {
+                    changedDuringLoad = null;
+                }
+            }
+        }, "link-expiry-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void onLinkSaved(Link link) {
+        if (changedDuringLoad != null) {
+            changedDuringLoad.add(link.getKeyword());
+        }
+        schedule(link);
+    }
+
+    @Override
+    public synchronized void onLinkDeleted(String keyword) {
+        if (changedDuringLoad != null) {
+            changedDuringLoad.add(keyword);
+        }
+        HashedTimingWheel.Timeout<Expiration> previous = scheduled.remove(keyword);
+        if (previous != null) {
+            wheel.cancel(previous);
+        }
+    }
+
+    /**
+     * Expirations waiting in the wheel.
+     */
+    public long getPending() {
+        return wheel.pending();
+    }
+
+    /**
+     * Links removed from the local views because they expired.
+     */
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.stop();
+    }
+
+    /**
+     * Schedule a link read by the startup scan, unless this instance has changed it
+     * since (or already scheduled it): what we have is at least as new.
+     *
+     * @return true if it was scheduled
+     */
+    private synchronized boolean scheduleLoaded(Link link) {
+        if (changedDuringLoad.contains(link.getKeyword()) || scheduled.containsKey(link.getKeyword())) {
+            return false;
+        }
+        schedule(link);
+        return true;
+    }
+
+    private void schedule(Link link) {
+        long expiresAt = link.getExpiresAtMillis();
+        HashedTimingWheel.Timeout<Expiration> previous;
+        if (expiresAt == Long.MAX_VALUE) {
+            previous = scheduled.remove(link.getKeyword());
+        } else {
+            Expiration expiration = new Expiration(link.getKeyword(), expiresAt);
+            long delay = expiresAt - System.currentTimeMillis();
+            previous = scheduled.put(link.getKeyword(), wheel.schedule(expiration, delay, TimeUnit.MILLISECONDS));
+        }
+        if (previous != null) {
+            wheel.cancel(previous);
+        }
+    }
+
+    /**
+     * Runs on the wheel's thread. Only acts if this is still the link's current
+     * expiration (it may have been rescheduled in the meantime).
+     */
+    private void onExpired(Expiration expiration) {
+        boolean[] current = {false};
+        scheduled.computeIfPresent(expiration.keyword(), (keyword, timeout) -> {
+            current[0] = timeout.task() == expiration;
+            return current[0] ? null : timeout;
+        });
+        if (!current[0]) {
+            return;
+        }
+        expired.increment();
+        listeners.orderedStream()
+                .filter(listener -> listener != this)
+                .forEach(listener -> listener.onLinkDeleted(expiration.keyword()));
+        log.debug("go/{} expired", expiration.keyword());
+    }
+}
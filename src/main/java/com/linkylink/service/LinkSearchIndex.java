@@ -0,0 +1,523 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Link;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-memory full-text search over go links (GET /api/links/search?q=).
+ *
+ * Inverted index: every link is split into terms from its keyword, description and
+ * URL (host + path). For each term we keep a "posting list": the links containing it,
+ * with a weight depending on where it appeared (a keyword match counts more than a
+ * description match).
+ *
+ *   "jira"    → [ jira (3.0), oncall (1.0) ]
+ *   "oncall"  → [ oncall (3.0) ]
+ *
+ * Ranking: score = sum over query terms of (weight × idf), times a click boost of
+ * 1 + 0.25·log(1 + clickCount) so popular links win among equals.
+ *
+ * What keeps queries fast on large tables:
+ *   - Terms live in a sorted map, so prefix matching for type-ahead ("ji" → "jira",
+ *     "jinja") is a range lookup.
+ *   - Each posting list is an array sorted by weight × click boost. For a one-term
+ *     query that IS the final ranking, so the (at most 64) prefix expansions are
+ *     merged best-first and we stop after 'limit' results, however long the lists are.
+ *   - For several terms (AND), we walk the term with the fewest postings best-first
+ *     and check the other terms against each candidate's own handful of terms,
+ *     examining a bounded number of candidates.
+ *   - Readers never lock: writers replace a posting array with an updated copy.
+ *
+ * Freshness:
+ *   - create/update/delete are applied incrementally (LinkChangeListener)
+ *   - a periodic full reindex, built from LinkDirectory's in-memory copy (no extra
+ *     scan), refreshes click counts and picks up other instances' edits
+ */
+@Service
+public class LinkSearchIndex implements LinkChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkSearchIndex.class);
+
+    private static final float KEYWORD_WEIGHT = 3.0f;
+    private static final float HOST_WEIGHT = 1.5f;
+    private static final float TEXT_WEIGHT = 1.0f;
+    // A prefix match is worth less than an exact term match
+    private static final float PREFIX_FACTOR = 0.6f;
+    // Cap on how many terms a prefix may expand to, so "a" stays cheap
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    // Cap on candidates examined for a multi-term query
+    private static final int MAX_CANDIDATES = 500;
+    private static final double CLICK_BOOST = 0.25;
+
+    private static final Set<String> STOP_TERMS = Set.of(
+            "http", "https", "www", "com", "org", "net", "html", "the", "and", "for"
+    );
+
+    private static final Posting[] NO_POSTINGS = new Posting[0];
+
+    /**
+     * One entry in a posting list. Lists are sorted by rank (weight × boost), best first.
+     */
+    private record Posting(String keyword, float weight, float boost) {
+        float rank() {
+            return weight * boost;
+        }
+    }
+
+    private static final Comparator<Posting> BEST_FIRST = Comparator
+            .comparingDouble((Posting p) -> -p.rank())
+            .thenComparing(Posting::keyword);
+
+    /**
+     * One indexed link: the link, its terms with their weights (to remove it again and
+     * to match extra query terms without touching posting lists) and its click boost.
+     */
+    private record Doc(Link link, String[] terms, float[] weights, float boost) {
+    }
+
+    /**
+     * Postings + documents. Swapped out as a whole on full reindex.
+     * The same posting arrays are kept in a sorted map (prefix ranges) and a hash
+     * map (exact lookups).
+     */
+    private static final class Index {
+        final ConcurrentSkipListMap<String, Posting[]> postings = new ConcurrentSkipListMap<>();
+        final Map<String, Posting[]> exact = new ConcurrentHashMap<>();
+        final Map<String, Doc> docs = new ConcurrentHashMap<>();
+
+        void put(String term, Posting[] list) {
+            postings.put(term, list);
+            exact.put(term, list);
+        }
+
+        void remove(String term) {
+            postings.remove(term);
+            exact.remove(term);
+        }
+    }
+
+    /**
+     * One index term matched by a query term, with its score multiplier (prefix × idf).
+     */
+    private record Expansion(Posting[] postings, float multiplier) {
+        float score(int position) {
+            return postings[position].rank() * multiplier;
+        }
+    }
+
+    private final LinkDirectory linkDirectory;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Index index;
+    // Serializes full reindexes (the first load and the periodic one)
+    private final Object reindexLock = new Object();
+    // Changes that arrive during a full reindex, replayed on the new index (guarded by 'this')
+    private Map<String, Link> pendingDuringReindex;
+
+    public LinkSearchIndex(LinkDirectory linkDirectory,
+                           @Value("${linkylink.search.reindex-seconds:300}") long reindexSeconds) {
+        this.linkDirectory = linkDirectory;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "link-search-reindex");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::reindexQuietly, reindexSeconds, reindexSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Search links by keyword, description and URL, best matches first. Every query
+     * term also matches as a prefix, so partial input works for type-ahead.
+     */
+    public List<Link> search(String query, int limit) {
+        List<String> queryTerms = new ArrayList<>();
+        // Single characters are fine in a query: "j" is a valid type-ahead prefix
+        tokenize(query, 1, queryTerms::add);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Index idx = ensureLoaded();
+
+        // Expand every query term; the one with the fewest postings drives the search
+        List<List<Expansion>> expanded = new ArrayList<>(queryTerms.size());
+        int driver = 0;
+        long fewest = Long.MAX_VALUE;
+        for (String term : queryTerms) {
+            List<Expansion> expansions = expand(idx, term);
+            if (expansions.isEmpty()) {
+                return List.of(); // every term must match
+            }
+            long postings = 0;
+            for (Expansion expansion : expansions) {
+                postings += expansion.postings().length;
+            }
+            if (postings < fewest) {
+                fewest = postings;
+                driver = expanded.size();
+            }
+            expanded.add(expansions);
+        }
+
+        return queryTerms.size() == 1
+                ? topForOneTerm(idx, expanded.get(0), limit)
+                : topForAllTerms(idx, queryTerms, expanded.get(driver), driver, limit);
+    }
+
+    @Override
+    public synchronized void onLinkSaved(Link link) {
+        if (pendingDuringReindex != null) {
+            pendingDuringReindex.put(link.getKeyword(), link);
+        }
+        if (index != null) {
+            remove(index, link.getKeyword());
+            add(index, link);
+        }
+    }
+
+    @Override
+    public synchronized void onLinkDeleted(String keyword) {
+        if (pendingDuringReindex != null) {
+            pendingDuringReindex.put(keyword, null);
+        }
+        if (index != null) {
+            remove(index, keyword);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Rebuild the whole index from the directory's in-memory link list and swap it in.
+     */
+    void reindex() {
+        synchronized (reindexLock) {
+            synchronized (this) {
+                pendingDuringReindex = new HashMap<>();
+            }
+            Index fresh = new Index();
+            try {
+                bulkLoad(fresh, linkDirectory.current().links());
+            } finally {
+                synchronized (this) {
+                    pendingDuringReindex.forEach((keyword, link) -> {
+                        remove(fresh, keyword);
+                        if (link != null) {
+                            add(fresh, link);
+                        }
+                    });
+                    pendingDuringReindex = null;
+                    index = fresh;
+                }
+            }
+            log.debug("Search index rebuilt: {} links, {} terms", fresh.docs.size(), fresh.postings.size());
+        }
+    }
+
+    private Index ensureLoaded() {
+        Index idx = index;
+        if (idx == null) {
+            synchronized (reindexLock) {
+                if (index == null) {
+                    reindex();
+                }
+                idx = index;
+            }
+        }
+        return idx;
+    }
+
+    private void reindexQuietly() {
+        try {
+            reindex();
+        } catch (RuntimeException e) {
+            log.warn("Search reindex failed: {}", e.getMessage());
+        }
+    }
+
+    // ==================== Querying ====================
+
+    /**
+     * The index terms starting with the query term, each with its score multiplier.
+     */
+    private static List<Expansion> expand(Index idx, String term) {
+        int totalDocs = Math.max(1, idx.docs.size());
+        List<Expansion> expansions = new ArrayList<>();
+        for (Map.Entry<String, Posting[]> match
+                : idx.postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            if (expansions.size() >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            float factor = match.getKey().equals(term) ? 1.0f : PREFIX_FACTOR;
+            Posting[] postings = match.getValue();
+            expansions.add(new Expansion(postings, factor * idf(totalDocs, postings.length)));
+        }
+        return expansions;
+    }
+
+    /**
+     * Inverse document frequency: rare terms matter more than common ones.
+     */
+    private static float idf(int totalDocs, int postings) {
+        return (float) Math.log(1 + (double) totalDocs / Math.max(1, postings));
+    }
+
+    /**
+     * One query term: merge its expansions best-first and stop at 'limit'. This is
+     * exact — within each list, rank × multiplier is already the final score.
+     */
+    private static List<Link> topForOneTerm(Index idx, List<Expansion> expansions, int limit) {
+        List<Link> results = new ArrayList<>(limit);
+        Set<String> seen = new HashSet<>();
+        forEachBestFirst(expansions, (posting, score) -> {
+            // A link matching several expansions is seen first under its best one
+            Doc doc = seen.add(posting.keyword()) ? idx.docs.get(posting.keyword()) : null;
+            if (doc != null) {
+                results.add(doc.link());
+            }
+            return results.size() < limit;
+        });
+        return results;
+    }
+
+    /**
+     * Several query terms: walk the driver term's candidates best-first, keep those
+     * that match every other term too, and rank them by their full score.
+     */
+    private static List<Link> topForAllTerms(Index idx, List<String> queryTerms, List<Expansion> driverExpansions,
+                                             int driver, int limit) {
+        int totalDocs = Math.max(1, idx.docs.size());
+        // idf per matched term, computed once per query instead of once per candidate
+        Map<String, Float> idfs = new HashMap<>();
+        PriorityQueue<Map.Entry<Link, Float>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+        Set<String> seen = new HashSet<>();
+
+        forEachBestFirst(driverExpansions, (posting, driverScore) -> {
+            Doc doc = seen.add(posting.keyword()) ? idx.docs.get(posting.keyword()) : null;
+            if (doc == null) {
+                return true;
+            }
+            float text = driverScore / posting.boost();
+            for (int t = 0; t < queryTerms.size() && text > 0; t++) {
+                if (t != driver) {
+                    float best = bestMatch(idx, doc, queryTerms.get(t), totalDocs, idfs);
+                    text = best > 0 ? text + best : 0;
+                }
+            }
+            if (text > 0) {
+                top.add(Map.entry(doc.link(), text * doc.boost()));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            return seen.size() < MAX_CANDIDATES;
+        });
+
+        Link[] results = new Link[top.size()];
+        for (int i = results.length - 1; i >= 0; i--) {
+            results[i] = top.poll().getKey();
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * The best score one link gets for a query term (exact or prefix), 0 if none.
+     * Looks only at the link's own terms, not at any posting list.
+     */
+    private static float bestMatch(Index idx, Doc doc, String queryTerm, int totalDocs, Map<String, Float> idfs) {
+        float best = 0;
+        String[] terms = doc.terms();
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i].startsWith(queryTerm)) {
+                float factor = terms[i].length() == queryTerm.length() ? 1.0f : PREFIX_FACTOR;
+                float idf = idfs.computeIfAbsent(terms[i],
+                        term -> idf(totalDocs, idx.exact.getOrDefault(term, NO_POSTINGS).length));
+                best = Math.max(best, doc.weights()[i] * factor * idf);
+            }
+        }
+        return best;
+    }
+
+    private interface PostingVisitor {
+        /**
+         * @return false to stop visiting
+         */
+        boolean visit(Posting posting, float score);
+    }
+
+    /**
+     * K-way merge of sorted posting lists: visits postings by descending score.
+     */
+    private static void forEachBestFirst(List<Expansion> expansions, PostingVisitor visitor) {
+        // A cursor is {expansion index, position in its posting list}
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(Math.max(1, expansions.size()),
+                Comparator.comparingDouble((int[] c) -> -expansions.get(c[0]).score(c[1])));
+        for (int i = 0; i < expansions.size(); i++) {
+            if (expansions.get(i).postings().length > 0) {
+                cursors.add(new int[]{i, 0});
+            }
+        }
+        while (!cursors.isEmpty()) {
+            int[] cursor = cursors.poll();
+            Expansion expansion = expansions.get(cursor[0]);
+            if (!visitor.visit(expansion.postings()[cursor[1]], expansion.score(cursor[1]))) {
+                return;
+            }
+            if (++cursor[1] < expansion.postings().length) {
+                cursors.add(cursor);
+            }
+        }
+    }
+
+    // ==================== Indexing ====================
+
+    /**
+     * Index many links at once: collect each term's postings, then sort every list once.
+     */
+    private static void bulkLoad(Index idx, Collection<Link> links) {
+        Map<String, List<Posting>> lists = new HashMap<>();
+        for (Link link : links) {
+            Doc doc = toDoc(link);
+            idx.docs.put(link.getKeyword(), doc);
+            for (int i = 0; i < doc.terms().length; i++) {
+                lists.computeIfAbsent(doc.terms()[i], t -> new ArrayList<>())
+                        .add(new Posting(link.getKeyword(), doc.weights()[i], doc.boost()));
+            }
+        }
+        lists.forEach((term, list) -> {
+            Posting[] postings = list.toArray(NO_POSTINGS);
+            Arrays.sort(postings, BEST_FIRST);
+            idx.put(term, postings);
+        });
+    }
+
+    private static void add(Index idx, Link link) {
+        Doc doc = toDoc(link);
+        idx.docs.put(link.getKeyword(), doc);
+        for (int i = 0; i < doc.terms().length; i++) {
+            Posting posting = new Posting(link.getKeyword(), doc.weights()[i], doc.boost());
+            Posting[] current = idx.exact.getOrDefault(doc.terms()[i], NO_POSTINGS);
+            int at = Arrays.binarySearch(current, posting, BEST_FIRST);
+            int insert = at >= 0 ? at : -at - 1;
+            Posting[] updated = new Posting[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insert);
+            updated[insert] = posting;
+            System.arraycopy(current, insert, updated, insert + 1, current.length - insert);
+            idx.put(doc.terms()[i], updated);
+        }
+    }
+
+    private static void remove(Index idx, String keyword) {
+        Doc doc = idx.docs.remove(keyword);
+        if (doc == null) {
+            return;
+        }
+        for (int i = 0; i < doc.terms().length; i++) {
+            String term = doc.terms()[i];
+            Posting[] current = idx.exact.get(term);
+            int at = current == null ? -1
+                    : Arrays.binarySearch(current, new Posting(keyword, doc.weights()[i], doc.boost()), BEST_FIRST);
+            if (at < 0) {
+                continue;
+            }
+            if (current.length == 1) {
+                idx.remove(term);
+                continue;
+            }
+            Posting[] updated = new Posting[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, at);
+            System.arraycopy(current, at + 1, updated, at, current.length - at - 1);
+            idx.put(term, updated);
+        }
+    }
+
+    private static Doc toDoc(Link link) {
+        Map<String, Float> weights = new HashMap<>();
+        tokenize(link.getKeyword(), t -> weights.merge(t, KEYWORD_WEIGHT, Float::sum));
+        // The whole keyword too, so "on-call" matches as a single term
+        if (link.getKeyword() != null) {
+            weights.merge(link.getKeyword(), KEYWORD_WEIGHT, Float::sum);
+        }
+        tokenize(link.getDescription(), t -> weights.merge(t, TEXT_WEIGHT, Float::sum));
+        tokenizeUrl(link.getUrl(), weights);
+
+        long clicks = link.getClickCount() == null ? 0 : link.getClickCount();
+        float boost = (float) (1 + CLICK_BOOST * Math.log1p(clicks));
+        String[] terms = weights.keySet().toArray(new String[0]);
+        float[] termWeights = new float[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            termWeights[i] = weights.get(terms[i]);
+        }
+        return new Doc(link, terms, termWeights, boost);
+    }
+
+    private static void tokenizeUrl(String url, Map<String, Float> weights) {
+        if (url == null) {
+            return;
+        }
+        String host = null;
+        String path = url;
+        try {
+            URI uri = URI.create(url);
+            host = uri.getHost();
+            path = uri.getRawPath();
+        } catch (IllegalArgumentException e) {
+            // Not a parseable URI (e.g. odd template) — index it as plain text
+        }
+        tokenize(host, t -> weights.merge(t, HOST_WEIGHT, Float::sum));
+        tokenize(path, t -> weights.merge(t, TEXT_WEIGHT, Float::sum));
+    }
+
+    private static void tokenize(String text, Consumer<String> sink) {
+        tokenize(text, 2, sink);
+    }
+
+    /**
+     * Split text into lowercase alphanumeric terms (no regex), skipping stop terms
+     * and terms shorter than minLength.
+     */
+    private static void tokenize(String text, int minLength, Consumer<String> sink) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean alnum = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (alnum && start < 0) {
+                start = i;
+            } else if (!alnum && start >= 0) {
+                if (i - start >= minLength) {
+                    String term = text.substring(start, i).toLowerCase();
+                    if (!STOP_TERMS.contains(term)) {
+                        sink.accept(term);
+                    }
+                }
+                start = -1;
+            }
+        }
+    }
+}
@@ -1,14 +1,32 @@
 package com.linkylink.service;
 
+import com.linkylink.model.Destination;
 import com.linkylink.model.Link;
+import com.linkylink.model.UrlTemplate;
+import com.linkylink.repository.BackendUnavailableException;
 import com.linkylink.repository.LinkRepository;
+import com.linkylink.util.CircuitBreaker;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.exception.SdkException;
 
+import java.net.URI;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Business logic for go link management.
@@ -17,7 +35,13 @@ import java.util.Set;
  *   - CRUD operations on go links
  *   - Keyword validation (reserved words)
  *   - Ownership checks
- *   - Click tracking
+ *   - Click tracking (per link, and per destination for weighted links; sharded
+ *     for hot links, see ClickCounters)
+ *   - Unique-visitor estimates (see UniqueVisitors)
+ *   - Link expiry (expired links behave as if they didn't exist)
+ *   - Browser-cacheable redirects, and estimating the clicks they hide (see recordClick)
+ *   - Notifying LinkChangeListeners (snapshots, indexes) after every write
+ *   - Degraded serving when DynamoDB is down (see resolve)
  */
 @Service
 public class LinkService {
@@ -26,21 +50,70 @@ public class LinkService {
 
     // Keywords that can't be used as go links (they'd conflict with app routes)
     private static final Set<String> RESERVED_KEYWORDS = Set.of(
-            "api", "app", "static", "favicon.ico", "health"
+            "api", "app", "static", "favicon.ico", "health", "actuator"
     );
 
+    // Redirect statuses a link can use: temporary (302, 307) or permanent (308)
+    private static final Set<Integer> REDIRECT_STATUSES = Set.of(302, 307, 308);
+
     private final LinkRepository linkRepository;
+    private final LinkCache linkCache;
+    private final OffHeapLinkStore offHeapStore;
+    private final UniqueVisitors uniqueVisitors;
+    private final ClickCounters clickCounters;
+    private final UrlIndex urlIndex;
+    private final List<LinkChangeListener> listeners;
+    private final int cacheControlSample;
+    private final int recentMaxDays;
+
+    // Background re-reads of links served stale, at most one per keyword at a time
+    private final ThreadPoolExecutor refresher;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder clicksDropped = new LongAdder();
 
-    public LinkService(LinkRepository linkRepository) {
+    public LinkService(LinkRepository linkRepository, LinkCache linkCache, OffHeapLinkStore offHeapStore,
+                       UniqueVisitors uniqueVisitors, ClickCounters clickCounters, UrlIndex urlIndex,
+                       List<LinkChangeListener> listeners,
+                       @Value("${linkylink.redirect-cache.control-sample:32}") int cacheControlSample,
+                       @Value("${linkylink.recent-links.max-days:31}") int recentMaxDays) {
+        if (cacheControlSample < 1) {
+            throw new IllegalArgumentException("linkylink.redirect-cache.control-sample must be at least 1");
+        }
         this.linkRepository = linkRepository;
+        this.linkCache = linkCache;
+        this.offHeapStore = offHeapStore;
+        this.uniqueVisitors = uniqueVisitors;
+        this.clickCounters = clickCounters;
+        this.urlIndex = urlIndex;
+        this.listeners = listeners;
+        this.cacheControlSample = cacheControlSample;
+        this.recentMaxDays = Math.max(1, recentMaxDays);
+        this.refresher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1024), r -> {
+                    Thread t = new Thread(r, "link-refresh");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
     }
 
     /**
      * Create a new go link.
      *
+     * @param expiresAt    optional ISO-8601 expiry time, null for a permanent link
+     * @param destinations optional weighted destinations, used instead of url
+     * @param redirectStatus optional 302 (default), 307 or 308
+     * @param cacheMaxAge  optional seconds browsers may cache the redirect, null/0 = not at all
      * @throws IllegalArgumentException if keyword is reserved or already taken
      */
-    public Link create(String keyword, String url, String description, String ownerUsername) {
+    public Link create(String keyword, String url, String description, String expiresAt,
+                       List<Destination> destinations, Integer redirectStatus, Long cacheMaxAge,
+                       String ownerUsername) {
         // Normalize keyword to lowercase
         keyword = keyword.toLowerCase().trim();
 
@@ -55,18 +128,28 @@ public class LinkService {
             throw new IllegalArgumentException("Keyword can only contain lowercase letters, numbers, and hyphens");
         }
 
-        // Check if keyword already exists
-        if (linkRepository.findByKeyword(keyword) != null) {
+        // Check if keyword already exists (an expired link no longer counts). Only a
+        // friendly early answer: a concurrent create can still win, see below
+        Link existing = linkRepository.findByKeyword(keyword);
+        if (existing != null && !existing.isExpired(System.currentTimeMillis())) {
             throw new IllegalArgumentException("Keyword '" + keyword + "' is already taken");
         }
 
-        // Ensure URL has a protocol
-        if (!url.startsWith("http://") && !url.startsWith("https://")) {
-            url = "https://" + url;
-        }
+        destinations = normalizeDestinations(destinations, null);
+        url = destinations != null ? destinations.get(0).getUrl() : normalizeUrl(url);
 
-        Link link = new Link(keyword, url, ownerUsername, description, Instant.now().toString());
-        linkRepository.save(link);
+        Link link = new Link(keyword, url, ownerUsername, description, Link.timestamp(Instant.now()));
+        link.setExpiresAt(parseExpiry(expiresAt));
+        link.setDestinations(destinations);
+        applyCachePolicy(link, redirectStatus, cacheMaxAge);
+        if (!linkRepository.create(link)) {
+            throw new IllegalArgumentException("Keyword '" + keyword + "' is already taken");
+        }
+        // The keyword may have belonged to a deleted or expired link; start its visitors and clicks
+        // from zero. Only once we own it: a losing create mustn't reset the winner's counts
+        uniqueVisitors.reset(keyword);
+        clickCounters.reset(keyword);
+        listeners.forEach(l -> l.onLinkSaved(link));
         log.info("Created go link: go/{} → {} (owner: {})", keyword, url, ownerUsername);
         return link;
     }
@@ -74,9 +157,17 @@ public class LinkService {
     /**
      * Update an existing go link.
      * Only the owner or an admin can update.
+     * Setting a new expiresAt (or null) also extends (or removes) the expiry.
+     *
+     * Browsers that cached the old redirect keep following it until their copy
+     * expires (a 308 for up to its max-age): nothing we send can reach them.
+     *
+     * Only the edited attributes are written (see LinkRepository.update), so clicks
+     * counted while the edit is in flight aren't overwritten.
      */
-    public Link update(String keyword, String newUrl, String newDescription,
-                         String requestingUsername, boolean isAdmin) {
+    public Link update(String keyword, String newUrl, String newDescription, String newExpiresAt,
+                       List<Destination> newDestinations, Integer newRedirectStatus, Long newCacheMaxAge,
+                       String requestingUsername, boolean isAdmin) {
         Link existing = linkRepository.findByKeyword(keyword);
         if (existing == null) {
             throw new IllegalArgumentException("Go link '" + keyword + "' not found");
@@ -87,16 +178,23 @@ public class LinkService {
             throw new SecurityException("You can only edit your own go links");
         }
 
-        // Ensure URL has a protocol
-        if (!newUrl.startsWith("http://") && !newUrl.startsWith("https://")) {
-            newUrl = "https://" + newUrl;
-        }
+        // Destinations that keep their URL keep their click counts
+        List<Destination> previousDestinations = existing.getDestinations();
+        newDestinations = normalizeDestinations(newDestinations, previousDestinations);
+        newUrl = newDestinations != null ? newDestinations.get(0).getUrl() : normalizeUrl(newUrl);
 
         existing.setUrl(newUrl);
         existing.setDescription(newDescription);
-        linkRepository.save(existing);
+        existing.setExpiresAt(parseExpiry(newExpiresAt));
+        existing.setDestinations(newDestinations);
+        applyCachePolicy(existing, newRedirectStatus, newCacheMaxAge);
+        Link updated = linkRepository.update(existing, !sameDestinations(previousDestinations, newDestinations));
+        if (updated == null) {
+            throw new IllegalArgumentException("Go link '" + keyword + "' not found");
+        }
+        listeners.forEach(l -> l.onLinkSaved(updated));
         log.info("Updated go link: go/{} → {}", keyword, newUrl);
-        return existing;
+        return clickCounters.apply(updated);
     }
 
     /**
@@ -114,6 +212,7 @@ public class LinkService {
         }
 
         linkRepository.delete(keyword);
+        listeners.forEach(l -> l.onLinkDeleted(keyword));
         log.info("Deleted go link: go/{} (by: {})", keyword, requestingUsername);
     }
 
@@ -124,32 +223,417 @@ public class LinkService {
      * @return the Link, or null if not found
      */
     public Link resolve(String keyword) {
-        Link link = linkRepository.findByKeyword(keyword.toLowerCase().trim());
+        return resolve(keyword, true);
+    }
+
+    /**
+     * Resolve a keyword: LinkCache (on-heap) → OffHeapLinkStore → DynamoDB.
+     *
+     * Both local tiers only answer with values read (or edited here) within the
+     * cache TTL; what DynamoDB returns is put back into both.
+     *
+     * If DynamoDB can't be reached — its circuit breaker is open, or this read failed —
+     * and the cache still holds the link from an earlier lookup (past its TTL, but
+     * within stale-hours), that last known value is served and the link is re-read in
+     * the background. So go links resolved recently keep working through an outage.
+     * Failing that, the OffHeapLinkStore's last known value is served the same way.
+     *
+     * @param countClick false for synthetic lookups (e.g. startup warm-up)
+     * @return the Link, or null if not found or expired
+     * @throws BackendUnavailableException if DynamoDB is down and there's no stale copy
+     */
+    public Link resolve(String keyword, boolean countClick) {
+        String normalized = keyword.toLowerCase().trim();
+        // Before any lookup: an edit applied from here on may be newer than what we read
+        long stamp = linkCache.stamp();
+        long offHeapStamp = offHeapStore.stamp();
+        Link link = linkCache.get(normalized);
+        if (link == null) {
+            // Not put into LinkCache: that would restart the TTL the entry has partly used up
+            link = offHeapStore.get(normalized);
+            if (link == null) {
+                link = load(normalized, stamp, offHeapStamp);
+            }
+        }
+        if (link != null && link.isExpired(System.currentTimeMillis())) {
+            // DynamoDB's TTL sweep can take hours; an expired link must stop working now
+            linkCache.invalidate(link.getKeyword());
+            return null;
+        }
+        if (link != null && countClick) {
+            recordClick(link, -1);
+        }
+        return link;
+    }
+
+    /**
+     * Read a link from DynamoDB into both local tiers, falling back to a stale cached
+     * copy (or the off-heap one) if DynamoDB is down. While the breaker isn't closed
+     * we don't even try when there is a fallback: a user would wait for a call that
+     * is about to fail.
+     *
+     * @param stamp        LinkCache.stamp() from before the lookup began
+     * @param offHeapStamp OffHeapLinkStore.stamp() from before the lookup began
+     */
+    private Link load(String keyword, long stamp, long offHeapStamp) {
+        Link stale = linkCache.getStale(keyword);
+        if (linkRepository.getBreaker().getState() != CircuitBreaker.State.CLOSED) {
+            Link fallback = fallback(keyword, stale);
+            if (fallback != null) {
+                return serveStale(fallback);
+            }
+        }
+        Link link;
+        try {
+            link = linkRepository.findByKeywordHedged(keyword);
+        } catch (RuntimeException e) {
+            Link fallback = fallback(keyword, stale);
+            if (fallback == null) {
+                throw e;
+            }
+            return serveStale(fallback);
+        }
         if (link != null) {
-            // Increment click count asynchronously-ish (atomic DynamoDB update)
-            linkRepository.incrementClickCount(link.getKeyword());
+            linkCache.putIfUnchanged(link, stamp);
+        } else if (stale != null) {
+            linkCache.invalidate(keyword); // deleted on another instance
         }
+        offHeapStore.storeIfUnchanged(keyword, link, offHeapStamp);
         return link;
     }
 
+    /** The last known copy of a link when DynamoDB can't give us the current one. */
+    private Link fallback(String keyword, Link stale) {
+        return stale != null ? stale : offHeapStore.getStale(keyword);
+    }
+
+    private Link serveStale(Link stale) {
+        staleServed.increment();
+        refreshInBackground(stale.getKeyword());
+        return stale;
+    }
+
+    /**
+     * Re-read a link off the request path. While the breaker is open this fails at
+     * once; the first refresh after open-seconds is the breaker's trial call.
+     */
+    private void refreshInBackground(String keyword) {
+        if (!refreshing.add(keyword)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    long stamp = linkCache.stamp();
+                    long offHeapStamp = offHeapStore.stamp();
+                    Link fresh = linkRepository.findByKeyword(keyword);
+                    if (fresh != null) {
+                        linkCache.putIfUnchanged(fresh, stamp);
+                    } else {
+                        linkCache.invalidate(keyword);
+                    }
+                    offHeapStore.storeIfUnchanged(keyword, fresh, offHeapStamp);
+                } catch (RuntimeException e) {
+                    log.debug("Background refresh of go/{} failed: {}", keyword, e.getMessage());
+                } finally {
+                    refreshing.remove(keyword);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(keyword); // queue full; a later request will try again
+        }
+    }
+
+    /**
+     * Count one click on a link and, for a weighted link, on the chosen destination
+     * (see Link.pickDestination()). A single atomic DynamoDB update.
+     *
+     * If DynamoDB is down the click is dropped (and counted in getClicksDropped()):
+     * a lost click is better than a failed redirect.
+     */
+    public void recordClick(Link link, int destination) {
+        recordClick(link, destination, false);
+    }
+
+    /**
+     * Count one click, as above, on a link that may be browser-cacheable.
+     *
+     * Clicks a browser answers from its cache never reach us, so for a cacheable link
+     * clickCount undercounts. To estimate by how much, one visitor in
+     * {@code control-sample} (see isCacheControlVisitor) is never sent a cacheable
+     * redirect, so all of their clicks do reach us. Each of those counts
+     * {@code control-sample} times into cacheSampleWeight, an estimate of all clicks;
+     * minus the clicks that did reach us (cacheableClicks) that leaves the clicks
+     * served from caches (Link.getEstimatedCachedClicks()).
+     *
+     * Clicks on a hot link go to one of its counter shards instead (see ClickCounters).
+     *
+     * @param controlVisitor the visitor is in the control group (was sent no-store)
+     */
+    public void recordClick(Link link, int destination, boolean controlVisitor) {
+        long sampleWeight = controlVisitor ? cacheControlSample : 0;
+        try {
+            // Shards need the link's createdAt; a partial link without one counts on the item
+            if (clickCounters.track(link.getKeyword()) && link.getCreatedAt() != null) {
+                clickCounters.incrementSharded(link, destination, sampleWeight);
+            } else if (link.isBrowserCacheable()) {
+                linkRepository.incrementCacheableClickCount(link.getKeyword(), sampleWeight);
+            } else if (destination < 0) {
+                linkRepository.incrementClickCount(link.getKeyword());
+            } else {
+                linkRepository.incrementClickCount(link.getKeyword(), destination,
+                        link.getDestinations().get(destination).getUrl());
+            }
+        } catch (BackendUnavailableException | SdkException e) {
+            clicksDropped.increment();
+        }
+    }
+
+    /**
+     * True if this visitor (a client fingerprint, as for recordVisitor) is in the
+     * control group for browser caching: about one in {@code control-sample}, always
+     * the same ones.
+     */
+    public boolean isCacheControlVisitor(String fingerprint) {
+        if (cacheControlSample == 1) {
+            return true;
+        }
+        int h = fingerprint.hashCode() * 0x9E3779B9; // spread the bits (Fibonacci hashing)
+        return Integer.remainderUnsigned(h ^ (h >>> 16), cacheControlSample) == 0;
+    }
+
+    /**
+     * Count a visit by a client fingerprint towards the link's unique visitors.
+     */
+    public void recordVisitor(Link link, String fingerprint) {
+        uniqueVisitors.record(link.getKeyword(), fingerprint);
+    }
+
+    /**
+     * Unique-visitor estimates for a link, all time and over the last {@code days} days.
+     *
+     * @throws IllegalArgumentException if the link doesn't exist or days is out of range
+     */
+    public UniqueVisitors.Estimate visitors(String keyword, int days) {
+        Link link = findByKeyword(keyword);
+        if (link == null || link.isExpired(System.currentTimeMillis())) {
+            throw new IllegalArgumentException("Go link '" + keyword + "' not found");
+        }
+        return uniqueVisitors.estimate(link.getKeyword(), days);
+    }
+
     /**
      * Find a go link by keyword (without incrementing click count).
      */
     public Link findByKeyword(String keyword) {
-        return linkRepository.findByKeyword(keyword.toLowerCase().trim());
+        return clickCounters.apply(linkRepository.findByKeyword(keyword.toLowerCase().trim()));
     }
 
     /**
      * Get all go links owned by a specific user.
      */
     public List<Link> findByOwner(String username) {
-        return linkRepository.findByOwner(username);
+        return clickCounters.apply(linkRepository.findByOwner(username));
+    }
+
+    /**
+     * Unexpired go links whose URL is the same as {@code url} once both are
+     * normalized (see UrlNormalizer), e.g. to warn about a duplicate before creating.
+     * Weighted links are found by their first destination.
+     *
+     * @throws IllegalArgumentException if url is blank or invalid
+     */
+    public List<Link> findByUrl(String url) {
+        return clickCounters.apply(urlIndex.find(normalizeUrl(url)));
+    }
+
+    /**
+     * A page of the recent-links feed (see recent()).
+     *
+     * @param latest createdAt of the newest link returned (or the since asked for,
+     *               if none): the since of the next poll
+     * @param next   if not null, more links in the range: ask again with before=next
+     */
+    public record Recent(List<Link> links, String latest, String next) {
+    }
+
+    /**
+     * Links created after {@code since} (exclusive; default: max-days ago) and before
+     * {@code before} (exclusive; default: now), newest first.
+     *
+     * As an incremental feed: poll with since = the last answer's latest to get only
+     * what's new. If the answer has a next, there were more new links than fit:
+     * fetch the rest with the same since and before = next, until next is null, and
+     * only then move since on to the first page's latest.
+     *
+     * @throws IllegalArgumentException for an invalid since, before or limit
+     */
+    public Recent recent(String since, String before, int limit) {
+        if (limit < 1 || limit > 100) {
+            throw new IllegalArgumentException("Limit must be 1-100");
+        }
+        Instant now = Instant.now();
+        Instant from = since == null || since.isBlank()
+                ? now.minus(recentMaxDays, ChronoUnit.DAYS)
+                : parseTime("since", since);
+        Instant to = before == null || before.isBlank() ? null : parseTime("before", before);
+        if (to != null && !from.isBefore(to)) {
+            return new Recent(List.of(), Link.timestamp(from), null);
+        }
+
+        String sinceKey = Link.timestamp(from);
+        LinkRepository.CreatedPage page = linkRepository.findCreatedBetween(
+                sinceKey, to == null ? null : Link.timestamp(to), limit, recentMaxDays);
+        List<Link> links = clickCounters.apply(page.links());
+        String latest = links.isEmpty() ? sinceKey : links.get(0).getCreatedAt();
+        return new Recent(links, latest, page.next());
     }
 
     /**
      * Get ALL go links (for admin or public listing).
      */
     public List<Link> findAll() {
-        return linkRepository.findAll();
+        return clickCounters.apply(linkRepository.findAll());
+    }
+
+    /**
+     * Redirects answered with a stale cached link because DynamoDB was down.
+     */
+    public long getStaleServed() {
+        return staleServed.sum();
+    }
+
+    /**
+     * Clicks not counted because DynamoDB was down.
+     */
+    public long getClicksDropped() {
+        return clicksDropped.sum();
+    }
+
+    /**
+     * Add a protocol if missing and validate.
+     */
+    private static String normalizeUrl(String url) {
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("URL is required");
+        }
+        url = url.trim();
+        // Ensure URL has a protocol (schemes are case-insensitive: "HTTPS://" has one)
+        if (!url.regionMatches(true, 0, "http://", 0, 7) && !url.regionMatches(true, 0, "https://", 0, 8)) {
+            url = "https://" + url;
+        }
+        validateUrl(url);
+        return url;
+    }
+
+    /**
+     * Validate weighted destinations and normalize their URLs. Click counts are
+     * carried over from {@code previous} for destinations whose URL is unchanged.
+     *
+     * @return the destinations, or null if none were given
+     */
+    private static List<Destination> normalizeDestinations(List<Destination> destinations,
+                                                           List<Destination> previous) {
+        if (destinations == null || destinations.isEmpty()) {
+            return null;
+        }
+        List<Destination> normalized = new ArrayList<>(destinations.size());
+        for (Destination destination : destinations) {
+            if (destination.getWeight() == null || destination.getWeight() < 1) {
+                throw new IllegalArgumentException("Destination weights must be at least 1");
+            }
+            Destination copy = new Destination(normalizeUrl(destination.getUrl()), destination.getWeight());
+            if (previous != null) {
+                previous.stream()
+                        .filter(p -> p.getUrl().equals(copy.getUrl()))
+                        .findFirst()
+                        .ifPresent(p -> copy.setClickCount(p.getClickCount()));
+            }
+            normalized.add(copy);
+        }
+        return normalized;
+    }
+
+    /**
+     * Same URLs and weights, in the same order (click counts aside)?
+     */
+    private static boolean sameDestinations(List<Destination> a, List<Destination> b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).getUrl().equals(b.get(i).getUrl())
+                    || !Objects.equals(a.get(i).getWeight(), b.get(i).getWeight())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Validate and set a link's redirect status and browser cache lifetime.
+     *
+     * A weighted link can't be cached: each browser would keep going to whichever
+     * destination it got first, and the weights would stop meaning anything.
+     */
+    private static void applyCachePolicy(Link link, Integer redirectStatus, Long cacheMaxAge) {
+        if (redirectStatus != null && !REDIRECT_STATUSES.contains(redirectStatus)) {
+            throw new IllegalArgumentException("Redirect status must be 302, 307 or 308");
+        }
+        if (cacheMaxAge != null && (cacheMaxAge < 0 || cacheMaxAge > Link.MAX_CACHE_AGE)) {
+            throw new IllegalArgumentException("Cache max-age must be 0-" + Link.MAX_CACHE_AGE + " seconds");
+        }
+        link.setRedirectStatus(redirectStatus == null || redirectStatus == 302 ? null : redirectStatus);
+        link.setCacheMaxAge(cacheMaxAge == null || cacheMaxAge == 0 ? null : cacheMaxAge);
+        if (link.isBrowserCacheable() && link.getDestinations() != null) {
+            throw new IllegalArgumentException("Links with several destinations can't be cached by browsers");
+        }
+    }
+
+    /**
+     * Normalize an optional expiry time to ISO-8601 UTC.
+     *
+     * @return null if no expiry was given
+     * @throws IllegalArgumentException if it can't be parsed or isn't in the future
+     */
+    private static String parseExpiry(String expiresAt) {
+        if (expiresAt == null || expiresAt.isBlank()) {
+            return null;
+        }
+        Instant instant;
+        try {
+            instant = Instant.parse(expiresAt.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid expiry time: " + expiresAt
+                    + " (expected ISO-8601, e.g. 2025-03-01T00:00:00Z)");
+        }
+        if (!instant.isAfter(Instant.now())) {
+            throw new IllegalArgumentException("Expiry time must be in the future");
+        }
+        return instant.toString();
+    }
+
+    private static Instant parseTime(String name, String value) {
+        try {
+            return Instant.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + name + " time: " + value
+                    + " (expected ISO-8601, e.g. 2025-01-15T10:30:00Z)");
+        }
+    }
+
+    /**
+     * Make sure the URL (with any {1}/{*} placeholders filled in) is something
+     * we can actually redirect to, so mistakes surface at save time, not on redirect.
+     */
+    private static void validateUrl(String url) {
+        try {
+            URI.create(UrlTemplate.parse(url).expand("x"));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid URL: " + url);
+        }
     }
 }
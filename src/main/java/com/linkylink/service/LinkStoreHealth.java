@@ -0,0 +1,47 @@
+package com.linkylink.service;
+
+import com.linkylink.repository.LinkRepository;
+import com.linkylink.util.CircuitBreaker;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health of the link store, as seen by LinkRepository's circuit breaker
+ * (GET /actuator/health, component "linkStore"):
+ *
+ *   UP        breaker closed, DynamoDB is answering
+ *   DEGRADED  breaker open or half-open: redirects are served from cached values,
+ *             writes are refused with 503
+ *
+ * DEGRADED is deliberately not DOWN and answers 200 (see application.properties):
+ * an instance in degraded mode is still the best place to send a redirect, so load
+ * balancers shouldn't take it out. For the same reason it isn't in the readiness group.
+ */
+@Component("linkStore")
+public class LinkStoreHealth implements HealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "DynamoDB unavailable, serving cached links");
+
+    private final LinkRepository linkRepository;
+    private final LinkService linkService;
+
+    public LinkStoreHealth(LinkRepository linkRepository, LinkService linkService) {
+        this.linkRepository = linkRepository;
+        this.linkService = linkService;
+    }
+
+    @Override
+    public Health health() {
+        CircuitBreaker breaker = linkRepository.getBreaker();
+        CircuitBreaker.State state = breaker.getState();
+        Health.Builder health = state == CircuitBreaker.State.CLOSED ? Health.up() : Health.status(DEGRADED);
+        return health
+                .withDetail("breaker", state)
+                .withDetail("timesOpened", breaker.getTimesOpened())
+                .withDetail("staleServed", linkService.getStaleServed())
+                .withDetail("clicksDropped", linkService.getClicksDropped())
+                .build();
+    }
+}
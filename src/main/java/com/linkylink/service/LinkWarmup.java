@@ -0,0 +1,188 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Link;
+import com.linkylink.repository.LinkRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms up a freshly started instance before it reports "ready".
+ *
+ * After a deploy every instance starts with an empty LinkCache and an un-JITted
+ * redirect path, so the first minutes of traffic all hit DynamoDB and run slowly.
+ * Once the app has started (tables exist), this runs in the background:
+ *
+ *   1. Load:  parallel-scan the links table, keep the top-N by clickCount in a
+ *             min-heap, and put them into the LinkCache.
+ *   2. Drive: run synthetic redirects through LinkService.resolve (without counting
+ *             clicks) so the JIT compiles the hot path before real users arrive.
+ *             Cache entries only stay fresh for the cache TTL (30 s), so after that
+ *             real traffic takes the miss path: the first {@code reads} synthetic
+ *             redirects drop their link from the cache first, and go all the way to
+ *             DynamoDB through the hedged read. That compiles the miss path too,
+ *             gives HedgedReadExecutor the latency samples it needs for its hedge
+ *             delay, and leaves the links freshly cached when the instance goes ready.
+ *
+ * Readiness: this bean is a HealthIndicator included in the readiness group
+ * (/actuator/health/readiness), reporting OUT_OF_SERVICE until both steps finish.
+ * A failed warm-up is logged and then reported UP — a cold instance is still
+ * better than no instance.
+ */
+@Component
+public class LinkWarmup implements HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkWarmup.class);
+
+    private final LinkRepository linkRepository;
+    private final LinkService linkService;
+    private final LinkCache linkCache;
+    private final boolean enabled;
+    private final int topN;
+    private final int iterations;
+    private final int reads;
+
+    private volatile boolean finished;
+    private final AtomicLong durationMs = new AtomicLong();
+    private final AtomicLong linksLoaded = new AtomicLong();
+    private volatile double clickCoverage;
+
+    public LinkWarmup(LinkRepository linkRepository,
+                      LinkService linkService,
+                      LinkCache linkCache,
+                      MeterRegistry meterRegistry,
+                      @Value("${linkylink.warmup.enabled:true}") boolean enabled,
+                      @Value("${linkylink.warmup.top-n:10000}") int topN,
+                      @Value("${linkylink.warmup.iterations:20000}") int iterations,
+                      @Value("${linkylink.warmup.reads:5000}") int reads) {
+        this.linkRepository = linkRepository;
+        this.linkService = linkService;
+        this.linkCache = linkCache;
+        this.enabled = enabled;
+        this.topN = topN;
+        this.iterations = iterations;
+        this.reads = reads;
+
+        Gauge.builder("linkylink.warmup.duration", durationMs, AtomicLong::get)
+                .baseUnit("milliseconds").description("Time taken by the startup warm-up")
+                .register(meterRegistry);
+        Gauge.builder("linkylink.warmup.links", linksLoaded, AtomicLong::get)
+                .description("Links pre-loaded into the cache at startup")
+                .register(meterRegistry);
+        Gauge.builder("linkylink.warmup.click.coverage", this, w -> w.clickCoverage)
+                .description("Fraction of all recorded clicks covered by the pre-loaded links")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmup() {
+        if (!enabled) {
+            finished = true;
+            return;
+        }
+        Thread thread = new Thread(this::warmup, "link-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Health health() {
+        if (!finished) {
+            return Health.outOfService().withDetail("warmup", "in progress").build();
+        }
+        return Health.up()
+                .withDetail("durationMs", durationMs.get())
+                .withDetail("links", linksLoaded.get())
+                .withDetail("clickCoverage", clickCoverage)
+                .build();
+    }
+
+    private void warmup() {
+        long start = System.nanoTime();
+        try {
+            // An edit during the scan may be newer than what it read: then the
+            // synthetic redirects below load the links instead
+            long stamp = linkCache.stamp();
+            List<Link> hottest = loadHottest();
+            hottest.forEach(link -> linkCache.putIfUnchanged(link, stamp));
+            linksLoaded.set(hottest.size());
+
+            int redirects = driveRedirects(hottest);
+            durationMs.set((System.nanoTime() - start) / 1_000_000);
+            log.info("Warm-up finished in {} ms: {} links cached ({}% of clicks), {} synthetic redirects",
+                    durationMs.get(), hottest.size(), Math.round(clickCoverage * 1000) / 10.0, redirects);
+        } catch (RuntimeException e) {
+            durationMs.set((System.nanoTime() - start) / 1_000_000);
+            log.warn("Warm-up failed after {} ms, starting cold: {}", durationMs.get(), e.getMessage());
+        } finally {
+            finished = true;
+        }
+    }
+
+    /**
+     * Stream the whole table once, keeping only the top-N links by clickCount
+     * (a min-heap: the root is the smallest of the current top-N).
+     */
+    private List<Link> loadHottest() {
+        Comparator<Link> byClicks = Comparator.comparingLong(LinkWarmup::clicks);
+        PriorityQueue<Link> heap = new PriorityQueue<>(byClicks);
+        long[] totalClicks = {0};
+
+        linkRepository.forEach(link -> {
+            totalClicks[0] += clicks(link);
+            if (heap.size() < topN) {
+                heap.add(link);
+            } else if (topN > 0 && clicks(link) > clicks(heap.peek())) {
+                heap.poll();
+                heap.add(link);
+            }
+        });
+
+        List<Link> hottest = new ArrayList<>(heap);
+        hottest.sort(byClicks.reversed());
+        long covered = hottest.stream().mapToLong(LinkWarmup::clicks).sum();
+        clickCoverage = totalClicks[0] == 0 ? 1.0 : (double) covered / totalClicks[0];
+        return hottest;
+    }
+
+    /**
+     * Run synthetic redirects round-robin over the cached links. The first {@code reads}
+     * are cache misses on purpose, so they read DynamoDB; the rest hit the cache. None
+     * count as clicks — they only exist to get the JIT (and the hedge delay) going.
+     */
+    private int driveRedirects(List<Link> links) {
+        if (links.isEmpty()) {
+            return 0;
+        }
+        int done = 0;
+        for (int i = 0; i < iterations; i++) {
+            String keyword = links.get(i % links.size()).getKeyword();
+            if (i < reads) {
+                linkCache.invalidate(keyword);
+            }
+            Link link = linkService.resolve(keyword, false);
+            if (link != null) {
+                link.targetUrl("");
+                done++;
+            }
+        }
+        return done;
+    }
+
+    private static long clicks(Link link) {
+        return link.getClickCount() == null ? 0 : link.getClickCount();
+    }
+}
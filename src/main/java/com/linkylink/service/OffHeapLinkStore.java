@@ -0,0 +1,603 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Link;
+import com.linkylink.repository.LinkRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Second-tier local link store, kept OFF the Java heap.
+ *
+ * With millions of links, holding them all as Link objects (six Strings each, plus
+ * map entries) means tens of millions of heap objects for the GC to trace, and
+ * redirect latency spikes whenever it does. This store keeps only what a redirect
+ * needs — keyword → URL (+ creation time, expiry and cache policy) — as UTF-8 bytes
+ * in direct ByteBuffers, which the GC sees as a handful of objects no matter how
+ * many links they hold.
+ *
+ * LinkService.resolve reads it between LinkCache and DynamoDB:
+ *
+ *   LinkCache (on-heap, hot links) → OffHeapLinkStore (every link) → DynamoDB
+ *
+ * Freshness: every entry carries verifiedAt, when its value was last read from
+ * DynamoDB (or written on this instance). Like LinkCache, get() only returns entries
+ * verified within ttl-seconds, so edits made on other instances show up within the
+ * same TTL whichever tier served the redirect. An older entry is a miss: the caller
+ * reads DynamoDB and hands the result back with storeIfUnchanged(), which re-stamps
+ * the entry in place if the link hasn't changed (no new bytes appended), or replaces
+ * or removes it if it has. getStale() ignores the TTL (up to stale-hours) for when
+ * DynamoDB can't be reached. Edits made on this instance apply at once
+ * (LinkChangeListener), and a read that raced with one is dropped, with the same
+ * stamp()/…IfUnchanged() protocol as LinkCache.
+ *
+ * Layout (one "generation", see Segment):
+ *
+ *   index (direct):  [hash:int | entry offset + 1:int] × slots     open addressing,
+ *                                                                   linear probing
+ *   data  (direct):  [keyLen:short | urlLen:int | createdLen:short | expiresAt:long
+ *                     | verifiedAt:long | status:short | maxAge:int
+ *                     | key bytes | url bytes | createdAt bytes] ...
+ *
+ * status and maxAge are the link's redirectStatus and cacheMaxAge, 0 for none.
+ * createdAt is kept verbatim: sharded click counters compare it (see ClickCounters).
+ *
+ * Entries are appended to 'data'; an update appends a new entry and repoints the
+ * slot, a delete leaves a tombstone. The wasted space is reclaimed by the periodic
+ * refresh, which builds a fresh generation from DynamoDB and swaps it in — only once
+ * the whole table has been read; a refresh that fails part-way keeps the old one.
+ * During a refresh both generations are allocated, so direct memory must fit twice
+ * capacity-mb plus the indexes. An allocation that doesn't fit (OutOfMemoryError from
+ * allocateDirect) is logged and the current generation kept.
+ *
+ * Concurrency: one writer at a time; readers use a StampedLock optimistic read (no
+ * lock, no CAS) and only fall back to a read lock if a write raced with them.
+ *
+ * Not stored: links with weighted destinations.
+ *
+ * OffHeapLinkStoreTest measures what this saves: heap retained and GC work for the
+ * same links held on-heap and here (-Dfootprint.links=... for a bigger run).
+ */
+@Component
+public class OffHeapLinkStore implements LinkChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(OffHeapLinkStore.class);
+
+    private static final int SLOT_BYTES = 8;
+    private static final int EMPTY = 0;
+    private static final int TOMBSTONE = -1;
+    private static final int URL_LENGTH = 2;
+    private static final int CREATED_LENGTH = 6;
+    private static final int EXPIRES_AT = 8;
+    private static final int VERIFIED_AT = 16;
+    private static final int STATUS = 24;
+    private static final int MAX_AGE = 26;
+    private static final int ENTRY_HEADER_BYTES = 30;
+    private static final double MAX_LOAD = 0.7;
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    /**
+     * One generation of off-heap buffers: an index and an append-only data region.
+     * Written by one thread at a time (under 'lock'), read by many.
+     */
+    private static final class Segment {
+        final StampedLock lock = new StampedLock();
+        final ByteBuffer data;
+        int dataEnd;
+        volatile ByteBuffer index;
+        int slots;
+        int used;   // non-empty slots, tombstones included
+        int live;   // slots pointing at an entry
+
+        Segment(int dataCapacity, int expectedEntries) {
+            this.data = ByteBuffer.allocateDirect(dataCapacity);
+            this.slots = Integer.highestOneBit(Math.max(16, (int) (expectedEntries / MAX_LOAD)) - 1) << 1;
+            this.index = ByteBuffer.allocateDirect(slots * SLOT_BYTES);
+        }
+
+        /**
+         * Store an entry, or only re-stamp verifiedAt if the key's current entry
+         * already holds these values.
+         *
+         * @return false if the data region is full, or the index is and can't grow
+         */
+        boolean put(byte[] key, int hash, byte[] url, byte[] created, long expiresAt, long verifiedAt,
+                    short status, int maxAge) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = find(index, slots, key, hash);
+                if (slot >= 0) {
+                    int existing = index.getInt(slot * SLOT_BYTES + 4) - 1;
+                    if (holds(existing, key.length, url, created, expiresAt, status, maxAge)) {
+                        data.putLong(existing + VERIFIED_AT, verifiedAt);
+                        return true;
+                    }
+                }
+                int size = ENTRY_HEADER_BYTES + key.length + url.length + created.length;
+                if (dataEnd + size > data.capacity()) {
+                    return false;
+                }
+                // Grow before inserting: insert() needs a free slot to terminate
+                if (used + 1 > slots * MAX_LOAD && !resize()) {
+                    return false;
+                }
+                int offset = dataEnd;
+                data.putShort(offset, (short) key.length);
+                data.putInt(offset + URL_LENGTH, url.length);
+                data.putShort(offset + CREATED_LENGTH, (short) created.length);
+                data.putLong(offset + EXPIRES_AT, expiresAt);
+                data.putLong(offset + VERIFIED_AT, verifiedAt);
+                data.putShort(offset + STATUS, status);
+                data.putInt(offset + MAX_AGE, maxAge);
+                data.put(offset + ENTRY_HEADER_BYTES, key);
+                data.put(offset + ENTRY_HEADER_BYTES + key.length, url);
+                data.put(offset + ENTRY_HEADER_BYTES + key.length + url.length, created);
+                dataEnd += size;
+
+                insert(index, slots, key, hash, offset);
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void remove(byte[] key, int hash) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = find(index, slots, key, hash);
+                if (slot >= 0) {
+                    index.putInt(slot * SLOT_BYTES + 4, TOMBSTONE);
+                    live--;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Entry offset for the key, or -1.
+         */
+        int lookup(byte[] key, int hash) {
+            ByteBuffer idx = index;
+            int slot = find(idx, idx.capacity() / SLOT_BYTES, key, hash);
+            return slot < 0 ? -1 : idx.getInt(slot * SLOT_BYTES + 4) - 1;
+        }
+
+        private void insert(ByteBuffer idx, int slotCount, byte[] key, int hash, int offset) {
+            int existing = find(idx, slotCount, key, hash);
+            if (existing >= 0) {
+                idx.putInt(existing * SLOT_BYTES + 4, offset + 1);
+                return;
+            }
+            int mask = slotCount - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int ref = idx.getInt(slot * SLOT_BYTES + 4);
+                if (ref == EMPTY || ref == TOMBSTONE) {
+                    idx.putInt(slot * SLOT_BYTES, hash);
+                    idx.putInt(slot * SLOT_BYTES + 4, offset + 1);
+                    if (ref == EMPTY) {
+                        used++;
+                    }
+                    live++;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Slot holding the key, or -1. Stops at the first empty slot.
+         */
+        private int find(ByteBuffer idx, int slotCount, byte[] key, int hash) {
+            int mask = slotCount - 1;
+            int slot = hash & mask;
+            for (int probes = 0; probes < slotCount; probes++, slot = (slot + 1) & mask) {
+                int ref = idx.getInt(slot * SLOT_BYTES + 4);
+                if (ref == EMPTY) {
+                    return -1;
+                }
+                if (ref != TOMBSTONE && idx.getInt(slot * SLOT_BYTES) == hash && keyEquals(ref - 1, key)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private boolean keyEquals(int offset, byte[] key) {
+            return data.getShort(offset) == key.length && bytesEqual(offset + ENTRY_HEADER_BYTES, key);
+        }
+
+        /**
+         * Does the entry at offset (whose key has keyLength bytes) hold these values?
+         */
+        private boolean holds(int offset, int keyLength, byte[] url, byte[] created, long expiresAt,
+                              short status, int maxAge) {
+            int urlStart = offset + ENTRY_HEADER_BYTES + keyLength;
+            return data.getInt(offset + URL_LENGTH) == url.length
+                    && data.getShort(offset + CREATED_LENGTH) == created.length
+                    && data.getLong(offset + EXPIRES_AT) == expiresAt
+                    && data.getShort(offset + STATUS) == status
+                    && data.getInt(offset + MAX_AGE) == maxAge
+                    && bytesEqual(urlStart, url)
+                    && bytesEqual(urlStart + url.length, created);
+        }
+
+        private boolean bytesEqual(int start, byte[] bytes) {
+            for (int i = 0; i < bytes.length; i++) {
+                if (data.get(start + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Double the index and re-insert live entries (dropping tombstones).
+         *
+         * @return false if there's no direct memory for the new index (the old one stays)
+         */
+        private boolean resize() {
+            int newSlots = live * 2 > slots * MAX_LOAD ? slots * 2 : slots;
+            ByteBuffer newIndex;
+            try {
+                newIndex = ByteBuffer.allocateDirect(newSlots * SLOT_BYTES);
+            } catch (OutOfMemoryError e) {
+                return false;
+            }
+            int mask = newSlots - 1;
+            for (int slot = 0; slot < slots; slot++) {
+                int ref = index.getInt(slot * SLOT_BYTES + 4);
+                if (ref == EMPTY || ref == TOMBSTONE) {
+                    continue;
+                }
+                int hash = index.getInt(slot * SLOT_BYTES);
+                int target = hash & mask;
+                while (newIndex.getInt(target * SLOT_BYTES + 4) != EMPTY) {
+                    target = (target + 1) & mask;
+                }
+                newIndex.putInt(target * SLOT_BYTES, hash);
+                newIndex.putInt(target * SLOT_BYTES + 4, ref);
+            }
+            used = live;
+            slots = newSlots;
+            index = newIndex;
+            return true;
+        }
+
+        /**
+         * The key's link if it was verified at most maxAgeNanos before now, else null.
+         */
+        Link read(byte[] key, int hash, long now, long maxAgeNanos) {
+            int offset = lookup(key, hash);
+            if (offset < 0 || now - data.getLong(offset + VERIFIED_AT) > maxAgeNanos) {
+                return null;
+            }
+            return decode(offset);
+        }
+
+        private Link decode(int offset) {
+            int keyLength = data.getShort(offset);
+            int urlLength = data.getInt(offset + URL_LENGTH);
+            int createdLength = data.getShort(offset + CREATED_LENGTH);
+            long expiresAt = data.getLong(offset + EXPIRES_AT);
+            short status = data.getShort(offset + STATUS);
+            int maxAge = data.getInt(offset + MAX_AGE);
+            if (keyLength < 0 || urlLength < 0 || createdLength < 0
+                    || offset + ENTRY_HEADER_BYTES + keyLength + urlLength + createdLength > dataEnd) {
+                throw new IllegalStateException("Inconsistent entry at " + offset);
+            }
+            byte[] bytes = new byte[keyLength + urlLength + createdLength];
+            data.get(offset + ENTRY_HEADER_BYTES, bytes);
+
+            // A partial Link: just what a redirect (and its click) needs
+            Link link = new Link();
+            link.setKeyword(new String(bytes, 0, keyLength, StandardCharsets.UTF_8));
+            link.setUrl(new String(bytes, keyLength, urlLength, StandardCharsets.UTF_8));
+            if (createdLength > 0) {
+                link.setCreatedAt(new String(bytes, keyLength + urlLength, createdLength, StandardCharsets.UTF_8));
+            }
+            if (expiresAt != NO_EXPIRY) {
+                link.setExpiresAt(Instant.ofEpochMilli(expiresAt).toString());
+            }
+            if (status != 0) {
+                link.setRedirectStatus((int) status);
+            }
+            if (maxAge != 0) {
+                link.setCacheMaxAge((long) maxAge);
+            }
+            return link;
+        }
+
+        long offHeapBytes() {
+            return (long) data.capacity() + index.capacity();
+        }
+    }
+
+    /** An edit made during a refresh, and when; a null link is a delete. */
+    private record Pending(Link link, long at) {
+    }
+
+    private final LinkRepository linkRepository;
+    private final boolean enabled;
+    private final int capacityBytes;
+    private final int expectedEntries;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Segment segment;
+    // Edits applied so far (onLinkSaved/onLinkDeleted), for stamp(); written under 'this'
+    private volatile long edits;
+    // Changes that arrive during a refresh, replayed onto the new generation (guarded by 'this')
+    private Map<String, Pending> pendingDuringRefresh;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public OffHeapLinkStore(LinkRepository linkRepository,
+                            @Value("${linkylink.offheap.enabled:true}") boolean enabled,
+                            @Value("${linkylink.offheap.capacity-mb:256}") int capacityMb,
+                            @Value("${linkylink.offheap.expected-entries:1000000}") int expectedEntries,
+                            @Value("${linkylink.offheap.refresh-seconds:300}") long refreshSeconds,
+                            @Value("${linkylink.cache.ttl-seconds:30}") long ttlSeconds,
+                            @Value("${linkylink.cache.stale-hours:24}") long staleHours) {
+        this.linkRepository = linkRepository;
+        this.enabled = enabled;
+        // A ByteBuffer is indexed by int, so one data region tops out just under 2 GB
+        this.capacityBytes = (int) Math.min(Integer.MAX_VALUE - 8, (long) capacityMb * 1024 * 1024);
+        this.expectedEntries = expectedEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.staleNanos = TimeUnit.HOURS.toNanos(staleHours);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "offheap-link-store");
+            t.setDaemon(true);
+            return t;
+        });
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Fill the store in the background once the app (and its tables) are up.
+     * Until then every lookup is a miss and falls through to DynamoDB.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (enabled) {
+            scheduler.execute(this::refreshQuietly);
+        }
+    }
+
+    /**
+     * The link (redirect fields only: keyword, url, createdAt, expiresAt,
+     * redirectStatus, cacheMaxAge) if it was verified within the TTL, or null.
+     */
+    public Link get(String keyword) {
+        Link link = read(keyword, ttlNanos);
+        (link == null ? misses : hits).increment();
+        return link;
+    }
+
+    /**
+     * The link even if it's past the TTL (but verified within stale-hours), or null.
+     * For when the fresh value can't be had.
+     */
+    public Link getStale(String keyword) {
+        return read(keyword, staleNanos);
+    }
+
+    /**
+     * Take before reading a link from DynamoDB to store it with storeIfUnchanged().
+     */
+    public long stamp() {
+        return edits;
+    }
+
+    /**
+     * Store what was just read from DynamoDB for a keyword (null: it doesn't exist),
+     * verified now, unless an edit was applied since {@code stamp}: it may be of this
+     * link, and newer than what was read.
+     *
+     * @return false if nothing was stored
+     */
+    public synchronized boolean storeIfUnchanged(String keyword, Link link, long stamp) {
+        if (edits != stamp || segment == null) {
+            return false;
+        }
+        apply(segment, keyword, link, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public synchronized void onLinkSaved(Link link) {
+        edited(link.getKeyword(), link);
+    }
+
+    @Override
+    public synchronized void onLinkDeleted(String keyword) {
+        edited(keyword, null);
+    }
+
+    private void edited(String keyword, Link link) {
+        long now = System.nanoTime();
+        edits++;
+        if (pendingDuringRefresh != null) {
+            pendingDuringRefresh.put(keyword, new Pending(link, now));
+        }
+        if (segment != null) {
+            apply(segment, keyword, link, now);
+        }
+    }
+
+    private Link read(String keyword, long maxAgeNanos) {
+        Segment current = segment;
+        if (current == null) {
+            return null;
+        }
+        byte[] key = keyword.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        long now = System.nanoTime();
+
+        Link link;
+        long stamp = current.lock.tryOptimisticRead();
+        try {
+            link = current.read(key, hash, now, maxAgeNanos);
+        } catch (RuntimeException e) {
+            link = null; // torn read during a concurrent write — retried below
+            stamp = 0;
+        }
+        if (!current.lock.validate(stamp)) {
+            stamp = current.lock.readLock();
+            try {
+                link = current.read(key, hash, now, maxAgeNanos);
+            } finally {
+                current.lock.unlockRead(stamp);
+            }
+        }
+        return link;
+    }
+
+    public long getEntries() {
+        Segment current = segment;
+        return current == null ? 0 : current.live;
+    }
+
+    public long getOffHeapBytes() {
+        Segment current = segment;
+        return current == null ? 0 : current.offHeapBytes();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Build a new generation from DynamoDB and swap it in. Also compacts away
+     * superseded entries and tombstones. Entries are stamped as verified when the
+     * scan started: each was read at some point after that. If the scan fails part-way the new
+     * generation is dropped and the old one keeps serving: a half-built one would
+     * miss every link it hadn't reached yet.
+     *
+     * @throws OutOfMemoryError if direct memory can't hold the new generation
+     */
+    void refresh() {
+        long start = System.nanoTime();
+        Segment previous = segment;
+        Segment fresh = new Segment(capacityBytes,
+                Math.max(expectedEntries, previous == null ? 0 : previous.live * 2));
+        synchronized (this) {
+            pendingDuringRefresh = new HashMap<>();
+        }
+        boolean complete = false;
+        try {
+            linkRepository.forEach(link -> apply(fresh, link.getKeyword(), link, start),
+                    "keyword", "url", "createdAt", "expiresAt", "destinations", "redirectStatus", "cacheMaxAge");
+            complete = true;
+        } finally {
+            synchronized (this) {
+                if (complete) {
+                    pendingDuringRefresh.forEach((keyword, pending) ->
+                            apply(fresh, keyword, pending.link(), pending.at()));
+                    segment = fresh;
+                }
+                pendingDuringRefresh = null;
+            }
+        }
+        logMemory(fresh, System.nanoTime() - start);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Off-heap link store refresh failed: {}", e.getMessage());
+        } catch (OutOfMemoryError e) {
+            // allocateDirect past -XX:MaxDirectMemorySize; letting it escape would kill the schedule
+            log.error("Off-heap link store refresh could not allocate {} MB of direct memory, "
+                    + "keeping the current generation: {}", capacityBytes >> 20, e.getMessage());
+        }
+    }
+
+    private void apply(Segment target, String keyword, Link link, long verifiedAt) {
+        byte[] key = keyword.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        if (link == null || link.getDestinations() != null || link.getUrl() == null
+                || link.isExpired(System.currentTimeMillis())) {
+            target.remove(key, hash);
+            return;
+        }
+        byte[] url = link.getUrl().getBytes(StandardCharsets.UTF_8);
+        byte[] created = link.getCreatedAt() == null
+                ? new byte[0]
+                : link.getCreatedAt().getBytes(StandardCharsets.UTF_8);
+        short status = link.getRedirectStatus() == null ? 0 : link.getRedirectStatus().shortValue();
+        int maxAge = link.getCacheMaxAge() == null ? 0 : link.getCacheMaxAge().intValue();
+        if (!target.put(key, hash, url, created, link.getExpiresAtMillis(), verifiedAt, status, maxAge)) {
+            // Full until the next refresh compacts it; the old entry would be stale
+            target.remove(key, hash);
+            rejected.increment();
+        }
+    }
+
+    /**
+     * Logs the store's off-heap footprint next to the JVM's heap and GC totals,
+     * so the effect of moving links off-heap can be compared across deploys.
+     */
+    private void logMemory(Segment loaded, long elapsedNanos) {
+        Runtime runtime = Runtime.getRuntime();
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        log.info("Off-heap link store loaded {} links in {} ms: {} MB data + {} MB index off-heap; "
+                        + "heap used {} MB of {} MB; GC so far: {} collections, {} ms",
+                loaded.live, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                loaded.dataEnd >> 20, loaded.index.capacity() >> 20,
+                (runtime.totalMemory() - runtime.freeMemory()) >> 20, runtime.maxMemory() >> 20,
+                gcCount, gcMillis);
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes, with a final mix so linear probing spreads well.
+     */
+    private static int hash(byte[] key) {
+        int h = 0x811c9dc5;
+        for (byte b : key) {
+            h = (h ^ b) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
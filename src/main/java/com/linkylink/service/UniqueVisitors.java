@@ -0,0 +1,230 @@
+package com.linkylink.service;
+
+import com.linkylink.repository.LinkRepository;
+import com.linkylink.repository.VisitorRepository;
+import com.linkylink.repository.VisitorRepository.Sketches;
+import com.linkylink.util.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts distinct visitors per link, as opposed to clickCount, which counts every
+ * reload, retry and bot hit.
+ *
+ * A visitor is a fingerprint — the signed-in username if the redirect carried a
+ * token, otherwise client IP + User-Agent — and it is never stored: it's hashed
+ * into a HyperLogLog sketch, which only remembers register maxima.
+ *
+ * Redirect path: record() adds the hash to this instance's pending sketch for the
+ * link (a map lookup and a few array operations; no I/O).
+ *
+ * Every flush-seconds, each pending sketch is merged into the stored ones
+ * (VisitorRepository): the all-time sketch and today's (UTC) sketch, dropping days
+ * older than retention-days. The merge is a compare-and-set loop, so instances
+ * flushing the same link at once all get counted. The all-time estimate is then
+ * copied onto the link item (uniqueVisitors), where listings and the dashboard
+ * see it without reading any sketch.
+ *
+ * Any window of days is the merge of those days' sketches (estimate()).
+ */
+@Service
+public class UniqueVisitors {
+
+    private static final Logger log = LoggerFactory.getLogger(UniqueVisitors.class);
+
+    private static final int MAX_SAVE_ATTEMPTS = 5;
+
+    /**
+     * Unique-visitor estimates for a link: all time, and over the last {@code days} days.
+     */
+    public record Estimate(long allTime, int days, long recent) {
+    }
+
+    private final VisitorRepository visitorRepository;
+    private final LinkRepository linkRepository;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int maxPending;
+
+    // Visitors seen on this instance since the last flush
+    private final Map<String, HyperLogLog> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public UniqueVisitors(VisitorRepository visitorRepository,
+                          LinkRepository linkRepository,
+                          @Value("${linkylink.visitors.enabled:true}") boolean enabled,
+                          @Value("${linkylink.visitors.flush-seconds:30}") long flushSeconds,
+                          @Value("${linkylink.visitors.retention-days:30}") int retentionDays,
+                          @Value("${linkylink.visitors.max-pending:100000}") int maxPending) {
+        this.visitorRepository = visitorRepository;
+        this.linkRepository = linkRepository;
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.maxPending = maxPending;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "visitor-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            flusher.scheduleWithFixedDelay(this::flush, flushSeconds, flushSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Count a visit to {@code keyword} by {@code fingerprint}. Repeat visits by the
+     * same fingerprint don't change the estimate.
+     */
+    public void record(String keyword, String fingerprint) {
+        if (!enabled) {
+            return;
+        }
+        if (pending.size() >= maxPending && !pending.containsKey(keyword)) {
+            dropped.increment(); // bounded memory beats perfect counts
+            return;
+        }
+        long hash = HyperLogLog.hash(fingerprint);
+        // compute() runs atomically with flush()'s remove(), so no visit slips between them
+        pending.compute(keyword, (k, sketch) -> {
+            HyperLogLog target = sketch != null ? sketch : new HyperLogLog();
+            target.add(hash);
+            return target;
+        });
+    }
+
+    /**
+     * Estimated unique visitors of a link: all time, and over the last {@code days}
+     * days (today included), including visits on this instance not yet flushed.
+     */
+    public Estimate estimate(String keyword, int days) {
+        if (days < 1 || days > retentionDays) {
+            throw new IllegalArgumentException("days must be between 1 and " + retentionDays);
+        }
+        Sketches stored = visitorRepository.load(keyword);
+        HyperLogLog allTime = HyperLogLog.fromBytes(stored.allTime());
+        HyperLogLog recent = new HyperLogLog();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        for (int i = 0; i < days; i++) {
+            byte[] day = stored.days().get(today.minusDays(i).toString());
+            if (day != null) {
+                recent.merge(HyperLogLog.fromBytes(day));
+            }
+        }
+        HyperLogLog local = pending.get(keyword);
+        if (local != null) {
+            allTime.merge(local);
+            recent.merge(local);
+        }
+        return new Estimate(allTime.estimate(), days, recent.estimate());
+    }
+
+    /**
+     * Forget a link's visitors. Called when a keyword is (re)created, so a new link
+     * doesn't inherit the visitors of an old one with the same keyword.
+     */
+    public void reset(String keyword) {
+        pending.remove(keyword);
+        if (enabled) {
+            visitorRepository.delete(keyword);
+        }
+    }
+
+    /**
+     * Links with visits not yet flushed.
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Link sketches merged into storage.
+     */
+    public long getFlushed() {
+        return flushed.sum();
+    }
+
+    /**
+     * Visits not counted because too many links had pending visits.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        if (enabled) {
+            flush(); // don't lose the last interval on a clean shutdown
+        }
+    }
+
+    private void flush() {
+        String today = LocalDate.now(ZoneOffset.UTC).toString();
+        String oldest = LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays - 1L).toString();
+        for (String keyword : pending.keySet()) {
+            HyperLogLog delta = pending.remove(keyword);
+            if (delta == null) {
+                continue;
+            }
+            try {
+                if (merge(keyword, delta, today, oldest)) {
+                    flushed.increment();
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to save visitors of go/{}: {}", keyword, e.getMessage());
+            }
+            // Try again next time; merging is idempotent, so nothing is double-counted
+            pending.merge(keyword, delta, (current, previous) -> {
+                current.merge(previous);
+                return current;
+            });
+        }
+    }
+
+    /**
+     * Merge a pending sketch into the stored ones (compare-and-set, retried on conflict).
+     *
+     * @return false if every attempt lost a race
+     */
+    private boolean merge(String keyword, HyperLogLog delta, String today, String oldest) {
+        for (int attempt = 0; attempt < MAX_SAVE_ATTEMPTS; attempt++) {
+            Sketches stored = visitorRepository.load(keyword);
+
+            HyperLogLog allTime = HyperLogLog.fromBytes(stored.allTime());
+            allTime.merge(delta);
+
+            Map<String, byte[]> days = new HashMap<>();
+            stored.days().forEach((day, sketch) -> {
+                if (day.compareTo(oldest) >= 0) { // ISO dates sort chronologically
+                    days.put(day, sketch);
+                }
+            });
+            HyperLogLog day = HyperLogLog.fromBytes(days.get(today));
+            day.merge(delta);
+            days.put(today, day.toBytes());
+
+            Sketches updated = new Sketches(allTime.toBytes(), days, stored.version() + 1);
+            if (visitorRepository.save(keyword, updated, stored.version())) {
+                linkRepository.setUniqueVisitors(keyword, allTime.estimate());
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,146 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Link;
+import com.linkylink.repository.LinkRepository;
+import com.linkylink.util.UrlNormalizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reverse URL index: which links already go to a given URL?
+ *
+ * URLs are compared after normalization (UrlNormalizer), so "HTTPS://Example.com/a/"
+ * and "https://example.com/a?utm_source=x" are the same destination.
+ *
+ *   - Source of truth: the urlHash GSI on the links table (LinkRepository.findByUrlHash),
+ *     a Query per distinct URL, never a scan.
+ *   - In front of it: an in-memory map urlHash → links, fresh for ttl-seconds, so
+ *     checking the same URL again (typing, then submitting) doesn't query again.
+ *   - Changes made on THIS instance are remembered for 2 × ttl-seconds in a separate
+ *     overlay, keyword → the link as saved (or deleted), and merged into every
+ *     answer, cached or just loaded. That matters because the GSI is eventually
+ *     consistent: a link created a moment ago may not be in it yet, or still be
+ *     under its old URL, but it is in the overlay. Changes made elsewhere show up
+ *     when the entry expires.
+ *
+ * Links saved before the index existed have no urlHash yet; the "url-index" job
+ * (UrlIndexBackfillJob) adds it.
+ */
+@Component
+public class UrlIndex implements LinkChangeListener {
+
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private record Entry(List<Link> links, long loadedAt) {
+    }
+
+    /**
+     * A change made on this instance: the link as saved, or null if it was deleted.
+     */
+    private record Change(Link link, long at) {
+    }
+
+    private final LinkRepository linkRepository;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Keyword → its latest local change (kept apart from 'entries', so a change
+    // never depends on the URL's entry being cached, and survives a reload)
+    private final Map<String, Change> recentChanges = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long ttlNanos;
+    // An entry loaded from a lagging GSI just after a change lives another ttl
+    private final long changeNanos;
+    private volatile long lastPrune = System.nanoTime();
+
+    public UrlIndex(LinkRepository linkRepository,
+                    @Value("${linkylink.url-index.max-entries:10000}") int maxEntries,
+                    @Value("${linkylink.url-index.ttl-seconds:60}") long ttlSeconds) {
+        this.linkRepository = linkRepository;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.changeNanos = 2 * ttlNanos;
+    }
+
+    /**
+     * Unexpired links whose URL normalizes to the same as {@code url}.
+     */
+    public List<Link> find(String url) {
+        String normalized = UrlNormalizer.normalize(url);
+        String hash = UrlNormalizer.hash(normalized);
+        Entry entry = entries.get(hash);
+        if (entry == null || System.nanoTime() - entry.loadedAt() > ttlNanos) {
+            entry = new Entry(linkRepository.findByUrlHash(hash), System.nanoTime());
+            if (entries.size() >= maxEntries) {
+                evictOne();
+            }
+            entries.put(hash, entry);
+        }
+
+        // The index's answer, with this instance's recent changes laid over it
+        pruneChanges(System.nanoTime());
+        List<Link> candidates = new ArrayList<>();
+        for (Link link : entry.links()) {
+            if (!recentChanges.containsKey(link.getKeyword())) {
+                candidates.add(link);
+            }
+        }
+        for (Change change : recentChanges.values()) {
+            if (change.link() != null && hash.equals(change.link().getUrlHash())) {
+                candidates.add(change.link());
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        List<Link> matches = new ArrayList<>();
+        for (Link link : candidates) {
+            // Equal hashes almost always mean equal URLs; checking costs nothing
+            if (!link.isExpired(now) && normalized.equals(UrlNormalizer.normalize(link.getUrl()))) {
+                matches.add(link);
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public void onLinkSaved(Link link) {
+        record(link.getKeyword(), link);
+    }
+
+    @Override
+    public void onLinkDeleted(String keyword) {
+        record(keyword, null);
+    }
+
+    private void record(String keyword, Link link) {
+        long now = System.nanoTime();
+        recentChanges.put(keyword, new Change(link, now));
+        pruneChanges(now);
+    }
+
+    /**
+     * Forget changes old enough for every cached entry to include them (one edited
+     * again elsewhere since must not be shadowed by ours). At most once a second: a
+     * bulk rewrite saves thousands of links in a row.
+     */
+    private void pruneChanges(long now) {
+        if (now - lastPrune < PRUNE_INTERVAL_NANOS) {
+            return;
+        }
+        lastPrune = now;
+        recentChanges.values().removeIf(change -> now - change.at() > changeNanos);
+    }
+
+    private void evictOne() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        if (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Link;
+import com.linkylink.repository.LinkRepository;
+import com.linkylink.repository.LinkRepository.BatchResult;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Adds the urlHash attribute to links saved before the reverse URL index existed
+ * (see UrlIndex), so the urlHash GSI finds them too. See DerivedAttributeBackfillJob.
+ *
+ * No parameters. Start it with POST /api/admin/jobs/url-index.
+ */
+@Component
+public class UrlIndexBackfillJob extends DerivedAttributeBackfillJob {
+
+    public static final String TYPE = "url-index";
+
+    private final LinkRepository linkRepository;
+
+    public UrlIndexBackfillJob(LinkRepository linkRepository) {
+        super("urlHash");
+        this.linkRepository = linkRepository;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    protected void forEachMissing(Consumer<Link> sink) {
+        linkRepository.forEachWithoutUrlHash(sink);
+    }
+
+    @Override
+    protected String source(Link link) {
+        return link.getUrl();
+    }
+
+    @Override
+    protected BatchResult write(List<String> keywords, Map<String, String> urls) {
+        return linkRepository.setUrlHashes(keywords, urls);
+    }
+}
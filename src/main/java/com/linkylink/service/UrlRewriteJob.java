@@ -0,0 +1,250 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Destination;
+import com.linkylink.model.Job;
+import com.linkylink.model.Link;
+import com.linkylink.model.UrlTemplate;
+import com.linkylink.repository.LinkRepository;
+import com.linkylink.repository.LinkRepository.BatchResult;
+import com.linkylink.repository.LinkRepository.UrlChange;
+import com.linkylink.util.UrlRewrite;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Rewrites the URLs of every link matching a rule, e.g. when a tool moves from
+ * wiki.old.corp to wiki.new.corp, instead of editing hundreds of links one by one.
+ *
+ * Parameters:
+ *   match  — "host", "prefix" or "regex" (see UrlRewrite)
+ *   from   — the host, prefix or pattern to replace
+ *   to     — the replacement
+ *   dryRun — "true" to only count the links that would change; the job's message
+ *            then lists the first few, old URL → new URL
+ *
+ * Start it with POST /api/admin/jobs/url-rewrite and follow it with
+ * GET /api/admin/jobs/{id}: total is the number of links to change, processed those
+ * changed so far.
+ *
+ * How:
+ *   1. Parallel scan for candidate links (keyword, url and destinations only; for
+ *      prefix rules, filtered by begins_with), and work out each one's new URLs.
+ *      A link is changed if its url or any destination's url changes
+ *   2. Apply them in pages of 100, split into chunks of 25 run in parallel on the
+ *      job worker pool, under the shared write budget. Each update is conditional
+ *      on the link still having the URLs the scan read (see LinkRepository.rewriteUrls):
+ *      a link edited meanwhile is skipped, not overwritten
+ *   3. Tell the LinkChangeListeners about each changed link, so this instance's
+ *      redirect caches, URL index and search index serve the new URL at once (other
+ *      instances pick it up within their cache TTL, as with any edit)
+ *
+ * Restartable by construction: rewritten links no longer match (UrlRewrite rules
+ * are idempotent), so a resumed job only finds the links still to do. Links the
+ * rule can't rewrite are found again too, but counted as failed only once.
+ */
+@Component
+public class UrlRewriteJob implements JobHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(UrlRewriteJob.class);
+
+    public static final String TYPE = "url-rewrite";
+
+    private static final int PAGE_SIZE = 100;
+    private static final int CHUNK_SIZE = 25;
+    private static final int SAMPLES = 10;
+    // The item, and its entries in the owner and URL indexes
+    private static final double UNITS_PER_ITEM = 3;
+
+    private record Candidate(String keyword, UrlChange change) {
+    }
+
+    private final LinkRepository linkRepository;
+    private final List<LinkChangeListener> listeners;
+
+    public UrlRewriteJob(LinkRepository linkRepository, List<LinkChangeListener> listeners) {
+        this.linkRepository = linkRepository;
+        this.listeners = listeners;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void validate(Map<String, String> parameters) {
+        rule(parameters);
+        String dryRun = parameters.get("dryRun");
+        if (dryRun != null && !dryRun.equals("true") && !dryRun.equals("false")) {
+            throw new IllegalArgumentException("dryRun must be true or false");
+        }
+    }
+
+    @Override
+    public void run(Job job, Control control) throws InterruptedException {
+        UrlRewrite rule = rule(job.getParameters());
+        boolean dryRun = "true".equals(job.getParameters().get("dryRun"));
+
+        // 1. Find what changes. The sink runs on this thread, so the lists need no locking
+        List<Candidate> candidates = new ArrayList<>();
+        List<String> problems = new ArrayList<>();
+        linkRepository.forEachUrl(rule.kind() == UrlRewrite.Kind.PREFIX ? rule.from() : null, link -> {
+            try {
+                UrlChange change = rewrite(link, rule);
+                if (change != null) {
+                    candidates.add(new Candidate(link.getKeyword(), change));
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                problems.add("go/" + link.getKeyword() + ": " + e.getMessage());
+            }
+        });
+        control.checkpoint();
+        control.setTotal(job.getProcessed() + job.getSkipped() + candidates.size());
+        // The links a rule can't rewrite are found again by every run; a resumed job
+        // already counted them (no write has failed before this first scan)
+        if (!problems.isEmpty() && job.getFailed() == 0) {
+            control.progress(0, 0, problems.size());
+        }
+
+        if (dryRun) {
+            control.progress(candidates.size(), 0, 0);
+            control.setMessage(dryRunSummary(candidates, problems));
+            log.info("Dry run of URL rewrite ({}): {} links would change, {} couldn't",
+                    rule, candidates.size(), problems.size());
+            return;
+        }
+
+        // 2. Change them
+        for (int page = 0; page < candidates.size(); page += PAGE_SIZE) {
+            control.checkpoint();
+            List<Candidate> todo = candidates.subList(page, Math.min(candidates.size(), page + PAGE_SIZE));
+            List<Callable<Void>> chunks = new ArrayList<>();
+            for (int i = 0; i < todo.size(); i += CHUNK_SIZE) {
+                List<Candidate> chunk = todo.subList(i, Math.min(todo.size(), i + CHUNK_SIZE));
+                chunks.add(() -> {
+                    applyChunk(chunk, control);
+                    return null;
+                });
+            }
+            control.inParallel(chunks);
+        }
+
+        if (!problems.isEmpty()) {
+            control.setMessage(problems.size() + " links couldn't be rewritten: " + String.join("; ",
+                    problems.subList(0, Math.min(SAMPLES, problems.size()))));
+        }
+        log.info("Rewrote URLs ({}): {} links changed, {} edited meanwhile, {} failed",
+                rule, job.getProcessed(), job.getSkipped(), job.getFailed());
+    }
+
+    /**
+     * Write one chunk. Links DynamoDB still refused after the retries count as
+     * failed; running the job again picks them up.
+     */
+    private void applyChunk(List<Candidate> chunk, Control control) throws InterruptedException {
+        List<String> keywords = chunk.stream().map(Candidate::keyword).toList();
+        Map<String, UrlChange> changes = new HashMap<>();
+        chunk.forEach(c -> changes.put(c.keyword(), c.change()));
+
+        BatchResult result = control.throttledWrite(keywords, UNITS_PER_ITEM,
+                k -> linkRepository.rewriteUrls(k, changes, this::notifyListeners));
+        int skipped = result.skipped().size();
+        int failed = result.unprocessed().size();
+        control.progress(keywords.size() - skipped - failed, skipped, failed);
+    }
+
+    private void notifyListeners(Link link) {
+        listeners.forEach(l -> l.onLinkSaved(link));
+    }
+
+    /**
+     * The link's new URLs, or null if the rule changes none of them.
+     *
+     * @throws IllegalArgumentException if a new URL isn't one we could redirect to
+     * @throws IllegalStateException    if the rule isn't idempotent for this link
+     */
+    private static UrlChange rewrite(Link link, UrlRewrite rule) {
+        String newUrl = rule.apply(link.getUrl());
+        boolean changed = newUrl != null && !newUrl.equals(link.getUrl());
+
+        List<String> oldDestinations = null;
+        List<String> newDestinations = null;
+        if (link.getDestinations() != null) {
+            oldDestinations = link.getDestinations().stream().map(Destination::getUrl).toList();
+            newDestinations = new ArrayList<>(oldDestinations.size());
+            for (String url : oldDestinations) {
+                String rewritten = rule.apply(url);
+                changed |= !rewritten.equals(url);
+                newDestinations.add(rewritten);
+            }
+        }
+        if (!changed || link.getUrl() == null) {
+            return null;
+        }
+        validateUrl(newUrl);
+        if (newDestinations != null) {
+            newDestinations.forEach(UrlRewriteJob::validateUrl);
+        }
+        return new UrlChange(link.getUrl(), newUrl, oldDestinations, newDestinations);
+    }
+
+    /**
+     * Same check as when a link is saved (LinkService): an http(s) URL whose
+     * placeholders, once filled in, still parse.
+     */
+    private static void validateUrl(String url) {
+        if (!url.regionMatches(true, 0, "http://", 0, 7) && !url.regionMatches(true, 0, "https://", 0, 8)) {
+            throw new IllegalArgumentException("not an http(s) URL: " + url);
+        }
+        try {
+            URI.create(UrlTemplate.parse(url).expand("x"));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid URL: " + url);
+        }
+    }
+
+    private static UrlRewrite rule(Map<String, String> parameters) {
+        return UrlRewrite.of(parameters.get("match"), parameters.get("from"), parameters.get("to"));
+    }
+
+    /**
+     * "old → new" for the url, or for the first destination that changes.
+     */
+    private static String firstChange(UrlChange change) {
+        if (!change.newUrl().equals(change.oldUrl()) || change.oldDestinationUrls() == null) {
+            return change.oldUrl() + " → " + change.newUrl();
+        }
+        for (int i = 0; i < change.oldDestinationUrls().size(); i++) {
+            String old = change.oldDestinationUrls().get(i);
+            String rewritten = change.newDestinationUrls().get(i);
+            if (!rewritten.equals(old)) {
+                return "destination " + (i + 1) + " " + old + " → " + rewritten;
+            }
+        }
+        return change.oldUrl() + " → " + change.newUrl();
+    }
+
+    private static String dryRunSummary(List<Candidate> candidates, List<String> problems) {
+        StringBuilder summary = new StringBuilder("Dry run: ")
+                .append(candidates.size()).append(" links would change");
+        for (Candidate c : candidates.subList(0, Math.min(SAMPLES, candidates.size()))) {
+            summary.append("; go/").append(c.keyword()).append(": ").append(firstChange(c.change()));
+        }
+        if (candidates.size() > SAMPLES) {
+            summary.append("; …");
+        }
+        if (!problems.isEmpty()) {
+            summary.append(". ").append(problems.size()).append(" couldn't be rewritten: ")
+                    .append(String.join("; ", problems.subList(0, Math.min(SAMPLES, problems.size()))));
+        }
+        return summary.toString();
+    }
+}
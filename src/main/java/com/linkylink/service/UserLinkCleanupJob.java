@@ -0,0 +1,178 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Job;
+import com.linkylink.model.Link;
+import com.linkylink.repository.LinkRepository;
+import com.linkylink.repository.LinkRepository.BatchResult;
+import com.linkylink.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Cleans up the links of a deleted user: deletes them, or hands them to another owner.
+ *
+ * Parameters:
+ *   username — whose links
+ *   action   — "delete" or "reassign"
+ *   to       — the new owner (reassign only)
+ *
+ * How:
+ *   1. Page through the user's links with a Query on the ownerUsername GSI
+ *      (100 per page), instead of scanning the whole table
+ *   2. Split each page into chunks of 25 and apply them in parallel on the job
+ *      worker pool: TransactWriteItems deletes or updates, each conditional on the
+ *      link still being owned by the user. The index is eventually consistent (and
+ *      still lists expired links), so a keyword it returns may already belong to
+ *      a link someone else created since; those are skipped, not touched
+ *   3. Repeat until a pass finds nothing left — the index is eventually consistent,
+ *      so a pass can miss links written just before it, or show ones just changed
+ *   4. Remove the user's tombstone row (see User.deleting), which frees the username
+ *
+ * Restartable by construction: the query only returns links that still need the
+ * change, so a resumed job just continues with whatever is left.
+ */
+@Component
+public class UserLinkCleanupJob implements JobHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(UserLinkCleanupJob.class);
+
+    public static final String TYPE = "user-links";
+
+    private static final int PAGE_SIZE = 100;
+    private static final int CHUNK_SIZE = 25;
+    private static final int MAX_PASSES = 5;
+    private static final long PASS_DELAY_MS = 1000;
+
+    private final LinkRepository linkRepository;
+    private final UserRepository userRepository;
+    private final List<LinkChangeListener> listeners;
+
+    public UserLinkCleanupJob(LinkRepository linkRepository, UserRepository userRepository,
+                              List<LinkChangeListener> listeners) {
+        this.linkRepository = linkRepository;
+        this.userRepository = userRepository;
+        this.listeners = listeners;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void validate(Map<String, String> parameters) {
+        String username = parameters.get("username");
+        String action = parameters.get("action");
+        if (username == null || username.isBlank()) {
+            throw new IllegalArgumentException("username is required");
+        }
+        if ("reassign".equals(action)) {
+            String to = parameters.get("to");
+            if (to == null || to.isBlank()) {
+                throw new IllegalArgumentException("A new owner is required to reassign links");
+            }
+            if (to.equals(username)) {
+                throw new IllegalArgumentException("Links can't be reassigned to the user being deleted");
+            }
+        } else if (!"delete".equals(action)) {
+            throw new IllegalArgumentException("Action must be delete or reassign");
+        }
+    }
+
+    @Override
+    public void run(Job job, Control control) throws InterruptedException {
+        String username = job.getParameters().get("username");
+        String to = job.getParameters().get("to");
+        boolean reassign = "reassign".equals(job.getParameters().get("action"));
+
+        // Transactional writes cost 2 write units per (small) item
+        double unitsPerItem = 2;
+        Function<List<String>, BatchResult> writer = reassign
+                ? keywords -> linkRepository.reassignBatch(keywords, username, to)
+                : keywords -> linkRepository.deleteBatch(keywords, username);
+
+        control.setTotal(job.getProcessed() + job.getSkipped() + linkRepository.countByOwner(username));
+
+        // Keywords already handled by this run, so a stale index entry isn't counted twice
+        Set<String> handled = ConcurrentHashMap.newKeySet();
+        int remaining = 0;
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            if (pass > 0) {
+                Thread.sleep(PASS_DELAY_MS); // let the index catch up
+            }
+            remaining = 0;
+            for (List<Link> page : linkRepository.pagesByOwner(username, PAGE_SIZE)) {
+                control.checkpoint();
+                List<Link> todo = page.stream().filter(link -> !handled.contains(link.getKeyword())).toList();
+                remaining += todo.size();
+                List<Callable<Void>> chunks = new ArrayList<>();
+                for (int i = 0; i < todo.size(); i += CHUNK_SIZE) {
+                    List<Link> chunk = todo.subList(i, Math.min(todo.size(), i + CHUNK_SIZE));
+                    chunks.add(() -> {
+                        applyChunk(chunk, writer, unitsPerItem, reassign ? to : null, handled, control);
+                        return null;
+                    });
+                }
+                control.inParallel(chunks);
+            }
+            if (remaining == 0) {
+                break;
+            }
+        }
+
+        if (remaining > 0) {
+            // The last pass still found links: either writes kept failing, or new links appeared
+            long unfinished = 0;
+            for (List<Link> page : linkRepository.pagesByOwner(username, PAGE_SIZE)) {
+                unfinished += page.stream().filter(link -> !handled.contains(link.getKeyword())).count();
+            }
+            if (unfinished > 0) {
+                control.progress(0, 0, unfinished);
+                throw new IllegalStateException(unfinished + " links of '" + username + "' are left");
+            }
+        }
+        // Only now can the name be registered again
+        userRepository.deleteIfDeleting(username);
+        if (reassign) {
+            log.info("Reassigned the links of deleted user '{}' to '{}'", username, to);
+        } else {
+            log.info("Deleted the links of deleted user '{}'", username);
+        }
+    }
+
+    private void applyChunk(List<Link> chunk, Function<List<String>, BatchResult> writer, double unitsPerItem,
+                            String newOwner, Set<String> handled, Control control) throws InterruptedException {
+        List<String> keywords = chunk.stream().map(Link::getKeyword).toList();
+        BatchResult result = control.throttledWrite(keywords, unitsPerItem, writer);
+
+        Set<String> notDone = new HashSet<>(result.unprocessed());
+        notDone.addAll(result.skipped());
+        long processed = 0;
+        for (Link link : chunk) {
+            if (notDone.contains(link.getKeyword())) {
+                continue;
+            }
+            processed++;
+            handled.add(link.getKeyword());
+            if (newOwner == null) {
+                listeners.forEach(l -> l.onLinkDeleted(link.getKeyword()));
+            } else {
+                link.setOwnerUsername(newOwner);
+                listeners.forEach(l -> l.onLinkSaved(link));
+            }
+        }
+        handled.addAll(result.skipped());
+        // Unprocessed links are retried by the next pass, so they aren't failures (yet)
+        control.progress(processed, result.skipped().size(), 0);
+    }
+}
@@ -1,5 +1,7 @@
 package com.linkylink.service;
 
+import com.linkylink.jfr.AuthenticationEvent;
+import com.linkylink.model.Job;
 import com.linkylink.model.User;
 import com.linkylink.repository.UserRepository;
 import org.slf4j.Logger;
@@ -8,15 +10,18 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Business logic for user management.
  *
  * Handles:
  *   - Registration (with automatic ADMIN for first user)
- *   - Authentication (password verification)
+ *   - Authentication (password verification, recorded as a JFR AuthenticationEvent)
  *   - User listing and management (for admin)
+ *   - Cleaning up a deleted user's links (as a background job, see UserLinkCleanupJob)
  */
 @Service
 public class UserService {
@@ -25,10 +30,12 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final JobService jobService;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, JobService jobService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.jobService = jobService;
     }
 
     /**
@@ -66,38 +73,46 @@ public class UserService {
      * @return the User if credentials are valid, null otherwise
      */
     public User authenticate(String username, String password) {
+        AuthenticationEvent event = new AuthenticationEvent();
+        event.begin();
         User user = userRepository.findByUsername(username);
-        if (user == null) {
-            return null;
+
+        if (user != null && user.isDeleting()) {
+            user = null; // being deleted: the row only reserves the name
         }
 
         // BCrypt.matches() compares the raw password against the stored hash
-        if (passwordEncoder.matches(password, user.getPasswordHash())) {
-            return user;
-        }
+        boolean matches = user != null && passwordEncoder.matches(password, user.getPasswordHash());
 
-        return null;
+        event.end();
+        if (event.shouldCommit()) {
+            event.username = username;
+            event.outcome = user == null ? "unknown-user" : matches ? "ok" : "wrong-password";
+            event.commit();
+        }
+        return matches ? user : null;
     }
 
     /**
-     * Find a user by username.
+     * Find a user by username (null for a user that's being deleted).
      */
     public User findByUsername(String username) {
-        return userRepository.findByUsername(username);
+        User user = userRepository.findByUsername(username);
+        return user == null || user.isDeleting() ? null : user;
     }
 
     /**
-     * Get all users (admin function).
+     * Get all users (admin function), leaving out the ones being deleted.
      */
     public List<User> findAll() {
-        return userRepository.findAll();
+        return userRepository.findAll().stream().filter(user -> !user.isDeleting()).toList();
     }
 
     /**
      * Update a user's role (admin function).
      */
     public User updateRole(String username, String newRole) {
-        User user = userRepository.findByUsername(username);
+        User user = findByUsername(username);
         if (user == null) {
             throw new IllegalArgumentException("User '" + username + "' not found");
         }
@@ -108,10 +123,51 @@ public class UserService {
     }
 
     /**
-     * Delete a user (admin function).
+     * Delete a user (admin function), and start a job that deletes their links or
+     * reassigns them to {@code newOwner}.
+     *
+     * The user doesn't have to exist any more: this also cleans up links orphaned
+     * by users deleted before links were cleaned up.
+     *
+     * The row isn't removed here. It's marked as being deleted first (see
+     * User.deleting), which stops logins and keeps the username reserved, and the
+     * job removes it once every link is handled. Otherwise the name could be
+     * registered again while the job runs, and the new user's links would match its
+     * ownerUsername query. If the job can't be started, the user is put back as it
+     * was; if the job fails, the tombstone stays and deleting again resumes it.
+     *
+     * @param linkAction "delete" or "reassign"
+     * @return the cleanup job, to follow its progress
+     * @throws IllegalArgumentException if the action is invalid or newOwner doesn't exist
      */
-    public void delete(String username) {
-        userRepository.delete(username);
-        log.info("Deleted user '{}'", username);
+    public Job delete(String username, String linkAction, String newOwner, String requestedBy) {
+        if (!"delete".equals(linkAction) && !"reassign".equals(linkAction)) {
+            throw new IllegalArgumentException("links must be delete or reassign");
+        }
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("username", username);
+        parameters.put("action", linkAction);
+        if ("reassign".equals(linkAction)) {
+            if (newOwner == null || findByUsername(newOwner) == null) {
+                throw new IllegalArgumentException("User '" + newOwner + "' not found");
+            }
+            parameters.put("to", newOwner);
+        }
+
+        User previous = userRepository.findByUsername(username);
+        userRepository.markDeleting(username);
+        Job job;
+        try {
+            job = jobService.start(UserLinkCleanupJob.TYPE, parameters, requestedBy);
+        } catch (RuntimeException e) {
+            if (previous != null && !previous.isDeleting()) {
+                userRepository.save(previous);
+            } else if (previous == null) {
+                userRepository.deleteIfDeleting(username);
+            }
+            throw e;
+        }
+        log.info("Deleting user '{}' (job {})", username, job.getId());
+        return job;
     }
 }
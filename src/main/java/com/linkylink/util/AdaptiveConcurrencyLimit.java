@@ -0,0 +1,162 @@
+package com.linkylink.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrency limit that finds itself: how many requests may be in flight at once
+ * before they start queueing somewhere (a thread pool, a connection pool, DynamoDB).
+ *
+ * Little's law: in-flight = throughput × latency. While the server keeps up, more
+ * concurrency buys more throughput at the same latency. Past the knee, it only buys
+ * latency — requests wait in line. So the limit follows the latency "gradient"
+ * (the approach of Netflix's concurrency-limits Gradient2):
+ *
+ *   longRtt  = baseline latency: follows drops at once, rises over ~50 s
+ *   shortRtt = average latency over the last window (100 ms)
+ *   gradient = clamp(1.5 × longRtt / shortRtt, 0.5, 1)
+ *   limit    = limit × gradient + √limit     (smoothed)
+ *
+ * While latency stays within 1.5× of the baseline the gradient is 1 and the limit
+ * grows by √limit per window; once latency rises past that, the gradient drops below
+ * 1 and the limit shrinks in proportion. Failed requests (errors, timeouts) cut
+ * the limit by 10% per window. The limit only grows while it is actually being
+ * used, so a quiet night doesn't leave it at the maximum.
+ *
+ * Callers tryAcquire() before doing work and release() after; a false from
+ * tryAcquire means "reject now" — the point is never to queue. Acquire and release
+ * are a CAS and an adder; the limit is recomputed at most once per window, by
+ * whichever request crosses the boundary first.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    // Per window: the baseline halves the gap to a lower latency at once, but takes
+    // ~500 windows (50 s) to follow a higher one
+    private static final double BASELINE_DOWN = 0.5;
+    private static final double BASELINE_UP = 0.002;
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double DROP_DECREASE = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    // Current window
+    private final LongAdder rttSum = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder drops = new LongAdder();
+    private final LongAccumulator maxInFlight = new LongAccumulator(Math::max, 0);
+    private final ReentrantLock updating = new ReentrantLock();
+    private volatile long windowEnd = System.nanoTime() + WINDOW_NANOS;
+    private double longRtt; // guarded by updating
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Need 1 <= min-limit <= max-limit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Take a slot if fewer than {@code share} × limit requests are in flight.
+     * A share below 1 reserves the rest of the limit for more important requests.
+     *
+     * @return false if the request should be rejected
+     */
+    public boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                maxInFlight.accumulate(current + 1);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a slot taken by tryAcquire and report how the request went.
+     *
+     * @param startNanos System.nanoTime() when the request was admitted
+     * @param dropped    true if it failed in a way that suggests overload
+     *                   (timeouts, 5xx from a dependency)
+     */
+    public void release(long startNanos, boolean dropped) {
+        inFlight.decrementAndGet();
+        long now = System.nanoTime();
+        if (dropped) {
+            drops.increment();
+        } else {
+            rttSum.add(now - startNanos);
+            samples.increment();
+        }
+        if (now - windowEnd >= 0 && updating.tryLock()) {
+            try {
+                if (now - windowEnd >= 0) {
+                    update();
+                    windowEnd = now + WINDOW_NANOS;
+                }
+            } finally {
+                updating.unlock();
+            }
+        }
+    }
+
+    /**
+     * Give back a slot taken by tryAcquire without reporting a latency or a drop: for
+     * requests whose outcome says nothing about this server's load.
+     */
+    public void releaseUnmeasured() {
+        inFlight.decrementAndGet();
+    }
+
+    private void update() {
+        long dropCount = drops.sumThenReset();
+        long count = samples.sum();
+        if (dropCount == 0 && count < MIN_WINDOW_SAMPLES) {
+            return; // too few samples to say anything; keep accumulating
+        }
+        samples.reset();
+        double shortRtt = count == 0 ? 0 : (double) rttSum.sumThenReset() / count;
+        long peak = maxInFlight.getThenReset();
+        double current = limit;
+
+        double next;
+        if (dropCount > 0) {
+            next = current * DROP_DECREASE;
+        } else {
+            // The baseline follows latency down quickly and up slowly: queueing only
+            // ever adds latency, so the lower values are the better estimate of the
+            // no-load latency, while a real shift in the workload still gets adopted
+            double alpha = shortRtt < longRtt ? BASELINE_DOWN : BASELINE_UP;
+            longRtt = longRtt == 0 ? shortRtt : longRtt * (1 - alpha) + shortRtt * alpha;
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+            if (gradient == 1.0 && peak < current / 2) {
+                return; // not using the limit we have; don't grow it
+            }
+            next = current * gradient + Math.sqrt(current);
+            next = current * (1 - SMOOTHING) + next * SMOOTHING;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
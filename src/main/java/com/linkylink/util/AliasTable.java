@@ -0,0 +1,116 @@
+package com.linkylink.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks an index at random according to fixed weights, in O(1) per pick
+ * (Vose's alias method).
+ *
+ * The naive way — draw r in [0, total) and walk the cumulative weights — is O(n)
+ * per pick (O(log n) with binary search). The alias method does the work once, up
+ * front: it cuts the weights into n equal-height columns, each holding at most two
+ * outcomes — its own index and one "alias".
+ *
+ *   weights 1, 3 (scaled to average 1: 0.5, 1.5)
+ *
+ *     column 0: 50% → 0, 50% → alias 1
+ *     column 1: 100% → 1
+ *
+ * A pick is then: choose a column uniformly, flip a biased coin for that column.
+ * Two random numbers, two array reads, no loop.
+ *
+ * Immutable and thread-safe. Randomness comes from ThreadLocalRandom, so concurrent
+ * redirects never contend on a shared Random.
+ */
+public final class AliasTable {
+
+    private final double[] probability;
+    private final int[] alias;
+
+    private AliasTable(double[] probability, int[] alias) {
+        this.probability = probability;
+        this.alias = alias;
+    }
+
+    /**
+     * Build a table for the given weights.
+     *
+     * @throws IllegalArgumentException if there are no weights, any is negative,
+     *                                  or they are all zero
+     */
+    public static AliasTable of(double... weights) {
+        int n = weights.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("At least one weight is required");
+        }
+        double total = 0;
+        for (double weight : weights) {
+            if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Weights must be finite and non-negative");
+            }
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+
+        // Scale so the average weight is 1, then split into "small" (< 1) and "large" (>= 1)
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        // Fill each small column up to 1 with probability mass borrowed from a large one
+        double[] probability = new double[n];
+        int[] alias = new int[n];
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // Whatever is left is (up to rounding error) exactly full
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1.0;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1.0;
+        }
+        return new AliasTable(probability, alias);
+    }
+
+    /**
+     * Number of outcomes.
+     */
+    public int size() {
+        return probability.length;
+    }
+
+    /**
+     * A random index, with probability proportional to its weight.
+     */
+    public int next() {
+        if (probability.length == 1) {
+            return 0;
+        }
+        // One draw: the integer part picks the column, the fraction is the coin flip
+        double u = ThreadLocalRandom.current().nextDouble() * probability.length;
+        int column = (int) u;
+        return u - column < probability[column] ? column : alias[column];
+    }
+}
@@ -0,0 +1,182 @@
+package com.linkylink.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A circuit breaker: stops calling a dependency that is failing, so callers fail
+ * (or fall back) at once instead of each waiting out its own timeout.
+ *
+ *   CLOSED     calls go through; outcomes are counted per window (window-seconds).
+ *              If at least minCalls were made and failureRate of them failed → OPEN.
+ *   OPEN       calls are refused for openDuration, giving the dependency room to recover.
+ *   HALF_OPEN  after that, one trial call at a time is let through. A success → CLOSED,
+ *              a failure → OPEN for another openDuration.
+ *
+ * Callers tryAcquire() before each call and report onSuccess() / onFailure() after.
+ * A success means "the dependency answered": a request it rejected on its merits
+ * (say, a failed condition) is a success too. Only outages count as failures.
+ *
+ * Hot path cost while CLOSED is a volatile read and an adder; the window is rolled
+ * and the failure rate checked under a lock only when a failure is reported.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final double failureRate;
+    private final int minCalls;
+    private final long windowNanos;
+    private final long openNanos;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    // Current window (CLOSED only)
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile long windowStart = System.nanoTime();
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timesOpened = new LongAdder();
+
+    /**
+     * @param failureRate  fraction of failed calls in a window that opens the breaker
+     * @param minCalls     calls a window needs before its failure rate counts
+     * @param window       length of a counting window
+     * @param openDuration how long to refuse calls before trying one again
+     */
+    public CircuitBreaker(double failureRate, int minCalls, long window, long openDuration, TimeUnit unit) {
+        if (failureRate <= 0 || failureRate > 1 || minCalls < 1) {
+            throw new IllegalArgumentException("Need 0 < failure-rate <= 1 and min-calls >= 1");
+        }
+        this.failureRate = failureRate;
+        this.minCalls = minCalls;
+        this.windowNanos = unit.toNanos(window);
+        this.openNanos = unit.toNanos(openDuration);
+    }
+
+    /**
+     * May a call be made now?
+     *
+     * @return false if the breaker is open (or a half-open trial is already running)
+     */
+    public boolean tryAcquire() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                rejected.increment();
+                return false;
+            }
+            synchronized (this) {
+                if (state == State.OPEN) {
+                    state = State.HALF_OPEN;
+                }
+            }
+        }
+        if (probing.compareAndSet(false, true)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * The dependency answered.
+     */
+    public void onSuccess() {
+        if (state == State.CLOSED) {
+            roll();
+            calls.increment();
+            return;
+        }
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * The dependency failed: unreachable, timed out, throttling or erroring.
+     */
+    public void onFailure() {
+        synchronized (this) {
+            switch (state) {
+                case CLOSED -> {
+                    roll();
+                    calls.increment();
+                    failures.increment();
+                    long total = calls.sum();
+                    if (total >= minCalls && failures.sum() >= failureRate * total) {
+                        open();
+                    }
+                }
+                case HALF_OPEN -> open();
+                case OPEN -> { } // a call made before the breaker opened, finishing late
+            }
+        }
+    }
+
+    private void roll() {
+        long now = System.nanoTime();
+        if (now - windowStart >= windowNanos) {
+            synchronized (this) {
+                if (now - windowStart >= windowNanos) {
+                    calls.reset();
+                    failures.reset();
+                    windowStart = now;
+                }
+            }
+        }
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        state = State.OPEN;
+        probing.set(false);
+        timesOpened.increment();
+    }
+
+    private void close() {
+        calls.reset();
+        failures.reset();
+        windowStart = System.nanoTime();
+        state = State.CLOSED;
+        probing.set(false);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Seconds until the next trial call is allowed (0 unless OPEN).
+     */
+    public long getRetryAfterSeconds() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        long remaining = openNanos - (System.nanoTime() - openedAt);
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    /**
+     * Calls refused because the breaker was open.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Times the breaker has opened.
+     */
+    public long getTimesOpened() {
+        return timesOpened.sum();
+    }
+}
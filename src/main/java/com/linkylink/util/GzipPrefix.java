@@ -0,0 +1,119 @@
+package com.linkylink.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A gzip stream whose (large, shared) beginning is compressed once and whose
+ * (small, per-response) end is appended on demand.
+ *
+ *   GzipPrefix prefix = new GzipPrefix(head);   // once: deflate head, SYNC_FLUSH
+ *   byte[] gz = prefix.finish(tail);            // per response: deflate tail, FINISH
+ *
+ * gz decompresses to head + tail. It works because a SYNC_FLUSH ends the deflate
+ * data on a byte boundary with no final block, so a second, independent deflate
+ * stream can simply follow it. The gzip trailer needs the CRC-32 of the whole
+ * content; java.util.zip.CRC32 can't resume from a saved value, so the tail's bytes
+ * are folded into the head's CRC with a small table-driven CRC here.
+ *
+ * finish() costs as much as compressing the tail, however large the head is.
+ * Thread-safe: instances are immutable.
+ */
+public final class GzipPrefix {
+
+    private static final byte[] HEADER = {
+            0x1f, (byte) 0x8b, // magic
+            Deflater.DEFLATED, // method
+            0,                 // flags
+            0, 0, 0, 0,        // mtime (none)
+            0,                 // extra flags
+            (byte) 0xff        // OS: unknown
+    };
+
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            int c = n;
+            for (int k = 0; k < 8; k++) {
+                c = (c & 1) != 0 ? 0xedb88320 ^ (c >>> 1) : c >>> 1;
+            }
+            CRC_TABLE[n] = c;
+        }
+    }
+
+    private final byte[] compressedHead; // header + deflate blocks, not final
+    private final int headCrc;
+    private final int headLength;
+
+    public GzipPrefix(byte[] head) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(head.length / 4 + 64);
+        out.writeBytes(HEADER);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(head);
+            byte[] buffer = new byte[8192];
+            int n;
+            // SYNC_FLUSH output is complete once a call doesn't fill the buffer
+            do {
+                n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, n);
+            } while (n == buffer.length);
+        } finally {
+            deflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(head);
+        this.compressedHead = out.toByteArray();
+        this.headCrc = (int) crc.getValue();
+        this.headLength = head.length;
+    }
+
+    /**
+     * The complete gzip stream of head + tail.
+     */
+    public byte[] finish(byte[] tail) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(compressedHead.length + tail.length + 32);
+        out.writeBytes(compressedHead);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(tail);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, tail.length + 64)];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } finally {
+            deflater.end();
+        }
+        writeIntLE(out, crc32(headCrc, tail));
+        writeIntLE(out, headLength + tail.length); // ISIZE: length mod 2^32
+        return out.toByteArray();
+    }
+
+    /**
+     * Size of the pre-compressed head, in bytes.
+     */
+    public int size() {
+        return compressedHead.length;
+    }
+
+    /**
+     * Continue the CRC-32 {@code crc} (of the bytes so far) over {@code bytes}.
+     */
+    static int crc32(int crc, byte[] bytes) {
+        int c = ~crc;
+        for (byte b : bytes) {
+            c = CRC_TABLE[(c ^ b) & 0xff] ^ (c >>> 8);
+        }
+        return ~c;
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+}
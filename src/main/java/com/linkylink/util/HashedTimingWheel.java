@@ -0,0 +1,249 @@
+package com.linkylink.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel: schedules very many timeouts at O(1) cost each.
+ *
+ * A java.util.Timer or ScheduledExecutorService keeps timeouts in a heap, so each
+ * schedule/cancel is O(log n), and "one timer per link" means millions of heap
+ * entries. A timing wheel trades precision for constant cost:
+ *
+ *   - Time is cut into ticks (e.g. 100 ms). The wheel is an array of buckets, one
+ *     per tick, used round-robin: bucket = (deadline tick) % wheelSize.
+ *   - A timeout further away than one revolution just remembers how many more full
+ *     revolutions ("rounds") to wait before it fires.
+ *   - One worker thread advances a tick at a time and walks only the current
+ *     bucket: rounds > 0 → decrement, rounds == 0 → fire.
+ *
+ *          tick 0    tick 1    tick 2           tick n-1
+ *        ┌────────┬────────┬────────┬─ ... ─┬────────┐
+ *        │ a(0)   │        │ b(0)   │       │ c(2)   │   (rounds left in brackets)
+ *        └────────┴────────┴────────┴─ ... ─┴────────┘
+ *                    ▲ worker
+ *
+ * Schedule and cancel are O(1): callers only append to a lock-free queue that the
+ * worker drains into the buckets on its next tick, so buckets are only ever touched
+ * by the worker thread. Timeouts fire up to one tick late, never early.
+ *
+ * Callbacks run on the worker thread and should be quick.
+ */
+public final class HashedTimingWheel<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    /**
+     * A pending timeout. Keep it to cancel.
+     */
+    public static final class Timeout<T> {
+        private final T task;
+        private final long deadlineNanos;
+        private long rounds;
+        private volatile boolean cancelled;
+        // Bucket membership (doubly linked), touched only by the worker thread
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private Bucket<T> bucket;
+
+        private Timeout(T task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public T task() {
+            return task;
+        }
+
+        /**
+         * Cancel the timeout. O(1): it is unlinked by the worker on its next tick.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+        private Timeout<T> tail;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        Timeout<T> remove(Timeout<T> timeout) {
+            Timeout<T> next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+    }
+
+    private final long tickNanos;
+    private final Bucket<T>[] wheel;
+    private final int mask;
+    private final Consumer<T> onExpired;
+    private final Queue<Timeout<T>> incoming = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout<T>> cancelled = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startNanos;
+    private final LongAdder pending = new LongAdder();
+
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * @param tickDuration how far apart ticks are (the timer's precision)
+     * @param wheelSize    number of buckets, rounded up to a power of two
+     * @param onExpired    called on the worker thread for every timeout that fires
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int wheelSize,
+                             String threadName, Consumer<T> onExpired) {
+        this.tickNanos = Math.max(1, unit.toNanos(tickDuration));
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket<>();
+        }
+        this.mask = size - 1;
+        this.onExpired = onExpired;
+        this.startNanos = System.nanoTime();
+
+        this.worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Fire {@code task} after the given delay (or on the next tick if it's not positive).
+     */
+    public Timeout<T> schedule(T task, long delay, TimeUnit unit) {
+        Timeout<T> timeout = new Timeout<>(task, System.nanoTime() + Math.max(0, unit.toNanos(delay)));
+        pending.increment();
+        incoming.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Cancel a timeout and let the worker unlink it from its bucket.
+     */
+    public void cancel(Timeout<T> timeout) {
+        timeout.cancel();
+        cancelled.add(timeout);
+    }
+
+    /**
+     * Timeouts scheduled and not yet fired or cleaned up after cancellation.
+     */
+    public long pending() {
+        return pending.sum();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long sleep;
+            while ((sleep = deadline - System.nanoTime()) > 0 && running) {
+                LockSupport.parkNanos(sleep);
+            }
+            if (!running) {
+                return;
+            }
+            removeCancelled();
+            transferIncoming();
+            expire(wheel[(int) (tick & mask)], deadline);
+            tick++;
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout<T> timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+                pending.decrement();
+            }
+        }
+    }
+
+    /**
+     * Move newly scheduled timeouts into their buckets. Bounded per tick so a burst
+     * of schedules can't stall expiry.
+     */
+    private void transferIncoming() {
+        for (int i = 0; i < 100_000; i++) {
+            Timeout<T> timeout = incoming.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.cancelled) {
+                pending.decrement();
+                continue;
+            }
+            long ticks = (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos;
+            // Already due → current bucket, fired this tick
+            long target = Math.max(ticks - 1, tick);
+            timeout.rounds = (target - tick) / wheel.length;
+            wheel[(int) (target & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Bucket<T> bucket, long tickDeadline) {
+        Timeout<T> timeout = bucket.head;
+        while (timeout != null) {
+            if (timeout.cancelled) {
+                timeout = bucket.remove(timeout);
+                pending.decrement();
+            } else if (timeout.rounds <= 0 && timeout.deadlineNanos <= tickDeadline) {
+                Timeout<T> next = bucket.remove(timeout);
+                pending.decrement();
+                try {
+                    onExpired.accept(timeout.task);
+                } catch (RuntimeException e) {
+                    // One bad callback must not kill the wheel
+                    log.warn("Timeout callback failed for {}: {}", timeout.task, e.getMessage());
+                }
+                timeout = next;
+            } else {
+                timeout.rounds--;
+                timeout = timeout.next;
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.linkylink.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Estimates how many DISTINCT values were added, in a few KB, without remembering
+ * any of them (HyperLogLog, Flajolet et al. 2007).
+ *
+ * The idea: hash each value to 64 random-looking bits. The first 12 bits pick one
+ * of 4096 "registers"; each register remembers the longest run of leading zeros
+ * seen in the remaining bits. A run of k zeros turns up about once per 2^k distinct
+ * values, so the registers' (harmonic) average says how many distinct values there
+ * were. Adding the same value twice changes nothing — it hashes the same way.
+ *
+ *   4096 registers → standard error 1.04 / sqrt(4096) ≈ 1.6%
+ *
+ * Sketches MERGE by taking the register-wise maximum, which is exactly the sketch
+ * of the union. So per-instance sketches combine into a global one, and per-day
+ * sketches into a week — in any order, any number of times (merging is idempotent).
+ *
+ * Sparse mode: a sketch that has seen few values has few non-zero registers, so it
+ * starts as a sorted list of (register, value) pairs and switches to the dense
+ * 4096-byte array only when that list would be bigger. Most links get a handful
+ * of visitors, and their sketches stay tens of bytes in memory and on disk.
+ *
+ * Serialized form (toBytes / fromBytes):
+ *   sparse: [1][count:2 bytes][register:2 bytes, value:1 byte]...   (3 bytes/entry)
+ *   dense:  [2][4096 registers × 6 bits = 3072 bytes]
+ *
+ * Thread-safe (synchronized; each sketch belongs to one link, so contention is low).
+ */
+public final class HyperLogLog {
+
+    private static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final int MAX_RANK = 64 - PRECISION + 1;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private static final byte FORMAT_SPARSE = 1;
+    private static final byte FORMAT_DENSE = 2;
+    private static final int DENSE_BYTES = REGISTERS * 6 / 8;
+    // Beyond this many entries a sparse sketch is no smaller than a dense one
+    private static final int SPARSE_LIMIT = DENSE_BYTES / 3;
+
+    // Sparse mode: sorted (register << 8 | value) entries; null once dense
+    private int[] sparse = new int[4];
+    private int sparseSize;
+    // Dense mode: one byte per register; null while sparse
+    private byte[] dense;
+
+    /**
+     * Add a value, given its 64-bit hash (see {@link #hash(String)}).
+     */
+    public synchronized void add(long hash) {
+        int register = (int) (hash >>> (64 - PRECISION));
+        int rank = Math.min(MAX_RANK, Long.numberOfLeadingZeros(hash << PRECISION) + 1);
+        update(register, rank);
+    }
+
+    /**
+     * Fold another sketch into this one (this becomes the sketch of the union).
+     */
+    public void merge(HyperLogLog other) {
+        if (other == this) {
+            return;
+        }
+        int[] entries;
+        synchronized (other) {
+            entries = other.entries();
+        }
+        synchronized (this) {
+            for (int entry : entries) {
+                update(entry >>> 8, entry & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * Estimated number of distinct values added.
+     */
+    public synchronized long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        if (dense == null) {
+            // Registers not in the list are zero, and each contributes 2^0 = 1
+            zeros = REGISTERS - sparseSize;
+            sum = zeros;
+            for (int i = 0; i < sparseSize; i++) {
+                sum += Math.scalb(1.0, -(sparse[i] & 0xFF));
+            }
+        } else {
+            for (byte value : dense) {
+                sum += Math.scalb(1.0, -value);
+                if (value == 0) {
+                    zeros++;
+                }
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            // Small range: "linear counting" on the empty registers is more accurate
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * True if nothing has been added.
+     */
+    public synchronized boolean isEmpty() {
+        return dense == null && sparseSize == 0;
+    }
+
+    /**
+     * Compact binary form, for storage. Sparse sketches take 3 bytes per non-zero
+     * register, dense ones 3073 bytes.
+     */
+    public synchronized byte[] toBytes() {
+        if (dense == null) {
+            ByteBuffer buffer = ByteBuffer.allocate(3 + sparseSize * 3);
+            buffer.put(FORMAT_SPARSE).putShort((short) sparseSize);
+            for (int i = 0; i < sparseSize; i++) {
+                buffer.putShort((short) (sparse[i] >>> 8)).put((byte) sparse[i]);
+            }
+            return buffer.array();
+        }
+        // Pack 4 six-bit registers into every 3 bytes
+        byte[] bytes = new byte[1 + DENSE_BYTES];
+        bytes[0] = FORMAT_DENSE;
+        for (int i = 0, out = 1; i < REGISTERS; i += 4, out += 3) {
+            int packed = dense[i] << 18 | dense[i + 1] << 12 | dense[i + 2] << 6 | dense[i + 3];
+            bytes[out] = (byte) (packed >>> 16);
+            bytes[out + 1] = (byte) (packed >>> 8);
+            bytes[out + 2] = (byte) packed;
+        }
+        return bytes;
+    }
+
+    /**
+     * Read a sketch written by {@link #toBytes()}.
+     *
+     * @throws IllegalArgumentException if the bytes aren't a sketch
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog sketch = new HyperLogLog();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte format = buffer.get();
+        if (format == FORMAT_SPARSE && bytes.length >= 3) {
+            int count = buffer.getShort() & 0xFFFF;
+            if (bytes.length != 3 + count * 3) {
+                throw new IllegalArgumentException("Truncated sparse sketch");
+            }
+            for (int i = 0; i < count; i++) {
+                int register = buffer.getShort() & 0xFFFF;
+                int rank = buffer.get() & 0xFF;
+                if (register >= REGISTERS || rank > MAX_RANK) {
+                    throw new IllegalArgumentException("Corrupt sparse sketch");
+                }
+                sketch.update(register, rank);
+            }
+            return sketch;
+        }
+        if (format == FORMAT_DENSE && bytes.length == 1 + DENSE_BYTES) {
+            sketch.toDense();
+            for (int i = 0, in = 1; i < REGISTERS; i += 4, in += 3) {
+                int packed = (bytes[in] & 0xFF) << 16 | (bytes[in + 1] & 0xFF) << 8 | (bytes[in + 2] & 0xFF);
+                sketch.dense[i] = (byte) (packed >>> 18);
+                sketch.dense[i + 1] = (byte) (packed >>> 12 & 0x3F);
+                sketch.dense[i + 2] = (byte) (packed >>> 6 & 0x3F);
+                sketch.dense[i + 3] = (byte) (packed & 0x3F);
+            }
+            return sketch;
+        }
+        throw new IllegalArgumentException("Not a HyperLogLog sketch");
+    }
+
+    /**
+     * A well-mixed 64-bit hash of a string (FNV-1a over the UTF-8 bytes, then the
+     * MurmurHash3 finalizer so every input bit affects the leading bits HLL reads).
+     */
+    public static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private void update(int register, int rank) {
+        if (dense != null) {
+            if (rank > dense[register]) {
+                dense[register] = (byte) rank;
+            }
+            return;
+        }
+        int key = register << 8;
+        int position = Arrays.binarySearch(sparse, 0, sparseSize, key | rank);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        // The entry for this register (if any) sits right before or at position
+        if (position > 0 && (sparse[position - 1] & ~0xFF) == key) {
+            if ((sparse[position - 1] & 0xFF) < rank) {
+                sparse[position - 1] = key | rank;
+            }
+            return;
+        }
+        if (position < sparseSize && (sparse[position] & ~0xFF) == key) {
+            if ((sparse[position] & 0xFF) < rank) {
+                sparse[position] = key | rank;
+            }
+            return;
+        }
+        if (sparseSize == SPARSE_LIMIT) {
+            toDense();
+            update(register, rank);
+            return;
+        }
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, Math.min(SPARSE_LIMIT, sparseSize * 2));
+        }
+        System.arraycopy(sparse, position, sparse, position + 1, sparseSize - position);
+        sparse[position] = key | rank;
+        sparseSize++;
+    }
+
+    private void toDense() {
+        dense = new byte[REGISTERS];
+        for (int i = 0; i < sparseSize; i++) {
+            dense[sparse[i] >>> 8] = (byte) (sparse[i] & 0xFF);
+        }
+        sparse = null;
+        sparseSize = 0;
+    }
+
+    /**
+     * Non-zero registers as (register << 8 | value).
+     */
+    private int[] entries() {
+        if (dense == null) {
+            return Arrays.copyOf(sparse, sparseSize);
+        }
+        int count = 0;
+        for (byte value : dense) {
+            if (value != 0) {
+                count++;
+            }
+        }
+        int[] entries = new int[count];
+        for (int register = 0, i = 0; register < REGISTERS; register++) {
+            if (dense[register] != 0) {
+                entries[i++] = register << 8 | dense[register];
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,128 @@
+package com.linkylink.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram that answers "what is the recent p95?" cheaply.
+ *
+ * How it works:
+ *   - Samples (in microseconds) go into log-linear buckets: every power of two is
+ *     split into 4 sub-buckets, so the answer is always within ~25% of the truth.
+ *     160 buckets cover 1µs up to several days with no allocation per sample.
+ *   - Two windows rotate every {@code window}: percentiles are computed over the
+ *     current + previous window, so old spikes age out after at most 2 windows.
+ *   - Percentile results are cached for a few milliseconds, because callers ask on
+ *     every request and walking 160 buckets each time would be wasted work.
+ *
+ * Not exact (rotation can race with a concurrent record), but precise enough to
+ * drive decisions like "when should we send a hedged request?".
+ */
+public class LatencyTracker {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = 160;
+    private static final long CACHE_NANOS = Duration.ofMillis(50).toNanos();
+
+    private final AtomicLongArray[] windows = {
+            new AtomicLongArray(BUCKETS), new AtomicLongArray(BUCKETS)
+    };
+    private final long windowNanos;
+
+    private volatile int active = 0;
+    private volatile long windowStart = System.nanoTime();
+
+    private volatile double cachedPercentile = -1;
+    private volatile long cachedValueNanos = -1;
+    private volatile long cachedAt;
+
+    public LatencyTracker(Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Record one observed latency.
+     */
+    public void record(long nanos) {
+        long now = System.nanoTime();
+        if (now - windowStart >= windowNanos) {
+            rotate(now);
+        }
+        windows[active].incrementAndGet(bucketOf(Math.max(0, nanos / 1000)));
+    }
+
+    /**
+     * Estimate the given percentile (0.0 - 1.0) in nanoseconds.
+     *
+     * @return the estimate, or -1 if fewer than {@code minSamples} were recorded
+     */
+    public long percentileNanos(double percentile, long minSamples) {
+        long now = System.nanoTime();
+        if (cachedPercentile == percentile && now - cachedAt < CACHE_NANOS) {
+            return cachedValueNanos;
+        }
+
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (AtomicLongArray window : windows) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = window.get(i);
+                counts[i] += c;
+                total += c;
+            }
+        }
+
+        long value = -1;
+        if (total >= minSamples && total > 0) {
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    value = upperBoundMicros(i) * 1000;
+                    break;
+                }
+            }
+        }
+
+        cachedPercentile = percentile;
+        cachedValueNanos = value;
+        cachedAt = now;
+        return value;
+    }
+
+    private synchronized void rotate(long now) {
+        if (now - windowStart < windowNanos) {
+            return; // another thread already rotated
+        }
+        int next = 1 - active;
+        AtomicLongArray window = windows[next];
+        for (int i = 0; i < BUCKETS; i++) {
+            window.set(i, 0);
+        }
+        active = next;
+        windowStart = now;
+    }
+
+    /**
+     * Map a value to its bucket: exact below 4, then 4 sub-buckets per power of two.
+     */
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) ((micros >>> (msb - 2)) & (SUB_BUCKETS - 1));
+        return Math.min(BUCKETS - 1, (msb - 1) * SUB_BUCKETS + sub);
+    }
+
+    static long upperBoundMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int msb = bucket / SUB_BUCKETS + 1;
+        int sub = bucket % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << (msb - 2);
+        return lower + (1L << (msb - 2)) - 1;
+    }
+}
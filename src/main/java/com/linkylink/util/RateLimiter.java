@@ -0,0 +1,96 @@
+package com.linkylink.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket that adapts its own rate: additive increase, multiplicative
+ * decrease (AIMD), the same way TCP finds the bandwidth of a link.
+ *
+ * Background jobs use it to stay under a DynamoDB write budget:
+ *
+ *   acquire(25)   → blocks until 25 write units are available, then takes them
+ *   adjust(+3)    → the write actually cost 28 units; charge the difference
+ *   backOff()     → DynamoDB throttled us: halve the rate
+ *   recover()     → a write went through cleanly: add 5% of the maximum back
+ *
+ * The bucket holds at most one second's worth of tokens, so an idle limiter can't
+ * save up a burst. Tokens may go negative (after adjust), which simply makes the
+ * next acquire wait longer. Thread-safe.
+ */
+public final class RateLimiter {
+
+    private final double maxRate;
+    private final double minRate;
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param maxRate permits per second when nothing is being throttled
+     */
+    public RateLimiter(double maxRate) {
+        if (maxRate <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        this.maxRate = maxRate;
+        this.minRate = Math.max(1, maxRate / 100);
+        this.rate = maxRate;
+        this.tokens = maxRate;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Take {@code permits}, waiting until the bucket has them. Requests larger than
+     * one second's worth are allowed; they just wait for a full bucket and go into debt.
+     */
+    public void acquire(double permits) throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                double needed = Math.min(permits, rate);
+                if (tokens >= needed) {
+                    tokens -= permits;
+                    return;
+                }
+                waitNanos = (long) ((needed - tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+
+    /**
+     * Correct an earlier acquire with the actual cost (positive = cost more than taken).
+     */
+    public synchronized void adjust(double permits) {
+        refill();
+        tokens = Math.min(rate, tokens - permits);
+    }
+
+    /**
+     * Halve the rate (not below 1% of the maximum).
+     */
+    public synchronized void backOff() {
+        refill();
+        rate = Math.max(minRate, rate / 2);
+        tokens = Math.min(tokens, rate);
+    }
+
+    /**
+     * Raise the rate by 5% of the maximum (not above the maximum).
+     */
+    public synchronized void recover() {
+        refill();
+        rate = Math.min(maxRate, rate + maxRate / 20);
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(rate, tokens + (now - lastRefillNanos) * rate / TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,122 @@
+package com.linkylink.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reduces a URL to a canonical form, so that different spellings of the same
+ * destination compare equal:
+ *
+ *   HTTPS://Docs.Example.com:443/roadmap/?utm_source=slack&id=7
+ *   https://docs.example.com/roadmap?id=7
+ *
+ * both normalize to "https://docs.example.com/roadmap?id=7".
+ *
+ *   - scheme and host are lower-cased (paths and queries are case-sensitive, so kept)
+ *   - the scheme's default port is dropped (:80 for http, :443 for https)
+ *   - trailing slashes are dropped from the path
+ *   - tracking parameters (utm_*, gclid, fbclid, ...) are dropped from the query;
+ *     the others keep their order
+ *
+ * The URL is split with a regular expression rather than java.net.URI, which
+ * rejects the {1}/{*} placeholders of templated links. Strings without a scheme
+ * are returned trimmed but otherwise unchanged.
+ *
+ * hash() is a short, fixed-length key for the normalized URL (the GSI partition
+ * key of the reverse URL index, see Link.urlHash).
+ */
+public final class UrlNormalizer {
+
+    private static final Pattern URL = Pattern.compile(
+            "^([a-zA-Z][a-zA-Z0-9+.-]*)://([^/?#]*)([^?#]*)(?:\\?([^#]*))?(#.*)?$");
+
+    private static final Set<String> TRACKING_PARAMETERS = Set.of(
+            "gclid", "dclid", "gbraid", "wbraid", "fbclid", "msclkid", "yclid", "igshid",
+            "mc_cid", "mc_eid", "_ga", "_gl", "ref_src");
+
+    private UrlNormalizer() {
+    }
+
+    public static String normalize(String url) {
+        if (url == null) {
+            return null;
+        }
+        url = url.trim();
+        Matcher m = URL.matcher(url);
+        if (!m.matches()) {
+            return url;
+        }
+        String scheme = m.group(1).toLowerCase(Locale.ROOT);
+        StringBuilder out = new StringBuilder(url.length()).append(scheme).append("://");
+        out.append(authority(scheme, m.group(2)));
+
+        String path = m.group(3);
+        int end = path.length();
+        while (end > 0 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        out.append(path, 0, end);
+
+        if (m.group(4) != null) {
+            StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
+            for (String parameter : m.group(4).split("&")) {
+                if (!parameter.isEmpty() && !isTracking(parameter)) {
+                    query.add(parameter);
+                }
+            }
+            out.append(query);
+        }
+        if (m.group(5) != null && m.group(5).length() > 1) {
+            out.append(m.group(5));
+        }
+        return out.toString();
+    }
+
+    /**
+     * First 16 hex digits of the SHA-256 of the normalized URL.
+     */
+    public static String hash(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(normalize(url).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * [userinfo@]host[:port] with the host lower-cased and a default port removed.
+     */
+    private static String authority(String scheme, String authority) {
+        int at = authority.lastIndexOf('@');
+        String userInfo = authority.substring(0, at + 1);
+        String hostPort = authority.substring(at + 1).toLowerCase(Locale.ROOT);
+        int colon = hostPort.lastIndexOf(':');
+        if (colon >= 0 && colon > hostPort.lastIndexOf(']')) { // not inside an IPv6 literal
+            String port = hostPort.substring(colon + 1);
+            if (port.isEmpty()
+                    || port.equals("80") && scheme.equals("http")
+                    || port.equals("443") && scheme.equals("https")) {
+                hostPort = hostPort.substring(0, colon);
+            }
+        }
+        if (hostPort.endsWith(".")) {
+            hostPort = hostPort.substring(0, hostPort.length() - 1); // "example.com." is example.com
+        }
+        return userInfo + hostPort;
+    }
+
+    private static boolean isTracking(String parameter) {
+        int eq = parameter.indexOf('=');
+        String name = (eq < 0 ? parameter : parameter.substring(0, eq)).toLowerCase(Locale.ROOT);
+        return name.startsWith("utm_") || TRACKING_PARAMETERS.contains(name);
+    }
+}
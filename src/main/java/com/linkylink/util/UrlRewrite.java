@@ -0,0 +1,146 @@
+package com.linkylink.util;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A rule for moving link destinations, e.g. when a tool moves from wiki.old.corp
+ * to wiki.new.corp. Three kinds:
+ *
+ *   host    wiki.old.corp → wiki.new.corp
+ *           the host is compared case-insensitively; scheme, port, path, query
+ *           and fragment are kept
+ *   prefix  https://wiki.old.corp/display/ → https://docs.corp/
+ *           URLs starting with from (case-sensitive) get to instead
+ *   regex   https://wiki\.old\.corp/display/(\w+)/ → https://docs.corp/$1/
+ *           every match of from is replaced (Matcher.replaceAll, so $1 works)
+ *
+ * Rules must be idempotent: the bulk rewrite job (UrlRewriteJob) may run again
+ * after a restart and must not rewrite a rewritten URL a second time. Host rules
+ * are idempotent by construction (from and to differ). Prefix rules are checked
+ * when created, but that can't catch everything: https://x/a → https://x/ turns
+ * https://x/aab into https://x/ab, which still starts with from. So for prefix
+ * and regex rules, apply() also refuses a result that the rule would change again.
+ */
+public final class UrlRewrite {
+
+    public enum Kind { HOST, PREFIX, REGEX }
+
+    // scheme://[userinfo@]host[rest], where rest starts with the port, path, query or fragment
+    private static final Pattern AUTHORITY = Pattern.compile("^([a-zA-Z][a-zA-Z0-9+.-]*://(?:[^/?#@]*@)?)([^/?#:]+)(.*)$");
+
+    private final Kind kind;
+    private final String from;
+    private final String to;
+    private final Pattern pattern;
+
+    private UrlRewrite(Kind kind, String from, String to, Pattern pattern) {
+        this.kind = kind;
+        this.from = from;
+        this.to = to;
+        this.pattern = pattern;
+    }
+
+    /**
+     * @param kind "host", "prefix" or "regex" (case-insensitive)
+     * @throws IllegalArgumentException if the rule is incomplete, invalid or not idempotent
+     */
+    public static UrlRewrite of(String kind, String from, String to) {
+        if (kind == null || kind.isBlank()) {
+            throw new IllegalArgumentException("match is required: host, prefix or regex");
+        }
+        if (from == null || from.isEmpty()) {
+            throw new IllegalArgumentException("from is required");
+        }
+        if (to == null) {
+            throw new IllegalArgumentException("to is required");
+        }
+        switch (kind.toLowerCase(Locale.ROOT)) {
+            case "host" -> {
+                if (!isHost(from) || !isHost(to)) {
+                    throw new IllegalArgumentException("Host rewrites take host names, like wiki.old.corp");
+                }
+                if (from.equalsIgnoreCase(to)) {
+                    throw new IllegalArgumentException("from and to are the same host");
+                }
+                return new UrlRewrite(Kind.HOST, from, to, null);
+            }
+            case "prefix" -> {
+                if (to.startsWith(from)) {
+                    // Running again would prefix the already rewritten URLs again
+                    throw new IllegalArgumentException("to must not start with from");
+                }
+                return new UrlRewrite(Kind.PREFIX, from, to, null);
+            }
+            case "regex" -> {
+                Pattern pattern;
+                try {
+                    pattern = Pattern.compile(from);
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("Invalid regex: " + e.getDescription());
+                }
+                try {
+                    pattern.matcher("").replaceAll(to);
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    throw new IllegalArgumentException("Invalid replacement: " + e.getMessage());
+                }
+                return new UrlRewrite(Kind.REGEX, from, to, pattern);
+            }
+            default -> throw new IllegalArgumentException("match must be host, prefix or regex");
+        }
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public String from() {
+        return from;
+    }
+
+    /**
+     * The rewritten URL, or {@code url} itself if the rule doesn't apply to it.
+     *
+     * @throws IllegalStateException if a prefix or regex rule would rewrite its own result again
+     */
+    public String apply(String url) {
+        if (url == null) {
+            return null;
+        }
+        String rewritten = rewrite(url);
+        if (kind != Kind.HOST && !rewritten.equals(url) && !rewrite(rewritten).equals(rewritten)) {
+            throw new IllegalStateException("Rewriting " + url + " again would change it again");
+        }
+        return rewritten;
+    }
+
+    private String rewrite(String url) {
+        switch (kind) {
+            case HOST -> {
+                Matcher m = AUTHORITY.matcher(url);
+                if (m.matches() && m.group(2).equalsIgnoreCase(from)) {
+                    return m.group(1) + to + m.group(3);
+                }
+                return url;
+            }
+            case PREFIX -> {
+                return url.startsWith(from) ? to + url.substring(from.length()) : url;
+            }
+            default -> {
+                return pattern.matcher(url).replaceAll(to);
+            }
+        }
+    }
+
+    private static boolean isHost(String host) {
+        return !host.isEmpty() && host.chars().noneMatch(c -> c == '/' || c == ':' || c == '@' || c == '?'
+                || c == '#' || Character.isWhitespace(c));
+    }
+
+    @Override
+    public String toString() {
+        return kind.name().toLowerCase(Locale.ROOT) + " " + from + " → " + to;
+    }
+}
@@ -0,0 +1,49 @@
+package com.linkylink.web;
+
+import com.linkylink.repository.CapacityAccounting;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Charges the DynamoDB capacity consumed while serving a request to its route and
+ * user (see CapacityAccounting).
+ *
+ * The route is the mapping's pattern, not the path: every redirect is
+ * "GET /{keyword}", every link edit "PUT /api/links/{keyword}", so the number of
+ * routes stays as small as the number of endpoints.
+ *
+ * A HandlerInterceptor rather than a filter because the pattern is only known once
+ * Spring MVC has picked the handler; by then Spring Security has also authenticated
+ * the user. Registered in WebConfig.
+ */
+@Component
+public class CapacityAttribution implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = request.getMethod() + " " + (pattern != null ? pattern : "(unmapped)");
+        CapacityAccounting.enter(route, username());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        CapacityAccounting.clear();
+    }
+
+    private static String username() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth instanceof AnonymousAuthenticationToken || !auth.isAuthenticated()) {
+            return "anonymous";
+        }
+        return auth.getName();
+    }
+}
@@ -0,0 +1,75 @@
+package com.linkylink.web;
+
+/**
+ * If-None-Match checks for the endpoints that answer 304s (LinkController's
+ * directory, the dashboard, index.html).
+ *
+ * The header is "*" or a comma-separated list of entity tags, each a quoted string
+ * with an optional W/ (weak) prefix:
+ *
+ *   If-None-Match: "v1-gz", W/"v0", "a,b"
+ *
+ * Note the commas may appear inside the quotes, so splitting on "," isn't enough,
+ * and a substring search would let "v1" match "v10". If-None-Match uses the weak
+ * comparison (RFC 9110 §13.1.2): W/ is ignored and the opaque parts must be equal.
+ */
+public final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * Does the If-None-Match header match any of the given (current) ETags?
+     *
+     * @param ifNoneMatch the header, or null if absent
+     * @param etags       the current representation's tag(s), quoted, e.g. "\"v1\""
+     * @return false for a missing or malformed header (the full response is sent)
+     */
+    public static boolean noneMatchHits(String ifNoneMatch, String... etags) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String header = ifNoneMatch.trim();
+        if (header.equals("*")) {
+            return true;
+        }
+        int i = 0;
+        int n = header.length();
+        while (i < n) {
+            while (i < n && (header.charAt(i) == ',' || header.charAt(i) == ' ' || header.charAt(i) == '\t')) {
+                i++;
+            }
+            if (i == n) {
+                break;
+            }
+            if (header.startsWith("W/", i)) {
+                i += 2;
+            }
+            if (header.charAt(i) != '"') {
+                return false;
+            }
+            int end = header.indexOf('"', i + 1);
+            if (end < 0) {
+                return false;
+            }
+            String opaque = header.substring(i + 1, end);
+            for (String etag : etags) {
+                if (opaque.equals(opaqueTag(etag))) {
+                    return true;
+                }
+            }
+            i = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * The part between the quotes, without any W/ prefix.
+     */
+    private static String opaqueTag(String etag) {
+        String tag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        return tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")
+                ? tag.substring(1, tag.length() - 1)
+                : tag;
+    }
+}
@@ -0,0 +1,158 @@
+package com.linkylink.web;
+
+import com.linkylink.util.AdaptiveConcurrencyLimit;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for redirects and the API: sheds requests with a fast 503
+ * instead of letting them queue when the server is at capacity.
+ *
+ * Without it, a slow DynamoDB fills Tomcat's threads and then its accept queue;
+ * every request — including logins and cached redirects that would take
+ * microseconds — waits behind the slow ones, and latency grows until clients time
+ * out. Rejecting the excess keeps the requests that are admitted fast.
+ *
+ * How many requests may be in flight is found by an AdaptiveConcurrencyLimit,
+ * which shrinks the limit when latency rises above its baseline. Requests are
+ * admitted by priority class, each allowed a share of the limit:
+ *
+ *   CRITICAL  redirects, /api/auth/**      100% of the limit
+ *   NORMAL    the rest of /api/**          normal-share (80%)
+ *   LOW       /api/admin/**                low-share (50%)
+ *
+ * So as the limit tightens, admin listings are turned away first, then regular API
+ * calls, and redirects and logins last. Shed requests get 503 with Retry-After.
+ *
+ * Static files (/app/**), "/" and /actuator/** aren't limited: they don't touch
+ * DynamoDB, and health probes must keep answering under load.
+ *
+ * Runs before Spring Security, so a shed request costs no JWT parsing.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    /**
+     * Priority classes, most important first.
+     */
+    public enum Priority { CRITICAL, NORMAL, LOW }
+
+    /**
+     * Request attribute set by whoever answers 503 because DynamoDB's circuit breaker
+     * is open. Such a request failed fast, without waiting on anything, so it is
+     * neither a drop nor a latency sample for the limit.
+     */
+    public static final String FAILED_FAST = LoadSheddingFilter.class.getName() + ".failedFast";
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final boolean enabled;
+    private final double[] shares;
+    private final LongAdder[] shed = {new LongAdder(), new LongAdder(), new LongAdder()};
+
+    public LoadSheddingFilter(@Value("${linkylink.limiter.enabled:true}") boolean enabled,
+                              @Value("${linkylink.limiter.initial-limit:20}") int initialLimit,
+                              @Value("${linkylink.limiter.min-limit:10}") int minLimit,
+                              @Value("${linkylink.limiter.max-limit:200}") int maxLimit,
+                              @Value("${linkylink.limiter.normal-share:0.8}") double normalShare,
+                              @Value("${linkylink.limiter.low-share:0.5}") double lowShare) {
+        if (lowShare <= 0 || lowShare > normalShare || normalShare > 1) {
+            throw new IllegalArgumentException("Need 0 < low-share <= normal-share <= 1");
+        }
+        this.enabled = enabled;
+        this.limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit);
+        this.shares = new double[]{1.0, normalShare, lowShare};
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || priorityOf(request.getRequestURI()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        Priority priority = priorityOf(request.getRequestURI());
+        if (!limit.tryAcquire(shares[priority.ordinal()])) {
+            shed[priority.ordinal()].increment();
+            reject(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean dropped = true;
+        boolean measured = true;
+        try {
+            chain.doFilter(request, response);
+            // Counting breaker-open 503s as drops would shrink the limit for the
+            // cached redirects that still work, all through the outage
+            measured = request.getAttribute(FAILED_FAST) == null;
+            // Any other 5xx means a dependency failed or timed out: a sign of overload
+            dropped = response.getStatus() >= 500;
+        } finally {
+            if (measured) {
+                limit.release(start, dropped);
+            } else {
+                limit.releaseUnmeasured();
+            }
+        }
+    }
+
+    /**
+     * The priority class of a request path, or null if it isn't limited.
+     */
+    static Priority priorityOf(String path) {
+        if (path.startsWith("/api/")) {
+            if (path.startsWith("/api/auth/")) {
+                return Priority.CRITICAL;
+            }
+            return path.startsWith("/api/admin/") ? Priority.LOW : Priority.NORMAL;
+        }
+        if (path.equals("/") || path.startsWith("/app/") || path.equals("/app")
+                || path.startsWith("/actuator/") || path.startsWith("/static/")) {
+            return null;
+        }
+        return Priority.CRITICAL; // a redirect
+    }
+
+    private static void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", "1");
+        if (request.getRequestURI().startsWith("/api/")) {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Server is busy, please retry shortly\"}");
+        } else {
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Server is busy, please retry shortly");
+        }
+    }
+
+    /**
+     * The current concurrency limit (requests in flight across all classes).
+     */
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInFlight() {
+        return limit.getInFlight();
+    }
+
+    /**
+     * Requests of the given class rejected with 503 so far.
+     */
+    public long getShed(Priority priority) {
+        return shed[priority.ordinal()].sum();
+    }
+}
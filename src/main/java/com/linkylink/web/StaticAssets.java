@@ -0,0 +1,315 @@
+package com.linkylink.web;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * The React build (static/app/ on the classpath), loaded once at startup and served
+ * without per-request work.
+ *
+ * - Vite writes a .br and a .gz next to each compressible file (see vite.config.js).
+ *   Each response picks the smallest variant the browser accepts: br, then gzip,
+ *   then the plain file. Nothing is compressed per request.
+ * - Files under assets/ have a content hash in their names, so they never change:
+ *   they're sent with "Cache-Control: public, max-age=1 year, immutable" and the
+ *   browser doesn't even revalidate them.
+ * - Small files are held in memory. Larger ones are sent from disk with Tomcat's
+ *   sendfile: the kernel copies file → socket, and the bytes never pass through
+ *   the JVM. Files inside the JAR are extracted to a temp directory first.
+ * - index.html is held in memory with a strong ETag, revalidated on every visit
+ *   ("no-cache"), so a new deploy is picked up at once; it's what references the
+ *   new hashed bundles.
+ *
+ * If the frontend hasn't been built, there's nothing to serve and both serve methods
+ * return false.
+ */
+@Component
+public class StaticAssets {
+
+    private static final Logger log = LoggerFactory.getLogger(StaticAssets.class);
+
+    private static final String ROOT = "static/app/";
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    // Tomcat's sendfile contract: the connector sets the first, we set the rest
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Content codings, best first.
+     */
+    enum Encoding {
+        BR("br", ".br"), GZIP("gzip", ".gz"), IDENTITY("identity", "");
+
+        final String token;
+        final String suffix;
+
+        Encoding(String token, String suffix) {
+            this.token = token;
+            this.suffix = suffix;
+        }
+    }
+
+    /**
+     * One stored representation of a file: its bytes, or a file on disk if large.
+     */
+    private record Variant(byte[] bytes, Path file, long length) {
+    }
+
+    /**
+     * A file and its compressed variants.
+     *
+     * @param etag strong ETag (index.html only; hashed assets don't need one)
+     */
+    private record Asset(String contentType, Map<Encoding, Variant> variants, String etag) {
+    }
+
+    private final Map<String, Asset> assets = new HashMap<>();
+    private final long sendfileThreshold;
+    private Path extracted; // temp directory for files extracted from the JAR, if any
+    private Asset index;
+
+    public StaticAssets(@Value("${linkylink.assets.sendfile-threshold-kb:48}") long sendfileThresholdKb) {
+        this.sendfileThreshold = sendfileThresholdKb * 1024;
+        try {
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load static/app", e);
+        }
+    }
+
+    /**
+     * Send a hashed asset (by its path below /app/assets/): best encoding, cached for good.
+     *
+     * @return false if there's no such asset
+     */
+    public boolean serveAsset(String name, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Asset asset = assets.get("assets/" + name);
+        if (asset == null) {
+            return false;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE);
+        write(asset, negotiate(asset, request), request, response);
+        return true;
+    }
+
+    /**
+     * Send index.html: best encoding, revalidated with its ETag on every visit.
+     *
+     * @return false if the frontend hasn't been built
+     */
+    public boolean serveIndex(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (index == null) {
+            return false;
+        }
+        Encoding encoding = negotiate(index, request);
+        String etag = encoding == Encoding.IDENTITY
+                ? index.etag()
+                : index.etag().replaceFirst("\"$", "-" + encoding.token + "\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (EntityTags.noneMatchHits(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            if (index.variants().size() > 1) {
+                response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        write(index, encoding, request, response);
+        return true;
+    }
+
+    private void write(Asset asset, Encoding encoding, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Variant variant = asset.variants().get(encoding);
+        response.setContentType(asset.contentType());
+        if (encoding != Encoding.IDENTITY) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.token);
+        }
+        if (asset.variants().size() > 1) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        response.setContentLengthLong(variant.length());
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        if (variant.bytes() != null) {
+            response.getOutputStream().write(variant.bytes());
+        } else if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat sends the file itself once we return
+            request.setAttribute(SENDFILE_FILENAME, variant.file().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, variant.length());
+        } else {
+            try (FileChannel file = FileChannel.open(variant.file())) {
+                var out = Channels.newChannel(response.getOutputStream());
+                for (long sent = 0; sent < variant.length(); ) {
+                    sent += file.transferTo(sent, variant.length() - sent, out);
+                }
+            }
+        }
+    }
+
+    /**
+     * The best encoding that the client accepts (Accept-Encoding, q=0 excluded)
+     * and that we have a variant for.
+     */
+    static Encoding negotiate(Asset asset, HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (header == null || asset.variants().size() == 1) {
+            return Encoding.IDENTITY;
+        }
+        boolean br = false;
+        boolean gzip = false;
+        for (String part : header.split(",")) {
+            String[] params = part.trim().split(";");
+            String coding = params[0].trim().toLowerCase();
+            boolean refused = false;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(param.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (refused) {
+                continue;
+            }
+            br |= coding.equals("br") || coding.equals("*");
+            gzip |= coding.equals("gzip") || coding.equals("*");
+        }
+        if (br && asset.variants().containsKey(Encoding.BR)) {
+            return Encoding.BR;
+        }
+        if (gzip && asset.variants().containsKey(Encoding.GZIP)) {
+            return Encoding.GZIP;
+        }
+        return Encoding.IDENTITY;
+    }
+
+    private void load() throws IOException {
+        Map<String, Resource> files = new HashMap<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:" + ROOT + "**")) {
+            String url = resource.getURL().toString();
+            int root = url.lastIndexOf("/" + ROOT);
+            if (root < 0 || url.endsWith("/") || !resource.isReadable()) {
+                continue; // a directory
+            }
+            files.putIfAbsent(url.substring(root + ROOT.length() + 1), resource);
+        }
+
+        long bytes = 0;
+        for (Map.Entry<String, Resource> file : files.entrySet()) {
+            String name = file.getKey();
+            if (name.endsWith(".br") && files.containsKey(name.substring(0, name.length() - 3))
+                    || name.endsWith(".gz") && files.containsKey(name.substring(0, name.length() - 3))) {
+                continue; // a variant, picked up with its original
+            }
+            boolean isIndex = name.equals("index.html");
+            Map<Encoding, Variant> variants = new EnumMap<>(Encoding.class);
+            for (Encoding encoding : Encoding.values()) {
+                Resource resource = files.get(name + encoding.suffix);
+                if (resource != null) {
+                    Variant variant = variant(name + encoding.suffix, resource, isIndex);
+                    variants.put(encoding, variant);
+                    bytes += variant.length();
+                }
+            }
+            String contentType = MediaTypeFactory.getMediaType(name)
+                    .map(MediaType::toString)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            if (contentType.startsWith("text/") && !contentType.contains("charset")) {
+                contentType += ";charset=UTF-8"; // Vite writes UTF-8
+            }
+            Asset asset = new Asset(contentType, variants,
+                    isIndex ? etagOf(variants.get(Encoding.IDENTITY).bytes()) : null);
+            assets.put(name, asset);
+            if (isIndex) {
+                index = asset;
+            }
+        }
+        if (index == null) {
+            log.warn("No frontend build in {} — run 'npm run build' in frontend/ (or build.sh)", ROOT);
+        } else {
+            log.info("Loaded {} frontend files ({} KB with compressed variants)", assets.size(), bytes / 1024);
+        }
+    }
+
+    /**
+     * Keep a file in memory if it's small (or index.html), else somewhere sendfile can
+     * reach it: where it already is on disk, or extracted from the JAR.
+     */
+    private Variant variant(String name, Resource resource, boolean inMemory) throws IOException {
+        long length = resource.contentLength();
+        if (inMemory || length < sendfileThreshold) {
+            try (InputStream in = resource.getInputStream()) {
+                byte[] bytes = in.readAllBytes();
+                return new Variant(bytes, null, bytes.length);
+            }
+        }
+        if (resource.isFile()) {
+            return new Variant(null, resource.getFile().toPath(), length);
+        }
+        if (extracted == null) {
+            extracted = Files.createTempDirectory("linkylink-assets");
+        }
+        Path target = extracted.resolve(name);
+        Files.createDirectories(target.getParent());
+        try (InputStream in = resource.getInputStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new Variant(null, target, Files.size(target));
+    }
+
+    @PreDestroy
+    public void deleteExtracted() throws IOException {
+        if (extracted == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(extracted)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static String etagOf(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
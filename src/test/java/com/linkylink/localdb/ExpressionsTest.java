@@ -0,0 +1,322 @@
+package com.linkylink.localdb;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Condition and update expressions, through UpdateItem / PutItem on the in-memory
+ * client, checked against what DynamoDB documents (Developer Guide, "Condition and
+ * filter expressions" and "Update expressions").
+ */
+class ExpressionsTest {
+
+    private static final String TABLE = "items";
+    private static final Map<String, AttributeValue> KEY = Map.of("id", s("a"));
+
+    private DynamoDbClient client;
+
+    @BeforeEach
+    void createTable() {
+        client = new InMemoryDynamoDbClient();
+        client.createTable(b -> b
+                .tableName(TABLE)
+                .keySchema(KeySchemaElement.builder().attributeName("id").keyType(KeyType.HASH).build())
+                .attributeDefinitions(AttributeDefinition.builder()
+                        .attributeName("id").attributeType(ScalarAttributeType.S).build())
+                .billingMode(BillingMode.PAY_PER_REQUEST));
+    }
+
+    // ==================== Updates ====================
+
+    @Test
+    void ifNotExistsStartsACounterAndThenIncrementsIt() {
+        for (int i = 0; i < 3; i++) {
+            update("SET clicks = if_not_exists(clicks, :zero) + :one", null, Map.of(":zero", n(0), ":one", n(1)));
+        }
+        assertThat(item().get("clicks")).isEqualTo(n(3));
+
+        // if_not_exists keeps an existing value, whatever the fallback
+        update("SET clicks = if_not_exists(clicks, :zero)", null, Map.of(":zero", n(0)));
+        assertThat(item().get("clicks")).isEqualTo(n(3));
+    }
+
+    @Test
+    void arithmeticOnAMissingAttributeIsAnError() {
+        assertThatThrownBy(() -> update("SET clicks = clicks + :one", null, Map.of(":one", n(1))))
+                .isInstanceOf(DynamoDbException.class)
+                .hasMessageContaining("does not exist");
+    }
+
+    @Test
+    void listIndexPathsReadAndWriteElementsInPlace() {
+        put(Map.of("destinations", list(dest("https://a", 0), dest("https://b", 5))));
+
+        update("SET destinations[1].clickCount = destinations[1].clickCount + :one, "
+                + "destinations[0].#url = :url", Map.of("#url", "url"), Map.of(":one", n(1), ":url", s("https://c")));
+
+        List<AttributeValue> destinations = item().get("destinations").l();
+        assertThat(destinations.get(0).m().get("url")).isEqualTo(s("https://c"));
+        assertThat(destinations.get(1).m().get("clickCount")).isEqualTo(n(6));
+    }
+
+    @Test
+    void settingAnIndexPastTheEndAppends() {
+        put(Map.of("tags", list(s("x"))));
+        update("SET tags[5] = :v", null, Map.of(":v", s("y")));
+        assertThat(item().get("tags").l()).containsExactly(s("x"), s("y"));
+    }
+
+    @Test
+    void aPathThroughAMissingParentIsInvalid() {
+        put(Map.of());
+        assertThatThrownBy(() -> update("SET destinations[0].clickCount = :one", null, Map.of(":one", n(1))))
+                .isInstanceOf(DynamoDbException.class)
+                .hasMessageContaining("document path provided in the update expression is invalid");
+    }
+
+    /**
+     * "REMOVE RelatedItems[1], RelatedItems[2]": both indexes refer to the list
+     * before the update, so the two elements after the first go.
+     */
+    @Test
+    void removeOfSeveralListIndexesUsesTheOriginalPositions() {
+        put(Map.of("l", list(s("0"), s("1"), s("2"), s("3"))));
+        update("REMOVE l[1], l[2]", null, null);
+        assertThat(item().get("l").l()).containsExactly(s("0"), s("3"));
+
+        // Past the end: nothing to remove
+        update("REMOVE l[7]", null, null);
+        assertThat(item().get("l").l()).containsExactly(s("0"), s("3"));
+    }
+
+    @Test
+    void removeDeletesAttributesAndMapEntries() {
+        put(Map.of("gone", s("x"), "m", AttributeValue.fromM(Map.of("k", s("v"), "keep", s("w")))));
+        update("REMOVE gone, m.k, notThere", null, null);
+        assertThat(item()).doesNotContainKey("gone");
+        assertThat(item().get("m").m()).containsOnlyKeys("keep");
+    }
+
+    @Test
+    void everySetSeesTheItemAsItWasBefore() {
+        put(Map.of("a", n(1), "b", n(2)));
+        update("SET a = b, b = a", null, null);
+        assertThat(item().get("a")).isEqualTo(n(2));
+        assertThat(item().get("b")).isEqualTo(n(1));
+    }
+
+    @Test
+    void overlappingPathsAreRejected() {
+        put(Map.of("m", AttributeValue.fromM(Map.of("k", s("v")))));
+        assertThatThrownBy(() -> update("SET m = :v REMOVE m.k", null, Map.of(":v", s("x"))))
+                .isInstanceOf(DynamoDbException.class)
+                .hasMessageContaining("Two document paths overlap");
+        assertThatThrownBy(() -> update("SET a = :v, a = :v", null, Map.of(":v", s("x"))))
+                .hasMessageContaining("Two document paths overlap");
+    }
+
+    @Test
+    void addAndDeleteOnNumbersAndSets() {
+        update("ADD clicks :five, tags :ab", null, Map.of(":five", n(5), ":ab", ss("a", "b")));
+        update("ADD clicks :five, tags :bc", null, Map.of(":five", n(5), ":bc", ss("b", "c")));
+        assertThat(item().get("clicks")).isEqualTo(n(10));
+        assertThat(item().get("tags").ss()).containsExactlyInAnyOrder("a", "b", "c");
+
+        // A set can't be empty: deleting its last elements removes the attribute
+        update("DELETE tags :abc", null, Map.of(":abc", ss("a", "b", "c")));
+        assertThat(item()).doesNotContainKey("tags");
+    }
+
+    @Test
+    void listAppend() {
+        put(Map.of("l", list(s("a"))));
+        update("SET l = list_append(l, :more)", null, Map.of(":more", list(s("b"), s("c"))));
+        assertThat(item().get("l").l()).containsExactly(s("a"), s("b"), s("c"));
+    }
+
+    @Test
+    void keyAttributesCanNotBeUpdated() {
+        put(Map.of());
+        assertThatThrownBy(() -> update("SET id = :other", null, Map.of(":other", s("b"))))
+                .isInstanceOf(DynamoDbException.class)
+                .hasMessageContaining("part of the key");
+    }
+
+    @Test
+    void updateItemIsAnUpsertUnlessConditioned() {
+        client.updateItem(b -> b.tableName(TABLE).key(KEY)
+                .updateExpression("SET v = :v").expressionAttributeValues(Map.of(":v", s("x"))));
+        assertThat(item().get("v")).isEqualTo(s("x"));
+
+        Map<String, AttributeValue> other = Map.of("id", s("b"));
+        assertThatThrownBy(() -> client.updateItem(b -> b.tableName(TABLE).key(other)
+                .updateExpression("SET v = :v").conditionExpression("attribute_exists(id)")
+                .expressionAttributeValues(Map.of(":v", s("x")))))
+                .isInstanceOf(ConditionalCheckFailedException.class);
+        assertThat(client.getItem(b -> b.tableName(TABLE).key(other)).hasItem()).isFalse();
+    }
+
+    @Test
+    void returnValues() {
+        put(Map.of("a", n(1), "b", n(2)));
+        Map<String, AttributeValue> updatedNew = client.updateItem(b -> b.tableName(TABLE).key(KEY)
+                .updateExpression("SET a = :v").expressionAttributeValues(Map.of(":v", n(5)))
+                .returnValues(ReturnValue.UPDATED_NEW)).attributes();
+        assertThat(updatedNew).containsOnlyKeys("a").containsEntry("a", n(5));
+
+        Map<String, AttributeValue> allOld = client.updateItem(b -> b.tableName(TABLE).key(KEY)
+                .updateExpression("SET a = :v").expressionAttributeValues(Map.of(":v", n(6)))
+                .returnValues(ReturnValue.ALL_OLD)).attributes();
+        assertThat(allOld).containsEntry("a", n(5)).containsEntry("b", n(2));
+    }
+
+    // ==================== Conditions ====================
+
+    @Test
+    void attributeNotExistsOnAMissingItemIsTrue() {
+        Map<String, AttributeValue> item = Map.of("id", s("a"));
+        client.putItem(b -> b.tableName(TABLE).item(item).conditionExpression("attribute_not_exists(id)"));
+        assertThatThrownBy(() -> client.putItem(b -> b.tableName(TABLE).item(item)
+                .conditionExpression("attribute_not_exists(id)")))
+                .isInstanceOf(ConditionalCheckFailedException.class);
+    }
+
+    /**
+     * Strings compare by their UTF-8 bytes, not Java's UTF-16 order: U+FFFD
+     * (EF BF BD) sorts before U+1F600 (F0 9F 98 80), whose UTF-16 surrogates
+     * (D83D DE00) would sort first. Numbers compare by value.
+     */
+    @Test
+    void comparisons() {
+        put(Map.of("s", s("\uFFFD"), "n", n(10), "t", s("2026-01-02T00:00:00Z")));
+
+        assertThat(matches("s < :v", Map.of(":v", s("\uD83D\uDE00")))).isTrue();
+        assertThat(matches("n > :v", Map.of(":v", n(9)))).isTrue();
+        assertThat(matches("n = :v", Map.of(":v", AttributeValue.fromN("10.0")))).isTrue();
+        assertThat(matches("t < :v", Map.of(":v", s("2026-01-10T00:00:00Z")))).isTrue();
+        assertThat(matches("t BETWEEN :lo AND :hi",
+                Map.of(":lo", s("2026-01-01"), ":hi", s("2026-01-03")))).isTrue();
+        // Different types never compare: false, not an error
+        assertThat(matches("n < :v", Map.of(":v", s("11")))).isFalse();
+        // A missing attribute fails every comparison
+        assertThat(matches("missing < :v", Map.of(":v", n(1)))).isFalse();
+    }
+
+    @Test
+    void functionsAndBooleanOperators() {
+        put(Map.of("url", s("https://docs.example.com"), "tags", ss("a", "b"), "l", list(s("x"), s("y"))));
+
+        assertThat(matches("begins_with(#u, :p)", Map.of("#u", "url"), Map.of(":p", s("https://")))).isTrue();
+        assertThat(matches("contains(tags, :t) AND contains(l, :x)", Map.of(":t", s("a"), ":x", s("y")))).isTrue();
+        assertThat(matches("size(l) = :two AND attribute_type(tags, :ss)",
+                Map.of(":two", n(2), ":ss", s("SS")))).isTrue();
+        assertThat(matches("NOT attribute_exists(l[2]) AND attribute_exists(l[1])", null)).isTrue();
+        assertThat(matches("(size(l) = :one OR size(l) = :two) AND NOT contains(tags, :c)",
+                Map.of(":one", n(1), ":two", n(2), ":c", s("c")))).isTrue();
+        assertThat(matches("size(l) IN (:one, :three)", Map.of(":one", n(1), ":three", n(3)))).isFalse();
+    }
+
+    @Test
+    void placeholdersMustBeDefinedAndUsed() {
+        put(Map.of());
+        assertThatThrownBy(() -> matches("a = :v OR a = :undefined", Map.of(":v", n(1))))
+                .isInstanceOf(DynamoDbException.class)
+                .hasMessageContaining("not defined");
+        assertThatThrownBy(() -> matches("a = :v", Map.of(":v", n(1), ":extra", n(2))))
+                .isInstanceOf(DynamoDbException.class)
+                .hasMessageContaining("Value provided in ExpressionAttributeValues unused in expressions");
+        assertThatThrownBy(() -> matches("#a = :v", Map.of("#b", "a"), Map.of(":v", n(1))))
+                .isInstanceOf(DynamoDbException.class)
+                .hasMessageContaining("ExpressionAttributeNames");
+        assertThatThrownBy(() -> matches("attribute_exists(a)", Map.of()))
+                .isInstanceOf(DynamoDbException.class)
+                .hasMessageContaining("must not be empty");
+    }
+
+    @Test
+    void syntaxErrorsAreValidationErrors() {
+        put(Map.of());
+        assertThatThrownBy(() -> matches("a = ", null)).isInstanceOf(DynamoDbException.class);
+        assertThatThrownBy(() -> matches("no_such_function(a)", null)).hasMessageContaining("Invalid function name");
+        assertThatThrownBy(() -> update("SET", null, null)).isInstanceOf(DynamoDbException.class);
+        assertThatThrownBy(() -> update("MULTIPLY a :v", null, Map.of(":v", n(2))))
+                .isInstanceOf(DynamoDbException.class);
+    }
+
+    // ==================== Helpers ====================
+
+    private void put(Map<String, AttributeValue> attributes) {
+        Map<String, AttributeValue> item = new HashMap<>(attributes);
+        item.putAll(KEY);
+        client.putItem(b -> b.tableName(TABLE).item(item));
+    }
+
+    private void update(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+        client.updateItem(b -> b.tableName(TABLE).key(KEY).updateExpression(expression)
+                .expressionAttributeNames(names).expressionAttributeValues(values));
+    }
+
+    private Map<String, AttributeValue> item() {
+        return client.getItem(b -> b.tableName(TABLE).key(KEY).consistentRead(true)).item();
+    }
+
+    private boolean matches(String condition, Map<String, AttributeValue> values) {
+        return matches(condition, null, values);
+    }
+
+    /**
+     * Does the stored item satisfy the condition? Checked with a ConditionCheck-like
+     * no-op update, so the item is left as it is.
+     */
+    private boolean matches(String condition, Map<String, String> names, Map<String, AttributeValue> values) {
+        Map<String, String> allNames = names == null ? new HashMap<>() : new HashMap<>(names);
+        allNames.put("#probe", "probe");
+        try {
+            client.updateItem(b -> b.tableName(TABLE).key(KEY)
+                    .updateExpression("REMOVE #probe")
+                    .conditionExpression(condition)
+                    .expressionAttributeNames(allNames)
+                    .expressionAttributeValues(values));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.fromS(value);
+    }
+
+    private static AttributeValue n(long value) {
+        return AttributeValue.fromN(Long.toString(value));
+    }
+
+    private static AttributeValue ss(String... values) {
+        return AttributeValue.fromSs(List.of(values));
+    }
+
+    private static AttributeValue list(AttributeValue... values) {
+        return AttributeValue.fromL(List.of(values));
+    }
+
+    private static AttributeValue dest(String url, long clicks) {
+        return AttributeValue.fromM(Map.of("url", s(url), "clickCount", n(clicks)));
+    }
+}
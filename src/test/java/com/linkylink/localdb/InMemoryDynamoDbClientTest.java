@@ -0,0 +1,296 @@
+package com.linkylink.localdb;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The in-memory client's transactions, paging and indexes, checked against what
+ * DynamoDB documents for TransactWriteItems, Query and Scan.
+ *
+ * The table has a composite key (pk, sk) and a GSI on "owner", which only some
+ * items have (a sparse index).
+ */
+class InMemoryDynamoDbClientTest {
+
+    private static final String TABLE = "events";
+    private static final String OWNER_INDEX = "owner-index";
+
+    private DynamoDbClient client;
+
+    @BeforeEach
+    void createTable() {
+        client = new InMemoryDynamoDbClient();
+        client.createTable(b -> b
+                .tableName(TABLE)
+                .keySchema(key("pk", KeyType.HASH), key("sk", KeyType.RANGE))
+                .attributeDefinitions(attribute("pk", ScalarAttributeType.S), attribute("sk", ScalarAttributeType.N),
+                        attribute("owner", ScalarAttributeType.S))
+                .globalSecondaryIndexes(GlobalSecondaryIndex.builder()
+                        .indexName(OWNER_INDEX)
+                        .keySchema(key("owner", KeyType.HASH))
+                        .projection(p -> p.projectionType(ProjectionType.ALL))
+                        .build())
+                .billingMode(BillingMode.PAY_PER_REQUEST));
+    }
+
+    // ==================== TransactWriteItems ====================
+
+    /**
+     * All or nothing: one failed condition cancels the whole transaction, and the
+     * cancellation reasons line up with the items ("None" for the ones that would
+     * have succeeded).
+     */
+    @Test
+    void aFailedConditionCancelsEveryWrite() {
+        put("p", 1, "alice");
+        put("p", 2, "bob");
+
+        List<TransactWriteItem> items = List.of(
+                moveTo("p", 1, "alice", "carol"),
+                moveTo("p", 2, "alice", "carol"),   // bob's: fails
+                TransactWriteItem.builder().put(p -> p.tableName(TABLE).item(item("p", 3, "carol"))).build());
+
+        assertThatThrownBy(() -> client.transactWriteItems(b -> b.transactItems(items)))
+                .isInstanceOfSatisfying(TransactionCanceledException.class, e -> assertThat(
+                        e.cancellationReasons().stream().map(CancellationReason::code))
+                        .containsExactly("None", "ConditionalCheckFailed", "None"));
+
+        assertThat(get("p", 1).get("owner").s()).isEqualTo("alice");
+        assertThat(get("p", 3)).isNull();
+        assertThat(queryOwner("carol")).isEmpty();
+    }
+
+    @Test
+    void aTransactionAppliesEveryWriteTogether() {
+        put("p", 1, "alice");
+        put("p", 2, "alice");
+
+        client.transactWriteItems(b -> b.transactItems(
+                moveTo("p", 1, "alice", "carol"),
+                TransactWriteItem.builder().delete(d -> d.tableName(TABLE).key(keyOf("p", 2))
+                        .conditionExpression("#o = :o")
+                        .expressionAttributeNames(Map.of("#o", "owner"))
+                        .expressionAttributeValues(Map.of(":o", s("alice")))).build(),
+                TransactWriteItem.builder().conditionCheck(c -> c.tableName(TABLE).key(keyOf("p", 9))
+                        .conditionExpression("attribute_not_exists(pk)")).build()));
+
+        assertThat(get("p", 1).get("owner").s()).isEqualTo("carol");
+        assertThat(get("p", 2)).isNull();
+        assertThat(queryOwner("alice")).isEmpty();
+        assertThat(queryOwner("carol")).hasSize(1);
+    }
+
+    @Test
+    void twoOperationsOnOneItemAreRejected() {
+        put("p", 1, "alice");
+        assertThatThrownBy(() -> client.transactWriteItems(b -> b.transactItems(
+                moveTo("p", 1, "alice", "bob"),
+                TransactWriteItem.builder().delete(d -> d.tableName(TABLE).key(keyOf("p", 1))).build())))
+                .isInstanceOf(DynamoDbException.class)
+                .hasMessageContaining("multiple operations on one item");
+        assertThat(get("p", 1).get("owner").s()).isEqualTo("alice");
+    }
+
+    // ==================== Query & Scan ====================
+
+    @Test
+    void queryReadsOnePartitionInSortKeyOrderEitherWay() {
+        for (int sk : new int[] {10, 2, 33, 4}) {
+            put("p", sk, null);
+        }
+        put("other", 1, null);
+
+        assertThat(sortKeys(client.query(b -> b.tableName(TABLE)
+                .keyConditionExpression("pk = :p")
+                .expressionAttributeValues(Map.of(":p", s("p")))))).containsExactly(2, 4, 10, 33);
+        assertThat(sortKeys(client.query(b -> b.tableName(TABLE)
+                .keyConditionExpression("pk = :p AND sk BETWEEN :lo AND :hi")
+                .expressionAttributeValues(Map.of(":p", s("p"), ":lo", n(3), ":hi", n(10)))
+                .scanIndexForward(false)))).containsExactly(10, 4);
+    }
+
+    /**
+     * Limit caps the items read, before the filter: a page can come back with
+     * fewer items than Limit, even none, and still have a LastEvaluatedKey.
+     */
+    @Test
+    void queryPagesWithLimitAndFilter() {
+        for (int sk = 1; sk <= 7; sk++) {
+            put("p", sk, sk % 2 == 0 ? "even" : null);
+        }
+        List<Integer> seen = new ArrayList<>();
+        Map<String, AttributeValue> start = null;
+        int pages = 0;
+        do {
+            Map<String, AttributeValue> from = start;
+            QueryResponse page = client.query(b -> b.tableName(TABLE)
+                    .keyConditionExpression("pk = :p")
+                    .filterExpression("attribute_exists(#o)")
+                    .expressionAttributeNames(Map.of("#o", "owner"))
+                    .expressionAttributeValues(Map.of(":p", s("p")))
+                    .limit(3)
+                    .exclusiveStartKey(from));
+            assertThat(page.scannedCount()).isLessThanOrEqualTo(3);
+            assertThat(page.count()).isEqualTo(page.items().size());
+            seen.addAll(sortKeys(page));
+            start = page.hasLastEvaluatedKey() ? page.lastEvaluatedKey() : null;
+            pages++;
+        } while (start != null);
+
+        assertThat(seen).containsExactly(2, 4, 6);
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    void scanPagesVisitEveryItemOnce() {
+        for (int i = 0; i < 25; i++) {
+            put("p" + (i % 4), i, null);
+        }
+        List<String> seen = new ArrayList<>();
+        Map<String, AttributeValue> start = null;
+        do {
+            Map<String, AttributeValue> from = start;
+            ScanResponse page = client.scan(b -> b.tableName(TABLE).limit(4).exclusiveStartKey(from));
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(4);
+            page.items().forEach(item -> seen.add(item.get("pk").s() + "/" + item.get("sk").n()));
+            start = page.hasLastEvaluatedKey() ? page.lastEvaluatedKey() : null;
+        } while (start != null);
+
+        assertThat(seen).hasSize(25).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void parallelScanSegmentsPartitionTheTable() {
+        for (int i = 0; i < 40; i++) {
+            put("p" + i, i, null);
+        }
+        List<String> seen = new ArrayList<>();
+        for (int segment = 0; segment < 3; segment++) {
+            int s = segment;
+            client.scanPaginator(b -> b.tableName(TABLE).segment(s).totalSegments(3)).items()
+                    .forEach(item -> seen.add(item.get("pk").s()));
+        }
+        assertThat(seen).hasSize(40).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void indexesAreSparseAndFollowUpdates() {
+        put("p", 1, "alice");
+        put("p", 2, null);
+        assertThat(client.scan(b -> b.tableName(TABLE).indexName(OWNER_INDEX)).count()).isEqualTo(1);
+
+        client.updateItem(b -> b.tableName(TABLE).key(keyOf("p", 2))
+                .updateExpression("SET #o = :o")
+                .expressionAttributeNames(Map.of("#o", "owner"))
+                .expressionAttributeValues(Map.of(":o", s("alice"))));
+        client.updateItem(b -> b.tableName(TABLE).key(keyOf("p", 1))
+                .updateExpression("REMOVE #o")
+                .expressionAttributeNames(Map.of("#o", "owner")));
+
+        assertThat(queryOwner("alice")).extracting(item -> item.get("sk").n()).containsExactly("2");
+    }
+
+    @Test
+    void consistentReadsOnAnIndexAreRejected() {
+        assertThatThrownBy(() -> client.query(b -> b.tableName(TABLE).indexName(OWNER_INDEX)
+                .keyConditionExpression("#o = :o")
+                .expressionAttributeNames(Map.of("#o", "owner"))
+                .expressionAttributeValues(Map.of(":o", s("alice")))
+                .consistentRead(true)))
+                .isInstanceOf(DynamoDbException.class);
+    }
+
+    @Test
+    void projectionsReturnOnlyTheNamedPaths() {
+        Map<String, AttributeValue> item = new HashMap<>(item("p", 1, "alice"));
+        item.put("l", AttributeValue.fromL(List.of(s("a"), s("b"))));
+        client.putItem(b -> b.tableName(TABLE).item(item));
+
+        Map<String, AttributeValue> projected = client.getItem(b -> b.tableName(TABLE).key(keyOf("p", 1))
+                .projectionExpression("#o, l[1]")
+                .expressionAttributeNames(Map.of("#o", "owner"))).item();
+        assertThat(projected).containsOnlyKeys("owner", "l");
+        assertThat(projected.get("l").l()).containsExactly(s("b"));
+    }
+
+    // ==================== Helpers ====================
+
+    private void put(String pk, int sk, String owner) {
+        client.putItem(b -> b.tableName(TABLE).item(item(pk, sk, owner)));
+    }
+
+    private Map<String, AttributeValue> get(String pk, int sk) {
+        Map<String, AttributeValue> item = client.getItem(b -> b.tableName(TABLE).key(keyOf(pk, sk))).item();
+        return item == null || item.isEmpty() ? null : item;
+    }
+
+    private List<Map<String, AttributeValue>> queryOwner(String owner) {
+        return client.query(b -> b.tableName(TABLE).indexName(OWNER_INDEX)
+                .keyConditionExpression("#o = :o")
+                .expressionAttributeNames(Map.of("#o", "owner"))
+                .expressionAttributeValues(Map.of(":o", s(owner)))).items();
+    }
+
+    private static TransactWriteItem moveTo(String pk, int sk, String from, String to) {
+        return TransactWriteItem.builder().update(u -> u.tableName(TABLE).key(keyOf(pk, sk))
+                .updateExpression("SET #o = :to")
+                .conditionExpression("#o = :from")
+                .expressionAttributeNames(Map.of("#o", "owner"))
+                .expressionAttributeValues(Map.of(":from", s(from), ":to", s(to)))).build();
+    }
+
+    private static List<Integer> sortKeys(QueryResponse response) {
+        return response.items().stream().map(item -> Integer.parseInt(item.get("sk").n())).toList();
+    }
+
+    private static Map<String, AttributeValue> item(String pk, int sk, String owner) {
+        Map<String, AttributeValue> item = new HashMap<>(keyOf(pk, sk));
+        if (owner != null) {
+            item.put("owner", s(owner));
+        }
+        return item;
+    }
+
+    private static Map<String, AttributeValue> keyOf(String pk, int sk) {
+        return Map.of("pk", s(pk), "sk", n(sk));
+    }
+
+    private static KeySchemaElement key(String name, KeyType type) {
+        return KeySchemaElement.builder().attributeName(name).keyType(type).build();
+    }
+
+    private static AttributeDefinition attribute(String name, ScalarAttributeType type) {
+        return AttributeDefinition.builder().attributeName(name).attributeType(type).build();
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.fromS(value);
+    }
+
+    private static AttributeValue n(long value) {
+        return AttributeValue.fromN(Long.toString(value));
+    }
+}
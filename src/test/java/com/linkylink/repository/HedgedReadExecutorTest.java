@@ -0,0 +1,132 @@
+package com.linkylink.repository;
+
+import com.linkylink.localdb.FaultInjector;
+import com.linkylink.localdb.InMemoryDynamoDbClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * HedgedReadExecutor against the in-memory DynamoDB with injected read latency
+ * (FaultInjector): a lognormal latency with a long tail for the hedging itself,
+ * a constant one (median = p99) for the budget and the deadline.
+ */
+class HedgedReadExecutorTest {
+
+    private static final String TABLE = "links";
+    private static final Map<String, AttributeValue> KEY = Map.of("keyword", AttributeValue.fromS("docs"));
+
+    private HedgedReadExecutor hedged;
+
+    @AfterEach
+    void shutdown() {
+        if (hedged != null) {
+            hedged.shutdown();
+        }
+    }
+
+    /**
+     * Median 2 ms, p99 100 ms. Hedging after the p90 (~17 ms) should leave far fewer
+     * reads slower than 40 ms than the same reads without hedging: a hedged read is
+     * only that slow if both copies are.
+     */
+    @Test
+    void hedgingCutsTheTail() {
+        DynamoDbClient client = client(2, 100);
+        int reads = 600;
+        long slowMillis = 40;
+
+        HedgedReadExecutor plain = executor(false, 0.9, 0.2, 1500);
+        int plainSlow = slowReads(plain, client, reads, slowMillis);
+        plain.shutdown();
+
+        hedged = executor(true, 0.9, 0.2, 1500);
+        int hedgedSlow = slowReads(hedged, client, reads, slowMillis);
+
+        assertThat(hedged.getHedgesSent()).isPositive();
+        assertThat(hedged.getHedgesWon()).isPositive();
+        assertThat(hedgedSlow).as("reads over %d ms, hedged vs not (%d)", slowMillis, plainSlow)
+                .isLessThan(plainSlow);
+    }
+
+    /**
+     * Every read is slower than the 1 ms default delay, so every read wants a hedge;
+     * the budget allows the initial 10 plus 5% of the reads.
+     */
+    @Test
+    void budgetCapsHedges() {
+        DynamoDbClient client = client(5, 5);
+        hedged = executor(true, 0.95, 0.05, 1500);
+        int reads = 100; // fewer than LatencyTracker needs, so the delay stays the default
+        for (int i = 0; i < reads; i++) {
+            hedged.read(() -> client.getItem(b -> b.tableName(TABLE).key(KEY)));
+        }
+
+        assertThat(hedged.getHedgesSent()).isPositive().isLessThanOrEqualTo(10 + Math.round(reads * 0.05));
+        assertThat(hedged.getHedgesDenied()).isPositive();
+    }
+
+    /**
+     * Both copies take 300 ms; the caller gives up at the 50 ms deadline.
+     */
+    @Test
+    void deadlineBoundsTheWait() {
+        DynamoDbClient client = client(300, 300);
+        hedged = executor(true, 0.95, 0.05, 50);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> hedged.read(() -> client.getItem(b -> b.tableName(TABLE).key(KEY))))
+                .isInstanceOf(ApiCallTimeoutException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(250);
+    }
+
+    private static int slowReads(HedgedReadExecutor executor, DynamoDbClient client, int reads, long slowMillis) {
+        int slow = 0;
+        for (int i = 0; i < reads; i++) {
+            long start = System.nanoTime();
+            Map<String, AttributeValue> item = executor.read(
+                    () -> client.getItem(b -> b.tableName(TABLE).key(KEY))).item();
+            assertThat(item).containsKey("url");
+            if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) > slowMillis) {
+                slow++;
+            }
+        }
+        return slow;
+    }
+
+    private static HedgedReadExecutor executor(boolean enabled, double percentile, double budgetRatio,
+                                               long deadlineMs) {
+        return new HedgedReadExecutor(enabled, percentile, 1, 1, deadlineMs, budgetRatio, 8);
+    }
+
+    /**
+     * A links table holding go/docs, whose reads take a lognormal time with this
+     * median and p99 (writes take none).
+     */
+    private static DynamoDbClient client(double readMedianMs, double readP99Ms) {
+        InMemoryDynamoDbClient client = new InMemoryDynamoDbClient(new FaultInjector(
+                new FaultInjector.Settings(readMedianMs, readP99Ms, 0, 0, 0, 0, 0, 0, 0)));
+        client.createTable(b -> b.tableName(TABLE)
+                .keySchema(KeySchemaElement.builder().attributeName("keyword").keyType(KeyType.HASH).build())
+                .attributeDefinitions(AttributeDefinition.builder()
+                        .attributeName("keyword").attributeType(ScalarAttributeType.S).build())
+                .billingMode(BillingMode.PAY_PER_REQUEST));
+        client.putItem(b -> b.tableName(TABLE).item(Map.of(
+                "keyword", AttributeValue.fromS("docs"),
+                "url", AttributeValue.fromS("https://docs.example.com"))));
+        return client;
+    }
+}
@@ -0,0 +1,335 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Destination;
+import com.linkylink.model.Link;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress tests for the concurrent paths of LinkService: click counting, the redirect
+ * caches racing with update/delete, and concurrent creates of one keyword.
+ *
+ * Runs the whole application on the "local" profile, so LinkRepository talks to the
+ * in-memory DynamoDB (InMemoryDynamoDbClient), with a little latency per request to
+ * widen the race windows. Many threads each run a random mix of operations, with
+ * random pauses, for stress.seconds; then the invariants are checked:
+ *
+ *   no lost clicks       every click recorded shows up in the link's clickCount
+ *                        (stored plus sharded), or in clicksDropped
+ *   no stale redirects   once update() or delete() has returned, no resolve() that
+ *                        starts afterwards sees the old link
+ *   one winner           of N concurrent create()s of a keyword, exactly one succeeds
+ *
+ * Each test logs its throughput under contention (operations per second over all
+ * threads). The interleavings differ per run; a failure logs its seed, and
+ * -Dstress.seed=... replays the same choices (not the same thread schedule).
+ * -Dstress.seconds=... runs longer.
+ */
+@SpringBootTest(properties = {
+        "linkylink.local-dynamodb.read-latency.median-ms=1",
+        "linkylink.local-dynamodb.read-latency.p99-ms=5",
+        "linkylink.local-dynamodb.write-latency.median-ms=1",
+        "linkylink.local-dynamodb.write-latency.p99-ms=5",
+        // One link gets hot and is counted in shards; scans only when a test asks
+        "linkylink.counters.hot-clicks-per-second=500",
+        "linkylink.counters.cool-seconds=3600",
+        "linkylink.counters.fold-seconds=3600",
+        // Rebuild the off-heap store while the tests edit links
+        "linkylink.offheap.enabled=true",
+        "linkylink.offheap.capacity-mb=8",
+        "linkylink.offheap.expected-entries=10000",
+        "linkylink.offheap.refresh-seconds=1",
+        // Thousands of creates and edits: log only the results
+        "logging.level.com.linkylink=WARN",
+        "logging.level.com.linkylink.service.LinkServiceConcurrencyTest=INFO"
+})
+@ActiveProfiles("local")
+class LinkServiceConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkServiceConcurrencyTest.class);
+
+    private static final long SEED = Long.getLong("stress.seed", System.nanoTime());
+    private static final long SECONDS = Long.getLong("stress.seconds", 3);
+    private static final int THREADS = 16;
+    private static final String OWNER = "stress";
+
+    @Autowired
+    private LinkService linkService;
+
+    @Autowired
+    private ClickCounters clickCounters;
+
+    /**
+     * Clicks on a few links, one of them hot, while their descriptions are edited.
+     */
+    @Test
+    void noLostClicks() throws Exception {
+        List<String> keywords = List.of("clicks-hot", "clicks-plain", "clicks-weighted");
+        linkService.create("clicks-hot", "https://example.com/hot", null, null, null, null, null, OWNER);
+        linkService.create("clicks-plain", "https://example.com/plain", null, null, null, null, null, OWNER);
+        linkService.create("clicks-weighted", null, null, null, weighted(), null, null, OWNER);
+
+        Map<String, LongAdder> sent = new ConcurrentHashMap<>();
+        keywords.forEach(k -> sent.put(k, new LongAdder()));
+        LongAdder edits = new LongAdder();
+        long droppedBefore = linkService.getClicksDropped();
+
+        double opsPerSecond = stress("clicks", THREADS, (thread, random) -> {
+            if (thread == 0) {
+                // An edit, racing with the counters
+                String keyword = keywords.get(random.nextInt(keywords.size()));
+                edit(keyword, "edit " + random.nextInt());
+                edits.increment();
+                pause(random, 5);
+                return;
+            }
+            // Most clicks on the hot link, enough for it to get sharded
+            String keyword = random.nextInt(10) < 7 ? keywords.get(0) : keywords.get(1 + random.nextInt(2));
+            Link link = linkService.resolve(keyword, false);
+            linkService.recordClick(link, link.pickDestination(), random.nextInt(8) == 0);
+            sent.get(keyword).increment();
+            pause(random, 1);
+        });
+
+        clickCounters.scan(); // publish the shard sums (and fold those of cooled links)
+        long dropped = linkService.getClicksDropped() - droppedBefore;
+        long counted = 0;
+        for (String keyword : keywords) {
+            long total = linkService.findByKeyword(keyword).getTotalClickCount();
+            log.info("go/{}: {} clicks sent, {} counted", keyword, sent.get(keyword).sum(), total);
+            counted += total;
+        }
+        long sentTotal = sent.values().stream().mapToLong(LongAdder::sum).sum();
+        log.info("clicks: {} ops/s with {} threads; {} clicks, {} sharded writes, {} edits, {} dropped",
+                Math.round(opsPerSecond), THREADS, sentTotal, clickCounters.getShardedWrites(),
+                edits.sum(), dropped);
+
+        assertThat(edits.sum()).as("edits done (seed %d)", SEED).isPositive();
+        assertThat(counted + dropped).as("clicks counted + dropped (seed %d)", SEED).isEqualTo(sentTotal);
+    }
+
+    /**
+     * One writer updates, deletes and recreates a link; readers resolve it. Each
+     * write gets the next step number: "started" before it's sent, "acked" once it
+     * returned, and the link's URL ends in its step. A reader that sees acked = a
+     * before resolving must get a link from step a or later, or, if it gets none,
+     * a delete must have been started at a step >= a by the time resolve returned.
+     */
+    @Test
+    void noStaleRedirectAfterAcknowledgedWrite() throws Exception {
+        String keyword = "stale-check";
+        linkService.create(keyword, url(0), null, null, null, null, null, OWNER);
+
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger acked = new AtomicInteger();
+        Set<Integer> deletes = ConcurrentHashMap.newKeySet();
+        Queue<String> violations = new ConcurrentLinkedQueue<>();
+
+        double opsPerSecond = stress("resolve", THREADS, (thread, random) -> {
+            if (thread == 0) {
+                int step = started.get() + 1;
+                boolean exists = !deletes.contains(step - 1);
+                boolean delete = exists && random.nextInt(5) == 0;
+                if (delete) {
+                    deletes.add(step);
+                }
+                started.set(step);
+                if (delete) {
+                    linkService.delete(keyword, OWNER, false);
+                } else if (exists) {
+                    edit(keyword, url(step));
+                } else {
+                    linkService.create(keyword, url(step), null, null, null, null, null, OWNER);
+                }
+                acked.set(step);
+                pause(random, 3);
+                return;
+            }
+            int before = acked.get();
+            // Some readers click too, so updates also race with the counters
+            Link link = linkService.resolve(keyword, random.nextInt(4) == 0);
+            int after = started.get();
+            if (link == null) {
+                boolean deleted = false;
+                for (int step = before; step <= after && !deleted; step++) {
+                    deleted = deletes.contains(step);
+                }
+                if (!deleted) {
+                    violations.add("no link, though step " + before + " wasn't a delete and none started since");
+                }
+            } else {
+                int step = step(link.getUrl());
+                if (step < before) {
+                    violations.add("got step " + step + " after step " + before + " was acknowledged");
+                }
+            }
+            if (random.nextBoolean()) {
+                Thread.yield();
+            }
+        });
+
+        log.info("resolve: {} ops/s with {} threads; {} writes, {} violations",
+                Math.round(opsPerSecond), THREADS, acked.get(), violations.size());
+        assertThat(acked.get()).as("writes done (seed %d)", SEED).isPositive();
+        assertThat(violations).as("stale redirects (seed %d)", SEED).isEmpty();
+    }
+
+    /**
+     * Rounds of THREADS threads, released together, creating the same new keyword.
+     */
+    @Test
+    void exactlyOneWinnerPerKeyword() throws Exception {
+        int rounds = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        Random random = new Random(SEED);
+        long start = System.nanoTime();
+        try {
+            for (int round = 0; round < rounds; round++) {
+                String keyword = "race-" + round;
+                if (round % 2 == 1) {
+                    // Odd rounds race for a keyword freed by a delete
+                    linkService.create(keyword, url(-1), null, null, null, null, null, OWNER);
+                    linkService.delete(keyword, OWNER, false);
+                }
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<String>> creates = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    String owner = "racer-" + t;
+                    long jitter = random.nextInt(200);
+                    creates.add(pool.submit(() -> {
+                        go.await();
+                        TimeUnit.MICROSECONDS.sleep(jitter);
+                        try {
+                            linkService.create(keyword, "https://example.com/" + owner, null, null, null,
+                                    null, null, owner);
+                            return owner;
+                        } catch (IllegalArgumentException e) {
+                            assertThat(e).hasMessageContaining("already taken");
+                            return null;
+                        }
+                    }));
+                }
+                go.countDown();
+
+                List<String> winners = new ArrayList<>();
+                for (Future<String> create : creates) {
+                    String winner = create.get(30, TimeUnit.SECONDS);
+                    if (winner != null) {
+                        winners.add(winner);
+                    }
+                }
+                assertThat(winners).as("winners of go/%s (seed %d)", keyword, SEED).hasSize(1);
+                Link stored = linkService.findByKeyword(keyword);
+                assertThat(stored.getOwnerUsername()).isEqualTo(winners.get(0));
+                assertThat(stored.getUrl()).isEqualTo("https://example.com/" + winners.get(0));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        log.info("create: {} creates/s with {} threads; {} rounds, one winner each",
+                Math.round(rounds * THREADS / seconds), THREADS, rounds);
+    }
+
+    // ==================== Helpers ====================
+
+    private interface Operation {
+        void run(int thread, Random random) throws Exception;
+    }
+
+    /**
+     * Run {@code operation} over and over on {@code threads} threads for
+     * stress.seconds, each thread with its own Random from the seed.
+     *
+     * @return operations per second, all threads together
+     * @throws AssertionError (or whatever else an operation threw) if one failed
+     */
+    private static double stress(String name, int threads, Operation operation) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        LongAdder ops = new LongAdder();
+        CountDownLatch go = new CountDownLatch(1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Random random = new Random(SEED + t);
+            workers.add(pool.submit(() -> {
+                go.await();
+                while (System.nanoTime() < deadline) {
+                    operation.run(thread, random);
+                    ops.increment();
+                }
+                return null;
+            }));
+        }
+        long start = System.nanoTime();
+        go.countDown();
+        try {
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get(SECONDS + 60, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    log.error("{}: a worker failed (seed {})", name, SEED);
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return ops.sum() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Edit a link as its owner, keeping everything but the description or url.
+     */
+    private void edit(String keyword, String urlOrDescription) {
+        Link link = linkService.findByKeyword(keyword);
+        boolean newUrl = urlOrDescription.startsWith("https://");
+        linkService.update(keyword, newUrl ? urlOrDescription : link.getUrl(),
+                newUrl ? link.getDescription() : urlOrDescription, null, link.getDestinations(),
+                null, null, OWNER, false);
+    }
+
+    private static List<Destination> weighted() {
+        return List.of(new Destination("https://example.com/a", 3), new Destination("https://example.com/b", 1));
+    }
+
+    private static String url(int step) {
+        return "https://example.com/step/" + step;
+    }
+
+    private static int step(String url) {
+        return Integer.parseInt(url.substring(url.lastIndexOf('/') + 1));
+    }
+
+    private static void pause(Random random, int maxMillis) throws InterruptedException {
+        if (random.nextBoolean()) {
+            Thread.sleep(random.nextInt(maxMillis + 1));
+        } else {
+            Thread.yield();
+        }
+    }
+}
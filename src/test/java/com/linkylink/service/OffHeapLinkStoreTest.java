@@ -0,0 +1,224 @@
+package com.linkylink.service;
+
+import com.linkylink.model.Link;
+import com.linkylink.repository.LinkRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * OffHeapLinkStore as a tier: freshness (TTL, stale reads, re-stamping), edits and
+ * reads racing with them, and what keeping links off-heap saves.
+ *
+ * The store is filled by refresh() from a mocked LinkRepository.forEach.
+ */
+class OffHeapLinkStoreTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OffHeapLinkStoreTest.class);
+
+    private final List<Link> table = new ArrayList<>();
+    private final LinkRepository repository = mock(LinkRepository.class);
+    private OffHeapLinkStore store;
+
+    OffHeapLinkStoreTest() {
+        doAnswer(invocation -> {
+            Consumer<Link> sink = invocation.getArgument(0);
+            table.forEach(sink);
+            return null;
+        }).when(repository).forEach(any(), any(String[].class));
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (store != null) {
+            store.shutdown();
+        }
+    }
+
+    @Test
+    void servesEveryRedirectFieldIncludingCreatedAt() {
+        Link link = link(1);
+        link.setRedirectStatus(308);
+        link.setCacheMaxAge(600L);
+        link.setExpiresAt("2099-01-01T00:00:00Z");
+        table.add(link);
+        store = store(30);
+        store.refresh();
+
+        Link served = store.get("link-1");
+        assertThat(served.getUrl()).isEqualTo(link.getUrl());
+        assertThat(served.getCreatedAt()).isEqualTo(link.getCreatedAt());
+        assertThat(served.getRedirectStatus()).isEqualTo(308);
+        assertThat(served.getCacheMaxAge()).isEqualTo(600L);
+        assertThat(served.getExpiresAtMillis()).isEqualTo(link.getExpiresAtMillis());
+        assertThat(store.get("link-2")).isNull();
+    }
+
+    @Test
+    void entriesPastTheTtlAreMissesButStillServedStale() {
+        table.add(link(1));
+        store = store(0);
+        store.refresh();
+
+        assertThat(store.get("link-1")).isNull();
+        assertThat(store.getStale("link-1").getUrl()).isEqualTo(link(1).getUrl());
+    }
+
+    @Test
+    void rereadingAnUnchangedLinkRestampsItInPlace() {
+        table.add(link(1));
+        store = store(30);
+        store.refresh();
+        long bytes = store.getOffHeapBytes();
+        long entries = store.getEntries();
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(store.storeIfUnchanged("link-1", link(1), store.stamp())).isTrue();
+        }
+        assertThat(store.getEntries()).isEqualTo(entries);
+        assertThat(store.getOffHeapBytes()).isEqualTo(bytes);
+
+        Link moved = link(1);
+        moved.setUrl("https://moved.example.com/");
+        store.storeIfUnchanged("link-1", moved, store.stamp());
+        assertThat(store.get("link-1").getUrl()).isEqualTo("https://moved.example.com/");
+
+        store.storeIfUnchanged("link-1", null, store.stamp());
+        assertThat(store.getStale("link-1")).isNull();
+    }
+
+    @Test
+    void aReadThatRacedWithAnEditIsDropped() {
+        table.add(link(1));
+        store = store(30);
+        store.refresh();
+
+        long stamp = store.stamp();
+        Link edited = link(1);
+        edited.setUrl("https://new.example.com/");
+        store.onLinkSaved(edited);
+
+        assertThat(store.storeIfUnchanged("link-1", link(1), stamp)).isFalse();
+        assertThat(store.get("link-1").getUrl()).isEqualTo("https://new.example.com/");
+
+        store.onLinkDeleted("link-1");
+        assertThat(store.get("link-1")).isNull();
+        assertThat(store.getStale("link-1")).isNull();
+    }
+
+    /**
+     * Heap retained by N links, and GC work while serving lookups from them, held as
+     * Link objects in a HashMap (what an on-heap tier holding every link costs) and
+     * in the off-heap store. Logged as one line per variant; asserts only that the
+     * store keeps the links off the heap. For a realistic size:
+     *
+     *   mvn test -Dtest=OffHeapLinkStoreTest#footprint -Dfootprint.links=1000000
+     *
+     * (with enough -Xmx for the on-heap variant, and capacity for the off-heap one).
+     */
+    @Test
+    void footprint() {
+        int links = Integer.getInteger("footprint.links", 100_000);
+        int lookups = Integer.getInteger("footprint.lookups", 2_000_000);
+
+        Footprint onHeap = measure("on-heap", links, lookups, () -> {
+            Map<String, Link> map = new HashMap<>();
+            IntStream.range(0, links).forEach(i -> map.put("link-" + i, link(i)));
+            return map::get;
+        });
+
+        store = new OffHeapLinkStore(repository, false, Math.max(64, links / 4000), links, 300, 3600, 24);
+        Footprint offHeap = measure("off-heap", links, lookups, () -> {
+            IntStream.range(0, links).forEach(i -> table.add(link(i)));
+            store.refresh();
+            table.clear(); // the rows "in DynamoDB" aren't part of either tier
+            return store::get;
+        });
+
+        assertThat(offHeap.retainedBytes()).isLessThan(onHeap.retainedBytes() / 4);
+    }
+
+    private record Footprint(long retainedBytes, long collections, long collectionMillis, long fullGcMillis) {
+    }
+
+    private interface Tier {
+        Function<String, Link> build();
+    }
+
+    private static Footprint measure(String name, int links, int lookups, Tier tier) {
+        long before = settledHeap();
+        Function<String, Link> lookup = tier.build();
+        long retained = settledHeap() - before;
+
+        // Redirect-like work: each lookup leaves some garbage behind, as a request does
+        Random random = new Random(42);
+        long[] gcBefore = gcTotals();
+        long found = 0;
+        for (int i = 0; i < lookups; i++) {
+            Link link = lookup.apply("link-" + random.nextInt(links));
+            if (link != null) {
+                found += link.targetUrl("extra/" + i).length() > 0 ? 1 : 0;
+            }
+        }
+        long[] gcAfter = gcTotals();
+
+        // A full collection has to trace whatever is live
+        long start = System.nanoTime();
+        System.gc();
+        long fullGcMillis = (System.nanoTime() - start) / 1_000_000;
+        Reference.reachabilityFence(lookup);
+
+        assertThat(found).isEqualTo(lookups);
+        Footprint footprint = new Footprint(retained, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1],
+                fullGcMillis);
+        log.info("{} links {}: {} MB retained on heap; {} lookups: {} collections, {} ms GC; full GC {} ms",
+                links, name, retained >> 20, lookups, footprint.collections(), footprint.collectionMillis(),
+                fullGcMillis);
+        return footprint;
+    }
+
+    private static long settledHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /** Collections and milliseconds spent in them so far, over all collectors. */
+    private static long[] gcTotals() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0, gc.getCollectionCount());
+            totals[1] += Math.max(0, gc.getCollectionTime());
+        }
+        return totals;
+    }
+
+    private OffHeapLinkStore store(long ttlSeconds) {
+        return new OffHeapLinkStore(repository, false, 1, 16, 300, ttlSeconds, 24);
+    }
+
+    private static Link link(int i) {
+        return new Link("link-" + i, "https://docs.example.com/teams/" + i + "/handbook", "user" + (i % 1000),
+                "Generated link " + i, Link.timestamp(Instant.ofEpochSecond(1_700_000_000L + i)));
+    }
+}
@@ -0,0 +1,49 @@
+package com.linkylink.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * If-None-Match parsing: exact (weak) comparison of each listed tag, "*", and
+ * commas inside quoted tags.
+ */
+class EntityTagsTest {
+
+    @Test
+    void matchesAnyListedTag() {
+        assertThat(EntityTags.noneMatchHits("\"a\", \"v1\"", "\"v1\"")).isTrue();
+        assertThat(EntityTags.noneMatchHits("\"v1\"", "\"v0\"", "\"v1\"")).isTrue();
+        assertThat(EntityTags.noneMatchHits("\"a\",\"b\"", "\"c\"")).isFalse();
+    }
+
+    @Test
+    void comparesWholeTagsNotSubstrings() {
+        assertThat(EntityTags.noneMatchHits("\"v10\"", "\"v1\"")).isFalse();
+        assertThat(EntityTags.noneMatchHits("\"xv1-gz\"", "\"v1\"")).isFalse();
+    }
+
+    @Test
+    void weakComparison() {
+        assertThat(EntityTags.noneMatchHits("W/\"v1\"", "\"v1\"")).isTrue();
+        assertThat(EntityTags.noneMatchHits("\"v1\"", "W/\"v1\"")).isTrue();
+    }
+
+    @Test
+    void starMatchesAnything() {
+        assertThat(EntityTags.noneMatchHits(" * ", "\"v1\"")).isTrue();
+    }
+
+    @Test
+    void commaInsideATag() {
+        assertThat(EntityTags.noneMatchHits("\"a,b\", \"c\"", "\"a,b\"")).isTrue();
+        assertThat(EntityTags.noneMatchHits("\"a,b\"", "\"b\"")).isFalse();
+    }
+
+    @Test
+    void missingOrMalformedHeaderNeverMatches() {
+        assertThat(EntityTags.noneMatchHits(null, "\"v1\"")).isFalse();
+        assertThat(EntityTags.noneMatchHits("v1", "\"v1\"")).isFalse();
+        assertThat(EntityTags.noneMatchHits("\"v1", "\"v1\"")).isFalse();
+    }
+}